@@ -1,19 +1,19 @@
 package com.ml_vision.ml_vision_backend.config;
 
+import com.ml_vision.ml_vision_backend.controllers.StudentImportController;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.multipart.MultipartResolver;
+import org.springframework.web.multipart.support.StandardServletMultipartResolver;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
+@EnableConfigurationProperties(MlClientProperties.class)
 public class AppConfig {
 
-    @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
-    }
-
     @Bean
     public WebMvcConfigurer corsConfigurer() {
         return new WebMvcConfigurer() {
@@ -26,4 +26,20 @@ public class AppConfig {
             }
         };
     }
+
+    /**
+     * Servlet multipart parsing with the small spring.servlet.multipart
+     * limits, except for the student import, which streams its own request
+     * body so that only it can take a large photo archive.
+     */
+    @Bean
+    public MultipartResolver multipartResolver() {
+        return new StandardServletMultipartResolver() {
+            @Override
+            public boolean isMultipart(HttpServletRequest request) {
+                return !request.getRequestURI().startsWith(request.getContextPath() + StudentImportController.PATH)
+                        && super.isMultipart(request);
+            }
+        };
+    }
 }
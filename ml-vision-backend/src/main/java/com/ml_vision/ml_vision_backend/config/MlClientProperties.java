@@ -0,0 +1,48 @@
+package com.ml_vision.ml_vision_backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Outbound HTTP settings for the Python services, one entry per endpoint
+ * (e.g. {@code recognize}, {@code reload}).
+ */
+@Data
+@ConfigurationProperties(prefix = "attendance.ml.client")
+public class MlClientProperties {
+
+    /** How long an idle pooled connection is kept alive before it is evicted. */
+    private Duration idleTimeout = Duration.ofSeconds(30);
+
+    private Map<String, Endpoint> endpoints = new LinkedHashMap<>();
+
+    @Data
+    public static class Endpoint {
+
+        private String url;
+
+        private Duration connectTimeout = Duration.ofSeconds(1);
+
+        private Duration readTimeout = Duration.ofSeconds(10);
+
+        /** Pooled connections and concurrent in-flight calls (bulkhead) for this endpoint. */
+        private int maxConcurrentCalls = 16;
+
+        /** How long a caller may wait for a bulkhead slot before being rejected. */
+        private Duration maxWait = Duration.ZERO;
+
+        /** Failure (or timeout) percentage over the sliding window that opens the breaker. */
+        private float failureRateThreshold = 50;
+
+        private int slidingWindowSize = 20;
+
+        private int minimumNumberOfCalls = 10;
+
+        /** How long the breaker fails fast before letting trial calls through. */
+        private Duration openStateDuration = Duration.ofSeconds(10);
+    }
+}
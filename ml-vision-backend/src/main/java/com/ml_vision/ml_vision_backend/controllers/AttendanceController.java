@@ -1,23 +1,41 @@
 package com.ml_vision.ml_vision_backend.controllers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.ml_vision.ml_vision_backend.dto.AttendanceRecordResponse;
+import com.ml_vision.ml_vision_backend.dto.AttendanceReport;
 import com.ml_vision.ml_vision_backend.dto.BatchRecognizedPayload;
-import com.ml_vision.ml_vision_backend.dto.MlRecognizedStudent;
+import com.ml_vision.ml_vision_backend.dto.ClassAttendanceRollup;
+import com.ml_vision.ml_vision_backend.dto.DailyAttendanceRollup;
+import com.ml_vision.ml_vision_backend.dto.PageResponse;
+import com.ml_vision.ml_vision_backend.services.AttendanceEventBus;
+import com.ml_vision.ml_vision_backend.services.AttendanceReportService;
 import com.ml_vision.ml_vision_backend.services.AttendanceService;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
 import java.time.ZoneId;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/attendance")
 @RequiredArgsConstructor
 public class AttendanceController {
 
+    private static final ZoneId EASTERN = ZoneId.of("America/New_York");
+
     private final AttendanceService attendanceService;
+    private final AttendanceReportService reportService;
+    private final AttendanceEventBus eventBus;
+    private final ObjectMapper objectMapper;
 
     @PostMapping("/batch")
     public ResponseEntity<?> batch(
@@ -25,28 +43,44 @@ public class AttendanceController {
             @RequestParam("sessionId") String sessionId,
             @RequestParam(value = "sessionStartedAt", required = false) String sessionStartedAtRaw,
             @RequestBody BatchRecognizedPayload payload) {
-        java.util.List<AttendanceRecordResponse> saved = new java.util.ArrayList<>();
         LocalDateTime sessionStartedAt = parseToEastern(sessionStartedAtRaw);
-        for (MlRecognizedStudent r : payload.getRecognized()) {
-            var record = attendanceService.recordAttendance(classId, sessionId, sessionStartedAt, r);
-            if (record != null) {
-                saved.add(AttendanceRecordResponse.fromEntity(record));
-            }
-        }
-        return ResponseEntity.ok(saved);
+        // empty in write-behind mode: the records are pushed on /live once written
+        return ResponseEntity.ok(attendanceService
+                .submitBatch(classId, sessionId, sessionStartedAt, payload.getRecognized()));
     }
 
+    // whole history, newest first, written as it is read
     @GetMapping("/class/{classId}")
-    public ResponseEntity<java.util.List<AttendanceRecordResponse>> getByClass(
+    public void getByClass(
             @PathVariable String classId,
-            @RequestParam(value = "sessionId", required = false) String sessionId) {
-        return ResponseEntity.ok(attendanceService.getAttendanceForClass(classId, sessionId));
+            @RequestParam(value = "sessionId", required = false) String sessionId,
+            HttpServletResponse response) throws IOException {
+        JsonArrayStream.<AttendanceRecordResponse>write(response, objectMapper,
+                sink -> attendanceService.streamAttendanceForClass(classId, sessionId, sink));
+    }
+
+    @GetMapping(value = "/class/{classId}", params = "limit")
+    public ResponseEntity<PageResponse<AttendanceRecordResponse>> getPageByClass(
+            @PathVariable String classId,
+            @RequestParam(value = "sessionId", required = false) String sessionId,
+            @RequestParam("limit") int limit,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        return ResponseEntity.ok(attendanceService.getAttendancePage(classId, sessionId, cursor, limit));
     }
 
     @GetMapping("/class/{classId}/today")
     public ResponseEntity<java.util.List<AttendanceRecordResponse>> getByClassToday(
             @PathVariable String classId) {
-        return ResponseEntity.ok(attendanceService.getAttendanceForClassToday(classId, ZoneId.of("America/New_York")));
+        return ResponseEntity.ok(attendanceService.getAttendanceForClassToday(classId, EASTERN));
+    }
+
+    // records as they are committed; on reconnect the browser sends Last-Event-ID to resume
+    @GetMapping(value = "/class/{classId}/live", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter live(
+            @PathVariable String classId,
+            @RequestParam(value = "sessionId", required = false) String sessionId,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return eventBus.subscribe(classId, sessionId, lastEventId);
     }
 
     @PostMapping("/mark-absent")
@@ -58,10 +92,48 @@ public class AttendanceController {
         return ResponseEntity.ok(attendanceService.markAbsences(classId, sessionId, sessionStartedAt));
     }
 
-    private LocalDateTime parseToEastern(String raw) {
+    // counters from the rollups: O(students), not O(records)
+    @GetMapping("/class/{classId}/rollup")
+    public ResponseEntity<ClassAttendanceRollup> getRollup(@PathVariable String classId) {
+        return ResponseEntity.ok(reportService.getClassRollup(classId));
+    }
+
+    @GetMapping("/class/{classId}/rollup/days")
+    public ResponseEntity<java.util.List<DailyAttendanceRollup>> getDailyRollup(
+            @PathVariable String classId,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(reportService.getDailyRollup(classId, from, to));
+    }
+
+    // several classes (all when classIds is omitted) summed server-side from the rollups
+    @GetMapping("/report")
+    public ResponseEntity<AttendanceReport> getReport(
+            @RequestParam(value = "classIds", required = false) java.util.List<String> classIds,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "groupBy", defaultValue = "class") String groupBy) {
+        return ResponseEntity.ok(reportService.getReport(classIds, from, to,
+                AttendanceReportService.Grouping.parse(groupBy)));
+    }
+
+    // backfill / repair: recount the rollups of one class (or all) from the records
+    @PostMapping("/rollups/rebuild")
+    public ResponseEntity<Map<String, Long>> rebuildRollups(
+            @RequestParam(value = "classId", required = false) String classId) {
+        return ResponseEntity.ok(Map.of("records", reportService.rebuildRollups(classId)));
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+
+    // package-private for AttendanceControllerBenchmark
+    static LocalDateTime parseToEastern(String raw) {
         if (raw == null) return null;
         return OffsetDateTime.parse(raw)
-                .atZoneSameInstant(ZoneId.of("America/New_York"))
+                .atZoneSameInstant(EASTERN)
                 .toLocalDateTime();
     }
 }
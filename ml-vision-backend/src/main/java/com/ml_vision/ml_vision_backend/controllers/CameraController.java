@@ -1,54 +1,101 @@
 package com.ml_vision.ml_vision_backend.controllers;
 
-import com.ml_vision.ml_vision_backend.dto.*;
-import com.ml_vision.ml_vision_backend.services.AttendanceService;
-import com.ml_vision.ml_vision_backend.util.MultipartInputStreamFileResource;
+import com.ml_vision.ml_vision_backend.dto.FrameTicketResponse;
+import com.ml_vision.ml_vision_backend.dto.FrameTicketResponse.FrameStatus;
+import com.ml_vision.ml_vision_backend.services.FramePipeline;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
-import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
 @RestController
 @RequestMapping("/api/camera")
 @RequiredArgsConstructor
 public class CameraController {
 
-    private final RestTemplate restTemplate;
-    private final AttendanceService attendanceService;
+    private final FramePipeline framePipeline;
 
-    @Value("${attendance.ml.recognition-url}")
-    private String mlUrl;
+    @Value("${attendance.pipeline.wait-timeout:PT10S}")
+    private Duration waitTimeout;
 
+    /**
+     * Queues a frame for recognition. With {@code wait=true} (the default) the
+     * request completes asynchronously with the recognizer result, or with a
+     * 202 ticket if it takes longer than the wait timeout; with
+     * {@code wait=false} the ticket is returned immediately and can be polled
+     * at {@code GET /api/camera/frame/{ticket}}. Frames nearly identical to
+     * the camera's previous one are answered with the previous result.
+     */
     @PostMapping("/frame")
-    public ResponseEntity<?> submitFrame(@RequestParam("image") MultipartFile image,
-            @RequestParam("classId") String classId) throws Exception {
+    public CompletableFuture<ResponseEntity<Object>> submitFrame(@RequestParam("image") MultipartFile image,
+            @RequestParam("classId") String classId,
+            @RequestParam("sessionId") String sessionId,
+            @RequestParam(value = "cameraId", required = false) String cameraId,
+            @RequestParam(value = "wait", defaultValue = "true") boolean wait) throws Exception {
 
-        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
-        body.add("image", new MultipartInputStreamFileResource(
-                image.getInputStream(), image.getOriginalFilename()));
-        body.add("classId", classId);
+        FramePipeline.FrameJob job = framePipeline.submit(
+                image.getBytes(), image.getOriginalFilename(), classId, sessionId, cameraId);
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+        if (!wait) {
+            return CompletableFuture.completedFuture(accepted(job));
+        }
+        return job.result()
+                .thenApply(recognized -> ResponseEntity.ok((Object) recognized))
+                .exceptionally(e -> failed(job, e))
+                .completeOnTimeout(accepted(job), waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
 
-        ResponseEntity<MlRecognizeResponse> resp = restTemplate.exchange(
-                mlUrl,
-                HttpMethod.POST,
-                new HttpEntity<>(body, headers),
-                MlRecognizeResponse.class);
+    @GetMapping("/frame/{ticket}")
+    public ResponseEntity<FrameTicketResponse> getFrame(@PathVariable String ticket) {
+        return framePipeline.find(ticket)
+                .map(CameraController::status)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
 
-        MlRecognizeResponse recognized = resp.getBody();
+    @ExceptionHandler(FramePipeline.OverloadedException.class)
+    public ResponseEntity<String> overloaded(FramePipeline.OverloadedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, framePipeline.getRetryAfter().toSeconds())))
+                .body(e.getMessage());
+    }
 
-        if (recognized != null && recognized.getRecognized() != null) {
-            for (MlRecognizedStudent s : recognized.getRecognized()) {
-                attendanceService.recordAttendance(classId, s);
-            }
-        }
+    private static ResponseEntity<Object> accepted(FramePipeline.FrameJob job) {
+        return ResponseEntity.accepted()
+                .header(HttpHeaders.LOCATION, "/api/camera/frame/" + job.getTicket())
+                .body(status(job));
+    }
+
+    /** 502 when the recognizer (or the client guarding it) failed, 500 for this service's own faults. */
+    private static ResponseEntity<Object> failed(FramePipeline.FrameJob job, Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        boolean recognizerFailed = cause instanceof RestClientException
+                || cause instanceof CallNotPermittedException
+                || cause instanceof BulkheadFullException;
+        return ResponseEntity.status(recognizerFailed ? HttpStatus.BAD_GATEWAY : HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(status(job));
+    }
 
-        return ResponseEntity.ok(recognized);
+    private static FrameTicketResponse status(FramePipeline.FrameJob job) {
+        CompletableFuture<?> result = job.result();
+        FrameTicketResponse.FrameTicketResponseBuilder response = FrameTicketResponse.builder().ticket(job.getTicket());
+        if (!result.isDone()) {
+            return response.status(FrameStatus.PENDING).build();
+        }
+        try {
+            return response.status(FrameStatus.DONE).result(job.result().join()).build();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            return response.status(FrameStatus.FAILED).error(cause.getMessage()).build();
+        }
     }
 }
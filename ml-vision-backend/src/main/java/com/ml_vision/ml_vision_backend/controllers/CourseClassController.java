@@ -1,12 +1,15 @@
 package com.ml_vision.ml_vision_backend.controllers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ml_vision.ml_vision_backend.dto.PageResponse;
 import com.ml_vision.ml_vision_backend.entities.CourseClass;
 import com.ml_vision.ml_vision_backend.services.CourseClassService;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
+import java.io.IOException;
 
 @RestController
 @RequestMapping("/api/classes")
@@ -14,10 +17,18 @@ import java.util.List;
 public class CourseClassController {
 
     private final CourseClassService service;
+    private final ObjectMapper objectMapper;
 
     @GetMapping
-    public List<CourseClass> getAll() {
-        return service.getAll();
+    public void getAll(HttpServletResponse response) throws IOException {
+        JsonArrayStream.write(response, objectMapper, service::streamAll);
+    }
+
+    @GetMapping(params = "limit")
+    public PageResponse<CourseClass> getPage(
+            @RequestParam("limit") int limit,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        return service.getPage(cursor, limit);
     }
 
     @PostMapping
@@ -42,4 +53,9 @@ public class CourseClassController {
         service.delete(id);
         return ResponseEntity.ok().build();
     }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
 }
@@ -0,0 +1,100 @@
+package com.ml_vision.ml_vision_backend.controllers;
+
+import com.ml_vision.ml_vision_backend.dto.FaceEncodingRequest;
+import com.ml_vision.ml_vision_backend.dto.FaceMatchRequest;
+import com.ml_vision.ml_vision_backend.dto.MlRecognizeResponse;
+import com.ml_vision.ml_vision_backend.services.EmbeddingStore;
+import com.ml_vision.ml_vision_backend.services.FaceGallery;
+import com.ml_vision.ml_vision_backend.services.FaceMatcher;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/faces")
+@RequiredArgsConstructor
+public class FaceController {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final FaceGallery faceGallery;
+    private final FaceMatcher faceMatcher;
+    private final EmbeddingStore embeddingStore;
+
+    /** Stores the encoding the recognizer computed from a student's photo. */
+    @PutMapping("/{externalId}")
+    public ResponseEntity<Void> putEncoding(@PathVariable String externalId,
+            @RequestBody FaceEncodingRequest request) {
+        faceGallery.put(externalId, request.getEncoding(), request.getPhotoHash());
+        return ResponseEntity.noContent().build();
+    }
+
+    @DeleteMapping("/{externalId}")
+    public ResponseEntity<Void> deleteEncoding(@PathVariable String externalId) {
+        faceGallery.remove(externalId);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Downloads the whole {@link EmbeddingStore} as of this request. The file
+     * only grows between restarts, so its first {@code length} bytes are a
+     * consistent store; Tomcat streams them with sendfile where supported.
+     */
+    @GetMapping(value = "/store", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public void downloadStore(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        EmbeddingStore.Snapshot snapshot = embeddingStore.snapshot();
+        String etag = "\"" + snapshot.generation() + "-" + snapshot.length() + "\"";
+        response.setHeader(HttpHeaders.ETAG, etag);
+        if (etag.equals(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        response.setContentLengthLong(snapshot.length());
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, snapshot.path().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, snapshot.length());
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(snapshot.path(), StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = 0;
+            while (position < snapshot.length()) {
+                position += channel.transferTo(position, snapshot.length() - position, out);
+            }
+        }
+    }
+
+    /**
+     * Matches detected face encodings against the class roster, or against
+     * every enrolled student when no class is given.
+     */
+    @PostMapping("/match")
+    public ResponseEntity<MlRecognizeResponse> match(@RequestParam(value = "classId", required = false) String classId,
+            @RequestBody FaceMatchRequest request) {
+        List<FaceMatchRequest.Face> faces = request.getFaces() != null ? request.getFaces() : List.of();
+        MlRecognizeResponse response = new MlRecognizeResponse();
+        response.setRecognized(classId != null ? faceMatcher.match(classId, faces) : faceMatcher.matchCampus(faces));
+        return ResponseEntity.ok(response);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> badEncoding(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+}
@@ -0,0 +1,47 @@
+package com.ml_vision.ml_vision_backend.controllers;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Writes a JSON array to the response one element at a time, so a list
+ * endpoint can serialize rows as they come off a database cursor instead
+ * of building the whole list first. Once the first bytes are flushed the
+ * status is committed, so a failure after that leaves the array
+ * unterminated: clients see invalid JSON rather than a silently short list.
+ */
+final class JsonArrayStream {
+
+    private JsonArrayStream() {
+    }
+
+    /** Calls {@code producer} with a sink that appends each element it is given. */
+    static <T> void write(HttpServletResponse response, ObjectMapper objectMapper,
+            Consumer<Consumer<T>> producer) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+            json.writeStartArray();
+            try {
+                producer.accept(element -> {
+                    try {
+                        json.writeObject(element);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            json.writeEndArray();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.ml_vision.ml_vision_backend.controllers;
+
+import com.ml_vision.ml_vision_backend.services.PhotoStorage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves content-addressed photos from {@link PhotoStorage}. A URL's bytes
+ * never change, so responses carry the content hash as a strong ETag and may
+ * be cached for a year; {@code Range} requests get {@code 206} partial content.
+ */
+@RestController
+@RequiredArgsConstructor
+public class PhotoController {
+
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable();
+
+    private final PhotoStorage photoStorage;
+
+    @GetMapping(PhotoStorage.URL_PREFIX + "originals/{fileName:.+}")
+    public ResponseEntity<Resource> original(@PathVariable String fileName, WebRequest request) {
+        int dot = fileName.indexOf('.');
+        return serve(photoStorage.original(fileName), dot < 0 ? fileName : fileName.substring(0, dot), request);
+    }
+
+    /** Normalized, downscaled variant the recognizer encodes; generated on demand if not ready yet. */
+    @GetMapping(PhotoStorage.URL_PREFIX + "recognizer/{hash}.jpg")
+    public ResponseEntity<Resource> recognizerVariant(@PathVariable String hash, WebRequest request) {
+        return serve(photoStorage.variant(hash), hash, request);
+    }
+
+    private static ResponseEntity<Resource> serve(Optional<Path> file, String hash, WebRequest request) {
+        if (file.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        String etag = "\"" + hash + "\"";
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(304).eTag(etag).cacheControl(IMMUTABLE).build();
+        }
+        Resource resource = new FileSystemResource(file.get());
+        // Range headers are answered with 206 by the Resource message converter
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(IMMUTABLE)
+                .contentType(MediaTypeFactory.getMediaType(resource).orElse(MediaType.APPLICATION_OCTET_STREAM))
+                .body(resource);
+    }
+}
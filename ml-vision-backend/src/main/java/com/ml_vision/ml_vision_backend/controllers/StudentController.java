@@ -1,18 +1,26 @@
 package com.ml_vision.ml_vision_backend.controllers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ml_vision.ml_vision_backend.dto.PageResponse;
+import com.ml_vision.ml_vision_backend.dto.StudentChangesResponse;
 import com.ml_vision.ml_vision_backend.entities.Student;
 import com.ml_vision.ml_vision_backend.services.StudentService;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+
 @RestController
 @RequestMapping("/api/students")
 @RequiredArgsConstructor
 public class StudentController {
 
     private final StudentService studentService;
+    private final ObjectMapper objectMapper;
 
     // ---------------------------
     // CREATE STUDENT (with photo)
@@ -42,11 +50,31 @@ public class StudentController {
     }
 
     // ---------------------------
-    // GET ALL STUDENTS
+    // GET ALL STUDENTS (streamed, externalId order)
     // ---------------------------
     @GetMapping
-    public Iterable<Student> getAllStudents() {
-        return studentService.getAllStudents();
+    public void getAllStudents(HttpServletResponse response) throws IOException {
+        JsonArrayStream.write(response, objectMapper, studentService::streamStudents);
+    }
+
+    // ---------------------------
+    // GET STUDENTS PAGE (?limit=&cursor=)
+    // ---------------------------
+    @GetMapping(params = "limit")
+    public PageResponse<Student> getStudentPage(
+            @RequestParam("limit") int limit,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        return studentService.getStudentPage(cursor, limit);
+    }
+
+    // ---------------------------
+    // CHANGE FEED (incremental sync)
+    // ---------------------------
+    @GetMapping("/changes")
+    public StudentChangesResponse getChanges(
+            @RequestParam(value = "since", defaultValue = "0") long since,
+            @RequestParam(value = "limit", defaultValue = "1000") int limit) {
+        return studentService.getChanges(since, limit);
     }
 
     // ---------------------------
@@ -64,4 +92,9 @@ public class StudentController {
     public void deleteStudent(@PathVariable String id) {
         studentService.deleteStudent(id);
     }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
 }
@@ -0,0 +1,96 @@
+package com.ml_vision.ml_vision_backend.controllers;
+
+import com.ml_vision.ml_vision_backend.dto.StudentImportResponse;
+import com.ml_vision.ml_vision_backend.services.StudentImportService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.apache.tomcat.util.http.fileupload.FileItemIterator;
+import org.apache.tomcat.util.http.fileupload.FileItemStream;
+import org.apache.tomcat.util.http.fileupload.FileUpload;
+import org.apache.tomcat.util.http.fileupload.impl.SizeException;
+import org.apache.tomcat.util.http.fileupload.servlet.ServletRequestContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@RestController
+@RequestMapping(StudentImportController.PATH)
+@RequiredArgsConstructor
+public class StudentImportController {
+
+    public static final String PATH = "/api/imports/students";
+
+    private final StudentImportService importService;
+
+    @Value("${attendance.import.max-upload-size:2GB}")
+    private DataSize maxUploadSize;
+
+    // ---------------------------
+    // START IMPORT (CSV + optional photo zip)
+    // ---------------------------
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<StudentImportResponse> submit(HttpServletRequest request) {
+        StudentImportResponse job = importService.submit((students, photos) -> receive(request, students, photos));
+        return ResponseEntity.accepted()
+                .location(ServletUriComponentsBuilder.fromCurrentRequest()
+                        .path("/{jobId}").buildAndExpand(job.getJobId()).toUri())
+                .body(job);
+    }
+
+    // ---------------------------
+    // POLL IMPORT PROGRESS
+    // ---------------------------
+    @GetMapping("/{jobId}")
+    public ResponseEntity<StudentImportResponse> get(@PathVariable String jobId) {
+        return ResponseEntity.of(importService.getJob(jobId));
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+
+    /**
+     * Streams the {@code students} and {@code photos} parts straight to disk.
+     * The servlet multipart resolver skips this endpoint (see
+     * {@code AppConfig#multipartResolver}), so the request body may be as
+     * large as {@code attendance.import.max-upload-size} while every other
+     * endpoint keeps the small {@code spring.servlet.multipart} limits.
+     */
+    private void receive(HttpServletRequest request, Path students, Path photos) throws IOException {
+        FileUpload upload = new FileUpload();
+        upload.setSizeMax(maxUploadSize.toBytes());
+        upload.setFileCountMax(8);
+        try {
+            FileItemIterator parts = upload.getItemIterator(new ServletRequestContext(request));
+            while (parts.hasNext()) {
+                FileItemStream part = parts.next();
+                Path target = switch (part.getFieldName()) {
+                    case "students" -> students;
+                    case "photos" -> photos;
+                    default -> null;
+                };
+                if (target != null) {
+                    try (InputStream in = part.openStream()) {
+                        Files.copy(in, target);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            if (NestedExceptionUtils.getMostSpecificCause(e) instanceof SizeException) {
+                throw new MaxUploadSizeExceededException(maxUploadSize.toBytes(), e);
+            }
+            throw e;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.ml_vision.ml_vision_backend.dto;
 
 import com.ml_vision.ml_vision_backend.entities.AttendanceRecord;
 import com.ml_vision.ml_vision_backend.entities.AttendanceStatus;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Value;
 
@@ -9,6 +10,7 @@ import java.time.LocalDateTime;
 
 @Value
 @Builder
+@AllArgsConstructor // JPQL constructor projections
 public class AttendanceRecordResponse {
     String id;
     String studentId;
@@ -23,6 +25,11 @@ public class AttendanceRecordResponse {
     String sessionId;
     LocalDateTime sessionStartedAt;
 
+    /**
+     * For records built in this request (e.g. just saved through JPA), whose
+     * student and class are already loaded. Stored records are read through
+     * projections instead, since each lazy association would cost a query.
+     */
     public static AttendanceRecordResponse fromEntity(AttendanceRecord record) {
         return AttendanceRecordResponse.builder()
                 .id(record.getId())
@@ -0,0 +1,23 @@
+package com.ml_vision.ml_vision_backend.dto;
+
+import lombok.Value;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Attendance of a set of classes over {@code [from, to]} (either end open
+ * when null), grouped by {@code groupBy} and totalled.
+ */
+@Value
+public class AttendanceReport {
+    LocalDate from;
+    LocalDate to;
+    String groupBy;
+    int classes;
+    int sessions;
+    int present;
+    int absent;
+    int late;
+    List<AttendanceReportRow> rows;
+}
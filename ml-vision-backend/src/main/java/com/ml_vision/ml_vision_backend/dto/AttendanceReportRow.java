@@ -0,0 +1,22 @@
+package com.ml_vision.ml_vision_backend.dto;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.LocalDate;
+
+/**
+ * One group of an {@link AttendanceReport}: a class (classId and className
+ * set) or a period starting on {@code period}, summed over the report's classes.
+ */
+@Value
+@Builder
+public class AttendanceReportRow {
+    String classId;
+    String className;
+    LocalDate period;
+    int sessions;
+    int present;
+    int absent;
+    int late;
+}
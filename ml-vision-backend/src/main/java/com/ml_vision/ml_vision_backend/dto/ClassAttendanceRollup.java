@@ -0,0 +1,19 @@
+package com.ml_vision.ml_vision_backend.dto;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * A class's attendance totals plus one row per student, read from the
+ * rollups rather than the records.
+ */
+@Value
+public class ClassAttendanceRollup {
+    String classId;
+    int sessionsHeld;
+    int present;
+    int absent;
+    int late;
+    List<StudentAttendanceRollup> students;
+}
@@ -0,0 +1,19 @@
+package com.ml_vision.ml_vision_backend.dto;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.LocalDate;
+
+/** Attendance counters of one class on one day, maintained as records are written. */
+@Value
+@Builder
+public class DailyAttendanceRollup {
+    String classId;
+    LocalDate day;
+    // sessions held, each counted on the day of its first record
+    int sessions;
+    int present;
+    int absent;
+    int late;
+}
@@ -0,0 +1,10 @@
+package com.ml_vision.ml_vision_backend.dto;
+
+import lombok.Data;
+
+@Data
+public class FaceEncodingRequest {
+    private float[] encoding;
+    // hex SHA-256 of the photo the encoding was computed from (Student.photoHash)
+    private String photoHash;
+}
@@ -0,0 +1,18 @@
+package com.ml_vision.ml_vision_backend.dto;
+
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class FaceMatchRequest {
+    private List<Face> faces;
+
+    @Data
+    public static class Face {
+        /** 128-d encoding from {@code face_recognition.face_encodings}. */
+        private float[] encoding;
+
+        /** Bounding box "top,right,bottom,left", echoed back on a match. */
+        private String position;
+    }
+}
@@ -0,0 +1,19 @@
+package com.ml_vision.ml_vision_backend.dto;
+
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class FrameTicketResponse {
+    String ticket;
+    FrameStatus status;
+    MlRecognizeResponse result;
+    String error;
+
+    public enum FrameStatus {
+        PENDING,
+        DONE,
+        FAILED
+    }
+}
@@ -0,0 +1,10 @@
+package com.ml_vision.ml_vision_backend.dto;
+
+import lombok.Data;
+import java.util.List;
+
+/** Per-image results of {@code /recognize/batch}, in request order. */
+@Data
+public class MlBatchRecognizeResponse {
+    private List<MlRecognizeResponse> results;
+}
@@ -6,4 +6,7 @@ import java.util.List;
 @Data
 public class MlRecognizeResponse {
     private List<MlRecognizedStudent> recognized;
+
+    /** Set instead of {@code recognized} when one image of a batch could not be processed. */
+    private String error;
 }
@@ -0,0 +1,15 @@
+package com.ml_vision.ml_vision_backend.dto;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated list. Pass {@code nextCursor} as
+ * {@code cursor} to fetch the next page; it is null on the last page.
+ */
+@Value
+public class PageResponse<T> {
+    List<T> items;
+    String nextCursor;
+}
@@ -0,0 +1,19 @@
+package com.ml_vision.ml_vision_backend.dto;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+/** A recognized student accepted by the write-behind buffer but not yet written to the database. */
+@Value
+@Builder
+public class PendingAttendance {
+    String classId;
+    String sessionId;
+    LocalDateTime sessionStartedAt;
+    LocalDateTime timestamp;
+    String studentExternalId;
+    double confidence;
+    String position;
+}
@@ -0,0 +1,19 @@
+package com.ml_vision.ml_vision_backend.dto;
+
+import lombok.Builder;
+import lombok.Value;
+
+/** Attendance counters of one student in one class, maintained as records are written. */
+@Value
+@Builder
+public class StudentAttendanceRollup {
+    String classId;
+    String studentId;
+    String studentExternalId;
+    String studentName;
+    // sessions the student has a record in
+    int sessions;
+    int present;
+    int absent;
+    int late;
+}
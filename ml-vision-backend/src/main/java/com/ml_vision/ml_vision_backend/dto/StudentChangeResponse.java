@@ -0,0 +1,20 @@
+package com.ml_vision.ml_vision_backend.dto;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+@Value
+@Builder
+public class StudentChangeResponse {
+    long seq;
+    String externalId;
+    String studentId;
+    boolean deleted;
+    String photoUrl;
+    String photoHash;
+    // downscaled copy for recognizers; null for photos stored before content addressing
+    String recognizerPhotoUrl;
+    LocalDateTime changedAt;
+}
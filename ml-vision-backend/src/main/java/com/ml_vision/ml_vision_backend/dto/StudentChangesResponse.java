@@ -0,0 +1,16 @@
+package com.ml_vision.ml_vision_backend.dto;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * One page of the student change feed. Pass {@code cursor} as {@code since}
+ * to fetch the next page; {@code hasMore} is false once the feed is drained.
+ */
+@Value
+public class StudentChangesResponse {
+    List<StudentChangeResponse> changes;
+    long cursor;
+    boolean hasMore;
+}
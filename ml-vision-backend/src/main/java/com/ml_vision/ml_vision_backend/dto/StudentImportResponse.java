@@ -0,0 +1,37 @@
+package com.ml_vision.ml_vision_backend.dto;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Progress of a bulk student import. Poll until {@code status} is COMPLETED
+ * or FAILED; {@code errors} lists the first rows that could not be imported
+ * in full ({@code errorCount} counts all of them).
+ */
+@Value
+@Builder
+public class StudentImportResponse {
+    String jobId;
+    String status;
+    // fraction of the CSV consumed so far, 0..1
+    double progress;
+    long rowsRead;
+    long studentsUpserted;
+    long enrollmentsAdded;
+    long photosStored;
+    long errorCount;
+    List<RowError> errors;
+    String failure;
+    LocalDateTime submittedAt;
+    LocalDateTime finishedAt;
+
+    @Value
+    public static class RowError {
+        long line;
+        String externalId;
+        String message;
+    }
+}
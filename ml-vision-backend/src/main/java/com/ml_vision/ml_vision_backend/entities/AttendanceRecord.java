@@ -7,6 +7,13 @@ import org.hibernate.annotations.UuidGenerator;
 import java.time.LocalDateTime;
 
 @Entity
+@Table(name = "attendance_record",
+        uniqueConstraints = @UniqueConstraint(name = "uk_attendance_class_session_student",
+                columnNames = {"course_class_id", "session_id", "student_id"}),
+        indexes = {
+                @Index(name = "idx_attendance_class_time", columnList = "course_class_id, timestamp, id"),
+                @Index(name = "idx_attendance_class_session_time", columnList = "course_class_id, session_id, timestamp, id"),
+                @Index(name = "idx_attendance_student", columnList = "student_id")})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -18,10 +25,11 @@ public class AttendanceRecord {
     @UuidGenerator
     private String id;
 
-    @ManyToOne
+    // lazy: read paths project the few columns they need in the same statement instead
+    @ManyToOne(fetch = FetchType.LAZY)
     private Student student;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private CourseClass courseClass;
 
     private LocalDateTime timestamp;
@@ -7,6 +7,8 @@ import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 
 @Entity
+@Table(name = "course_class_roster",
+        indexes = @Index(name = "idx_roster_class_student", columnList = "course_class_id, student_external_id"))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -17,11 +19,11 @@ public class CourseClassRoster {
     @GeneratedValue(strategy = GenerationType.UUID)
     private String id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "course_class_id")
     private CourseClass courseClass;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "student_external_id", referencedColumnName = "externalId")
     private Student student;
 }
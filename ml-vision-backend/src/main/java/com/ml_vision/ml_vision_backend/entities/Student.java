@@ -2,10 +2,17 @@ package com.ml_vision.ml_vision_backend.entities;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 @Entity
 @Table(name = "students")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "students")
+@NaturalIdCache(region = "students-by-external-id")
 @Data
 @Builder
 @NoArgsConstructor
@@ -16,6 +23,7 @@ public class Student {
     @GeneratedValue(strategy = GenerationType.UUID)
     private String id;
 
+    @NaturalId(mutable = true)
     @Column(nullable = false, unique = true)
     private String externalId; // Student ID provided by school
 
@@ -30,4 +38,8 @@ public class Student {
 
     // URL to saved photo (served from /uploads/)
     private String photoUrl;
+
+    // hex SHA-256 of the saved photo; recognizers skip re-encoding photos whose hash they already hold
+    @Column(length = 64)
+    private String photoHash;
 }
@@ -0,0 +1,41 @@
+package com.ml_vision.ml_vision_backend.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Latest change to each student, keyed by externalId and ordered by
+ * {@code seq}. Deleted students (and externalIds that were renamed away)
+ * stay behind as tombstones so feed clients learn about the removal; the
+ * table therefore holds one row per externalId ever used, not one per edit.
+ */
+@Entity
+@Table(name = "student_changes",
+        indexes = @Index(name = "idx_student_changes_seq", columnList = "seq", unique = true))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class StudentChange {
+
+    @Id
+    private String externalId;
+
+    @Column(nullable = false)
+    private long seq;
+
+    private String studentId;
+
+    @Column(nullable = false)
+    private boolean deleted;
+
+    private String photoUrl;
+
+    @Column(length = 64)
+    private String photoHash;
+
+    @Column(nullable = false)
+    private LocalDateTime changedAt;
+}
@@ -0,0 +1,250 @@
+package com.ml_vision.ml_vision_backend.repositories;
+
+import com.ml_vision.ml_vision_backend.dto.AttendanceRecordResponse;
+import com.ml_vision.ml_vision_backend.dto.MlRecognizedStudent;
+import com.ml_vision.ml_vision_backend.dto.PendingAttendance;
+import com.ml_vision.ml_vision_backend.entities.AttendanceStatus;
+import com.ml_vision.ml_vision_backend.dto.PageResponse;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.SqlArrayValue;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Set-based attendance statements that JPA cannot express, written directly
+ * against the Postgres schema in {@code db/migration}. Statements that
+ * insert records also update the attendance rollups in the same statement
+ * ({@link AttendanceRollupJdbcRepository#APPLY}).
+ */
+@Repository
+public class AttendanceJdbcRepository {
+
+    private static final String CLASS_RECORDS = """
+            SELECT a.*, s.external_id, s.first_name, s.last_name, c.name AS class_name
+            FROM attendance_record a
+            JOIN students s ON s.id = a.student_id
+            JOIN course_classes c ON c.id = a.course_class_id
+            WHERE a.course_class_id = :classId
+            """;
+
+    private static final RowMapper<AttendanceRecordResponse> RESPONSE_MAPPER = (rs, rowNum) ->
+            AttendanceRecordResponse.builder()
+                    .id(rs.getString("id"))
+                    .studentId(rs.getString("student_id"))
+                    .studentExternalId(rs.getString("external_id"))
+                    .studentName(rs.getString("first_name") + " " + rs.getString("last_name"))
+                    .classId(rs.getString("course_class_id"))
+                    .className(rs.getString("class_name"))
+                    .timestamp(rs.getObject("timestamp", LocalDateTime.class))
+                    .status(AttendanceStatus.valueOf(rs.getString("status")))
+                    .confidence(rs.getDouble("confidence"))
+                    .position(rs.getString("position"))
+                    .sessionId(rs.getString("session_id"))
+                    .sessionStartedAt(rs.getObject("session_started_at", LocalDateTime.class))
+                    .build();
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final NamedParameterJdbcTemplate streaming;
+
+    public AttendanceJdbcRepository(NamedParameterJdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+        this.streaming = KeysetCursor.streaming(jdbc);
+    }
+
+    /**
+     * Inserts a PRESENT record for each recognized student, resolving external
+     * ids against {@code students} in the same statement. Students that
+     * already have a record in the session are skipped by the
+     * (course_class_id, session_id, student_id) unique constraint, so
+     * concurrent batches and absence finalization need no lock; only the
+     * records actually created are returned.
+     */
+    public List<AttendanceRecordResponse> insertPresent(String classId, String sessionId, LocalDateTime timestamp,
+            LocalDateTime sessionStartedAt, Collection<MlRecognizedStudent> recognized) {
+        String sql = """
+                WITH created AS (
+                    INSERT INTO attendance_record
+                        (id, student_id, course_class_id, timestamp, status, confidence, position, session_id, session_started_at)
+                    SELECT gen_random_uuid()::text, s.id, :classId, :timestamp, 'PRESENT', f.confidence, f.position,
+                           :sessionId, :sessionStartedAt
+                    FROM unnest(:externalIds, :confidences, :positions) AS f(external_id, confidence, position)
+                    JOIN students s ON s.external_id = f.external_id
+                    ON CONFLICT (course_class_id, session_id, student_id) DO NOTHING
+                    RETURNING *
+                )
+                """ + AttendanceRollupJdbcRepository.APPLY + """
+                SELECT a.*, s.external_id, s.first_name, s.last_name, c.name AS class_name
+                FROM created a
+                JOIN students s ON s.id = a.student_id
+                JOIN course_classes c ON c.id = a.course_class_id
+                ORDER BY s.last_name, s.first_name
+                """;
+        return jdbc.query(sql, new MapSqlParameterSource()
+                .addValue("classId", classId)
+                .addValue("sessionId", sessionId)
+                .addValue("timestamp", timestamp)
+                .addValue("sessionStartedAt", sessionStartedAt)
+                .addValue("externalIds", new SqlArrayValue("text",
+                        recognized.stream().map(MlRecognizedStudent::getStudentId).toArray()))
+                .addValue("confidences", new SqlArrayValue("float8",
+                        recognized.stream().map(MlRecognizedStudent::getConfidence).toArray()))
+                .addValue("positions", new SqlArrayValue("text",
+                        recognized.stream().map(MlRecognizedStudent::getPosition).toArray())), RESPONSE_MAPPER);
+    }
+
+    /**
+     * Inserts PRESENT records buffered by the write-behind writer, across any
+     * number of classes and sessions, in one statement. Like
+     * {@link #insertPresent} it skips students already recorded in their
+     * session, so replaying the same entries after a crash creates nothing.
+     * Entries whose student or class no longer exists are skipped as well.
+     * Rows are inserted in (class, session, student) order so concurrent
+     * writers take the unique index locks in the same order.
+     */
+    public List<AttendanceRecordResponse> insertPending(Collection<PendingAttendance> pending) {
+        String sql = """
+                WITH created AS (
+                    INSERT INTO attendance_record
+                        (id, student_id, course_class_id, timestamp, status, confidence, position, session_id, session_started_at)
+                    SELECT gen_random_uuid()::text, s.id, f.class_id, f.timestamp::timestamp, 'PRESENT', f.confidence,
+                           f.position, f.session_id, f.session_started_at::timestamp
+                    FROM unnest(:classIds, :sessionIds, :timestamps, :sessionStartedAts, :externalIds, :confidences,
+                                :positions)
+                         AS f(class_id, session_id, timestamp, session_started_at, external_id, confidence, position)
+                    JOIN students s ON s.external_id = f.external_id
+                    JOIN course_classes c ON c.id = f.class_id
+                    ORDER BY f.class_id, f.session_id, s.id
+                    ON CONFLICT (course_class_id, session_id, student_id) DO NOTHING
+                    RETURNING *
+                )
+                """ + AttendanceRollupJdbcRepository.APPLY + """
+                SELECT a.*, s.external_id, s.first_name, s.last_name, c.name AS class_name
+                FROM created a
+                JOIN students s ON s.id = a.student_id
+                JOIN course_classes c ON c.id = a.course_class_id
+                ORDER BY a.course_class_id, s.last_name, s.first_name
+                """;
+        // timestamps travel as ISO text and are cast in SQL; the driver has no array encoding for LocalDateTime
+        return jdbc.query(sql, new MapSqlParameterSource()
+                .addValue("classIds", new SqlArrayValue("text",
+                        pending.stream().map(PendingAttendance::getClassId).toArray()))
+                .addValue("sessionIds", new SqlArrayValue("text",
+                        pending.stream().map(PendingAttendance::getSessionId).toArray()))
+                .addValue("timestamps", new SqlArrayValue("text",
+                        pending.stream().map(p -> p.getTimestamp().toString()).toArray()))
+                .addValue("sessionStartedAts", new SqlArrayValue("text",
+                        pending.stream().map(p -> p.getSessionStartedAt().toString()).toArray()))
+                .addValue("externalIds", new SqlArrayValue("text",
+                        pending.stream().map(PendingAttendance::getStudentExternalId).toArray()))
+                .addValue("confidences", new SqlArrayValue("float8",
+                        pending.stream().map(PendingAttendance::getConfidence).toArray()))
+                .addValue("positions", new SqlArrayValue("text",
+                        pending.stream().map(PendingAttendance::getPosition).toArray())), RESPONSE_MAPPER);
+    }
+
+    /**
+     * Inserts an ABSENT record for every rostered student without a record in
+     * the session (anti-join of roster against the session's records) and
+     * returns the created rows, all in one statement. A record a concurrent
+     * batch commits in between wins over the ABSENT one through the unique
+     * constraint.
+     */
+    public List<AttendanceRecordResponse> insertAbsences(String classId, String sessionId,
+            LocalDateTime timestamp, LocalDateTime sessionStartedAt) {
+        String sql = """
+                WITH created AS (
+                    INSERT INTO attendance_record
+                        (id, student_id, course_class_id, timestamp, status, confidence, session_id, session_started_at)
+                    SELECT gen_random_uuid()::text, s.id, :classId, :timestamp, 'ABSENT', 0, :sessionId, :sessionStartedAt
+                    FROM students s
+                    WHERE s.external_id IN (
+                            SELECT r.student_external_id
+                            FROM course_class_roster r
+                            WHERE r.course_class_id = :classId)
+                      -- NOT IN over a non-null column plans as a single hashed scan
+                      AND s.id NOT IN (
+                            SELECT a.student_id
+                            FROM attendance_record a
+                            WHERE a.course_class_id = :classId
+                              AND a.session_id = :sessionId
+                              AND a.student_id IS NOT NULL)
+                    ON CONFLICT (course_class_id, session_id, student_id) DO NOTHING
+                    RETURNING *
+                )
+                """ + AttendanceRollupJdbcRepository.APPLY + """
+                SELECT a.*, s.external_id, s.first_name, s.last_name, c.name AS class_name
+                FROM created a
+                JOIN students s ON s.id = a.student_id
+                JOIN course_classes c ON c.id = a.course_class_id
+                ORDER BY s.last_name, s.first_name
+                """;
+        return jdbc.query(sql, new MapSqlParameterSource()
+                .addValue("classId", classId)
+                .addValue("sessionId", sessionId)
+                .addValue("timestamp", timestamp)
+                .addValue("sessionStartedAt", sessionStartedAt), RESPONSE_MAPPER);
+    }
+
+    /**
+     * One page of a class's records, newest first, keyed on (timestamp, id)
+     * and served from idx_attendance_class_time (idx_attendance_class_session_time
+     * when filtered to a session).
+     *
+     * @param cursor {@code nextCursor} of the previous page, or null for the first
+     * @throws IllegalArgumentException if the cursor is not one this method issued
+     */
+    public PageResponse<AttendanceRecordResponse> findClassPage(String classId, String sessionId,
+            String cursor, int limit) {
+        MapSqlParameterSource params = classParams(classId, sessionId).addValue("limit", limit + 1);
+        StringBuilder sql = new StringBuilder(CLASS_RECORDS);
+        if (sessionId != null) {
+            sql.append(" AND a.session_id = :sessionId");
+        }
+        if (cursor != null) {
+            String[] key = KeysetCursor.decode(cursor, 2);
+            try {
+                params.addValue("afterTimestamp", LocalDateTime.parse(key[0]));
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid cursor", e);
+            }
+            params.addValue("afterId", key[1]);
+            sql.append(" AND (a.timestamp, a.id) < (:afterTimestamp, :afterId)");
+        }
+        sql.append(" ORDER BY a.timestamp DESC, a.id DESC LIMIT :limit");
+
+        List<AttendanceRecordResponse> rows = jdbc.query(sql.toString(), params, RESPONSE_MAPPER);
+        if (rows.size() <= limit) {
+            return new PageResponse<>(rows, null);
+        }
+        AttendanceRecordResponse last = rows.get(limit - 1);
+        return new PageResponse<>(rows.subList(0, limit),
+                KeysetCursor.encode(last.getTimestamp().toString(), last.getId()));
+    }
+
+    /**
+     * Hands every record of a class to {@code sink}, newest first, as rows
+     * come off the cursor. Must run inside a transaction to stream.
+     */
+    public void streamClass(String classId, String sessionId, Consumer<? super AttendanceRecordResponse> sink) {
+        String sql = CLASS_RECORDS
+                + (sessionId != null ? " AND a.session_id = :sessionId" : "")
+                + " ORDER BY a.timestamp DESC, a.id DESC";
+        streaming.query(sql, classParams(classId, sessionId),
+                rs -> {
+                    sink.accept(RESPONSE_MAPPER.mapRow(rs, 0));
+                });
+    }
+
+    private static MapSqlParameterSource classParams(String classId, String sessionId) {
+        return new MapSqlParameterSource()
+                .addValue("classId", classId)
+                .addValue("sessionId", sessionId);
+    }
+}
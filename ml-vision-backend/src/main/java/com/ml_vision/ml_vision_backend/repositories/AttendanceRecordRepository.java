@@ -1,40 +1,37 @@
 package com.ml_vision.ml_vision_backend.repositories;
 
-import com.ml_vision.ml_vision_backend.entities.*;
+import com.ml_vision.ml_vision_backend.dto.AttendanceRecordResponse;
+import com.ml_vision.ml_vision_backend.entities.AttendanceRecord;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
 public interface AttendanceRecordRepository extends JpaRepository<AttendanceRecord, String> {
-    boolean existsByStudentAndCourseClassAndTimestampBetween(
-            Student student,
-            CourseClass courseClass,
-            LocalDateTime start,
-            LocalDateTime end);
-
-    List<AttendanceRecord> findByCourseClassIdOrderByTimestampDesc(String classId);
-
-    boolean existsByStudentAndCourseClassAndSessionId(
-            Student student,
-            CourseClass courseClass,
-            String sessionId
-    );
 
-    boolean existsByCourseClass_IdAndSessionIdAndStudent_ExternalId(
-            String classId,
-            String sessionId,
-            String externalId
-    );
-
-    List<AttendanceRecord> findByCourseClassIdAndSessionIdOrderByTimestampDesc(
-            String classId,
-            String sessionId
-    );
-
-    List<AttendanceRecord> findByCourseClassIdAndTimestampBetweenOrderByTimestampDesc(
+    @Query("""
+        SELECT new com.ml_vision.ml_vision_backend.dto.AttendanceRecordResponse(
+            r.id, s.id, s.externalId, concat(s.firstName, ' ', s.lastName), c.id, c.name,
+            r.timestamp, r.status, r.confidence, r.position, r.sessionId, r.sessionStartedAt)
+        FROM AttendanceRecord r
+        JOIN r.student s
+        JOIN r.courseClass c
+        WHERE c.id = :classId
+          AND r.timestamp BETWEEN :start AND :end
+        ORDER BY r.timestamp DESC
+    """)
+    List<AttendanceRecordResponse> findResponsesByCourseClassIdAndTimestampBetween(
             String classId,
             LocalDateTime start,
             LocalDateTime end
     );
+
+    @Query("""
+        SELECT r.student.externalId
+        FROM AttendanceRecord r
+        WHERE r.courseClass.id = :classId
+          AND r.sessionId = :sessionId
+    """)
+    List<String> findExternalIdsByCourseClassIdAndSessionId(String classId, String sessionId);
 }
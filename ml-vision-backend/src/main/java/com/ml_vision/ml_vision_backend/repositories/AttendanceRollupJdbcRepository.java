@@ -0,0 +1,209 @@
+package com.ml_vision.ml_vision_backend.repositories;
+
+import com.ml_vision.ml_vision_backend.dto.AttendanceReportRow;
+import com.ml_vision.ml_vision_backend.dto.DailyAttendanceRollup;
+import com.ml_vision.ml_vision_backend.dto.StudentAttendanceRollup;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.SqlArrayValue;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Pre-aggregated attendance counters per (class, student) and per
+ * (class, day), see {@code V3__attendance_rollups}. They are not written on
+ * their own: every statement that inserts attendance records appends
+ * {@link #APPLY} so the counters move in the same statement, and therefore
+ * the same transaction, as the records they count.
+ */
+@Repository
+public class AttendanceRollupJdbcRepository {
+
+    /**
+     * Data-modifying CTEs that add the rows of a preceding CTE named
+     * {@code created} (shaped like {@code attendance_record}) to the rollups.
+     * A session is registered on its first record and counted towards that
+     * record's day. The upserts touch each rollup row once per statement, in
+     * key order, so concurrent sessions of a class lock shared rows in the
+     * same order.
+     */
+    static final String APPLY = """
+            , rollup_session AS (
+                INSERT INTO attendance_session (course_class_id, session_id, day)
+                SELECT course_class_id, session_id, min(coalesce(session_started_at, timestamp)::date)
+                FROM created
+                WHERE course_class_id IS NOT NULL AND session_id IS NOT NULL
+                GROUP BY course_class_id, session_id
+                ON CONFLICT (course_class_id, session_id) DO NOTHING
+                RETURNING course_class_id, day
+            ), rollup_student AS (
+                INSERT INTO attendance_student_rollup AS t (course_class_id, student_id, sessions, present, absent, late)
+                SELECT course_class_id, student_id,
+                       count(*) FILTER (WHERE session_id IS NOT NULL),
+                       count(*) FILTER (WHERE status = 'PRESENT'),
+                       count(*) FILTER (WHERE status = 'ABSENT'),
+                       count(*) FILTER (WHERE status = 'LATE')
+                FROM created
+                WHERE course_class_id IS NOT NULL AND student_id IS NOT NULL
+                GROUP BY course_class_id, student_id
+                ORDER BY course_class_id, student_id
+                ON CONFLICT (course_class_id, student_id) DO UPDATE SET
+                    sessions = t.sessions + excluded.sessions,
+                    present = t.present + excluded.present,
+                    absent = t.absent + excluded.absent,
+                    late = t.late + excluded.late
+            ), rollup_day AS (
+                INSERT INTO attendance_daily_rollup AS t (course_class_id, day, sessions, present, absent, late)
+                SELECT r.course_class_id, r.day,
+                       (SELECT count(*) FROM rollup_session h WHERE h.course_class_id = r.course_class_id AND h.day = r.day),
+                       count(*) FILTER (WHERE r.status = 'PRESENT'),
+                       count(*) FILTER (WHERE r.status = 'ABSENT'),
+                       count(*) FILTER (WHERE r.status = 'LATE')
+                FROM (SELECT course_class_id, coalesce(session_started_at, timestamp)::date AS day, status
+                      FROM created
+                      WHERE course_class_id IS NOT NULL) r
+                WHERE r.day IS NOT NULL
+                GROUP BY r.course_class_id, r.day
+                ORDER BY r.course_class_id, r.day
+                ON CONFLICT (course_class_id, day) DO UPDATE SET
+                    sessions = t.sessions + excluded.sessions,
+                    present = t.present + excluded.present,
+                    absent = t.absent + excluded.absent,
+                    late = t.late + excluded.late
+            )
+            """;
+
+    private static final String[] TABLES = {"attendance_session", "attendance_student_rollup", "attendance_daily_rollup"};
+
+    private static final RowMapper<StudentAttendanceRollup> STUDENT_MAPPER = (rs, rowNum) ->
+            StudentAttendanceRollup.builder()
+                    .classId(rs.getString("course_class_id"))
+                    .studentId(rs.getString("student_id"))
+                    .studentExternalId(rs.getString("external_id"))
+                    .studentName(rs.getString("first_name") + " " + rs.getString("last_name"))
+                    .sessions(rs.getInt("sessions"))
+                    .present(rs.getInt("present"))
+                    .absent(rs.getInt("absent"))
+                    .late(rs.getInt("late"))
+                    .build();
+
+    private static final RowMapper<DailyAttendanceRollup> DAY_MAPPER = (rs, rowNum) ->
+            DailyAttendanceRollup.builder()
+                    .classId(rs.getString("course_class_id"))
+                    .day(rs.getObject("day", LocalDate.class))
+                    .sessions(rs.getInt("sessions"))
+                    .present(rs.getInt("present"))
+                    .absent(rs.getInt("absent"))
+                    .late(rs.getInt("late"))
+                    .build();
+
+    private static final RowMapper<AttendanceReportRow> REPORT_MAPPER = (rs, rowNum) ->
+            AttendanceReportRow.builder()
+                    .classId(rs.getString("course_class_id"))
+                    .className(rs.getString("class_name"))
+                    .period(rs.getObject("period", LocalDate.class))
+                    .sessions(rs.getInt("sessions"))
+                    .present(rs.getInt("present"))
+                    .absent(rs.getInt("absent"))
+                    .late(rs.getInt("late"))
+                    .build();
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    public AttendanceRollupJdbcRepository(NamedParameterJdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /** Per-student counters of a class, by student name; one row per student with records. */
+    public List<StudentAttendanceRollup> findStudents(String classId) {
+        String sql = """
+                SELECT r.*, s.external_id, s.first_name, s.last_name
+                FROM attendance_student_rollup r
+                JOIN students s ON s.id = r.student_id
+                WHERE r.course_class_id = :classId
+                ORDER BY s.last_name, s.first_name
+                """;
+        return jdbc.query(sql, new MapSqlParameterSource("classId", classId), STUDENT_MAPPER);
+    }
+
+    /** Per-day counters of a class, oldest first, optionally limited to {@code [from, to]}. */
+    public List<DailyAttendanceRollup> findDays(String classId, LocalDate from, LocalDate to) {
+        MapSqlParameterSource params = new MapSqlParameterSource("classId", classId);
+        StringBuilder sql = new StringBuilder("SELECT * FROM attendance_daily_rollup WHERE course_class_id = :classId");
+        if (from != null) {
+            sql.append(" AND day >= :from");
+            params.addValue("from", from);
+        }
+        if (to != null) {
+            sql.append(" AND day <= :to");
+            params.addValue("to", to);
+        }
+        sql.append(" ORDER BY day");
+        return jdbc.query(sql.toString(), params, DAY_MAPPER);
+    }
+
+    public List<String> findClassIds() {
+        return jdbc.getJdbcOperations().queryForList("SELECT id FROM course_classes ORDER BY id", String.class);
+    }
+
+    /**
+     * Sums the per-day rollups of {@code classIds} over {@code [from, to]}
+     * (either end open when null) in one pass: one row per class, with zeros
+     * for a class without records, when {@code period} is null; otherwise one
+     * row per {@code date_trunc(period, day)} across all the classes.
+     *
+     * @param period {@code day}, {@code week} or {@code month}, or null to group by class
+     */
+    public List<AttendanceReportRow> findReportRows(Collection<String> classIds, LocalDate from, LocalDate to,
+            String period) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("classIds", new SqlArrayValue("text", classIds.toArray()))
+                .addValue("from", from)
+                .addValue("to", to)
+                .addValue("period", period);
+        String range = (from != null ? " AND d.day >= :from" : "") + (to != null ? " AND d.day <= :to" : "");
+        String totals = """
+                 coalesce(sum(d.sessions), 0) AS sessions,
+                 coalesce(sum(d.present), 0) AS present,
+                 coalesce(sum(d.absent), 0) AS absent,
+                 coalesce(sum(d.late), 0) AS late
+                """;
+        String sql = period == null
+                ? "SELECT c.id AS course_class_id, c.name AS class_name, NULL::date AS period," + totals
+                        + " FROM course_classes c"
+                        + " LEFT JOIN attendance_daily_rollup d ON d.course_class_id = c.id" + range
+                        + " WHERE c.id = ANY(:classIds)"
+                        + " GROUP BY c.id, c.name"
+                : "SELECT NULL AS course_class_id, NULL AS class_name, date_trunc(:period, d.day)::date AS period,"
+                        + totals
+                        + " FROM attendance_daily_rollup d"
+                        + " WHERE d.course_class_id = ANY(:classIds)" + range
+                        + " GROUP BY 3";
+        return jdbc.query(sql, params, REPORT_MAPPER);
+    }
+
+    /**
+     * Recomputes the rollups of one class (or all when {@code classId} is
+     * null) from {@code attendance_record}, for backfills and repairs. Holds
+     * the rollup tables exclusively until the surrounding transaction ends,
+     * so ingestion waits instead of counting records twice or not at all.
+     *
+     * @return the number of records counted
+     */
+    public long rebuild(String classId) {
+        MapSqlParameterSource params = new MapSqlParameterSource("classId", classId);
+        String filter = classId != null ? " WHERE course_class_id = :classId" : "";
+
+        jdbc.getJdbcOperations().execute("LOCK TABLE " + String.join(", ", TABLES) + " IN EXCLUSIVE MODE");
+        for (String table : TABLES) {
+            jdbc.update("DELETE FROM " + table + filter, params);
+        }
+        Long records = jdbc.queryForObject("WITH created AS (SELECT * FROM attendance_record" + filter + ")"
+                + APPLY + "SELECT count(*) FROM created", params, Long.class);
+        return records != null ? records : 0;
+    }
+}
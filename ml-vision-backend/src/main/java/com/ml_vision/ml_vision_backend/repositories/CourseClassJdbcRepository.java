@@ -0,0 +1,60 @@
+package com.ml_vision.ml_vision_backend.repositories;
+
+import com.ml_vision.ml_vision_backend.dto.PageResponse;
+import com.ml_vision.ml_vision_backend.entities.CourseClass;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/** Class listings: keyset pages ordered by id and a streamed full list. */
+@Repository
+public class CourseClassJdbcRepository {
+
+    private static final RowMapper<CourseClass> CLASS_MAPPER = (rs, rowNum) -> {
+        CourseClass courseClass = new CourseClass();
+        courseClass.setId(rs.getString("id"));
+        courseClass.setName(rs.getString("name"));
+        courseClass.setCode(rs.getString("code"));
+        courseClass.setDescription(rs.getString("description"));
+        return courseClass;
+    };
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final NamedParameterJdbcTemplate streaming;
+
+    public CourseClassJdbcRepository(NamedParameterJdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+        this.streaming = KeysetCursor.streaming(jdbc);
+    }
+
+    /**
+     * @param cursor {@code nextCursor} of the previous page, or null for the first
+     * @throws IllegalArgumentException if the cursor is not one this method issued
+     */
+    public PageResponse<CourseClass> findPage(String cursor, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource("limit", limit + 1);
+        String where = "";
+        if (cursor != null) {
+            params.addValue("afterId", KeysetCursor.decode(cursor, 1)[0]);
+            where = "WHERE id > :afterId ";
+        }
+        List<CourseClass> rows = jdbc.query("SELECT * FROM course_classes " + where + "ORDER BY id LIMIT :limit",
+                params, CLASS_MAPPER);
+        if (rows.size() <= limit) {
+            return new PageResponse<>(rows, null);
+        }
+        return new PageResponse<>(rows.subList(0, limit), KeysetCursor.encode(rows.get(limit - 1).getId()));
+    }
+
+    /** Hands every class to {@code sink} in id order; must run inside a transaction to stream. */
+    public void streamAll(Consumer<? super CourseClass> sink) {
+        streaming.query("SELECT * FROM course_classes ORDER BY id", new MapSqlParameterSource(),
+                rs -> {
+                    sink.accept(CLASS_MAPPER.mapRow(rs, 0));
+                });
+    }
+}
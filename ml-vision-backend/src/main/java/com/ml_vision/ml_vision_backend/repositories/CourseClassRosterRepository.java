@@ -21,4 +21,11 @@ public interface CourseClassRosterRepository extends JpaRepository<CourseClassRo
         WHERE r.courseClass.id = :classId
     """)
     List<Student> findStudentsByCourseClassId(String classId);
+
+    @Query("""
+        SELECT r.student.externalId
+        FROM CourseClassRoster r
+        WHERE r.courseClass.id = :classId
+    """)
+    List<String> findExternalIdsByCourseClassId(String classId);
 }
@@ -0,0 +1,63 @@
+package com.ml_vision.ml_vision_backend.repositories;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque cursor for keyset pagination: the sort key of the last row of a
+ * page, each value base64url-encoded and joined with dots. The next page
+ * starts strictly after that key, so pages stay consistent while rows are
+ * inserted and cost the same however deep the client has paged.
+ */
+public final class KeysetCursor {
+
+    /** Rows fetched per round trip when a list is streamed off a cursor. */
+    static final int STREAM_FETCH_SIZE = 500;
+
+    private KeysetCursor() {
+    }
+
+    public static String encode(String... values) {
+        StringBuilder cursor = new StringBuilder();
+        for (String value : values) {
+            if (!cursor.isEmpty()) {
+                cursor.append('.');
+            }
+            cursor.append(Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8)));
+        }
+        return cursor.toString();
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code cursor} was not produced by
+     *         {@link #encode} with {@code parts} values
+     */
+    public static String[] decode(String cursor, int parts) {
+        String[] values = cursor.split("\\.", -1);
+        if (values.length != parts) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        try {
+            for (int i = 0; i < parts; i++) {
+                values[i] = new String(Base64.getUrlDecoder().decode(values[i]), StandardCharsets.UTF_8);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+        return values;
+    }
+
+    /**
+     * A template on the same DataSource that fetches {@value #STREAM_FETCH_SIZE}
+     * rows at a time. Postgres only streams inside a transaction; otherwise
+     * the driver still reads the whole result.
+     */
+    static NamedParameterJdbcTemplate streaming(NamedParameterJdbcTemplate jdbc) {
+        JdbcTemplate template = new JdbcTemplate(jdbc.getJdbcTemplate().getDataSource());
+        template.setFetchSize(STREAM_FETCH_SIZE);
+        return new NamedParameterJdbcTemplate(template);
+    }
+}
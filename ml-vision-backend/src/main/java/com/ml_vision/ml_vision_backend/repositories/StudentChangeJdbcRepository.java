@@ -0,0 +1,133 @@
+package com.ml_vision.ml_vision_backend.repositories;
+
+import com.ml_vision.ml_vision_backend.dto.StudentChangeResponse;
+import com.ml_vision.ml_vision_backend.services.PhotoStorage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Writes and pages the {@code StudentChange} log. Sequence numbers are taken
+ * as {@code max(seq) + 1} under a transaction-scoped advisory lock, so they
+ * are assigned in commit order and a reader never skips a change committed
+ * after it advanced its cursor.
+ */
+@Repository
+@RequiredArgsConstructor
+public class StudentChangeJdbcRepository {
+
+    private static final long CHANGE_LOCK = 0x53545544L; // "STUD"
+
+    private static final RowMapper<StudentChangeResponse> MAPPER = (rs, rowNum) ->
+            StudentChangeResponse.builder()
+                    .seq(rs.getLong("seq"))
+                    .externalId(rs.getString("external_id"))
+                    .studentId(rs.getString("student_id"))
+                    .deleted(rs.getBoolean("deleted"))
+                    .photoUrl(rs.getString("photo_url"))
+                    .photoHash(rs.getString("photo_hash"))
+                    .recognizerPhotoUrl(recognizerPhotoUrl(rs.getString("photo_url"), rs.getString("photo_hash")))
+                    .changedAt(rs.getObject("changed_at", LocalDateTime.class))
+                    .build();
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    /** Records the current state of a student; must run inside the transaction that changed it. */
+    public void recordUpsert(String externalId, String studentId, String photoUrl, String photoHash) {
+        record(externalId, studentId, false, photoUrl, photoHash);
+    }
+
+    /** Records the current state of many students in one statement, e.g. after a bulk import. */
+    public void recordUpserts(Collection<String> externalIds) {
+        lock();
+        jdbc.update("""
+                INSERT INTO student_changes (external_id, seq, student_id, deleted, photo_url, photo_hash, changed_at)
+                SELECT s.external_id,
+                       (SELECT COALESCE(MAX(seq), 0) FROM student_changes) + ROW_NUMBER() OVER (ORDER BY s.external_id),
+                       s.id, false, s.photo_url, s.photo_hash, now()
+                FROM students s
+                WHERE s.external_id IN (:externalIds)
+                ON CONFLICT (external_id) DO UPDATE SET
+                    seq = EXCLUDED.seq,
+                    student_id = EXCLUDED.student_id,
+                    deleted = EXCLUDED.deleted,
+                    photo_url = EXCLUDED.photo_url,
+                    photo_hash = EXCLUDED.photo_hash,
+                    changed_at = EXCLUDED.changed_at
+                """, new MapSqlParameterSource("externalIds", externalIds));
+    }
+
+    /** Records that {@code externalId} no longer identifies a student. */
+    public void recordDelete(String externalId) {
+        record(externalId, null, true, null, null);
+    }
+
+    /** Changes after {@code since} in feed order, at most {@code limit}; an index range scan on seq. */
+    public List<StudentChangeResponse> findSince(long since, int limit) {
+        return jdbc.query("""
+                SELECT seq, external_id, student_id, deleted, photo_url, photo_hash, changed_at
+                FROM student_changes
+                WHERE seq > :since
+                ORDER BY seq
+                LIMIT :limit
+                """,
+                new MapSqlParameterSource()
+                        .addValue("since", since)
+                        .addValue("limit", limit),
+                MAPPER);
+    }
+
+    /**
+     * Adds a change for every student that has none yet (students created
+     * before the log existed). Returns the number of rows added.
+     */
+    public int backfill() {
+        lock();
+        return jdbc.update("""
+                INSERT INTO student_changes (external_id, seq, student_id, deleted, photo_url, photo_hash, changed_at)
+                SELECT s.external_id,
+                       (SELECT COALESCE(MAX(seq), 0) FROM student_changes) + ROW_NUMBER() OVER (ORDER BY s.external_id),
+                       s.id, false, s.photo_url, s.photo_hash, now()
+                FROM students s
+                WHERE NOT EXISTS (SELECT 1 FROM student_changes c WHERE c.external_id = s.external_id)
+                """, new MapSqlParameterSource());
+    }
+
+    private void record(String externalId, String studentId, boolean deleted, String photoUrl, String photoHash) {
+        lock();
+        jdbc.update("""
+                INSERT INTO student_changes (external_id, seq, student_id, deleted, photo_url, photo_hash, changed_at)
+                VALUES (:externalId, (SELECT COALESCE(MAX(seq), 0) + 1 FROM student_changes),
+                        :studentId, :deleted, :photoUrl, :photoHash, now())
+                ON CONFLICT (external_id) DO UPDATE SET
+                    seq = EXCLUDED.seq,
+                    student_id = EXCLUDED.student_id,
+                    deleted = EXCLUDED.deleted,
+                    photo_url = EXCLUDED.photo_url,
+                    photo_hash = EXCLUDED.photo_hash,
+                    changed_at = EXCLUDED.changed_at
+                """,
+                new MapSqlParameterSource()
+                        .addValue("externalId", externalId)
+                        .addValue("studentId", studentId)
+                        .addValue("deleted", deleted)
+                        .addValue("photoUrl", photoUrl)
+                        .addValue("photoHash", photoHash));
+    }
+
+    private static String recognizerPhotoUrl(String photoUrl, String photoHash) {
+        return photoUrl != null && photoHash != null && photoUrl.startsWith(PhotoStorage.URL_PREFIX)
+                ? PhotoStorage.recognizerUrl(photoHash)
+                : null;
+    }
+
+    private void lock() {
+        jdbc.queryForList("SELECT pg_advisory_xact_lock(:key)", new MapSqlParameterSource("key", CHANGE_LOCK));
+    }
+}
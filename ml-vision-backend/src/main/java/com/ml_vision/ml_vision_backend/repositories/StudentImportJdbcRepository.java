@@ -0,0 +1,85 @@
+package com.ml_vision.ml_vision_backend.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.SqlArrayValue;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Batched upserts for bulk student imports, against the Postgres schema
+ * behind {@code Student} and {@code CourseClassRoster}. Each method
+ * sends one JDBC batch or one set-based statement per call, however many
+ * rows.
+ */
+@Repository
+@RequiredArgsConstructor
+public class StudentImportJdbcRepository {
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    /** externalId -> current photo hash (null if none) for the students that already exist. */
+    public Map<String, String> findPhotoHashes(Collection<String> externalIds) {
+        Map<String, String> hashes = new HashMap<>();
+        jdbc.query("SELECT external_id, photo_hash FROM students WHERE external_id IN (:ids)",
+                new MapSqlParameterSource("ids", externalIds),
+                rs -> {
+                    hashes.put(rs.getString("external_id"), rs.getString("photo_hash"));
+                });
+        return hashes;
+    }
+
+    /**
+     * Inserts or updates students by externalId. A null photo keeps the
+     * student's current one. ExternalIds must be unique within one call.
+     */
+    public void upsertStudents(List<ImportedStudent> students) {
+        SqlParameterSource[] batch = students.stream()
+                .map(s -> new MapSqlParameterSource()
+                        .addValue("externalId", s.externalId())
+                        .addValue("firstName", s.firstName())
+                        .addValue("lastName", s.lastName())
+                        .addValue("email", s.email())
+                        .addValue("photoUrl", s.photoUrl())
+                        .addValue("photoHash", s.photoHash()))
+                .toArray(SqlParameterSource[]::new);
+        jdbc.batchUpdate("""
+                INSERT INTO students (id, external_id, first_name, last_name, email, photo_url, photo_hash)
+                VALUES (gen_random_uuid()::text, :externalId, :firstName, :lastName, :email, :photoUrl, :photoHash)
+                ON CONFLICT (external_id) DO UPDATE SET
+                    first_name = EXCLUDED.first_name,
+                    last_name = EXCLUDED.last_name,
+                    email = EXCLUDED.email,
+                    photo_url = COALESCE(EXCLUDED.photo_url, students.photo_url),
+                    photo_hash = COALESCE(EXCLUDED.photo_hash, students.photo_hash)
+                """, batch);
+    }
+
+    /** Adds the enrollments that do not exist yet, in one statement; returns how many were added. */
+    public int addEnrollments(List<Enrollment> enrollments) {
+        return jdbc.update("""
+                INSERT INTO course_class_roster (id, course_class_id, student_external_id)
+                SELECT gen_random_uuid()::text, e.class_id, e.external_id
+                FROM (SELECT DISTINCT class_id, external_id
+                      FROM unnest(:classIds, :externalIds) AS e(class_id, external_id)) e
+                WHERE NOT EXISTS (
+                    SELECT 1 FROM course_class_roster r
+                    WHERE r.course_class_id = e.class_id AND r.student_external_id = e.external_id)
+                """, new MapSqlParameterSource()
+                .addValue("classIds", new SqlArrayValue("text", enrollments.stream().map(Enrollment::classId).toArray()))
+                .addValue("externalIds", new SqlArrayValue("text", enrollments.stream().map(Enrollment::externalId).toArray())));
+    }
+
+    public record ImportedStudent(String externalId, String firstName, String lastName, String email,
+            String photoUrl, String photoHash) {
+    }
+
+    public record Enrollment(String classId, String externalId) {
+    }
+}
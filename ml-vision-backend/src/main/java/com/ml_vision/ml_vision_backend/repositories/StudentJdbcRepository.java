@@ -0,0 +1,64 @@
+package com.ml_vision.ml_vision_backend.repositories;
+
+import com.ml_vision.ml_vision_backend.dto.PageResponse;
+import com.ml_vision.ml_vision_backend.entities.Student;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Student listings that never hold the whole table: keyset pages ordered by
+ * externalId (served from its unique index) and a streamed full list.
+ */
+@Repository
+public class StudentJdbcRepository {
+
+    private static final RowMapper<Student> STUDENT_MAPPER = (rs, rowNum) -> Student.builder()
+            .id(rs.getString("id"))
+            .externalId(rs.getString("external_id"))
+            .firstName(rs.getString("first_name"))
+            .lastName(rs.getString("last_name"))
+            .email(rs.getString("email"))
+            .photoUrl(rs.getString("photo_url"))
+            .photoHash(rs.getString("photo_hash"))
+            .build();
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final NamedParameterJdbcTemplate streaming;
+
+    public StudentJdbcRepository(NamedParameterJdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+        this.streaming = KeysetCursor.streaming(jdbc);
+    }
+
+    /**
+     * @param cursor {@code nextCursor} of the previous page, or null for the first
+     * @throws IllegalArgumentException if the cursor is not one this method issued
+     */
+    public PageResponse<Student> findPage(String cursor, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource("limit", limit + 1);
+        String where = "";
+        if (cursor != null) {
+            params.addValue("afterExternalId", KeysetCursor.decode(cursor, 1)[0]);
+            where = "WHERE external_id > :afterExternalId ";
+        }
+        List<Student> rows = jdbc.query("SELECT * FROM students " + where + "ORDER BY external_id LIMIT :limit",
+                params, STUDENT_MAPPER);
+        if (rows.size() <= limit) {
+            return new PageResponse<>(rows, null);
+        }
+        return new PageResponse<>(rows.subList(0, limit), KeysetCursor.encode(rows.get(limit - 1).getExternalId()));
+    }
+
+    /** Hands every student to {@code sink} in externalId order; must run inside a transaction to stream. */
+    public void streamAll(Consumer<? super Student> sink) {
+        streaming.query("SELECT * FROM students ORDER BY external_id", new MapSqlParameterSource(),
+                rs -> {
+                    sink.accept(STUDENT_MAPPER.mapRow(rs, 0));
+                });
+    }
+}
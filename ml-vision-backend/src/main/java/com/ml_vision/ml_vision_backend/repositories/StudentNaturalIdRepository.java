@@ -0,0 +1,15 @@
+package com.ml_vision.ml_vision_backend.repositories;
+
+import com.ml_vision.ml_vision_backend.entities.Student;
+
+import java.util.Optional;
+
+/** Lookups by {@link Student#getExternalId()}, the student's natural id. */
+public interface StudentNaturalIdRepository {
+
+    /**
+     * Resolves the externalId through the natural-id cache and the student
+     * through the entity cache, querying only on a miss.
+     */
+    Optional<Student> findByExternalId(String externalId);
+}
@@ -0,0 +1,23 @@
+package com.ml_vision.ml_vision_backend.repositories;
+
+import com.ml_vision.ml_vision_backend.entities.Student;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+public class StudentNaturalIdRepositoryImpl implements StudentNaturalIdRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Student> findByExternalId(String externalId) {
+        return entityManager.unwrap(Session.class)
+                .bySimpleNaturalId(Student.class)
+                .loadOptional(externalId);
+    }
+}
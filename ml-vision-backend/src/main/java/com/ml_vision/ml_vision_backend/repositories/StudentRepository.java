@@ -2,10 +2,12 @@ package com.ml_vision.ml_vision_backend.repositories;
 
 import com.ml_vision.ml_vision_backend.entities.Student;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
-import java.util.Optional;
+import java.util.Set;
 
-public interface StudentRepository extends JpaRepository<Student, String> {
+public interface StudentRepository extends JpaRepository<Student, String>, StudentNaturalIdRepository {
 
-    Optional<Student> findByExternalId(String externalId);
+    @Query("SELECT DISTINCT s.photoHash FROM Student s WHERE s.photoHash IS NOT NULL")
+    Set<String> findPhotoHashes();
 }
@@ -0,0 +1,360 @@
+package com.ml_vision.ml_vision_backend.services;
+
+import com.ml_vision.ml_vision_backend.dto.AttendanceRecordResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes newly committed attendance records to live subscribers (the SSE
+ * endpoint), so open dashboards receive what changed instead of polling
+ * the whole day.
+ * <p>
+ * Records are published once their transaction commits. Each class with
+ * subscribers keeps its last {@code attendance.live.replay-size} events, and
+ * keeps them for {@code attendance.live.retention} after the last subscriber
+ * leaves, so a client reconnecting with {@code Last-Event-ID} receives what
+ * it missed. An id this node cannot resume from (too old, or from before a
+ * restart) gets a {@code reset} event instead, telling the client to reload
+ * its snapshot.
+ * <p>
+ * Publishing never blocks: every subscriber has a queue of
+ * {@code attendance.live.buffer-size} events that a small shared pool of
+ * sender threads drains, one subscriber at a time. A subscriber whose queue
+ * is full (including heartbeats) is disconnected and resumes when it
+ * reconnects. Open streams hold no servlet thread.
+ */
+@Slf4j
+@Component
+public class AttendanceEventBus implements DisposableBean {
+
+    static final String RECORD_EVENT = "attendance";
+    static final String RESET_EVENT = "reset";
+
+    private static final Event HEARTBEAT = new Event(null, null, null, null);
+
+    private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+    private final ExecutorService senders;
+    private final ScheduledExecutorService heartbeats;
+    private final int bufferSize;
+    private final int replaySize;
+    private final long timeoutMillis;
+    private final long retentionNanos;
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final Counter published;
+    private final Counter dropped;
+
+    public AttendanceEventBus(MeterRegistry meterRegistry,
+            @Value("${attendance.live.buffer-size:256}") int bufferSize,
+            @Value("${attendance.live.replay-size:1000}") int replaySize,
+            @Value("${attendance.live.sender-threads:2}") int senderThreads,
+            @Value("${attendance.live.timeout:PT30M}") Duration timeout,
+            @Value("${attendance.live.heartbeat-interval:PT15S}") Duration heartbeatInterval,
+            @Value("${attendance.live.retention:PT10M}") Duration retention) {
+        this.bufferSize = Math.max(1, bufferSize);
+        this.replaySize = Math.max(0, replaySize);
+        this.timeoutMillis = timeout.toMillis();
+        this.retentionNanos = retention.toNanos();
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(Math.max(1, senderThreads), r -> {
+            Thread thread = new Thread(r, "attendance-live-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.heartbeats = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "attendance-live-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long heartbeatMillis = Math.max(1, heartbeatInterval.toMillis());
+        heartbeats.scheduleWithFixedDelay(this::heartbeat, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+
+        this.published = Counter.builder("attendance.live.events")
+                .description("Attendance records published to live subscribers")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("attendance.live.dropped")
+                .description("Live subscribers disconnected because they fell behind")
+                .register(meterRegistry);
+        Gauge.builder("attendance.live.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Open live attendance streams")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Opens a stream of the records created for {@code classId} from now on,
+     * limited to one session when {@code sessionId} is given. With a
+     * {@code lastEventId} the stream starts with the events missed since.
+     */
+    public SseEmitter subscribe(String classId, String sessionId, String lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(sessionId, emitter);
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(e -> subscriber.close());
+
+        subscriberCount.incrementAndGet();
+        channels.compute(classId, (id, current) -> {
+            Channel channel = current != null ? current : new Channel();
+            channel.join(subscriber, lastEventId);
+            return channel;
+        });
+        return emitter;
+    }
+
+    /** Publishes records of a class once the current transaction (if any) commits. */
+    public void publish(String classId, List<AttendanceRecordResponse> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dispatch(classId, records);
+                }
+            });
+        } else {
+            dispatch(classId, records);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        heartbeats.shutdownNow();
+        channels.values().forEach(Channel::closeAll);
+        senders.shutdown();
+    }
+
+    private void dispatch(String classId, List<AttendanceRecordResponse> records) {
+        // without subscribers nobody can resume, so the class keeps no events
+        Channel channel = channels.get(classId);
+        if (channel != null) {
+            channel.publish(records);
+        }
+        published.increment(records.size());
+    }
+
+    private void heartbeat() {
+        long now = System.nanoTime();
+        for (Map.Entry<String, Channel> entry : channels.entrySet()) {
+            entry.getValue().heartbeat();
+            channels.computeIfPresent(entry.getKey(), (id, channel) -> channel.expired(now) ? null : channel);
+        }
+    }
+
+    private record Event(String id, String name, String sessionId, Object data) {
+    }
+
+    /** One class: its recent events and current subscribers. */
+    private final class Channel {
+
+        // ids are "<epoch>-<sequence>"; a new channel (restart, expiry) has a new epoch
+        private final String epoch = Long.toHexString(ThreadLocalRandom.current().nextLong() >>> 1);
+
+        // guarded by this
+        private final ArrayDeque<Event> recent = new ArrayDeque<>();
+        private final List<Subscriber> subscribers = new ArrayList<>();
+        private long sequence;
+        private long idleSinceNanos = System.nanoTime();
+
+        synchronized void join(Subscriber subscriber, String lastEventId) {
+            subscriber.channel = this;
+            List<Event> missed = missedSince(lastEventId, subscriber);
+            if (missed == null) {
+                subscriber.offer(new Event(epoch + "-" + sequence, RESET_EVENT, null, ""));
+            } else {
+                missed.forEach(subscriber::offer);
+            }
+            subscribers.add(subscriber);
+        }
+
+        synchronized void leave(Subscriber subscriber) {
+            if (subscribers.remove(subscriber) && subscribers.isEmpty()) {
+                idleSinceNanos = System.nanoTime();
+            }
+        }
+
+        synchronized void publish(List<AttendanceRecordResponse> records) {
+            List<Subscriber> behind = new ArrayList<>();
+            for (AttendanceRecordResponse record : records) {
+                Event event = new Event(epoch + "-" + ++sequence, RECORD_EVENT, record.getSessionId(), record);
+                recent.addLast(event);
+                if (recent.size() > replaySize) {
+                    recent.removeFirst();
+                }
+                for (Subscriber subscriber : subscribers) {
+                    if (subscriber.wants(event) && !subscriber.offer(event)) {
+                        behind.add(subscriber);
+                    }
+                }
+            }
+            behind.forEach(Subscriber::drop);
+        }
+
+        synchronized void heartbeat() {
+            List<Subscriber> behind = new ArrayList<>();
+            for (Subscriber subscriber : subscribers) {
+                if (!subscriber.offer(HEARTBEAT)) {
+                    behind.add(subscriber);
+                }
+            }
+            behind.forEach(Subscriber::drop);
+        }
+
+        synchronized boolean expired(long now) {
+            return subscribers.isEmpty() && now - idleSinceNanos > retentionNanos;
+        }
+
+        synchronized void closeAll() {
+            new ArrayList<>(subscribers).forEach(Subscriber::close);
+        }
+
+        /** The retained events after {@code lastEventId}, or null when it cannot be resumed from. */
+        private List<Event> missedSince(String lastEventId, Subscriber subscriber) {
+            if (lastEventId == null || lastEventId.isBlank()) {
+                return List.of();
+            }
+            int dash = lastEventId.lastIndexOf('-');
+            if (dash < 0 || !lastEventId.substring(0, dash).equals(epoch)) {
+                return null;
+            }
+            long last;
+            try {
+                last = Long.parseLong(lastEventId.substring(dash + 1));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            long oldestRetained = sequence - recent.size() + 1;
+            if (last > sequence || last < oldestRetained - 1) {
+                return null;
+            }
+            List<Event> missed = new ArrayList<>();
+            for (Event event : recent) {
+                if (sequenceOf(event) > last && subscriber.wants(event)) {
+                    missed.add(event);
+                }
+            }
+            // more than fits the buffer: a snapshot is cheaper than a replay that would drop the client
+            return missed.size() <= bufferSize ? missed : null;
+        }
+
+        private long sequenceOf(Event event) {
+            return Long.parseLong(event.id().substring(epoch.length() + 1));
+        }
+    }
+
+    /**
+     * One open stream. Events are queued by publishers and written by at most
+     * one sender thread at a time, which also completes the emitter once the
+     * subscriber is closed, so a client stalled in a socket write ties up only
+     * the thread already writing to it.
+     */
+    private final class Subscriber implements Runnable {
+
+        private final String sessionId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<Event> queue = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private volatile Channel channel;
+
+        Subscriber(String sessionId, SseEmitter emitter) {
+            this.sessionId = sessionId;
+            this.emitter = emitter;
+        }
+
+        boolean wants(Event event) {
+            return sessionId == null || sessionId.equals(event.sessionId());
+        }
+
+        boolean offer(Event event) {
+            if (closed.get()) {
+                return true;
+            }
+            if (!queue.offer(event)) {
+                return false;
+            }
+            schedule();
+            return true;
+        }
+
+        void drop() {
+            if (!closed.get()) {
+                dropped.increment();
+                log.debug("Dropping a live attendance subscriber that is {} events behind", queue.size());
+                close();
+            }
+        }
+
+        void close() {
+            if (closed.compareAndSet(false, true)) {
+                subscriberCount.decrementAndGet();
+                Channel current = channel;
+                if (current != null) {
+                    current.leave(this);
+                }
+                schedule();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                Event event;
+                while (!closed.get() && (event = queue.poll()) != null) {
+                    emitter.send(event == HEARTBEAT
+                            ? SseEmitter.event().comment("heartbeat")
+                            : SseEmitter.event().id(event.id()).name(event.name()).data(event.data()));
+                }
+            } catch (IOException | IllegalStateException e) {
+                // client went away or the stream timed out
+                close();
+            }
+            scheduled.set(false);
+            if (closed.get()) {
+                queue.clear();
+                emitter.complete();
+            } else if (!queue.isEmpty()) {
+                schedule();
+            }
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    senders.execute(this);
+                } catch (RejectedExecutionException e) {
+                    // shutting down
+                    scheduled.set(false);
+                    emitter.complete();
+                }
+            }
+        }
+    }
+}
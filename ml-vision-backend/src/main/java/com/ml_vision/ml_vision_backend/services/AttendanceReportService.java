@@ -0,0 +1,268 @@
+package com.ml_vision.ml_vision_backend.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ml_vision.ml_vision_backend.dto.AttendanceReport;
+import com.ml_vision.ml_vision_backend.dto.AttendanceReportRow;
+import com.ml_vision.ml_vision_backend.dto.ClassAttendanceRollup;
+import com.ml_vision.ml_vision_backend.dto.DailyAttendanceRollup;
+import com.ml_vision.ml_vision_backend.dto.StudentAttendanceRollup;
+import com.ml_vision.ml_vision_backend.repositories.AttendanceRollupJdbcRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Attendance reports served from the rollups that ingestion and absence
+ * finalization keep current, so their cost follows the roster size and the
+ * number of days rather than the number of records.
+ * <p>
+ * Multi-class reports split the classes into chunks of
+ * {@code attendance.reports.classes-per-query}, query the chunks on a pool
+ * of {@code attendance.reports.parallelism} threads shared by all requests,
+ * and merge the partial sums. Finished reports are cached per (classes,
+ * range, grouping); each entry remembers the write version of its classes
+ * and is recomputed once records committed for any of them since.
+ */
+@Service
+public class AttendanceReportService implements DisposableBean {
+
+    public enum Grouping {
+        CLASS, DAY, WEEK, MONTH;
+
+        public static Grouping parse(String raw) {
+            try {
+                return valueOf(raw.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("groupBy must be one of class, day, week, month");
+            }
+        }
+    }
+
+    private final AttendanceRollupJdbcRepository rollups;
+    private final ExecutorService workers;
+    private final int classesPerQuery;
+    private final Cache<ReportKey, CachedReport> reports;
+    // bumped after commit whenever records of the class change; allVersion on any change,
+    // everyClassVersion when every class changes at once (a full rebuild)
+    private final Map<String, AtomicLong> classVersions = new ConcurrentHashMap<>();
+    private final AtomicLong allVersion = new AtomicLong();
+    private final AtomicLong everyClassVersion = new AtomicLong();
+
+    public AttendanceReportService(AttendanceRollupJdbcRepository rollups,
+            MeterRegistry meterRegistry,
+            @Value("${attendance.reports.parallelism:4}") int parallelism,
+            @Value("${attendance.reports.classes-per-query:50}") int classesPerQuery,
+            @Value("${attendance.reports.cache-size:1000}") long cacheSize,
+            @Value("${attendance.reports.cache-ttl:PT10M}") Duration cacheTtl) {
+        this.rollups = rollups;
+        this.classesPerQuery = Math.max(1, classesPerQuery);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(Math.max(1, parallelism), r -> {
+            Thread thread = new Thread(r, "attendance-report-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.reports = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(cacheTtl)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, reports, "attendance.reports");
+    }
+
+    /** Totals and per-student counters of a class; sessions held come from the per-day rollup. */
+    public ClassAttendanceRollup getClassRollup(String classId) {
+        List<StudentAttendanceRollup> students = rollups.findStudents(classId);
+        int sessionsHeld = 0;
+        for (DailyAttendanceRollup day : rollups.findDays(classId, null, null)) {
+            sessionsHeld += day.getSessions();
+        }
+        int present = 0;
+        int absent = 0;
+        int late = 0;
+        for (StudentAttendanceRollup student : students) {
+            present += student.getPresent();
+            absent += student.getAbsent();
+            late += student.getLate();
+        }
+        return new ClassAttendanceRollup(classId, sessionsHeld, present, absent, late, students);
+    }
+
+    public List<DailyAttendanceRollup> getDailyRollup(String classId, LocalDate from, LocalDate to) {
+        return rollups.findDays(classId, from, to);
+    }
+
+    /**
+     * Attendance of several classes over a date range, grouped by class or
+     * by period.
+     *
+     * @param classIds the classes to report on, or null/empty for every class
+     * @param from     first day included, or null for no lower bound
+     * @param to       last day included, or null for no upper bound
+     * @throws IllegalArgumentException if {@code from} is after {@code to}
+     */
+    public AttendanceReport getReport(Collection<String> classIds, LocalDate from, LocalDate to, Grouping groupBy) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("from must not be after to");
+        }
+        ReportKey key = new ReportKey(classIds == null || classIds.isEmpty() ? null : List.copyOf(new TreeSet<>(classIds)),
+                from, to, groupBy);
+        long version = version(key.classIds());
+        CachedReport cached = reports.getIfPresent(key);
+        if (cached != null && cached.version() == version) {
+            return cached.report();
+        }
+        AttendanceReport report = compute(key);
+        reports.put(key, new CachedReport(version, report));
+        return report;
+    }
+
+    /**
+     * Marks the cached reports covering {@code classId} (every class when
+     * null) stale once the current transaction, if any, commits.
+     */
+    public void recordsChanged(String classId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bump(classId);
+                }
+            });
+        } else {
+            bump(classId);
+        }
+    }
+
+    /**
+     * Recomputes the rollups of one class, or of every class when
+     * {@code classId} is null, from the stored records.
+     *
+     * @return the number of records counted
+     */
+    @Transactional
+    public long rebuildRollups(String classId) {
+        long records = rollups.rebuild(classId);
+        recordsChanged(classId);
+        return records;
+    }
+
+    @Override
+    public void destroy() {
+        workers.shutdownNow();
+    }
+
+    private AttendanceReport compute(ReportKey key) {
+        List<String> classIds = key.classIds() != null ? key.classIds() : rollups.findClassIds();
+        String period = key.groupBy() == Grouping.CLASS ? null : key.groupBy().name().toLowerCase(Locale.ROOT);
+
+        List<CompletableFuture<List<AttendanceReportRow>>> chunks = new ArrayList<>();
+        for (int i = 0; i < classIds.size(); i += classesPerQuery) {
+            List<String> chunk = classIds.subList(i, Math.min(i + classesPerQuery, classIds.size()));
+            chunks.add(CompletableFuture.supplyAsync(
+                    () -> rollups.findReportRows(chunk, key.from(), key.to(), period), workers));
+        }
+
+        // chunks hold disjoint classes: class rows are final as they are, period rows are summed across chunks
+        List<AttendanceReportRow> rows = new ArrayList<>();
+        Map<LocalDate, int[]> periods = new TreeMap<>();
+        int[] total = new int[4];
+        for (CompletableFuture<List<AttendanceReportRow>> chunk : chunks) {
+            for (AttendanceReportRow row : join(chunk)) {
+                add(total, row);
+                if (period == null) {
+                    rows.add(row);
+                } else {
+                    add(periods.computeIfAbsent(row.getPeriod(), p -> new int[4]), row);
+                }
+            }
+        }
+        if (period == null) {
+            rows.sort(Comparator.comparing(AttendanceReportRow::getClassName, Comparator.nullsLast(Comparator.naturalOrder()))
+                    .thenComparing(AttendanceReportRow::getClassId));
+        } else {
+            periods.forEach((start, sums) -> rows.add(AttendanceReportRow.builder()
+                    .period(start)
+                    .sessions(sums[0])
+                    .present(sums[1])
+                    .absent(sums[2])
+                    .late(sums[3])
+                    .build()));
+        }
+        return new AttendanceReport(key.from(), key.to(), key.groupBy().name().toLowerCase(Locale.ROOT),
+                classIds.size(), total[0], total[1], total[2], total[3], rows);
+    }
+
+    private static List<AttendanceReportRow> join(CompletableFuture<List<AttendanceReportRow>> chunk) {
+        try {
+            return chunk.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static void add(int[] sums, AttendanceReportRow row) {
+        sums[0] += row.getSessions();
+        sums[1] += row.getPresent();
+        sums[2] += row.getAbsent();
+        sums[3] += row.getLate();
+    }
+
+    private long version(List<String> classIds) {
+        if (classIds == null) {
+            return allVersion.get();
+        }
+        // versions only grow, so the sum changes whenever any of them does
+        long version = everyClassVersion.get();
+        for (String classId : classIds) {
+            AtomicLong classVersion = classVersions.get(classId);
+            if (classVersion != null) {
+                version += classVersion.get();
+            }
+        }
+        return version;
+    }
+
+    private void bump(String classId) {
+        if (classId == null) {
+            everyClassVersion.incrementAndGet();
+        } else {
+            classVersions.computeIfAbsent(classId, id -> new AtomicLong()).incrementAndGet();
+        }
+        allVersion.incrementAndGet();
+    }
+
+    private record ReportKey(List<String> classIds, LocalDate from, LocalDate to, Grouping groupBy) {
+    }
+
+    private record CachedReport(long version, AttendanceReport report) {
+    }
+}
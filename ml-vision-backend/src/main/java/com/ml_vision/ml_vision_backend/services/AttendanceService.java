@@ -2,104 +2,185 @@ package com.ml_vision.ml_vision_backend.services;
 
 import com.ml_vision.ml_vision_backend.dto.AttendanceRecordResponse;
 import com.ml_vision.ml_vision_backend.dto.MlRecognizedStudent;
-import com.ml_vision.ml_vision_backend.entities.*;
-import com.ml_vision.ml_vision_backend.repositories.*;
+import com.ml_vision.ml_vision_backend.dto.PageResponse;
+import com.ml_vision.ml_vision_backend.dto.PendingAttendance;
+import com.ml_vision.ml_vision_backend.repositories.AttendanceJdbcRepository;
+import com.ml_vision.ml_vision_backend.repositories.AttendanceRecordRepository;
+import com.ml_vision.ml_vision_backend.repositories.CourseClassRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
 public class AttendanceService {
 
-    private final StudentRepository studentRepo;
     private final CourseClassRepository classRepo;
     private final AttendanceRecordRepository recordRepo;
-    private final CourseClassRosterRepository rosterRepo;
+    private final RosterIndex rosterIndex;
+    private final AttendanceJdbcRepository attendanceJdbc;
+    private final SessionPresenceTracker presenceTracker;
+    private final AttendanceReportService reportService;
+    private final AttendanceEventBus eventBus;
+    private final AttendanceWriteBehind writeBehind;
 
-    public AttendanceRecord recordAttendance(String classId, String sessionId, LocalDateTime sessionStartedAt,
+    private static final int MAX_PAGE = 1_000;
+
+    public AttendanceRecordResponse recordAttendance(String classId, String sessionId, LocalDateTime sessionStartedAt,
             MlRecognizedStudent recognized) {
+        List<AttendanceRecordResponse> saved = recordBatch(classId, sessionId, sessionStartedAt, List.of(recognized));
+        return saved.isEmpty() ? null : saved.get(0);
+    }
 
-        CourseClass courseClass = classRepo.findById(classId)
-                .orElseThrow(() -> new RuntimeException("Class not found"));
+    /**
+     * Records a whole batch of recognized faces for one session. Roster
+     * membership comes from the {@link RosterIndex} and "already recorded"
+     * from the {@link SessionPresenceTracker}, so a batch in which everyone is
+     * already marked issues no queries at all. Otherwise the new students are
+     * inserted in one statement that lets the session's unique constraint
+     * drop anyone recorded meanwhile (another node, or absence finalization).
+     */
+    @Transactional
+    public List<AttendanceRecordResponse> recordBatch(String classId, String sessionId, LocalDateTime sessionStartedAt,
+            List<MlRecognizedStudent> recognized) {
+        Claim claim = claim(classId, sessionId, recognized);
+        if (claim == null)
+            return List.of();
+        claim.presence().releaseOnRollback(claim.positions());
 
-        Student student = studentRepo.findByExternalId(recognized.getStudentId())
-                .orElseThrow(() -> new RuntimeException("Student not found"));
+        LocalDateTime now = LocalDateTime.now();
+        List<AttendanceRecordResponse> created = attendanceJdbc.insertPresent(classId, sessionId, now,
+                sessionStartedAt != null ? sessionStartedAt : now, claim.students());
+        if (!created.isEmpty()) {
+            reportService.recordsChanged(classId);
+            eventBus.publish(classId, created);
+        }
+        return created;
+    }
 
-        // verify enrollment
-        boolean inRoster = rosterRepo.existsByCourseClass_IdAndStudent_ExternalId(
-                classId, student.getExternalId());
+    /**
+     * Ingestion entry point for cameras and batch uploads: {@link #recordBatch}
+     * unless {@code attendance.write-behind.enabled}, in which case the new
+     * students are handed to the {@link AttendanceWriteBehind} log and the
+     * call returns as soon as the log has them, with no records (they are
+     * published on the live stream once written).
+     */
+    public List<AttendanceRecordResponse> submitBatch(String classId, String sessionId, LocalDateTime sessionStartedAt,
+            List<MlRecognizedStudent> recognized) {
+        // a record without a session has no unique key to make a replay idempotent
+        if (!writeBehind.isEnabled() || sessionId == null)
+            return recordBatch(classId, sessionId, sessionStartedAt, recognized);
+
+        Claim claim = claim(classId, sessionId, recognized);
+        if (claim == null)
+            return List.of();
 
-        if (!inRoster) {
-            // skip non-rostered students instead of failing the batch
-            return null;
+        LocalDateTime now = LocalDateTime.now();
+        List<PendingAttendance> pending = claim.students().stream()
+                .map(r -> PendingAttendance.builder()
+                        .classId(classId)
+                        .sessionId(sessionId)
+                        .sessionStartedAt(sessionStartedAt != null ? sessionStartedAt : now)
+                        .timestamp(now)
+                        .studentExternalId(r.getStudentId())
+                        .confidence(r.getConfidence())
+                        .position(r.getPosition())
+                        .build())
+                .toList();
+        try {
+            writeBehind.accept(pending);
+        } catch (RuntimeException e) {
+            for (int position : claim.positions())
+                claim.presence().release(position);
+            throw e;
         }
+        return List.of();
+    }
 
-        // restrict one per session
-        boolean exists = recordRepo.existsByStudentAndCourseClassAndSessionId(
-                student, courseClass, sessionId);
+    /**
+     * Finalizes a session by inserting an ABSENT record for every rostered
+     * student that has no record yet, as a single set-based statement. Late
+     * batches either land before it (and are not marked absent) or after it
+     * (and are skipped as already recorded). Buffered write-behind records
+     * are written first.
+     * <p>
+     * Not {@code @Transactional}: waiting for the write-behind flush while
+     * holding a pooled connection would starve the writer of the connections
+     * it needs to flush. The insert is one statement, atomic on its own.
+     */
+    public List<AttendanceRecordResponse> markAbsences(String classId, String sessionId, LocalDateTime sessionStartedAt) {
+        // by id rather than exists, so the class comes from the second-level cache
+        if (classRepo.findById(classId).isEmpty())
+            throw new RuntimeException("Class not found");
 
-        if (exists)
-            return null;
+        LocalDateTime timestamp = sessionStartedAt != null ? sessionStartedAt : LocalDateTime.now();
 
-        LocalDateTime now = LocalDateTime.now();
+        // students still buffered would otherwise be marked absent, and their PRESENT record dropped
+        writeBehind.awaitFlushed();
+        List<AttendanceRecordResponse> created = attendanceJdbc.insertAbsences(classId, sessionId, timestamp, timestamp);
 
-        AttendanceRecord record = new AttendanceRecord();
-        record.setStudent(student);
-        record.setCourseClass(courseClass);
-        record.setTimestamp(now);
-        record.setConfidence(recognized.getConfidence());
-        record.setPosition(recognized.getPosition());
-        record.setStatus(AttendanceStatus.PRESENT);
-        record.setSessionId(sessionId);
-        record.setSessionStartedAt(sessionStartedAt != null ? sessionStartedAt : now);
-
-        return recordRepo.save(record);
+        presenceTracker.evict(classId, sessionId);
+        if (!created.isEmpty()) {
+            reportService.recordsChanged(classId);
+            eventBus.publish(classId, created);
+        }
+        return created;
     }
 
-    @Transactional
-    public List<AttendanceRecordResponse> markAbsences(String classId, String sessionId, LocalDateTime sessionStartedAt) {
-        CourseClass courseClass = classRepo.findById(classId)
-                .orElseThrow(() -> new RuntimeException("Class not found"));
+    /**
+     * The recognized students that are on the roster and not yet recorded in
+     * the session, claimed in its {@link SessionPresenceTracker} bitset so a
+     * concurrent batch skips them; null when there are none. The first
+     * detection of a student in the batch wins, and non-rostered students
+     * are skipped instead of failing the batch.
+     */
+    private Claim claim(String classId, String sessionId, List<MlRecognizedStudent> recognized) {
+        if (recognized == null || recognized.isEmpty())
+            return null;
 
-        LocalDateTime timestamp = sessionStartedAt != null ? sessionStartedAt : LocalDateTime.now();
-        List<CourseClassRoster> roster = rosterRepo.findByCourseClassId(classId);
-
-        List<AttendanceRecord> created = roster.stream()
-                .filter(r -> !recordRepo.existsByCourseClass_IdAndSessionIdAndStudent_ExternalId(
-                        classId, sessionId, r.getStudent().getExternalId()))
-                .map(r -> {
-                    AttendanceRecord rec = new AttendanceRecord();
-                    rec.setCourseClass(courseClass);
-                    rec.setStudent(r.getStudent());
-                    rec.setTimestamp(timestamp);
-                    rec.setStatus(AttendanceStatus.ABSENT);
-                    rec.setSessionId(sessionId);
-                    rec.setSessionStartedAt(sessionStartedAt != null ? sessionStartedAt : timestamp);
-                    rec.setConfidence(0);
-                    return rec;
-                })
-                .map(recordRepo::save)
-                .collect(Collectors.toList());
-
-        return created.stream()
-                .map(AttendanceRecordResponse::fromEntity)
-                .collect(Collectors.toList());
+        RosterIndex.Snapshot roster = rosterIndex.get(classId);
+        SessionPresenceTracker.SessionPresence presence = presenceTracker.get(classId, sessionId, roster);
+
+        List<MlRecognizedStudent> pending = new ArrayList<>();
+        int[] claimed = new int[recognized.size()];
+        for (MlRecognizedStudent r : recognized) {
+            int position = roster.indexOf(r.getStudentId());
+            if (position >= 0 && presence.claim(position)) {
+                pending.add(r);
+                claimed[pending.size() - 1] = position;
+            }
+        }
+        if (pending.isEmpty())
+            return null;
+        return new Claim(presence, pending, Arrays.copyOf(claimed, pending.size()));
     }
 
-    public List<AttendanceRecordResponse> getAttendanceForClass(String classId, String sessionId) {
-        List<AttendanceRecord> records = sessionId == null
-                ? recordRepo.findByCourseClassIdOrderByTimestampDesc(classId)
-                : recordRepo.findByCourseClassIdAndSessionIdOrderByTimestampDesc(classId, sessionId);
+    private record Claim(SessionPresenceTracker.SessionPresence presence, List<MlRecognizedStudent> students,
+            int[] positions) {
+    }
+
+    /** One page of a class's records (optionally one session's), newest first. */
+    public PageResponse<AttendanceRecordResponse> getAttendancePage(String classId, String sessionId,
+            String cursor, int limit) {
+        return attendanceJdbc.findClassPage(classId, sessionId, cursor, Math.max(1, Math.min(limit, MAX_PAGE)));
+    }
 
-        return records.stream()
-                .map(AttendanceRecordResponse::fromEntity)
-                .collect(Collectors.toList());
+    /**
+     * A class's whole history (or one session's), newest first, handed over
+     * as rows come off the database cursor so memory stays flat however long
+     * the class has been captured.
+     */
+    @Transactional(readOnly = true)
+    public void streamAttendanceForClass(String classId, String sessionId,
+            Consumer<? super AttendanceRecordResponse> sink) {
+        attendanceJdbc.streamClass(classId, sessionId, sink);
     }
 
     public List<AttendanceRecordResponse> getAttendanceForClassToday(String classId, ZoneId zoneId) {
@@ -107,9 +188,6 @@ public class AttendanceService {
         LocalDateTime start = LocalDateTime.now(zone).toLocalDate().atStartOfDay();
         LocalDateTime end = start.plusDays(1);
 
-        return recordRepo.findByCourseClassIdAndTimestampBetweenOrderByTimestampDesc(classId, start, end)
-                .stream()
-                .map(AttendanceRecordResponse::fromEntity)
-                .collect(Collectors.toList());
+        return recordRepo.findResponsesByCourseClassIdAndTimestampBetween(classId, start, end);
     }
 }
@@ -0,0 +1,322 @@
+package com.ml_vision.ml_vision_backend.services;
+
+import com.ml_vision.ml_vision_backend.dto.AttendanceRecordResponse;
+import com.ml_vision.ml_vision_backend.dto.PendingAttendance;
+import com.ml_vision.ml_vision_backend.repositories.AttendanceJdbcRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Optional write-behind path for recognized attendance
+ * ({@code attendance.write-behind.enabled}). Accepted records are appended
+ * to an {@link AttendanceWriteLog} and acknowledged once the log is synced;
+ * a single background writer then inserts everything accepted since its last
+ * pass, deduplicated per (class, session, student), as one statement per
+ * {@code batch-size} records and one transaction per statement.
+ * <p>
+ * The writer runs every {@code flush-interval}, or sooner once
+ * {@code batch-size} records are waiting or someone needs them written
+ * ({@link #awaitFlushed}, e.g. before absences are finalized). Log segments
+ * are deleted only after their records commit; segments left by a crash are
+ * replayed on startup, and since inserts skip students already recorded in
+ * their session, replaying records that did commit creates nothing.
+ * <p>
+ * A failed pass is retried until it succeeds, except for records the
+ * database rejects outright (a constraint violation): the writer narrows
+ * those down and moves them to the log's dead letters
+ * ({@code attendance.write-behind.dead-lettered}) so they cannot hold back
+ * everything buffered after them. The session of a dead-lettered record is
+ * evicted from the {@link SessionPresenceTracker}, so the student is not
+ * taken as recorded.
+ * <p>
+ * Records reach the rollups, reports and live streams when they are written,
+ * not when they are accepted.
+ */
+@Slf4j
+@Component
+public class AttendanceWriteBehind implements DisposableBean {
+
+    private final AttendanceJdbcRepository attendanceJdbc;
+    private final AttendanceReportService reportService;
+    private final AttendanceEventBus eventBus;
+    private final SessionPresenceTracker presenceTracker;
+    private final TransactionTemplate transactionTemplate;
+    @Getter
+    private final boolean enabled;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long retryBackoffMillis;
+    private final long flushTimeoutNanos;
+    private final Counter written;
+    private final Counter deadLettered;
+    private final DistributionSummary batches;
+    private final Timer flushes;
+    private AttendanceWriteLog writeLog;
+    private Thread writer;
+
+    // guarded by this
+    private Map<Key, PendingAttendance> pending = new LinkedHashMap<>();
+    private long accepted;
+    private long flushed;
+    private boolean flushRequested;
+    private boolean closed;
+
+    public AttendanceWriteBehind(AttendanceJdbcRepository attendanceJdbc,
+            AttendanceReportService reportService,
+            AttendanceEventBus eventBus,
+            SessionPresenceTracker presenceTracker,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${attendance.write-behind.enabled:false}") boolean enabled,
+            @Value("${attendance.write-behind.dir:data/attendance-log}") String dir,
+            @Value("${attendance.write-behind.fsync:true}") boolean fsync,
+            @Value("${attendance.write-behind.batch-size:2000}") int batchSize,
+            @Value("${attendance.write-behind.flush-interval:PT0.1S}") Duration flushInterval,
+            @Value("${attendance.write-behind.retry-backoff:PT1S}") Duration retryBackoff,
+            @Value("${attendance.write-behind.flush-timeout:PT10S}") Duration flushTimeout) {
+        this.attendanceJdbc = attendanceJdbc;
+        this.reportService = reportService;
+        this.eventBus = eventBus;
+        this.presenceTracker = presenceTracker;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.retryBackoffMillis = retryBackoff.toMillis();
+        this.flushTimeoutNanos = flushTimeout.toNanos();
+
+        this.written = Counter.builder("attendance.write-behind.written")
+                .description("Buffered attendance records inserted by the writer")
+                .register(meterRegistry);
+        this.deadLettered = Counter.builder("attendance.write-behind.dead-lettered")
+                .description("Buffered attendance records the database rejected, set aside instead of written")
+                .register(meterRegistry);
+        this.batches = DistributionSummary.builder("attendance.write-behind.batch.size")
+                .description("Buffered records per writer pass")
+                .register(meterRegistry);
+        this.flushes = Timer.builder("attendance.write-behind.flush")
+                .description("Time for the writer to commit one pass")
+                .register(meterRegistry);
+        Gauge.builder("attendance.write-behind.pending", this, AttendanceWriteBehind::pendingCount)
+                .description("Accepted attendance records not yet written")
+                .register(meterRegistry);
+
+        if (enabled) {
+            this.writeLog = new AttendanceWriteLog(Paths.get(dir).toAbsolutePath(), fsync);
+            List<PendingAttendance> replayed = writeLog.replay();
+            if (!replayed.isEmpty()) {
+                log.info("Replaying {} attendance records from the write-behind log", replayed.size());
+                replayed.forEach(record -> pending.putIfAbsent(Key.of(record), record));
+                accepted++;
+            }
+            this.writer = new Thread(this::writeLoop, "attendance-write-behind");
+            writer.setDaemon(true);
+            writer.start();
+        }
+    }
+
+    /**
+     * Logs records for the writer and returns once the log has them. A
+     * record for a student already waiting in the same session is dropped
+     * by the writer.
+     *
+     * @throws IllegalStateException if write-behind is disabled or shutting down
+     */
+    public void accept(List<PendingAttendance> records) {
+        if (!enabled) {
+            throw new IllegalStateException("Write-behind is disabled");
+        }
+        writeLog.append(records, () -> {
+            synchronized (this) {
+                if (closed) {
+                    throw new IllegalStateException("Write-behind is shutting down");
+                }
+                for (PendingAttendance record : records) {
+                    pending.putIfAbsent(Key.of(record), record);
+                }
+                accepted++;
+                if (pending.size() >= batchSize) {
+                    notifyAll();
+                }
+            }
+        });
+    }
+
+    /**
+     * Blocks until everything accepted before the call is in the database.
+     *
+     * @throws IllegalStateException if that takes longer than {@code flush-timeout}
+     */
+    public synchronized void awaitFlushed() {
+        if (!enabled) {
+            return;
+        }
+        long target = accepted;
+        long deadline = System.nanoTime() + flushTimeoutNanos;
+        flushRequested = true;
+        notifyAll();
+        while (flushed < target) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || closed) {
+                throw new IllegalStateException("Buffered attendance could not be written in time");
+            }
+            try {
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted waiting for buffered attendance", e);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException, InterruptedException {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        // the writer makes one last pass; whatever it cannot write stays in the log for the next start
+        writer.join(TimeUnit.NANOSECONDS.toMillis(flushTimeoutNanos));
+        writeLog.close();
+    }
+
+    private synchronized int pendingCount() {
+        return pending.size();
+    }
+
+    private void writeLoop() {
+        List<PendingAttendance> retry = List.of();
+        while (true) {
+            boolean last;
+            synchronized (this) {
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (!closed && !flushRequested && pending.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    try {
+                        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                flushRequested = false;
+                last = closed;
+            }
+
+            // records that failed last time go first, so the first detection of a student still wins
+            Map<Key, PendingAttendance> batch = new LinkedHashMap<>();
+            retry.forEach(record -> batch.put(Key.of(record), record));
+            long[] drainedUpTo = new long[1];
+            long lastSegment = writeLog.rotate(() -> {
+                synchronized (this) {
+                    pending.forEach(batch::putIfAbsent);
+                    pending = new LinkedHashMap<>();
+                    drainedUpTo[0] = accepted;
+                }
+            });
+
+            List<PendingAttendance> records = new ArrayList<>(batch.values());
+            try {
+                if (!records.isEmpty()) {
+                    flushes.record(() -> write(records));
+                    batches.record(records.size());
+                }
+                writeLog.delete(lastSegment);
+                retry = List.of();
+                synchronized (this) {
+                    flushed = drainedUpTo[0];
+                    notifyAll();
+                }
+            } catch (RuntimeException e) {
+                log.warn("Writing {} buffered attendance records failed, retrying: {}", records.size(), e.getMessage());
+                retry = records;
+                if (!last) {
+                    try {
+                        Thread.sleep(retryBackoffMillis);
+                    } catch (InterruptedException interrupted) {
+                        return;
+                    }
+                }
+            }
+            if (last) {
+                return;
+            }
+        }
+    }
+
+    private void write(List<PendingAttendance> records) {
+        for (int i = 0; i < records.size(); i += batchSize) {
+            writeChunk(records.subList(i, Math.min(i + batchSize, records.size())));
+        }
+    }
+
+    /**
+     * Writes one chunk in one transaction. A chunk the database rejects is
+     * split in halves until the rejected records are isolated and
+     * dead-lettered; any other failure fails the pass, to be retried.
+     */
+    private void writeChunk(List<PendingAttendance> chunk) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<AttendanceRecordResponse> created = attendanceJdbc.insertPending(chunk);
+                Map<String, List<AttendanceRecordResponse>> byClass = created.stream()
+                        .collect(Collectors.groupingBy(AttendanceRecordResponse::getClassId,
+                                LinkedHashMap::new, Collectors.toList()));
+                byClass.forEach((classId, classRecords) -> {
+                    reportService.recordsChanged(classId);
+                    eventBus.publish(classId, classRecords);
+                });
+                written.increment(created.size());
+            });
+        } catch (DataIntegrityViolationException e) {
+            if (chunk.size() > 1) {
+                int half = chunk.size() / 2;
+                writeChunk(chunk.subList(0, half));
+                writeChunk(chunk.subList(half, chunk.size()));
+                return;
+            }
+            PendingAttendance record = chunk.get(0);
+            log.warn("Dead-lettering buffered attendance of {} in class {}, session {}: {}",
+                    record.getStudentExternalId(), record.getClassId(), record.getSessionId(),
+                    NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+            writeLog.deadLetter(chunk);
+            deadLettered.increment();
+            // the student was claimed when accepted; re-warm so the next detection is recorded
+            presenceTracker.evict(record.getClassId(), record.getSessionId());
+        }
+    }
+
+    private record Key(String classId, String sessionId, String studentExternalId) {
+
+        static Key of(PendingAttendance record) {
+            return new Key(record.getClassId(), record.getSessionId(), record.getStudentExternalId());
+        }
+    }
+}
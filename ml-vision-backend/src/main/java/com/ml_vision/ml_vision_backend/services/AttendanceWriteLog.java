@@ -0,0 +1,325 @@
+package com.ml_vision.ml_vision_backend.services;
+
+import com.ml_vision.ml_vision_backend.dto.PendingAttendance;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of attendance accepted by {@link AttendanceWriteBehind}
+ * but not yet in the database, split into numbered segment files
+ * ({@code 00000000000000000042.wal}) under one directory.
+ * <p>
+ * Records are {@code int length, int crc32c, payload}; a record whose length
+ * or checksum does not match (crash mid-append) ends its segment. Appends are
+ * group-committed: each caller writes its records, then waits until some
+ * caller's {@code fsync} covers them, so concurrent callers share one
+ * {@code fsync} instead of queueing for one each.
+ * <p>
+ * The writer {@link #rotate rotates} to a fresh segment before each flush
+ * and {@link #delete deletes} the closed segments once their records are
+ * committed; whatever segments remain at startup are {@link #replay replayed}.
+ * Records the writer gives up on go to {@code dead-letter} in the same
+ * directory and format, which is kept for inspection and never replayed.
+ */
+@Slf4j
+public class AttendanceWriteLog implements AutoCloseable {
+
+    private static final String SUFFIX = ".wal";
+    private static final String DEAD_LETTER = "dead-letter";
+
+    private final Path dir;
+    private final boolean fsync;
+
+    // guarded by this
+    private FileChannel segment;
+    private long segmentNumber;
+    private long appended;
+
+    // guarded by syncLock
+    private final Object syncLock = new Object();
+    private long synced;
+    private boolean syncing;
+
+    public AttendanceWriteLog(Path dir, boolean fsync) {
+        this.dir = dir;
+        this.fsync = fsync;
+    }
+
+    /**
+     * Reads every record of the existing segments, oldest first, and opens
+     * a new segment after them for appends. The replayed segments stay on
+     * disk until a later {@link #delete} covers them.
+     */
+    public synchronized List<PendingAttendance> replay() {
+        try {
+            Files.createDirectories(dir);
+            List<PendingAttendance> records = new ArrayList<>();
+            for (Path path : segments()) {
+                segmentNumber = Math.max(segmentNumber, number(path));
+                read(path, records);
+            }
+            open(segmentNumber + 1);
+            return records;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to replay attendance log " + dir, e);
+        }
+    }
+
+    /**
+     * Appends records and returns once they are durable (written, when
+     * {@code fsync} is off). {@code accepted} runs while the log is locked
+     * after the write, so a concurrent {@link #rotate} sees both or neither.
+     */
+    public void append(List<PendingAttendance> records, Runnable accepted) {
+        ByteBuffer bytes = encode(records);
+        long position;
+        synchronized (this) {
+            if (segment == null) {
+                throw new IllegalStateException("Attendance log is closed");
+            }
+            long start = -1;
+            try {
+                start = segment.position();
+                while (bytes.hasRemaining()) {
+                    segment.write(bytes);
+                }
+            } catch (IOException e) {
+                // a partial record would hide every later record of the segment from replay
+                truncate(start);
+                throw new UncheckedIOException("Failed to append to attendance log " + dir, e);
+            }
+            accepted.run();
+            position = ++appended;
+        }
+        if (fsync) {
+            awaitSync(position);
+        }
+    }
+
+    /**
+     * Closes the current segment and starts the next one, running
+     * {@code drain} in between so it observes exactly the records written to
+     * the closed segments.
+     *
+     * @return the number of the last closed segment, for {@link #delete}
+     */
+    public synchronized long rotate(Runnable drain) {
+        drain.run();
+        long closed = segmentNumber;
+        try {
+            // a sync leader that raced the rotation finds its segment closed and relies on this
+            if (fsync) {
+                segment.force(false);
+            }
+            segment.close();
+            open(closed + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to rotate attendance log " + dir, e);
+        }
+        return closed;
+    }
+
+    /** Deletes every segment up to and including {@code lastSegment}. */
+    public void delete(long lastSegment) {
+        try {
+            for (Path path : segments()) {
+                if (number(path) <= lastSegment) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to delete flushed attendance log segments in {}: {}", dir, e.getMessage());
+        }
+    }
+
+    /** Appends records that cannot be written to the dead letters. */
+    public void deadLetter(List<PendingAttendance> records) {
+        ByteBuffer bytes = encode(records);
+        try (FileChannel channel = FileChannel.open(dir.resolve(DEAD_LETTER),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            if (fsync) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to dead-letter attendance in " + dir, e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (segment != null) {
+            segment.force(false);
+            segment.close();
+            segment = null;
+        }
+    }
+
+    private void awaitSync(long position) {
+        synchronized (syncLock) {
+            while (synced < position && syncing) {
+                try {
+                    syncLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted waiting for the attendance log", e);
+                }
+            }
+            if (synced >= position) {
+                return;
+            }
+            syncing = true;
+        }
+        // this caller leads the next fsync, covering everything appended so far, its own records included
+        long target;
+        FileChannel current;
+        synchronized (this) {
+            target = appended;
+            current = segment;
+        }
+        boolean forced = false;
+        try {
+            force(current);
+            forced = true;
+        } finally {
+            synchronized (syncLock) {
+                if (forced) {
+                    synced = Math.max(synced, target);
+                }
+                syncing = false;
+                syncLock.notifyAll();
+            }
+        }
+    }
+
+    private static void force(FileChannel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.force(false);
+        } catch (ClosedChannelException e) {
+            // rotated meanwhile, and rotation forces the segment it closes
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to sync attendance log", e);
+        }
+    }
+
+    private void truncate(long length) {
+        if (length < 0) {
+            return;
+        }
+        try {
+            segment.truncate(length);
+        } catch (IOException e) {
+            log.warn("Failed to truncate attendance log segment after a failed append: {}", e.getMessage());
+        }
+    }
+
+    private void open(long number) throws IOException {
+        segmentNumber = number;
+        segment = FileChannel.open(dir.resolve(String.format("%020d%s", number, SUFFIX)),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(SUFFIX)).sorted().toList();
+        }
+    }
+
+    private static long number(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    }
+
+    private static void read(Path path, List<PendingAttendance> records) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        CRC32C crc = new CRC32C();
+        while (buffer.remaining() >= 2 * Integer.BYTES) {
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) {
+                log.warn("Ignoring torn record at the end of {}", path);
+                return;
+            }
+            ByteBuffer payload = buffer.slice(buffer.position(), length);
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                log.warn("Ignoring corrupt record at the end of {}", path);
+                return;
+            }
+            buffer.position(buffer.position() + length);
+            records.add(decode(payload));
+        }
+    }
+
+    static ByteBuffer encode(List<PendingAttendance> records) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(records.size() * 160);
+        CRC32C crc = new CRC32C();
+        try (DataOutputStream data = new DataOutputStream(out)) {
+            for (PendingAttendance record : records) {
+                ByteArrayOutputStream body = new ByteArrayOutputStream(128);
+                try (DataOutputStream fields = new DataOutputStream(body)) {
+                    fields.writeUTF(record.getClassId());
+                    fields.writeUTF(record.getSessionId());
+                    fields.writeUTF(record.getSessionStartedAt().toString());
+                    fields.writeUTF(record.getTimestamp().toString());
+                    fields.writeUTF(record.getStudentExternalId());
+                    fields.writeDouble(record.getConfidence());
+                    fields.writeBoolean(record.getPosition() != null);
+                    if (record.getPosition() != null) {
+                        fields.writeUTF(record.getPosition());
+                    }
+                }
+                byte[] payload = body.toByteArray();
+                crc.reset();
+                crc.update(payload);
+                data.writeInt(payload.length);
+                data.writeInt((int) crc.getValue());
+                data.write(payload);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return ByteBuffer.wrap(out.toByteArray());
+    }
+
+    private static PendingAttendance decode(ByteBuffer payload) throws IOException {
+        byte[] bytes = new byte[payload.remaining()];
+        payload.get(bytes);
+        try (DataInputStream fields = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            PendingAttendance.PendingAttendanceBuilder record = PendingAttendance.builder()
+                    .classId(fields.readUTF())
+                    .sessionId(fields.readUTF())
+                    .sessionStartedAt(LocalDateTime.parse(fields.readUTF()))
+                    .timestamp(LocalDateTime.parse(fields.readUTF()))
+                    .studentExternalId(fields.readUTF())
+                    .confidence(fields.readDouble());
+            if (fields.readBoolean()) {
+                record.position(fields.readUTF());
+            }
+            return record.build();
+        }
+    }
+}
@@ -1,21 +1,34 @@
 package com.ml_vision.ml_vision_backend.services;
 
+import com.ml_vision.ml_vision_backend.dto.PageResponse;
 import com.ml_vision.ml_vision_backend.entities.CourseClass;
+import com.ml_vision.ml_vision_backend.repositories.CourseClassJdbcRepository;
 import com.ml_vision.ml_vision_backend.repositories.CourseClassRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
 public class CourseClassService {
 
     private final CourseClassRepository repo;
+    private final CourseClassJdbcRepository classJdbc;
+    private final RosterIndex rosterIndex;
+    private final AttendanceReportService reportService;
 
-    public List<CourseClass> getAll() {
-        return repo.findAll();
+    private static final int MAX_PAGE = 1_000;
+
+    public PageResponse<CourseClass> getPage(String cursor, int limit) {
+        return classJdbc.findPage(cursor, Math.max(1, Math.min(limit, MAX_PAGE)));
+    }
+
+    @Transactional(readOnly = true)
+    public void streamAll(Consumer<? super CourseClass> sink) {
+        classJdbc.streamAll(sink);
     }
 
     public CourseClass create(CourseClass cls) {
@@ -31,11 +44,16 @@ public class CourseClassService {
             existing.setName(updated.getName());
             existing.setCode(updated.getCode());
             existing.setDescription(updated.getDescription());
-            return repo.save(existing);
+            CourseClass saved = repo.save(existing);
+            // cached reports carry the class name
+            reportService.recordsChanged(id);
+            return saved;
         });
     }
 
     public void delete(String id) {
         repo.deleteById(id);
+        rosterIndex.invalidate(id);
+        reportService.recordsChanged(id);
     }
 }
@@ -0,0 +1,119 @@
+package com.ml_vision.ml_vision_backend.services;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal streaming RFC 4180 reader: comma separated, fields optionally
+ * double-quoted, {@code ""} inside quotes is a literal quote and quoted
+ * fields may span lines. Reads one record at a time, so input of any size
+ * is parsed in constant memory.
+ */
+final class CsvReader implements Closeable {
+
+    private final Reader in;
+    private int peeked = -2;
+    private long line = 1;
+    private long recordLine;
+
+    CsvReader(Reader in) {
+        this.in = in;
+    }
+
+    /** The line the record last returned by {@link #next()} started on (1-based). */
+    long line() {
+        return recordLine;
+    }
+
+    /** The next record's fields, or null at end of input. Blank lines are skipped. */
+    List<String> next() throws IOException {
+        while (true) {
+            int c = read();
+            if (c == -1) {
+                return null;
+            }
+            if (c == '\r' || c == '\n') {
+                consumeLineBreak(c);
+                continue;
+            }
+            unread(c);
+            recordLine = line;
+            return record();
+        }
+    }
+
+    private List<String> record() throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean wasQuoted = false;
+        while (true) {
+            int c = read();
+            if (quoted) {
+                if (c == -1) {
+                    throw new IOException("Unterminated quoted field at line " + line);
+                }
+                if (c == '"') {
+                    int next = read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        unread(next);
+                    }
+                } else {
+                    if (c == '\n') {
+                        line++;
+                    }
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.isEmpty() && !wasQuoted) {
+                quoted = true;
+                wasQuoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+                wasQuoted = false;
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                fields.add(field.toString());
+                if (c != -1) {
+                    consumeLineBreak(c);
+                }
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+        }
+    }
+
+    private void consumeLineBreak(int c) throws IOException {
+        if (c == '\r') {
+            int next = read();
+            if (next != '\n') {
+                unread(next);
+            }
+        }
+        line++;
+    }
+
+    private int read() throws IOException {
+        if (peeked != -2) {
+            int c = peeked;
+            peeked = -2;
+            return c;
+        }
+        return in.read();
+    }
+
+    private void unread(int c) {
+        peeked = c;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
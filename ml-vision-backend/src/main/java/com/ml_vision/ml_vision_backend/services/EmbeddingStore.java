@@ -0,0 +1,226 @@
+package com.ml_vision.ml_vision_backend.services;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Append-only binary file of face encodings that survives restarts and is
+ * handed to recognizers as a single download, so neither side re-encodes
+ * photos that have not changed.
+ * <p>
+ * Layout (little-endian): a 16-byte header {@code "MLVE", version, dimensions, 0}
+ * followed by records {@code int length, byte kind, short idLength, id (UTF-8)}
+ * and, for {@link #KIND_ENCODING}, a 32-byte photo SHA-256 and
+ * {@code dimensions} floats. {@link #KIND_TOMBSTONE} records carry only the
+ * id. The last record for an id wins. The file is read through a
+ * {@link MappedByteBuffer}; a torn record at the tail (crash mid-append) is
+ * truncated, and the file is rewritten without superseded records on load
+ * once they outnumber live entries.
+ */
+@Slf4j
+@Component
+public class EmbeddingStore {
+
+    static final int MAGIC = 0x45564C4D; // "MLVE" read little-endian
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final byte KIND_ENCODING = 1;
+    static final byte KIND_TOMBSTONE = 2;
+    static final int PHOTO_HASH_BYTES = 32;
+
+    private final Path path;
+    private FileChannel appender;
+    private long length;
+    private long generation;
+
+    public EmbeddingStore(@Value("${attendance.embeddings.path:data/face-embeddings.bin}") String path) {
+        this.path = Paths.get(path);
+    }
+
+    /**
+     * Reads every live entry (externalId -> entry), creating or repairing the
+     * file as needed, and opens it for appends.
+     */
+    public synchronized Map<String, Entry> load() {
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            if (!Files.exists(path) || Files.size(path) < HEADER_BYTES) {
+                writeFile(path, Map.of());
+            }
+            Map<String, Entry> entries = new LinkedHashMap<>();
+            long records;
+            long validLength;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                readHeader(buffer);
+                records = 0;
+                while (buffer.remaining() >= Integer.BYTES) {
+                    int start = buffer.position();
+                    int recordLength = buffer.getInt();
+                    if (recordLength <= 0 || recordLength > buffer.remaining()) {
+                        buffer.position(start);
+                        break;
+                    }
+                    ByteBuffer record = buffer.slice(buffer.position(), recordLength).order(ByteOrder.LITTLE_ENDIAN);
+                    buffer.position(buffer.position() + recordLength);
+                    apply(record, entries);
+                    records++;
+                }
+                validLength = buffer.position();
+            }
+
+            if (records > 2L * entries.size() && records > 64) {
+                writeFile(path, entries);
+                log.info("Compacted face embedding store: {} records -> {}", records, entries.size());
+            } else if (validLength < Files.size(path)) {
+                log.warn("Truncating torn record at the end of {}", path);
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    channel.truncate(validLength);
+                }
+            }
+            openAppender();
+            return entries;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load face embedding store " + path, e);
+        }
+    }
+
+    public synchronized void append(String externalId, byte[] photoHash, float[] encoding) {
+        write(record(externalId, photoHash, encoding));
+    }
+
+    public synchronized void appendTombstone(String externalId) {
+        write(record(externalId, null, null));
+    }
+
+    /** Path and current length; bytes {@code [0, length)} are a complete store even while appends continue. */
+    public synchronized Snapshot snapshot() {
+        return new Snapshot(path, length, generation);
+    }
+
+    @PreDestroy
+    synchronized void close() throws IOException {
+        if (appender != null) {
+            appender.force(false);
+            appender.close();
+            appender = null;
+        }
+    }
+
+    private void write(ByteBuffer record) {
+        try {
+            if (appender == null) {
+                throw new IllegalStateException("Face embedding store has not been loaded");
+            }
+            while (record.hasRemaining()) {
+                length += appender.write(record);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to face embedding store " + path, e);
+        }
+    }
+
+    private void openAppender() throws IOException {
+        if (appender != null) {
+            appender.close();
+        }
+        appender = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        length = appender.size();
+        generation = System.currentTimeMillis();
+    }
+
+    private static void readHeader(ByteBuffer buffer) throws IOException {
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a face embedding store");
+        }
+        int version = buffer.getInt();
+        int dimensions = buffer.getInt();
+        buffer.getInt();
+        if (version != VERSION || dimensions != FaceGallery.DIMENSIONS) {
+            throw new IOException("Unsupported face embedding store version " + version + " / dimensions " + dimensions);
+        }
+    }
+
+    private static void apply(ByteBuffer record, Map<String, Entry> entries) {
+        byte kind = record.get();
+        byte[] id = new byte[record.getShort() & 0xFFFF];
+        record.get(id);
+        String externalId = new String(id, StandardCharsets.UTF_8);
+        if (kind == KIND_TOMBSTONE) {
+            entries.remove(externalId);
+            return;
+        }
+        byte[] photoHash = new byte[PHOTO_HASH_BYTES];
+        record.get(photoHash);
+        float[] encoding = new float[FaceGallery.DIMENSIONS];
+        record.asFloatBuffer().get(encoding);
+        entries.remove(externalId);
+        entries.put(externalId, new Entry(photoHash, encoding));
+    }
+
+    static ByteBuffer record(String externalId, byte[] photoHash, float[] encoding) {
+        byte[] id = externalId.getBytes(StandardCharsets.UTF_8);
+        int body = 1 + Short.BYTES + id.length
+                + (encoding != null ? PHOTO_HASH_BYTES + encoding.length * Float.BYTES : 0);
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + body).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(body);
+        buffer.put(encoding != null ? KIND_ENCODING : KIND_TOMBSTONE);
+        buffer.putShort((short) id.length);
+        buffer.put(id);
+        if (encoding != null) {
+            buffer.put(photoHash != null ? photoHash : new byte[PHOTO_HASH_BYTES]);
+            for (float value : encoding) {
+                buffer.putFloat(value);
+            }
+        }
+        return buffer.flip();
+    }
+
+    /** Writes a fresh file holding only {@code entries}, replacing {@code target} atomically. */
+    private static void writeFile(Path target, Map<String, Entry> entries) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN)
+                    .putInt(MAGIC).putInt(VERSION).putInt(FaceGallery.DIMENSIONS).putInt(0).flip();
+            channel.write(header);
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                ByteBuffer record = record(entry.getKey(), entry.getValue().photoHash(), entry.getValue().encoding());
+                while (record.hasRemaining()) {
+                    channel.write(record);
+                }
+            }
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** A stored encoding and the SHA-256 of the photo it was computed from (zeros if unknown). */
+    public record Entry(byte[] photoHash, float[] encoding) {
+    }
+
+    /** {@code generation} changes whenever the file may have been rewritten (each load). */
+    public record Snapshot(Path path, long length, long generation) {
+    }
+}
@@ -0,0 +1,83 @@
+package com.ml_vision.ml_vision_backend.services;
+
+import com.ml_vision.ml_vision_backend.entities.CourseClass;
+import com.ml_vision.ml_vision_backend.entities.Student;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+/**
+ * The Hibernate second-level cache regions holding {@link Student} (by id
+ * and by externalId) and {@link CourseClass} by id; sizes and TTLs are in
+ * {@code hibernate-caches.conf}.
+ * <p>
+ * Writes through JPA ({@link StudentService}, {@link CourseClassService},
+ * {@link RosterService}) keep the regions current on their own. Writes that
+ * bypass Hibernate, such as bulk imports, must evict through here.
+ * Registers {@code attendance.entity-cache.hit-ratio} per region, next to
+ * Hibernate's own {@code hibernate.second.level.cache.*} counters.
+ */
+@Component
+public class EntityCaches {
+
+    public static final String STUDENTS = "students";
+    public static final String STUDENTS_BY_EXTERNAL_ID = "students-by-external-id";
+    public static final String COURSE_CLASSES = "course-classes";
+
+    private final SessionFactory sessionFactory;
+
+    public EntityCaches(EntityManagerFactory entityManagerFactory, MeterRegistry meterRegistry) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        Statistics statistics = sessionFactory.getStatistics();
+        for (String region : List.of(STUDENTS, STUDENTS_BY_EXTERNAL_ID, COURSE_CLASSES)) {
+            Gauge.builder("attendance.entity-cache.hit-ratio", statistics, s -> hitRatio(s, region))
+                    .description("Share of second-level cache lookups answered without a query, since startup")
+                    .tag("region", region)
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Drops every cached student, after the current transaction commits if
+     * there is one (evicting earlier would let a concurrent read re-cache
+     * the old rows).
+     */
+    public void evictStudents() {
+        afterCommit(() -> {
+            Cache cache = sessionFactory.getCache();
+            cache.evictEntityData(Student.class);
+            cache.evictNaturalIdData(Student.class);
+        });
+    }
+
+    private static void afterCommit(Runnable eviction) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    eviction.run();
+                }
+            });
+        } else {
+            eviction.run();
+        }
+    }
+
+    private static double hitRatio(Statistics statistics, String region) {
+        CacheRegionStatistics stats = statistics.getCacheRegionStatistics(region);
+        if (stats == null) {
+            return Double.NaN;
+        }
+        long lookups = stats.getHitCount() + stats.getMissCount();
+        return lookups == 0 ? Double.NaN : (double) stats.getHitCount() / lookups;
+    }
+}
@@ -0,0 +1,189 @@
+package com.ml_vision.ml_vision_backend.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Face encodings of enrolled students (externalId -> 128-d vector), as
+ * computed by the Python recognizer from each student's photo.
+ * <p>
+ * Matching runs against per-class views that pack the encodings of a class
+ * roster into one contiguous {@code float[]}, row by row, so a search walks
+ * memory sequentially. A view is rebuilt when its {@link RosterIndex}
+ * snapshot changes or any encoding is added or removed.
+ * <p>
+ * Campus-wide lookups (open events, unrostered visitors) go through an
+ * {@link HnswIndex} over all encodings, updated incrementally as encodings
+ * are put or removed.
+ * <p>
+ * Every change is appended to the {@link EmbeddingStore}, which is loaded
+ * back here on startup and downloaded by recognizers so neither side
+ * re-encodes unchanged photos.
+ */
+@Component
+public class FaceGallery {
+
+    public static final int DIMENSIONS = 128;
+
+    private final RosterIndex rosterIndex;
+    private final EmbeddingStore store;
+    private final Map<String, float[]> encodings = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    private final Cache<String, ClassGallery> classes;
+    private final HnswIndex campusIndex;
+
+    public FaceGallery(RosterIndex rosterIndex,
+            EmbeddingStore store,
+            MeterRegistry meterRegistry,
+            @Value("${attendance.matcher.max-classes:1000}") long maxClasses,
+            @Value("${attendance.matcher.idle-timeout:PT2H}") Duration idleTimeout,
+            @Value("${attendance.matcher.hnsw.m:16}") int hnswM,
+            @Value("${attendance.matcher.hnsw.ef-construction:200}") int hnswEfConstruction,
+            @Value("${attendance.matcher.hnsw.ef-search:64}") int hnswEfSearch) {
+        this.rosterIndex = rosterIndex;
+        this.store = store;
+        this.campusIndex = new HnswIndex(hnswM, hnswEfConstruction, hnswEfSearch, 42);
+        store.load().forEach((externalId, entry) -> {
+            encodings.put(externalId, entry.encoding());
+            campusIndex.add(externalId, entry.encoding());
+        });
+        this.classes = Caffeine.newBuilder()
+                .maximumSize(maxClasses)
+                .expireAfterAccess(idleTimeout)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, classes, "attendance.matcher.classes");
+        Gauge.builder("attendance.matcher.encodings", encodings, Map::size)
+                .description("Student face encodings held for matching")
+                .register(meterRegistry);
+    }
+
+    public void put(String externalId, float[] encoding) {
+        put(externalId, encoding, null);
+    }
+
+    /**
+     * @param photoHash hex SHA-256 of the photo the encoding was computed from, if known
+     * @throws IllegalArgumentException if the encoding is not {@value #DIMENSIONS}-dimensional
+     *         or the hash is not 64 hex digits
+     */
+    public synchronized void put(String externalId, float[] encoding, String photoHash) {
+        requireDimensions(encoding);
+        byte[] hash = photoHash != null ? parsePhotoHash(photoHash) : null;
+        store.append(externalId, hash, encoding);
+        encodings.put(externalId, encoding.clone());
+        campusIndex.add(externalId, encoding);
+        version.incrementAndGet();
+    }
+
+    /**
+     * Drops a student's encoding. Inside a transaction it is dropped after
+     * commit, so a rolled-back update or delete keeps the student matchable.
+     */
+    public void remove(String externalId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    removeNow(externalId);
+                }
+            });
+        } else {
+            removeNow(externalId);
+        }
+    }
+
+    private synchronized void removeNow(String externalId) {
+        if (externalId != null && encodings.remove(externalId) != null) {
+            store.appendTombstone(externalId);
+            campusIndex.remove(externalId);
+            version.incrementAndGet();
+        }
+    }
+
+    /** Approximate index over every student's encoding, regardless of roster. */
+    public HnswIndex campusIndex() {
+        return campusIndex;
+    }
+
+    /** Returns the packed encodings of a class roster, building the view on first use. */
+    public ClassGallery forClass(String classId) {
+        RosterIndex.Snapshot roster = rosterIndex.get(classId);
+        long current = version.get();
+        ClassGallery gallery = classes.get(classId, k -> build(roster, current));
+        if (gallery.roster == roster && gallery.version == current) {
+            return gallery;
+        }
+        return classes.asMap().compute(classId, (k, existing) ->
+                existing != null && existing.roster == roster && existing.version == current
+                        ? existing
+                        : build(roster, current));
+    }
+
+    static void requireDimensions(float[] encoding) {
+        if (encoding == null || encoding.length != DIMENSIONS) {
+            throw new IllegalArgumentException("Face encodings must have " + DIMENSIONS + " dimensions");
+        }
+    }
+
+    private static byte[] parsePhotoHash(String photoHash) {
+        if (photoHash.length() != EmbeddingStore.PHOTO_HASH_BYTES * 2) {
+            throw new IllegalArgumentException("Photo hashes must be hex SHA-256 digests");
+        }
+        try {
+            return HexFormat.of().parseHex(photoHash);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Photo hashes must be hex SHA-256 digests");
+        }
+    }
+
+    private ClassGallery build(RosterIndex.Snapshot roster, long version) {
+        float[] vectors = new float[roster.size() * DIMENSIONS];
+        String[] ids = new String[roster.size()];
+        int rows = 0;
+        for (int i = 0; i < roster.size(); i++) {
+            float[] encoding = encodings.get(roster.externalIdAt(i));
+            if (encoding != null) {
+                System.arraycopy(encoding, 0, vectors, rows * DIMENSIONS, DIMENSIONS);
+                ids[rows++] = roster.externalIdAt(i);
+            }
+        }
+        return new ClassGallery(roster, version, vectors, ids, rows);
+    }
+
+    /** Encodings of one class roster: row {@code i} occupies {@code vectors[i * 128 .. i * 128 + 127]}. */
+    public static final class ClassGallery {
+
+        private final RosterIndex.Snapshot roster;
+        private final long version;
+        final float[] vectors;
+        final String[] externalIds;
+        final int rows;
+
+        ClassGallery(RosterIndex.Snapshot roster, long version, float[] vectors, String[] externalIds, int rows) {
+            this.roster = roster;
+            this.version = version;
+            this.vectors = vectors;
+            this.externalIds = externalIds;
+            this.rows = rows;
+        }
+
+        public int size() {
+            return rows;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.ml_vision.ml_vision_backend.services;
+
+import com.ml_vision.ml_vision_backend.dto.FaceMatchRequest;
+import com.ml_vision.ml_vision_backend.dto.MlRecognizedStudent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Nearest-neighbour matching of face encodings against a class roster's
+ * {@link FaceGallery}, by Euclidean distance as in {@code face_recognition}.
+ * A face matches its closest student when the distance is within
+ * {@code attendance.matcher.tolerance}; confidence is {@code 1 - distance}.
+ * <p>
+ * The scan allocates nothing per row. Galleries of at least
+ * {@code parallel-threshold} rows are split into chunks searched on the
+ * common fork-join pool.
+ * <p>
+ * Without a class, faces are matched campus-wide through the gallery's
+ * approximate {@link HnswIndex}.
+ */
+@Service
+public class FaceMatcher {
+
+    /** Returned by the scan kernels when there is no row to compare. */
+    static final long NO_MATCH = Long.MAX_VALUE;
+
+    private static final int PARALLEL_CHUNK_ROWS = 4096;
+
+    private final FaceGallery gallery;
+    private final double tolerance;
+    private final int parallelThreshold;
+
+    public FaceMatcher(FaceGallery gallery,
+            @Value("${attendance.matcher.tolerance:0.5}") double tolerance,
+            @Value("${attendance.matcher.parallel-threshold:20000}") int parallelThreshold) {
+        this.gallery = gallery;
+        this.tolerance = tolerance;
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * Matches each face against every enrolled student via the approximate
+     * campus index; faces without a student within tolerance are left out.
+     *
+     * @throws IllegalArgumentException if an encoding is not 128-dimensional
+     */
+    public List<MlRecognizedStudent> matchCampus(List<FaceMatchRequest.Face> faces) {
+        faces.forEach(face -> FaceGallery.requireDimensions(face.getEncoding()));
+
+        List<MlRecognizedStudent> matches = new ArrayList<>(faces.size());
+        for (FaceMatchRequest.Face face : faces) {
+            gallery.campusIndex().nearest(face.getEncoding())
+                    .filter(neighbor -> neighbor.distance() <= tolerance)
+                    .ifPresent(neighbor -> matches.add(recognized(neighbor.label(), neighbor.distance(), face)));
+        }
+        return matches;
+    }
+
+    /**
+     * Matches each face against the class roster; faces without a student
+     * within tolerance are left out.
+     *
+     * @throws IllegalArgumentException if an encoding is not 128-dimensional
+     */
+    public List<MlRecognizedStudent> match(String classId, List<FaceMatchRequest.Face> faces) {
+        faces.forEach(face -> FaceGallery.requireDimensions(face.getEncoding()));
+        FaceGallery.ClassGallery classGallery = gallery.forClass(classId);
+
+        List<MlRecognizedStudent> matches = new ArrayList<>(faces.size());
+        for (FaceMatchRequest.Face face : faces) {
+            long best = classGallery.rows >= parallelThreshold
+                    ? nearestParallel(classGallery.vectors, classGallery.rows, face.getEncoding())
+                    : nearest(classGallery.vectors, face.getEncoding(), 0, classGallery.rows);
+            if (best == NO_MATCH) {
+                continue;
+            }
+            double distance = Math.sqrt(distanceOf(best));
+            if (distance > tolerance) {
+                continue;
+            }
+            matches.add(recognized(classGallery.externalIds[rowOf(best)], distance, face));
+        }
+        return matches;
+    }
+
+    private static MlRecognizedStudent recognized(String externalId, double distance, FaceMatchRequest.Face face) {
+        MlRecognizedStudent match = new MlRecognizedStudent();
+        match.setStudentId(externalId);
+        match.setConfidence(1 - distance);
+        match.setPosition(face.getPosition());
+        return match;
+    }
+
+    /**
+     * Closest row in {@code [fromRow, toRow)} as {@code squaredDistance bits << 32 | row};
+     * distances are non-negative, so packed results order by distance, then row.
+     */
+    static long nearest(float[] vectors, float[] query, int fromRow, int toRow) {
+        float best = Float.POSITIVE_INFINITY;
+        int bestRow = -1;
+        for (int row = fromRow, offset = fromRow * FaceGallery.DIMENSIONS; row < toRow;
+                row++, offset += FaceGallery.DIMENSIONS) {
+            float distance = squaredDistance(vectors, offset, query, best);
+            if (distance < best) {
+                best = distance;
+                bestRow = row;
+            }
+        }
+        return bestRow < 0 ? NO_MATCH : ((long) Float.floatToRawIntBits(best) << 32) | bestRow;
+    }
+
+    static long nearestParallel(float[] vectors, int rows, float[] query) {
+        int chunks = (rows + PARALLEL_CHUNK_ROWS - 1) / PARALLEL_CHUNK_ROWS;
+        return IntStream.range(0, chunks)
+                .parallel()
+                .mapToLong(chunk -> nearest(vectors, query, chunk * PARALLEL_CHUNK_ROWS,
+                        Math.min(rows, (chunk + 1) * PARALLEL_CHUNK_ROWS)))
+                .min()
+                .orElse(NO_MATCH);
+    }
+
+    /**
+     * Squared distance between {@code query} and the row at {@code offset}.
+     * Four independent accumulators keep the FP adds pipelined; the sum is
+     * checked against {@code bound} every 32 dimensions so rows that cannot
+     * win are abandoned early.
+     */
+    static float squaredDistance(float[] vectors, int offset, float[] query, float bound) {
+        return squaredDistance(vectors, offset, query, 0, bound);
+    }
+
+    static float squaredDistance(float[] vectors, int offset, float[] query, int queryOffset, float bound) {
+        float s0 = 0;
+        float s1 = 0;
+        float s2 = 0;
+        float s3 = 0;
+        for (int block = 0; block < FaceGallery.DIMENSIONS; block += 32) {
+            for (int i = block; i < block + 32; i += 4) {
+                float d0 = vectors[offset + i] - query[queryOffset + i];
+                float d1 = vectors[offset + i + 1] - query[queryOffset + i + 1];
+                float d2 = vectors[offset + i + 2] - query[queryOffset + i + 2];
+                float d3 = vectors[offset + i + 3] - query[queryOffset + i + 3];
+                s0 += d0 * d0;
+                s1 += d1 * d1;
+                s2 += d2 * d2;
+                s3 += d3 * d3;
+            }
+            if ((s0 + s1) + (s2 + s3) >= bound) {
+                return Float.POSITIVE_INFINITY;
+            }
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    static int rowOf(long packed) {
+        return (int) packed;
+    }
+
+    static float distanceOf(long packed) {
+        return Float.intBitsToFloat((int) (packed >>> 32));
+    }
+}
@@ -0,0 +1,268 @@
+package com.ml_vision.ml_vision_backend.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ml_vision.ml_vision_backend.dto.MlRecognizeResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Processes camera frames off the servlet threads in three stages: accept
+ * (enqueue and hand out a ticket), recognize (call the Python recognizer) and
+ * persist (record attendance). Stages are joined by bounded queues; when the
+ * recognize queue is full new frames are rejected with
+ * {@link OverloadedException} instead of queueing without limit.
+ * <p>
+ * A recognize worker coalesces whatever frames arrive within
+ * {@code batch-wait} (up to {@code batch-size}, from any camera) into a
+ * single {@code /recognize/batch} call and fans the per-image results back
+ * out. A batch size of 1 keeps the one-call-per-frame behaviour.
+ * <p>
+ * Frames that {@link FrameSimilarityGate} finds nearly identical to the
+ * camera's last recognized frame complete immediately with that result and
+ * never enter the queues.
+ */
+@Slf4j
+@Service
+public class FramePipeline {
+
+    private final RecognizerClient recognizer;
+    private final FrameSimilarityGate similarityGate;
+    private final AttendanceService attendanceService;
+    private final BlockingQueue<FrameJob> recognizeQueue;
+    private final BlockingQueue<FrameJob> persistQueue;
+    private final ExecutorService recognizeWorkers;
+    private final ExecutorService persistWorkers;
+    private final Cache<String, FrameJob> tickets;
+    private final Counter rejected;
+    private final DistributionSummary batchSizes;
+    private final int batchSize;
+    private final Duration batchWait;
+    @Getter
+    private final Duration retryAfter;
+
+    public FramePipeline(RecognizerClient recognizer,
+            FrameSimilarityGate similarityGate,
+            AttendanceService attendanceService,
+            MeterRegistry meterRegistry,
+            @Value("${attendance.pipeline.recognize-queue-capacity:64}") int recognizeQueueCapacity,
+            @Value("${attendance.pipeline.persist-queue-capacity:256}") int persistQueueCapacity,
+            @Value("${attendance.pipeline.recognize-workers:8}") int recognizeWorkerCount,
+            @Value("${attendance.pipeline.persist-workers:2}") int persistWorkerCount,
+            @Value("${attendance.pipeline.ticket-ttl:PT5M}") Duration ticketTtl,
+            @Value("${attendance.pipeline.retry-after:PT1S}") Duration retryAfter,
+            @Value("${attendance.pipeline.batch-size:8}") int batchSize,
+            @Value("${attendance.pipeline.batch-wait:PT0.005S}") Duration batchWait) {
+        this.recognizer = recognizer;
+        this.similarityGate = similarityGate;
+        this.attendanceService = attendanceService;
+        this.recognizeQueue = new ArrayBlockingQueue<>(recognizeQueueCapacity);
+        this.persistQueue = new ArrayBlockingQueue<>(persistQueueCapacity);
+        this.tickets = Caffeine.newBuilder().expireAfterWrite(ticketTtl).build();
+        this.retryAfter = retryAfter;
+        this.batchSize = Math.max(1, batchSize);
+        this.batchWait = batchWait;
+
+        this.rejected = Counter.builder("attendance.pipeline.rejected")
+                .description("Frames rejected because the pipeline was full")
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("attendance.pipeline.batch.size")
+                .description("Frames per recognizer call")
+                .register(meterRegistry);
+        Gauge.builder("attendance.pipeline.queue", recognizeQueue, BlockingQueue::size)
+                .tag("stage", "recognize")
+                .register(meterRegistry);
+        Gauge.builder("attendance.pipeline.queue", persistQueue, BlockingQueue::size)
+                .tag("stage", "persist")
+                .register(meterRegistry);
+
+        this.recognizeWorkers = startWorkers("frame-recognize", recognizeWorkerCount, this::recognizeLoop);
+        this.persistWorkers = startWorkers("frame-persist", persistWorkerCount, this::persistLoop);
+    }
+
+    /**
+     * Accepts a frame for processing and returns its job immediately.
+     *
+     * @param cameraId distinguishes several cameras in one session; may be null
+     * @throws OverloadedException if the recognize stage is saturated
+     */
+    public FrameJob submit(byte[] image, String filename, String classId, String sessionId, String cameraId) {
+        FrameJob job = new FrameJob(UUID.randomUUID().toString(), image, filename, classId, sessionId, cameraId);
+        FrameSimilarityGate.Admission admission = similarityGate.admit(classId, sessionId, cameraId, image);
+        if (admission.reuse().isPresent()) {
+            // the reused result was already persisted when its frame was processed
+            job.image = null;
+            job.result.complete(admission.reuse().get());
+            tickets.put(job.getTicket(), job);
+            return job;
+        }
+        job.hash = admission.hash();
+        if (!recognizeQueue.offer(job)) {
+            rejected.increment();
+            throw new OverloadedException();
+        }
+        similarityGate.queued();
+        tickets.put(job.getTicket(), job);
+        return job;
+    }
+
+    public Optional<FrameJob> find(String ticket) {
+        return Optional.ofNullable(tickets.getIfPresent(ticket));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        recognizeWorkers.shutdownNow();
+        persistWorkers.shutdownNow();
+    }
+
+    private void recognizeLoop() throws InterruptedException {
+        List<FrameJob> batch = collectBatch();
+        batchSizes.record(batch.size());
+        List<MlRecognizeResponse> results;
+        try {
+            results = batch.size() == 1
+                    ? List.of(recognizer.recognize(batch.get(0).image, batch.get(0).filename, batch.get(0).classId))
+                    : recognizer.recognizeBatch(batch.stream()
+                            .map(job -> new RecognizerClient.Frame(job.image, job.filename, job.classId))
+                            .toList());
+        } catch (RuntimeException e) {
+            log.warn("Recognition failed for {} frame(s): {}", batch.size(), e.getMessage());
+            batch.forEach(job -> job.result.completeExceptionally(e));
+            return;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            FrameJob job = batch.get(i);
+            MlRecognizeResponse recognized = results.get(i);
+            job.image = null;
+            if (recognized != null && recognized.getError() != null) {
+                log.warn("Recognition failed for frame {}: {}", job.getTicket(), recognized.getError());
+                job.result.completeExceptionally(new RestClientException(recognized.getError()));
+                continue;
+            }
+            job.recognized = recognized;
+            // blocks when persistence falls behind, which in turn fills the recognize queue
+            persistQueue.put(job);
+        }
+    }
+
+    /** Blocks for one frame, then gathers more until the batch is full or the wait elapses. */
+    private List<FrameJob> collectBatch() throws InterruptedException {
+        List<FrameJob> batch = new ArrayList<>(batchSize);
+        batch.add(recognizeQueue.take());
+        long deadline = System.nanoTime() + batchWait.toNanos();
+        while (batch.size() < batchSize) {
+            recognizeQueue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() == batchSize || remaining <= 0) {
+                break;
+            }
+            FrameJob next = recognizeQueue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+        return batch;
+    }
+
+    private void persistLoop() throws InterruptedException {
+        FrameJob job = persistQueue.take();
+        try {
+            MlRecognizeResponse recognized = job.recognized;
+            if (recognized != null && recognized.getRecognized() != null) {
+                attendanceService.submitBatch(job.classId, job.sessionId, null, recognized.getRecognized());
+            }
+            job.hash.ifPresent(hash ->
+                    similarityGate.processed(job.classId, job.sessionId, job.cameraId, hash, recognized));
+            job.result.complete(recognized);
+        } catch (RuntimeException e) {
+            log.warn("Persisting frame {} failed: {}", job.getTicket(), e.getMessage());
+            job.result.completeExceptionally(e);
+        }
+    }
+
+    private static ExecutorService startWorkers(String name, int count, StageLoop loop) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(count, r -> {
+            Thread thread = new Thread(r, name + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < count; i++) {
+            workers.execute(() -> {
+                try {
+                    while (!Thread.currentThread().isInterrupted()) {
+                        loop.runOnce();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        return workers;
+    }
+
+    @FunctionalInterface
+    private interface StageLoop {
+        void runOnce() throws InterruptedException;
+    }
+
+    /** A frame travelling through the pipeline; its ticket can be polled until it expires. */
+    public static final class FrameJob {
+
+        @Getter
+        private final String ticket;
+        private final String filename;
+        private final String classId;
+        private final String sessionId;
+        private final String cameraId;
+        private final CompletableFuture<MlRecognizeResponse> result = new CompletableFuture<>();
+        private volatile byte[] image;
+        private volatile MlRecognizeResponse recognized;
+        private volatile OptionalLong hash = OptionalLong.empty();
+
+        FrameJob(String ticket, byte[] image, String filename, String classId, String sessionId, String cameraId) {
+            this.ticket = ticket;
+            this.image = image;
+            this.filename = filename;
+            this.classId = classId;
+            this.sessionId = sessionId;
+            this.cameraId = cameraId;
+        }
+
+        public CompletableFuture<MlRecognizeResponse> result() {
+            return result;
+        }
+    }
+
+    /** Raised when a frame cannot be accepted because the pipeline is saturated. */
+    public static class OverloadedException extends RuntimeException {
+        public OverloadedException() {
+            super("Frame pipeline is saturated");
+        }
+    }
+}
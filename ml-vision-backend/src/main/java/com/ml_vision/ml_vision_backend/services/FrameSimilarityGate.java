@@ -0,0 +1,177 @@
+package com.ml_vision.ml_vision_backend.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ml_vision.ml_vision_backend.dto.MlRecognizeResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+/**
+ * Skips recognition of frames that barely differ from the last frame that
+ * was recognized for the same class, session and camera. Frames are compared
+ * by a 64-bit difference hash (dHash) of their downscaled luminance; when the
+ * hamming distance is within {@code attendance.frame-gate.max-distance} the
+ * previous result is reused. Remembered results expire after
+ * {@code refresh-interval}, which forces a periodic re-recognition.
+ */
+@Component
+public class FrameSimilarityGate {
+
+    private static final int GRID_WIDTH = 9;
+    private static final int GRID_HEIGHT = 8;
+    private static final double FLAT_MARGIN = 2.0;
+
+    private final Cache<CameraKey, Processed> lastProcessed;
+    private final int maxDistance;
+    private final boolean enabled;
+    private final Counter skipped;
+    private final Counter processed;
+
+    public FrameSimilarityGate(MeterRegistry meterRegistry,
+            @Value("${attendance.frame-gate.enabled:true}") boolean enabled,
+            @Value("${attendance.frame-gate.max-distance:5}") int maxDistance,
+            @Value("${attendance.frame-gate.refresh-interval:PT30S}") Duration refreshInterval,
+            @Value("${attendance.frame-gate.max-cameras:10000}") long maxCameras) {
+        this.enabled = enabled;
+        this.maxDistance = maxDistance;
+        this.lastProcessed = Caffeine.newBuilder()
+                .maximumSize(maxCameras)
+                .expireAfterWrite(refreshInterval)
+                .build();
+        this.skipped = Counter.builder("attendance.frames.gated")
+                .description("Camera frames by similarity gate outcome (skipped frames reuse the previous result)")
+                .tag("outcome", "skipped")
+                .register(meterRegistry);
+        this.processed = Counter.builder("attendance.frames.gated")
+                .description("Camera frames by similarity gate outcome (skipped frames reuse the previous result)")
+                .tag("outcome", "processed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the previous result if {@code image} is a near-duplicate of the
+     * last recognized frame for the camera; otherwise returns empty along with
+     * a hash to hand to {@link #processed} once the frame has been recognized.
+     * A frame that is not skipped counts as processed only once the caller
+     * reports it {@link #queued}, so frames rejected for overload are not counted.
+     */
+    public Admission admit(String classId, String sessionId, String cameraId, byte[] image) {
+        if (!enabled) {
+            return new Admission(OptionalLong.empty(), Optional.empty());
+        }
+        OptionalLong hash = dHash(image);
+        if (hash.isPresent()) {
+            Processed previous = lastProcessed.getIfPresent(new CameraKey(classId, sessionId, cameraId));
+            if (previous != null && Long.bitCount(previous.hash() ^ hash.getAsLong()) <= maxDistance) {
+                skipped.increment();
+                return new Admission(hash, Optional.of(previous.result()));
+            }
+        }
+        return new Admission(hash, Optional.empty());
+    }
+
+    /** Counts a frame that was not skipped once it has been queued for recognition. */
+    public void queued() {
+        if (enabled) {
+            processed.increment();
+        }
+    }
+
+    /** Remembers the result of a recognized frame as the reference for its camera. */
+    public void processed(String classId, String sessionId, String cameraId, long hash, MlRecognizeResponse result) {
+        lastProcessed.put(new CameraKey(classId, sessionId, cameraId), new Processed(hash, result));
+    }
+
+    /**
+     * dHash of an encoded image: mean luminance over a 9x8 grid, one bit per
+     * horizontally adjacent pair (left clearly darker than right). Empty if
+     * the bytes are not a readable image.
+     */
+    static OptionalLong dHash(byte[] encoded) {
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(encoded))) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) {
+                return OptionalLong.empty();
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                // decode only every n-th pixel, keeping about 8x8 samples per grid cell
+                int step = Math.max(1, Math.min(
+                        reader.getWidth(0) / (GRID_WIDTH * 8), reader.getHeight(0) / (GRID_HEIGHT * 8)));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return OptionalLong.of(dHash(reader.read(0, param)));
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException | RuntimeException e) {
+            return OptionalLong.empty();
+        }
+    }
+
+    static long dHash(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        long[] sums = new long[GRID_WIDTH * GRID_HEIGHT];
+        int[] counts = new int[GRID_WIDTH * GRID_HEIGHT];
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            int cellRow = y * GRID_HEIGHT / height * GRID_WIDTH;
+            for (int x = 0; x < width; x++) {
+                int rgb = row[x];
+                // integer Rec. 601 luma
+                int luma = (299 * ((rgb >> 16) & 0xff) + 587 * ((rgb >> 8) & 0xff) + 114 * (rgb & 0xff)) / 1000;
+                int cell = cellRow + x * GRID_WIDTH / width;
+                sums[cell] += luma;
+                counts[cell]++;
+            }
+        }
+
+        long hash = 0;
+        for (int y = 0; y < GRID_HEIGHT; y++) {
+            for (int x = 0; x < GRID_WIDTH - 1; x++) {
+                int cell = y * GRID_WIDTH + x;
+                hash <<= 1;
+                // the margin keeps flat regions (walls, desks) from flipping bits on sensor noise
+                if (mean(sums, counts, cell) + FLAT_MARGIN < mean(sums, counts, cell + 1)) {
+                    hash |= 1;
+                }
+            }
+        }
+        return hash;
+    }
+
+    private static double mean(long[] sums, int[] counts, int cell) {
+        return counts[cell] == 0 ? 0 : (double) sums[cell] / counts[cell];
+    }
+
+    /**
+     * Outcome of {@link #admit}: {@code reuse} holds the previous result when
+     * the frame can be skipped; {@code hash} is empty if the image could not
+     * be hashed.
+     */
+    public record Admission(OptionalLong hash, Optional<MlRecognizeResponse> reuse) {
+    }
+
+    private record CameraKey(String classId, String sessionId, String cameraId) {
+    }
+
+    private record Processed(long hash, MlRecognizeResponse result) {
+    }
+}
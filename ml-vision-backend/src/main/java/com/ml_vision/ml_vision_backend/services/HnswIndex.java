@@ -0,0 +1,454 @@
+package com.ml_vision.ml_vision_backend.services;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Hierarchical navigable small world graph (Malkov &amp; Yashunin) over
+ * {@value FaceGallery#DIMENSIONS}-d vectors for approximate nearest-neighbour
+ * search by Euclidean distance.
+ * <p>
+ * {@code m} bounds the links per node (twice that on the bottom layer),
+ * {@code efConstruction} the candidate list while inserting and
+ * {@code efSearch} the candidate list while querying; raising either ef
+ * trades latency for recall. Vectors live in one growing {@code float[]}
+ * indexed by node id.
+ * <p>
+ * Removal leaves a tombstone that is still traversed but never returned
+ * (queries keep expanding until they hold {@code ef} live nodes); once tombstones outnumber live nodes the graph is rebuilt from the live
+ * ones. Writers are serialized; searches run concurrently.
+ */
+public class HnswIndex {
+
+    private static final int DIM = FaceGallery.DIMENSIONS;
+
+    private final int m;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final SplittableRandom random;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ThreadLocal<Visited> visited = ThreadLocal.withInitial(Visited::new);
+    private volatile int efSearch;
+
+    private float[] vectors = new float[0];
+    private String[] labels = new String[0];
+    private int[][][] links = new int[0][][];
+    private boolean[] deleted = new boolean[0];
+    private final Map<String, Integer> nodeByLabel = new HashMap<>();
+    private int size;
+    private int tombstones;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    public HnswIndex(int m, int efConstruction, int efSearch, long seed) {
+        if (m < 2) {
+            throw new IllegalArgumentException("m must be at least 2");
+        }
+        this.m = m;
+        this.efConstruction = Math.max(efConstruction, m);
+        this.efSearch = efSearch;
+        this.levelMultiplier = 1 / Math.log(m);
+        this.random = new SplittableRandom(seed);
+    }
+
+    /** Inserts a vector, replacing any previous vector with the same label. */
+    public void add(String label, float[] vector) {
+        FaceGallery.requireDimensions(vector);
+        lock.writeLock().lock();
+        try {
+            Integer previous = nodeByLabel.get(label);
+            if (previous != null) {
+                tombstone(previous);
+            }
+            insert(label, vector);
+            compactIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String label) {
+        lock.writeLock().lock();
+        try {
+            Integer node = nodeByLabel.get(label);
+            if (node != null) {
+                tombstone(node);
+                compactIfSparse();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Live vectors in the index. */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return nodeByLabel.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void setEfSearch(int efSearch) {
+        this.efSearch = efSearch;
+    }
+
+    /** Approximate nearest live vector, using the configured {@code efSearch}. */
+    public Optional<Neighbor> nearest(float[] query) {
+        return nearest(query, efSearch);
+    }
+
+    public Optional<Neighbor> nearest(float[] query, int ef) {
+        FaceGallery.requireDimensions(query);
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0) {
+                return Optional.empty();
+            }
+            int current = entryPoint;
+            for (int layer = maxLevel; layer > 0; layer--) {
+                current = greedyClosest(query, current, layer);
+            }
+            long[] found = searchLayer(query, current, Math.max(ef, 1), 0, true).drainAscending();
+            return found.length == 0
+                    ? Optional.empty()
+                    : Optional.of(new Neighbor(labels[node(found[0])], Math.sqrt(distance(found[0]))));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void insert(String label, float[] vector) {
+        int node = size++;
+        ensureCapacity(size);
+        System.arraycopy(vector, 0, vectors, node * DIM, DIM);
+        labels[node] = label;
+        nodeByLabel.put(label, node);
+
+        int level = (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+        links[node] = new int[level + 1][];
+        for (int layer = 0; layer <= level; layer++) {
+            links[node][layer] = new int[]{0};
+        }
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+
+        int current = entryPoint;
+        for (int layer = maxLevel; layer > level; layer--) {
+            current = greedyClosest(vector, current, layer);
+        }
+        for (int layer = Math.min(level, maxLevel); layer >= 0; layer--) {
+            LongHeap candidates = searchLayer(vector, current, efConstruction, layer, false);
+            long[] sorted = candidates.drainAscending();
+            current = node(sorted[0]);
+            int[] selected = selectNeighbors(sorted, maxLinks(layer));
+            setLinks(node, layer, selected);
+            for (int neighbor : selected) {
+                connect(neighbor, node, layer);
+            }
+        }
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+    }
+
+    /** Adds {@code target} to the links of {@code node}, pruning with the heuristic when full. */
+    private void connect(int node, int target, int layer) {
+        int[] current = links[node][layer];
+        int count = current[0];
+        int capacity = maxLinks(layer);
+        if (count < capacity) {
+            if (current.length < count + 2) {
+                current = Arrays.copyOf(current, capacity + 1);
+                links[node][layer] = current;
+            }
+            current[count + 1] = target;
+            current[0] = count + 1;
+            return;
+        }
+        long[] candidates = new long[count + 1];
+        for (int i = 0; i < count; i++) {
+            candidates[i] = pack(squaredDistance(node, current[i + 1], Float.POSITIVE_INFINITY), current[i + 1]);
+        }
+        candidates[count] = pack(squaredDistance(node, target, Float.POSITIVE_INFINITY), target);
+        Arrays.sort(candidates);
+        setLinks(node, layer, selectNeighbors(candidates, capacity));
+    }
+
+    /**
+     * Neighbour selection heuristic: keep a candidate only if it is closer to
+     * the new node than to every neighbour already kept, which preserves links
+     * between clusters; fill remaining slots with the closest discarded ones.
+     */
+    private int[] selectNeighbors(long[] ascending, int capacity) {
+        int[] selected = new int[Math.min(capacity, ascending.length)];
+        int count = 0;
+        boolean[] taken = new boolean[ascending.length];
+        for (int i = 0; i < ascending.length && count < selected.length; i++) {
+            int candidate = node(ascending[i]);
+            float toQuery = distance(ascending[i]);
+            boolean diverse = true;
+            for (int j = 0; j < count && diverse; j++) {
+                diverse = squaredDistance(candidate, selected[j], toQuery) >= toQuery;
+            }
+            if (diverse) {
+                selected[count++] = candidate;
+                taken[i] = true;
+            }
+        }
+        for (int i = 0; i < ascending.length && count < selected.length; i++) {
+            if (!taken[i]) {
+                selected[count++] = node(ascending[i]);
+            }
+        }
+        return selected;
+    }
+
+    private int greedyClosest(float[] query, int start, int layer) {
+        int current = start;
+        float best = squaredDistance(query, current, Float.POSITIVE_INFINITY);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int[] neighbors = links[current][layer];
+            for (int i = 1; i <= neighbors[0]; i++) {
+                float d = squaredDistance(query, neighbors[i], best);
+                if (d < best) {
+                    best = d;
+                    current = neighbors[i];
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Best-first search of one layer; returns up to {@code ef} closest nodes as
+     * a max-heap. With {@code liveOnly}, tombstones are traversed but not
+     * collected, so the search runs on until it holds {@code ef} live nodes
+     * (or the layer is exhausted).
+     */
+    private LongHeap searchLayer(float[] query, int start, int ef, int layer, boolean liveOnly) {
+        Visited seen = visited.get();
+        seen.reset(size);
+        LongHeap candidates = new LongHeap(false);
+        LongHeap results = new LongHeap(true);
+        long first = pack(squaredDistance(query, start, Float.POSITIVE_INFINITY), start);
+        seen.mark(start);
+        candidates.add(first);
+        if (!liveOnly || !deleted[start]) {
+            results.add(first);
+        }
+        while (candidates.size() > 0) {
+            long closest = candidates.poll();
+            if (results.size() >= ef && distance(closest) > distance(results.peek())) {
+                break;
+            }
+            int[] neighbors = links[node(closest)][layer];
+            for (int i = 1; i <= neighbors[0]; i++) {
+                int neighbor = neighbors[i];
+                if (!seen.mark(neighbor)) {
+                    continue;
+                }
+                float bound = results.size() < ef ? Float.POSITIVE_INFINITY : distance(results.peek());
+                float d = squaredDistance(query, neighbor, bound);
+                if (d < bound) {
+                    long packed = pack(d, neighbor);
+                    candidates.add(packed);
+                    if (!liveOnly || !deleted[neighbor]) {
+                        results.add(packed);
+                        if (results.size() > ef) {
+                            results.poll();
+                        }
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    private void tombstone(int node) {
+        deleted[node] = true;
+        nodeByLabel.remove(labels[node]);
+        tombstones++;
+    }
+
+    private void compactIfSparse() {
+        if (tombstones <= nodeByLabel.size() || tombstones < 64) {
+            return;
+        }
+        float[] oldVectors = vectors;
+        String[] oldLabels = labels;
+        boolean[] oldDeleted = deleted;
+        int oldSize = size;
+
+        vectors = new float[0];
+        labels = new String[0];
+        links = new int[0][][];
+        deleted = new boolean[0];
+        nodeByLabel.clear();
+        size = 0;
+        tombstones = 0;
+        entryPoint = -1;
+        maxLevel = -1;
+        for (int node = 0; node < oldSize; node++) {
+            if (!oldDeleted[node]) {
+                insert(oldLabels[node], Arrays.copyOfRange(oldVectors, node * DIM, (node + 1) * DIM));
+            }
+        }
+    }
+
+    private void setLinks(int node, int layer, int[] neighbors) {
+        int[] stored = new int[maxLinks(layer) + 1];
+        stored[0] = neighbors.length;
+        System.arraycopy(neighbors, 0, stored, 1, neighbors.length);
+        links[node][layer] = stored;
+    }
+
+    private int maxLinks(int layer) {
+        return layer == 0 ? 2 * m : m;
+    }
+
+    private void ensureCapacity(int needed) {
+        if (labels.length >= needed) {
+            return;
+        }
+        int capacity = Math.max(needed, Math.max(16, labels.length * 2));
+        vectors = Arrays.copyOf(vectors, capacity * DIM);
+        labels = Arrays.copyOf(labels, capacity);
+        links = Arrays.copyOf(links, capacity);
+        deleted = Arrays.copyOf(deleted, capacity);
+    }
+
+    private float squaredDistance(float[] query, int node, float bound) {
+        return FaceMatcher.squaredDistance(vectors, node * DIM, query, bound);
+    }
+
+    /** Distance between two nodes, or infinity once it reaches {@code bound}. */
+    private float squaredDistance(int a, int b, float bound) {
+        return FaceMatcher.squaredDistance(vectors, a * DIM, vectors, b * DIM, bound);
+    }
+
+    private static long pack(float squaredDistance, int node) {
+        return ((long) Float.floatToRawIntBits(squaredDistance) << 32) | node;
+    }
+
+    private static int node(long packed) {
+        return (int) packed;
+    }
+
+    private static float distance(long packed) {
+        return Float.intBitsToFloat((int) (packed >>> 32));
+    }
+
+    /** A search hit: the label and its Euclidean distance to the query. */
+    public record Neighbor(String label, double distance) {
+    }
+
+    /** Per-thread visited marks, cleared by bumping a generation instead of zeroing. */
+    private static final class Visited {
+
+        private int[] marks = new int[0];
+        private int generation;
+
+        void reset(int size) {
+            if (marks.length < size) {
+                marks = new int[Math.max(size, marks.length * 2)];
+                generation = 0;
+            }
+            if (++generation == Integer.MAX_VALUE) {
+                Arrays.fill(marks, 0);
+                generation = 1;
+            }
+        }
+
+        /** Marks a node; returns false if it was already marked. */
+        boolean mark(int node) {
+            if (marks[node] == generation) {
+                return false;
+            }
+            marks[node] = generation;
+            return true;
+        }
+    }
+
+    /** Binary heap of packed (distance, node) longs; ordered by distance, then node. */
+    private static final class LongHeap {
+
+        private final boolean max;
+        private long[] items = new long[16];
+        private int size;
+
+        LongHeap(boolean max) {
+            this.max = max;
+        }
+
+        int size() {
+            return size;
+        }
+
+        long peek() {
+            return items[0];
+        }
+
+        void add(long item) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!before(item, items[parent])) {
+                    break;
+                }
+                items[i] = items[parent];
+                i = parent;
+            }
+            items[i] = item;
+        }
+
+        long poll() {
+            long top = items[0];
+            long last = items[--size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && before(items[child + 1], items[child])) {
+                    child++;
+                }
+                if (!before(items[child], last)) {
+                    break;
+                }
+                items[i] = items[child];
+                i = child;
+            }
+            items[i] = last;
+            return top;
+        }
+
+        long[] drainAscending() {
+            long[] sorted = Arrays.copyOf(items, size);
+            size = 0;
+            Arrays.sort(sorted);
+            return sorted;
+        }
+
+        private boolean before(long a, long b) {
+            return max ? a > b : a < b;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.ml_vision.ml_vision_backend.services;
+
+import com.ml_vision.ml_vision_backend.config.MlClientProperties;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * One outbound Python endpoint: a keep-alive connection pool with its own
+ * connect/read timeouts, guarded by a bulkhead (bounded concurrent calls)
+ * and a circuit breaker that fails fast while the service is unhealthy.
+ * Every call is timed into {@code attendance.ml.client.requests}.
+ */
+public class MlEndpoint implements AutoCloseable {
+
+    @Getter
+    private final String name;
+    @Getter
+    private final String url;
+    private final CloseableHttpClient httpClient;
+    private final RestTemplate restTemplate;
+    @Getter
+    private final Bulkhead bulkhead;
+    @Getter
+    private final CircuitBreaker circuitBreaker;
+    private final Timer successes;
+    private final Timer errors;
+
+    MlEndpoint(String name, MlClientProperties.Endpoint config, Duration idleTimeout,
+            Bulkhead bulkhead, CircuitBreaker circuitBreaker, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.url = config.getUrl();
+        this.bulkhead = bulkhead;
+        this.circuitBreaker = circuitBreaker;
+        this.successes = requestTimer(name, "success", meterRegistry);
+        this.errors = requestTimer(name, "error", meterRegistry);
+
+        PoolingHttpClientConnectionManager pool = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(config.getMaxConcurrentCalls())
+                .setMaxConnPerRoute(config.getMaxConcurrentCalls())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(config.getConnectTimeout().toMillis()))
+                        .setSocketTimeout(Timeout.ofMilliseconds(config.getReadTimeout().toMillis()))
+                        .build())
+                .build();
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(pool)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(config.getConnectTimeout().toMillis()))
+                        .setResponseTimeout(Timeout.ofMilliseconds(config.getReadTimeout().toMillis()))
+                        .build())
+                .evictIdleConnections(TimeValue.ofMilliseconds(idleTimeout.toMillis()))
+                .evictExpiredConnections()
+                .build();
+        this.restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+    }
+
+    /**
+     * Runs a request against this endpoint's pooled {@link RestTemplate}.
+     *
+     * @throws BulkheadFullException     if too many calls are already in flight
+     * @throws CallNotPermittedException if the circuit breaker is open
+     */
+    public <T> T call(Function<RestTemplate, T> request) {
+        return Bulkhead.decorateSupplier(bulkhead,
+                CircuitBreaker.decorateSupplier(circuitBreaker, () -> timed(request))).get();
+    }
+
+    private <T> T timed(Function<RestTemplate, T> request) {
+        long started = System.nanoTime();
+        Timer timer = errors;
+        try {
+            T result = request.apply(restTemplate);
+            timer = successes;
+            return result;
+        } finally {
+            timer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static Timer requestTimer(String endpoint, String outcome, MeterRegistry meterRegistry) {
+        return Timer.builder("attendance.ml.client.requests")
+                .description("Latency of calls to the Python services")
+                .tag("endpoint", endpoint)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void close() {
+        try {
+            httpClient.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
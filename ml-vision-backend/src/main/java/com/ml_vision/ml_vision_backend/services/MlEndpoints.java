@@ -0,0 +1,68 @@
+package com.ml_vision.ml_vision_backend.services;
+
+import com.ml_vision.ml_vision_backend.config.MlClientProperties;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Registry of the configured {@link MlEndpoint}s. Circuit breaker state and
+ * bulkhead saturation are published as {@code resilience4j.*} metrics.
+ */
+@Component
+public class MlEndpoints implements DisposableBean {
+
+    private final Map<String, MlEndpoint> endpoints = new LinkedHashMap<>();
+
+    public MlEndpoints(MlClientProperties properties, MeterRegistry meterRegistry) {
+        CircuitBreakerRegistry circuitBreakers = CircuitBreakerRegistry.ofDefaults();
+        BulkheadRegistry bulkheads = BulkheadRegistry.ofDefaults();
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakers).bindTo(meterRegistry);
+        TaggedBulkheadMetrics.ofBulkheadRegistry(bulkheads).bindTo(meterRegistry);
+
+        properties.getEndpoints().forEach((name, config) -> endpoints.put(name, new MlEndpoint(
+                name,
+                config,
+                properties.getIdleTimeout(),
+                bulkheads.bulkhead(name, BulkheadConfig.custom()
+                        .maxConcurrentCalls(config.getMaxConcurrentCalls())
+                        .maxWaitDuration(config.getMaxWait())
+                        .build()),
+                circuitBreakers.circuitBreaker(name, CircuitBreakerConfig.custom()
+                        .failureRateThreshold(config.getFailureRateThreshold())
+                        .slowCallDurationThreshold(config.getReadTimeout())
+                        .slidingWindowSize(config.getSlidingWindowSize())
+                        .minimumNumberOfCalls(config.getMinimumNumberOfCalls())
+                        .waitDurationInOpenState(config.getOpenStateDuration())
+                        // a rejected request says nothing about the service's health
+                        .ignoreExceptions(HttpClientErrorException.class)
+                        .build()),
+                meterRegistry)));
+    }
+
+    /**
+     * @throws IllegalStateException if no endpoint with that name is configured
+     */
+    public MlEndpoint get(String name) {
+        MlEndpoint endpoint = endpoints.get(name);
+        if (endpoint == null) {
+            throw new IllegalStateException("No ML endpoint configured under attendance.ml.client.endpoints." + name);
+        }
+        return endpoint;
+    }
+
+    @Override
+    public void destroy() {
+        endpoints.values().forEach(MlEndpoint::close);
+    }
+}
@@ -0,0 +1,370 @@
+package com.ml_vision.ml_vision_backend.services;
+
+import com.ml_vision.ml_vision_backend.repositories.StudentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed store for student photos under {@code attendance.photos.dir}:
+ * <pre>
+ *   originals/&lt;sha256&gt;.&lt;ext&gt;    the uploaded bytes
+ *   recognizer/&lt;sha256&gt;.jpg     RGB, at most {@code variant-max-side} px, for the recognizer
+ * </pre>
+ * A file never changes once written (its name is its hash), so identical
+ * uploads share one file and clients may cache it forever. Uploads are
+ * streamed to a temporary file while being hashed, then moved into place
+ * atomically. Recognizer variants are generated in the background, or on
+ * first request if that has not happened yet. Originals that no student
+ * references any more are deleted by a periodic sweep, once they are older
+ * than {@code gc-grace} (an upload whose transaction has not committed yet
+ * is not referenced either).
+ */
+@Slf4j
+@Component
+public class PhotoStorage implements DisposableBean {
+
+    public static final String URL_PREFIX = "/photos/";
+    static final String ORIGINALS = "originals";
+    static final String RECOGNIZER = "recognizer";
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+    private static final List<String> EXTENSIONS = List.of(".jpg", ".jpeg", ".png", ".gif", ".bmp", ".webp");
+
+    private final StudentRepository studentRepository;
+    private final Path root;
+    private final Path tmp;
+    private final int variantMaxSide;
+    private final Duration gcGrace;
+    private final ScheduledExecutorService executor;
+    private final Map<String, CompletableFuture<Path>> variantsInProgress = new ConcurrentHashMap<>();
+    // held while an original is published or deleted, so a sweep cannot remove a file an upload just deduplicated onto
+    private final Object publishLock = new Object();
+    private final Counter deduplicated;
+    private final Counter collected;
+
+    public PhotoStorage(StudentRepository studentRepository,
+            MeterRegistry meterRegistry,
+            @Value("${attendance.photos.dir:uploads/photos}") String dir,
+            @Value("${attendance.photos.variant-max-side:640}") int variantMaxSide,
+            @Value("${attendance.photos.gc-interval:PT1H}") Duration gcInterval,
+            @Value("${attendance.photos.gc-grace:PT1H}") Duration gcGrace) {
+        this.studentRepository = studentRepository;
+        this.root = Paths.get(dir).toAbsolutePath();
+        this.tmp = root.resolve("tmp");
+        this.variantMaxSide = variantMaxSide;
+        this.gcGrace = gcGrace;
+        try {
+            Files.createDirectories(root.resolve(ORIGINALS));
+            Files.createDirectories(root.resolve(RECOGNIZER));
+            Files.createDirectories(tmp);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create photo directories under " + root, e);
+        }
+
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "photo-storage");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (!gcInterval.isZero()) {
+            executor.scheduleWithFixedDelay(this::collectGarbageQuietly,
+                    gcInterval.toMillis(), gcInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        this.deduplicated = Counter.builder("attendance.photos.deduplicated")
+                .description("Uploads whose content was already stored")
+                .register(meterRegistry);
+        this.collected = Counter.builder("attendance.photos.collected")
+                .description("Unreferenced photo files deleted")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Streams an upload into the store and schedules its recognizer variant.
+     *
+     * @param originalFilename used only for the file extension
+     */
+    public StoredPhoto store(InputStream content, String originalFilename) {
+        Path temp = tmp.resolve(UUID.randomUUID() + ".part");
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (ReadableByteChannel in = Channels.newChannel(new DigestInputStream(content, digest));
+                 FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                long position = 0;
+                long transferred;
+                while ((transferred = out.transferFrom(in, position, 1 << 20)) > 0) {
+                    position += transferred;
+                }
+                out.force(false);
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            String fileName = hash + extension(originalFilename);
+            Path target = root.resolve(ORIGINALS).resolve(fileName);
+            synchronized (publishLock) {
+                if (Files.exists(target)) {
+                    deduplicated.increment();
+                    // restart its grace period until the referencing student commits
+                    Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+                } else {
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+            executor.execute(() -> variantQuietly(hash));
+            return new StoredPhoto(hash, URL_PREFIX + ORIGINALS + "/" + fileName);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to store photo", e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // best effort; stray parts are swept with the garbage
+            }
+        }
+    }
+
+    /** URL of the recognizer variant of a stored photo. */
+    public static String recognizerUrl(String hash) {
+        return URL_PREFIX + RECOGNIZER + "/" + hash + ".jpg";
+    }
+
+    /** The stored original, if {@code fileName} names one. */
+    public Optional<Path> original(String fileName) {
+        int dot = fileName.indexOf('.');
+        if (dot < 0 || !HASH.matcher(fileName.substring(0, dot)).matches()
+                || !EXTENSIONS.contains(fileName.substring(dot))) {
+            return Optional.empty();
+        }
+        Path path = root.resolve(ORIGINALS).resolve(fileName);
+        return Files.isRegularFile(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    /**
+     * The recognizer variant of the photo with this hash, generating it now
+     * if the background pipeline has not got to it yet. Empty if no such
+     * photo is stored.
+     */
+    public Optional<Path> variant(String hash) {
+        if (!HASH.matcher(hash).matches()) {
+            return Optional.empty();
+        }
+        Path path = variantPath(hash);
+        if (Files.isRegularFile(path)) {
+            return Optional.of(path);
+        }
+        try {
+            return Optional.ofNullable(generateVariant(hash).get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to generate recognizer variant of " + hash, e.getCause());
+        }
+    }
+
+    /** Deletes originals (and their variants) that no student references; returns how many. */
+    public int collectGarbage() throws IOException {
+        Set<String> referenced = studentRepository.findPhotoHashes();
+        Instant cutoff = Instant.now().minus(gcGrace);
+        int deleted = 0;
+        for (String directory : new String[]{ORIGINALS, RECOGNIZER, "tmp"}) {
+            try (Stream<Path> files = Files.list(root.resolve(directory))) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    String name = file.getFileName().toString();
+                    int dot = name.indexOf('.');
+                    String hash = dot < 0 ? name : name.substring(0, dot);
+                    if (referenced.contains(hash)) {
+                        continue;
+                    }
+                    synchronized (publishLock) {
+                        if (Files.getLastModifiedTime(file).toInstant().isBefore(cutoff) && Files.deleteIfExists(file)) {
+                            deleted++;
+                        }
+                    }
+                }
+            }
+        }
+        collected.increment(deleted);
+        return deleted;
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private void collectGarbageQuietly() {
+        try {
+            int deleted = collectGarbage();
+            if (deleted > 0) {
+                log.info("Deleted {} unreferenced photo files", deleted);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Photo garbage collection failed: {}", e.getMessage());
+        }
+    }
+
+    private void variantQuietly(String hash) {
+        try {
+            generateVariant(hash).join();
+        } catch (RuntimeException e) {
+            log.warn("Recognizer variant of {} failed: {}", hash, e.getMessage());
+        }
+    }
+
+    private CompletableFuture<Path> generateVariant(String hash) {
+        CompletableFuture<Path> mine = new CompletableFuture<>();
+        CompletableFuture<Path> existing = variantsInProgress.putIfAbsent(hash, mine);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            mine.complete(writeVariant(hash));
+        } catch (IOException | RuntimeException e) {
+            mine.completeExceptionally(e);
+        } finally {
+            variantsInProgress.remove(hash);
+        }
+        return mine;
+    }
+
+    private Path writeVariant(String hash) throws IOException {
+        Path target = variantPath(hash);
+        if (Files.isRegularFile(target)) {
+            return target;
+        }
+        Path source = findOriginal(hash);
+        if (source == null) {
+            return null;
+        }
+        BufferedImage image = ImageIO.read(source.toFile());
+        if (image == null) {
+            throw new IOException("Unreadable image " + source.getFileName());
+        }
+        BufferedImage normalized = normalize(image, variantMaxSide);
+
+        Path temp = tmp.resolve(UUID.randomUUID() + ".part");
+        try {
+            ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+            try (ImageOutputStream out = ImageIO.createImageOutputStream(temp.toFile())) {
+                writer.setOutput(out);
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(0.9f);
+                writer.write(null, new IIOImage(normalized, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return target;
+    }
+
+    /**
+     * Opaque RGB copy whose longer side is at most {@code maxSide}, downscaled
+     * by halving steps so detail is averaged rather than skipped.
+     */
+    static BufferedImage normalize(BufferedImage image, int maxSide) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        double scale = Math.min(1.0, (double) maxSide / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+
+        BufferedImage current = image;
+        while (true) {
+            int stepWidth = Math.max(targetWidth, current.getWidth() / 2);
+            int stepHeight = Math.max(targetHeight, current.getHeight() / 2);
+            boolean last = stepWidth == targetWidth && stepHeight == targetHeight;
+            BufferedImage next = new BufferedImage(stepWidth, stepHeight, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setColor(Color.WHITE); // transparent pixels become white, not black
+                g.fillRect(0, 0, stepWidth, stepHeight);
+                g.drawImage(current, 0, 0, stepWidth, stepHeight, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+            if (last) {
+                return current;
+            }
+        }
+    }
+
+    private Path findOriginal(String hash) {
+        for (String extension : EXTENSIONS) {
+            Path path = root.resolve(ORIGINALS).resolve(hash + extension);
+            if (Files.isRegularFile(path)) {
+                return path;
+            }
+        }
+        return null;
+    }
+
+    private Path variantPath(String hash) {
+        return root.resolve(RECOGNIZER).resolve(hash + ".jpg");
+    }
+
+    private static String extension(String filename) {
+        if (filename != null && filename.contains(".")) {
+            String extension = filename.substring(filename.lastIndexOf('.')).toLowerCase();
+            if (EXTENSIONS.contains(extension)) {
+                return extension;
+            }
+        }
+        return ".jpg";
+    }
+
+    /** A stored original: its SHA-256 (hex) and the URL it is served from. */
+    public record StoredPhoto(String hash, String url) {
+    }
+}
@@ -0,0 +1,78 @@
+package com.ml_vision.ml_vision_backend.services;
+
+import com.ml_vision.ml_vision_backend.dto.MlBatchRecognizeResponse;
+import com.ml_vision.ml_vision_backend.dto.MlRecognizeResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestClientException;
+
+import java.util.List;
+
+/**
+ * Calls the Python recognizer's {@code /recognize} endpoint with one frame,
+ * or {@code /recognize/batch} with several.
+ */
+@Component
+@RequiredArgsConstructor
+public class RecognizerClient {
+
+    private final MlEndpoints endpoints;
+
+    public MlRecognizeResponse recognize(byte[] image, String filename, String classId) {
+        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+        addFrame(body, new Frame(image, filename, classId));
+
+        MlEndpoint endpoint = endpoints.get("recognize");
+        return endpoint.call(rest -> rest.exchange(
+                endpoint.getUrl(),
+                HttpMethod.POST,
+                multipart(body),
+                MlRecognizeResponse.class).getBody());
+    }
+
+    /**
+     * Sends all frames in one multipart request. The result list lines up
+     * with {@code frames}; an entry carries {@code error} if its image failed.
+     */
+    public List<MlRecognizeResponse> recognizeBatch(List<Frame> frames) {
+        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+        frames.forEach(frame -> addFrame(body, frame));
+
+        MlEndpoint endpoint = endpoints.get("recognize-batch");
+        MlBatchRecognizeResponse response = endpoint.call(rest -> rest.exchange(
+                endpoint.getUrl(),
+                HttpMethod.POST,
+                multipart(body),
+                MlBatchRecognizeResponse.class).getBody());
+        if (response == null || response.getResults() == null || response.getResults().size() != frames.size()) {
+            throw new RestClientException("Recognizer returned a malformed batch response");
+        }
+        return response.getResults();
+    }
+
+    private static void addFrame(MultiValueMap<String, Object> body, Frame frame) {
+        body.add("image", new ByteArrayResource(frame.image()) {
+            @Override
+            public String getFilename() {
+                return frame.filename() != null ? frame.filename() : "frame.jpg";
+            }
+        });
+        body.add("classId", frame.classId());
+    }
+
+    private static HttpEntity<MultiValueMap<String, Object>> multipart(MultiValueMap<String, Object> body) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+        return new HttpEntity<>(body, headers);
+    }
+
+    public record Frame(byte[] image, String filename, String classId) {
+    }
+}
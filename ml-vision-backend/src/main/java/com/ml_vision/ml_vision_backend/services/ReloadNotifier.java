@@ -0,0 +1,215 @@
+package com.ml_vision.ml_vision_backend.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tells recognizers to reload their roster after students change, without
+ * holding up the request that changed them.
+ * <p>
+ * Changes are collapsed: a reload goes out once no further change has
+ * arrived for {@code attendance.reload.quiet-period}, or at the latest
+ * {@code max-delay} after the first change of a burst, so a bulk import
+ * costs one reload instead of one per student. Changes made inside a
+ * transaction only count once it commits, since recognizers read the
+ * committed change feed.
+ * <p>
+ * Every recognizer listed in {@code attendance.reload.targets} (names of
+ * {@code attendance.ml.client.endpoints}) is notified independently and
+ * retried with exponential backoff; a newer reload supersedes a pending
+ * retry.
+ */
+@Slf4j
+@Component
+public class ReloadNotifier implements DisposableBean {
+
+    private final List<Target> targets;
+    private final ScheduledExecutorService scheduler;
+    private final long quietPeriodNanos;
+    private final long maxDelayNanos;
+    private final Duration retryBackoff;
+    private final Duration maxBackoff;
+    private final int maxAttempts;
+    private final Counter requested;
+    private final AtomicInteger pending = new AtomicInteger();
+
+    // guarded by this
+    private long firstChangeNanos;
+    private long lastChangeNanos;
+    private ScheduledFuture<?> flush;
+
+    public ReloadNotifier(MlEndpoints mlEndpoints,
+            MeterRegistry meterRegistry,
+            @Value("${attendance.reload.targets:reload}") List<String> targets,
+            @Value("${attendance.reload.quiet-period:PT2S}") Duration quietPeriod,
+            @Value("${attendance.reload.max-delay:PT30S}") Duration maxDelay,
+            @Value("${attendance.reload.retry-backoff:PT1S}") Duration retryBackoff,
+            @Value("${attendance.reload.max-backoff:PT1M}") Duration maxBackoff,
+            @Value("${attendance.reload.max-attempts:8}") int maxAttempts) {
+        this.quietPeriodNanos = quietPeriod.toNanos();
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.retryBackoff = retryBackoff;
+        this.maxBackoff = maxBackoff;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.targets = targets.stream()
+                .map(name -> new Target(mlEndpoints.get(name), meterRegistry))
+                .toList();
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        // a thread per target plus one for the debounce timer, so a slow recognizer delays nothing else
+        this.scheduler = Executors.newScheduledThreadPool(this.targets.size() + 1, r -> {
+            Thread thread = new Thread(r, "reload-notifier-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.requested = Counter.builder("attendance.reload.changes")
+                .description("Student changes that requested a recognizer reload")
+                .register(meterRegistry);
+        Gauge.builder("attendance.reload.pending", pending, AtomicInteger::get)
+                .description("Student changes waiting for the next reload")
+                .register(meterRegistry);
+    }
+
+    /** Requests a reload once the current transaction (if any) commits. */
+    public void changed() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    requestReload();
+                }
+            });
+        } else {
+            requestReload();
+        }
+    }
+
+    synchronized void requestReload() {
+        requested.increment();
+        long now = System.nanoTime();
+        if (pending.getAndIncrement() == 0) {
+            firstChangeNanos = now;
+        }
+        lastChangeNanos = now;
+        if (flush == null) {
+            flush = scheduler.schedule(this::flushWhenQuiet, quietPeriodNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private synchronized void flushWhenQuiet() {
+        long now = System.nanoTime();
+        long due = Math.min(lastChangeNanos + quietPeriodNanos, firstChangeNanos + maxDelayNanos);
+        if (now - due < 0) {
+            flush = scheduler.schedule(this::flushWhenQuiet, due - now, TimeUnit.NANOSECONDS);
+            return;
+        }
+        flush = null;
+        pending.set(0);
+        for (Target target : targets) {
+            target.dispatch(firstChangeNanos);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    /** One recognizer's reload endpoint and its delivery state. */
+    private final class Target {
+
+        private final MlEndpoint endpoint;
+        private final Counter succeeded;
+        private final Counter failed;
+        private final Timer lag;
+
+        // guarded by this: the latest reload, and when the oldest change it covers arrived
+        private long generation;
+        private boolean unacknowledged;
+        private long unacknowledgedSince;
+
+        Target(MlEndpoint endpoint, MeterRegistry meterRegistry) {
+            this.endpoint = endpoint;
+            this.succeeded = notifications(meterRegistry, "success");
+            this.failed = notifications(meterRegistry, "failure");
+            this.lag = Timer.builder("attendance.reload.lag")
+                    .description("Time from a student change to the recognizer acknowledging the reload")
+                    .tag("target", endpoint.getName())
+                    .register(meterRegistry);
+        }
+
+        private Counter notifications(MeterRegistry meterRegistry, String outcome) {
+            return Counter.builder("attendance.reload.notifications")
+                    .description("Reload notifications sent to recognizers, by outcome")
+                    .tag("target", endpoint.getName())
+                    .tag("outcome", outcome)
+                    .register(meterRegistry);
+        }
+
+        synchronized void dispatch(long changedAt) {
+            long current = ++generation;
+            if (!unacknowledged) {
+                unacknowledged = true;
+                unacknowledgedSince = changedAt;
+            }
+            scheduler.execute(() -> attempt(current, 1));
+        }
+
+        private void attempt(long dispatched, int attempt) {
+            synchronized (this) {
+                if (dispatched != generation) {
+                    return; // a newer reload covers these changes
+                }
+            }
+            try {
+                HttpHeaders headers = new HttpHeaders();
+                headers.setContentType(MediaType.APPLICATION_JSON);
+                HttpEntity<Void> entity = new HttpEntity<>(headers);
+                endpoint.call(rest -> rest.exchange(endpoint.getUrl(), HttpMethod.POST, entity, String.class));
+            } catch (RuntimeException e) {
+                failed.increment();
+                if (attempt >= maxAttempts) {
+                    log.warn("Giving up on reload of {} after {} attempts: {}", endpoint.getName(), attempt, e.getMessage());
+                    return;
+                }
+                long backoff = retryBackoff.toNanos();
+                for (int i = 1; i < attempt && backoff < maxBackoff.toNanos(); i++) {
+                    backoff *= 2;
+                }
+                backoff = Math.min(backoff, maxBackoff.toNanos());
+                log.debug("Reload of {} failed (attempt {}), retrying in {} ms: {}",
+                        endpoint.getName(), attempt, backoff / 1_000_000, e.getMessage());
+                scheduler.schedule(() -> attempt(dispatched, attempt + 1), backoff, TimeUnit.NANOSECONDS);
+                return;
+            }
+            succeeded.increment();
+            synchronized (this) {
+                if (dispatched == generation && unacknowledged) {
+                    lag.record(System.nanoTime() - unacknowledgedSince, TimeUnit.NANOSECONDS);
+                    unacknowledged = false;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.ml_vision.ml_vision_backend.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ml_vision.ml_vision_backend.repositories.CourseClassRepository;
+import com.ml_vision.ml_vision_backend.repositories.CourseClassRosterRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * In-memory view of class rosters (classId -> enrolled externalIds) so that
+ * attendance ingestion does not query roster membership for every face.
+ * <p>
+ * Entries are weighed by their estimated heap footprint and expire
+ * {@code attendance.roster-index.ttl} after they were loaded, so a class in
+ * session reloads its roster now and then and a change that bypassed
+ * {@link #invalidate} (a student renamed or removed, a roster edited in SQL)
+ * is stale for at most that long. Writers must still call
+ * {@link #invalidate} after changing a roster.
+ */
+@Component
+public class RosterIndex {
+
+    private final CourseClassRepository classRepo;
+    private final CourseClassRosterRepository rosterRepo;
+    private final Cache<String, Snapshot> cache;
+
+    public RosterIndex(CourseClassRepository classRepo,
+            CourseClassRosterRepository rosterRepo,
+            MeterRegistry meterRegistry,
+            @Value("${attendance.roster-index.max-bytes:67108864}") long maxBytes,
+            @Value("${attendance.roster-index.ttl:PT15M}") Duration ttl) {
+        this.classRepo = classRepo;
+        this.rosterRepo = rosterRepo;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String classId, Snapshot snapshot) -> (int) Math.min(Integer.MAX_VALUE, snapshot.estimatedBytes()))
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "roster.index");
+        Gauge.builder("roster.index.memory", cache, c -> {
+                    // weights are tallied by Caffeine's async maintenance; settle it before reading
+                    c.cleanUp();
+                    return c.policy().eviction().map(e -> e.weightedSize().orElse(0)).orElse(0L);
+                })
+                .description("Estimated heap bytes held by cached rosters")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the roster of a class, loading it on first use.
+     *
+     * @throws RuntimeException if the class does not exist
+     */
+    public Snapshot get(String classId) {
+        return cache.get(classId, this::load);
+    }
+
+    public boolean isEnrolled(String classId, String externalId) {
+        return get(classId).contains(externalId);
+    }
+
+    /**
+     * Drops the cached roster of a class. Inside a transaction the entry is
+     * dropped after commit so a concurrent reload cannot cache the old roster.
+     */
+    public void invalidate(String classId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.invalidate(classId);
+                }
+            });
+        } else {
+            cache.invalidate(classId);
+        }
+    }
+
+    private Snapshot load(String classId) {
+        String[] externalIds = rosterRepo.findExternalIdsByCourseClassId(classId).toArray(String[]::new);
+        if (externalIds.length == 0 && classRepo.findById(classId).isEmpty()) {
+            throw new RuntimeException("Class not found");
+        }
+        Arrays.sort(externalIds);
+        return new Snapshot(externalIds);
+    }
+
+    /**
+     * Immutable, sorted array of enrolled externalIds. The position of a
+     * student in the array is stable for the lifetime of the snapshot.
+     */
+    public static final class Snapshot {
+
+        private final String[] externalIds;
+
+        Snapshot(String[] sortedExternalIds) {
+            this.externalIds = sortedExternalIds;
+        }
+
+        public boolean contains(String externalId) {
+            return indexOf(externalId) >= 0;
+        }
+
+        /** Roster position of a student, or a negative value if not enrolled. */
+        public int indexOf(String externalId) {
+            return externalId == null ? -1 : Arrays.binarySearch(externalIds, externalId);
+        }
+
+        public String externalIdAt(int index) {
+            return externalIds[index];
+        }
+
+        public int size() {
+            return externalIds.length;
+        }
+
+        long estimatedBytes() {
+            // array header + references, plus String header and latin-1 payload per id
+            long bytes = 16L + 4L * externalIds.length;
+            for (String id : externalIds) {
+                bytes += 40L + id.length();
+            }
+            return bytes;
+        }
+    }
+}
@@ -19,6 +19,7 @@ public class RosterService {
     private final CourseClassRepository classRepo;
     private final StudentRepository studentRepo;
     private final CourseClassRosterRepository rosterRepo;
+    private final RosterIndex rosterIndex;
 
     public List<Student> getRoster(String classId) {
         return rosterRepo.findStudentsByCourseClassId(classId);
@@ -41,10 +42,12 @@ public class RosterService {
         row.setStudent(student);
 
         rosterRepo.save(row);
+        rosterIndex.invalidate(classId);
     }
 
     @Transactional
     public void removeStudent(String classId, String externalId) {
         rosterRepo.deleteByCourseClass_IdAndStudent_ExternalId(classId, externalId);
+        rosterIndex.invalidate(classId);
     }
 }
@@ -0,0 +1,148 @@
+package com.ml_vision.ml_vision_backend.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ml_vision.ml_vision_backend.repositories.AttendanceRecordRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Remembers, per capture session, which rostered students already have a
+ * record so repeated detections are answered without touching the database.
+ * <p>
+ * Each session is a bitset indexed by roster position in a
+ * {@link RosterIndex.Snapshot}. It is warmed from the records table on the
+ * session's first batch, rebuilt if the roster changes, and evicted after
+ * {@code mark-absent} or once idle for {@code attendance.presence.idle-timeout}.
+ */
+@Component
+public class SessionPresenceTracker {
+
+    private final AttendanceRecordRepository recordRepo;
+    private final Cache<SessionKey, SessionPresence> sessions;
+
+    public SessionPresenceTracker(AttendanceRecordRepository recordRepo,
+            MeterRegistry meterRegistry,
+            @Value("${attendance.presence.max-sessions:10000}") long maxSessions,
+            @Value("${attendance.presence.idle-timeout:PT30M}") Duration idleTimeout) {
+        this.recordRepo = recordRepo;
+        this.sessions = Caffeine.newBuilder()
+                .maximumSize(maxSessions)
+                .expireAfterAccess(idleTimeout)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, sessions, "attendance.presence");
+    }
+
+    /**
+     * Returns the presence bitset of a session for the given roster, warming
+     * it from the database if the session is new or its roster changed.
+     */
+    public SessionPresence get(String classId, String sessionId, RosterIndex.Snapshot roster) {
+        SessionKey key = new SessionKey(classId, sessionId);
+        SessionPresence presence = sessions.get(key, k -> warm(k, roster));
+        if (presence.roster == roster) {
+            return presence;
+        }
+        return sessions.asMap().compute(key,
+                (k, current) -> current != null && current.roster == roster ? current : warm(k, roster));
+    }
+
+    /** Forgets a session once it has been finalized; late batches re-warm from the database. */
+    public void evict(String classId, String sessionId) {
+        SessionKey key = new SessionKey(classId, sessionId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    sessions.invalidate(key);
+                }
+            });
+        } else {
+            sessions.invalidate(key);
+        }
+    }
+
+    private SessionPresence warm(SessionKey key, RosterIndex.Snapshot roster) {
+        SessionPresence presence = new SessionPresence(roster);
+        for (String externalId : recordRepo.findExternalIdsByCourseClassIdAndSessionId(key.classId(), key.sessionId())) {
+            int position = roster.indexOf(externalId);
+            if (position >= 0) {
+                presence.claim(position);
+            }
+        }
+        return presence;
+    }
+
+    private record SessionKey(String classId, String sessionId) {
+    }
+
+    /** Lock-free bitset of roster positions that already have a record in the session. */
+    public static final class SessionPresence {
+
+        private final RosterIndex.Snapshot roster;
+        private final AtomicLongArray bits;
+
+        SessionPresence(RosterIndex.Snapshot roster) {
+            this.roster = roster;
+            this.bits = new AtomicLongArray((roster.size() + 63) >>> 6);
+        }
+
+        public boolean isRecorded(int position) {
+            return (bits.get(position >>> 6) & (1L << position)) != 0;
+        }
+
+        /**
+         * Atomically marks a student as recorded. Returns {@code true} only for
+         * the caller that flipped the bit, so concurrent batches for the same
+         * session never both insert a record for one student.
+         */
+        public boolean claim(int position) {
+            int word = position >>> 6;
+            long mask = 1L << position;
+            long current;
+            do {
+                current = bits.get(word);
+                if ((current & mask) != 0) {
+                    return false;
+                }
+            } while (!bits.compareAndSet(word, current, current | mask));
+            return true;
+        }
+
+        /** Undoes a {@link #claim} whose insert did not commit. */
+        public void release(int position) {
+            int word = position >>> 6;
+            long mask = 1L << position;
+            long current;
+            do {
+                current = bits.get(word);
+            } while (!bits.compareAndSet(word, current, current & ~mask));
+        }
+
+        /** Releases positions claimed by the current transaction if it does not commit. */
+        public void releaseOnRollback(int[] positions) {
+            if (positions.length == 0 || !TransactionSynchronizationManager.isSynchronizationActive()) {
+                return;
+            }
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        for (int position : positions) {
+                            release(position);
+                        }
+                    }
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,469 @@
+package com.ml_vision.ml_vision_backend.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ml_vision.ml_vision_backend.dto.StudentImportResponse;
+import com.ml_vision.ml_vision_backend.entities.CourseClass;
+import com.ml_vision.ml_vision_backend.repositories.CourseClassRepository;
+import com.ml_vision.ml_vision_backend.repositories.StudentChangeJdbcRepository;
+import com.ml_vision.ml_vision_backend.repositories.StudentImportJdbcRepository;
+import com.ml_vision.ml_vision_backend.repositories.StudentImportJdbcRepository.Enrollment;
+import com.ml_vision.ml_vision_backend.repositories.StudentImportJdbcRepository.ImportedStudent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Bulk student and enrollment import from a CSV plus an optional zip of
+ * photos, run as a background job.
+ * <p>
+ * The CSV needs a header row; recognised columns are {@code externalId},
+ * {@code firstName}, {@code lastName}, {@code email} (required),
+ * {@code photo} (an entry name in the zip) and {@code classes} (class ids or
+ * codes separated by {@code ;}). Both files are streamed: rows are read one
+ * at a time and photos are copied straight from the zip into
+ * {@link PhotoStorage}. Every {@code attendance.import.batch-size} rows are
+ * upserted as JDBC batches in one transaction; if a batch fails, its rows
+ * are retried one by one so only the offending rows are reported.
+ * <p>
+ * Rows that cannot be imported in full are reported with their line number.
+ * A row naming an unknown class or a missing photo still imports the
+ * student; a row missing a required column is skipped.
+ */
+@Slf4j
+@Service
+public class StudentImportService implements DisposableBean {
+
+    private static final List<String> REQUIRED = List.of("externalid", "firstname", "lastname", "email");
+
+    private final StudentImportJdbcRepository importRepository;
+    private final StudentChangeJdbcRepository studentChangeRepository;
+    private final CourseClassRepository classRepository;
+    private final PhotoStorage photoStorage;
+    private final FaceGallery faceGallery;
+    private final RosterIndex rosterIndex;
+    private final EntityCaches entityCaches;
+    private final ReloadNotifier reloadNotifier;
+    private final TransactionTemplate transactionTemplate;
+    private final Path workDir;
+    private final int batchSize;
+    private final int maxErrors;
+    private final Cache<String, ImportJob> jobs;
+    private final ExecutorService executor;
+    private final Counter rows;
+    private final Timer duration;
+
+    public StudentImportService(StudentImportJdbcRepository importRepository,
+            StudentChangeJdbcRepository studentChangeRepository,
+            CourseClassRepository classRepository,
+            PhotoStorage photoStorage,
+            FaceGallery faceGallery,
+            RosterIndex rosterIndex,
+            EntityCaches entityCaches,
+            ReloadNotifier reloadNotifier,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${attendance.import.work-dir:uploads/imports}") String workDir,
+            @Value("${attendance.import.batch-size:500}") int batchSize,
+            @Value("${attendance.import.max-errors:1000}") int maxErrors,
+            @Value("${attendance.import.job-ttl:PT24H}") Duration jobTtl) {
+        this.importRepository = importRepository;
+        this.studentChangeRepository = studentChangeRepository;
+        this.classRepository = classRepository;
+        this.photoStorage = photoStorage;
+        this.faceGallery = faceGallery;
+        this.rosterIndex = rosterIndex;
+        this.entityCaches = entityCaches;
+        this.reloadNotifier = reloadNotifier;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.workDir = Paths.get(workDir).toAbsolutePath();
+        this.batchSize = Math.max(1, batchSize);
+        this.maxErrors = maxErrors;
+        this.jobs = Caffeine.newBuilder().expireAfterAccess(jobTtl).build();
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "student-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.rows = Counter.builder("attendance.import.rows")
+                .description("CSV rows read by student imports")
+                .register(meterRegistry);
+        this.duration = Timer.builder("attendance.import.duration")
+                .description("Time to run a student import job")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Has the uploads written aside and queues the import; returns at once.
+     *
+     * @throws IllegalArgumentException if no students CSV was written
+     */
+    public StudentImportResponse submit(Uploads uploads) {
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), workDir);
+        try {
+            Files.createDirectories(job.dir);
+            uploads.writeTo(job.csv(), job.zip());
+            if (!Files.exists(job.csv()) || Files.size(job.csv()) == 0) {
+                throw new IllegalArgumentException("students CSV is required");
+            }
+            if (Files.exists(job.zip()) && Files.size(job.zip()) == 0) {
+                Files.delete(job.zip());
+            }
+        } catch (IOException e) {
+            FileSystemUtils.deleteRecursively(job.dir.toFile());
+            throw new UncheckedIOException("Failed to save import upload", e);
+        } catch (RuntimeException e) {
+            FileSystemUtils.deleteRecursively(job.dir.toFile());
+            throw e;
+        }
+        jobs.put(job.id, job);
+        executor.execute(() -> duration.record(() -> run(job)));
+        return job.toResponse();
+    }
+
+    public Optional<StudentImportResponse> getJob(String jobId) {
+        return Optional.ofNullable(jobs.getIfPresent(jobId)).map(ImportJob::toResponse);
+    }
+
+    private void run(ImportJob job) {
+        job.status = "RUNNING";
+        long started = System.nanoTime();
+        try (ZipFile zip = Files.exists(job.zip()) ? new ZipFile(job.zip().toFile()) : null;
+             CountingInputStream counted = new CountingInputStream(Files.newInputStream(job.csv()));
+             CsvReader csv = new CsvReader(new BufferedReader(
+                     new InputStreamReader(counted, StandardCharsets.UTF_8), 1 << 16))) {
+            long totalBytes = Math.max(1, Files.size(job.csv()));
+            Map<String, String> classIds = classIds();
+            Map<String, Integer> columns = header(csv.next());
+            List<Row> chunk = new ArrayList<>(batchSize);
+            for (List<String> fields; (fields = csv.next()) != null; ) {
+                long line = csv.line();
+                job.rowsRead++;
+                rows.increment();
+                Row row = new Row(line, fields, columns);
+                String missing = REQUIRED.stream().filter(c -> row.get(c) == null).findFirst().orElse(null);
+                if (missing != null) {
+                    job.error(line, row.get("externalid"), "missing " + missing);
+                    continue;
+                }
+                chunk.add(row);
+                if (chunk.size() >= batchSize) {
+                    importChunk(job, chunk, zip, classIds);
+                    chunk.clear();
+                    job.progress = Math.min(1.0, (double) counted.count / totalBytes);
+                }
+            }
+            importChunk(job, chunk, zip, classIds);
+            job.progress = 1.0;
+            job.status = "COMPLETED";
+            log.info("Student import {} completed in {} ms: {} rows, {} students, {} enrollments, {} photos, {} errors",
+                    job.id, (System.nanoTime() - started) / 1_000_000, job.rowsRead, job.studentsUpserted,
+                    job.enrollmentsAdded, job.photosStored, job.errorCount);
+        } catch (Exception e) {
+            log.warn("Student import {} failed after {} rows", job.id, job.rowsRead, e);
+            job.failure = e.getMessage();
+            job.status = "FAILED";
+        } finally {
+            job.finishedAt = LocalDateTime.now();
+            FileSystemUtils.deleteRecursively(job.dir.toFile());
+        }
+    }
+
+    private Map<String, String> classIds() {
+        List<CourseClass> classes = classRepository.findAll();
+        Map<String, String> ids = new HashMap<>();
+        for (CourseClass courseClass : classes) {
+            if (courseClass.getCode() != null) {
+                ids.putIfAbsent(courseClass.getCode(), courseClass.getId());
+            }
+        }
+        // an id wins over another class's code
+        for (CourseClass courseClass : classes) {
+            ids.put(courseClass.getId(), courseClass.getId());
+        }
+        return ids;
+    }
+
+    private static Map<String, Integer> header(List<String> fields) throws IOException {
+        if (fields == null) {
+            throw new IOException("CSV is empty");
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < fields.size(); i++) {
+            String name = fields.get(i).replace("\uFEFF", "").replace("_", "").trim().toLowerCase(Locale.ROOT);
+            columns.putIfAbsent(name, i);
+        }
+        for (String column : REQUIRED) {
+            if (!columns.containsKey(column)) {
+                throw new IOException("CSV header has no " + column + " column");
+            }
+        }
+        return columns;
+    }
+
+    private void importChunk(ImportJob job, List<Row> chunk, ZipFile zip, Map<String, String> classIds) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        // the batch insert becomes one multi-row statement, which may touch each externalId only once
+        Map<String, Row> latest = new LinkedHashMap<>();
+        for (Row row : chunk) {
+            Row earlier = latest.remove(row.get("externalid"));
+            if (earlier != null) {
+                job.error(earlier.line, earlier.get("externalid"), "superseded by line " + row.line);
+            }
+            latest.put(row.get("externalid"), row);
+        }
+
+        List<Prepared> prepared = new ArrayList<>(latest.size());
+        for (Row row : latest.values()) {
+            prepared.add(prepare(job, row, zip, classIds));
+        }
+        write(job, prepared);
+    }
+
+    private Prepared prepare(ImportJob job, Row row, ZipFile zip, Map<String, String> classIds) {
+        String externalId = row.get("externalid");
+        PhotoStorage.StoredPhoto photo = null;
+        String photoName = row.get("photo");
+        if (photoName != null) {
+            ZipEntry entry = zip != null ? zip.getEntry(photoName) : null;
+            if (entry == null || entry.isDirectory()) {
+                job.error(row.line, externalId, "photo " + photoName + " not found in the archive");
+            } else {
+                try (InputStream content = zip.getInputStream(entry)) {
+                    photo = photoStorage.store(content, photoName);
+                    job.photosStored++;
+                } catch (IOException | UncheckedIOException e) {
+                    job.error(row.line, externalId, "photo " + photoName + " could not be read: " + e.getMessage());
+                }
+            }
+        }
+
+        List<Enrollment> enrollments = new ArrayList<>();
+        String classes = row.get("classes");
+        if (classes != null) {
+            for (String ref : classes.split(";")) {
+                ref = ref.trim();
+                if (ref.isEmpty()) {
+                    continue;
+                }
+                String classId = classIds.get(ref);
+                if (classId == null) {
+                    job.error(row.line, externalId, "unknown class " + ref);
+                } else {
+                    enrollments.add(new Enrollment(classId, externalId));
+                }
+            }
+        }
+
+        ImportedStudent student = new ImportedStudent(externalId, row.get("firstname"), row.get("lastname"),
+                row.get("email"), photo != null ? photo.url() : null, photo != null ? photo.hash() : null);
+        return new Prepared(row.line, student, enrollments);
+    }
+
+    private void write(ImportJob job, List<Prepared> prepared) {
+        try {
+            int added = transactionTemplate.execute(status -> writeInTransaction(prepared));
+            job.studentsUpserted += prepared.size();
+            job.enrollmentsAdded += added;
+        } catch (DataAccessException e) {
+            if (prepared.size() > 1) {
+                for (Prepared one : prepared) {
+                    write(job, List.of(one));
+                }
+                return;
+            }
+            Prepared row = prepared.get(0);
+            job.error(row.line, row.student.externalId(),
+                    "not imported: " + NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+        }
+    }
+
+    private int writeInTransaction(List<Prepared> prepared) {
+        List<String> externalIds = prepared.stream().map(p -> p.student.externalId()).toList();
+        Map<String, String> previousHashes = importRepository.findPhotoHashes(externalIds);
+        importRepository.upsertStudents(prepared.stream().map(p -> p.student).toList());
+        studentChangeRepository.recordUpserts(externalIds);
+
+        List<Enrollment> enrollments = new ArrayList<>();
+        Set<String> classIds = new HashSet<>();
+        for (Prepared p : prepared) {
+            enrollments.addAll(p.enrollments);
+            p.enrollments.forEach(e -> classIds.add(e.classId()));
+            String hash = p.student.photoHash();
+            if (hash != null && previousHashes.containsKey(p.student.externalId())
+                    && !Objects.equals(hash, previousHashes.get(p.student.externalId()))) {
+                // stale until the recognizer re-encodes the new photo on reload
+                faceGallery.remove(p.student.externalId());
+            }
+        }
+        int added = enrollments.isEmpty() ? 0 : importRepository.addEnrollments(enrollments);
+        classIds.forEach(rosterIndex::invalidate);
+        // upserted with plain SQL, so Hibernate's cached copies are not updated
+        entityCaches.evictStudents();
+        reloadNotifier.changed();
+        return added;
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /** Writes a new job's uploads: the students CSV, and the photo zip if one was sent. */
+    @FunctionalInterface
+    public interface Uploads {
+        void writeTo(Path students, Path photos) throws IOException;
+    }
+
+    private record Prepared(long line, ImportedStudent student, List<Enrollment> enrollments) {
+    }
+
+    /** One CSV record, addressed by lower-cased header name; blank cells read as null. */
+    private static final class Row {
+
+        private final long line;
+        private final List<String> fields;
+        private final Map<String, Integer> columns;
+
+        Row(long line, List<String> fields, Map<String, Integer> columns) {
+            this.line = line;
+            this.fields = fields;
+            this.columns = columns;
+        }
+
+        String get(String column) {
+            Integer index = columns.get(column);
+            if (index == null || index >= fields.size()) {
+                return null;
+            }
+            String value = fields.get(index).trim();
+            return value.isEmpty() ? null : value;
+        }
+    }
+
+    /** Job state, written by the import thread and read by pollers. */
+    private final class ImportJob {
+
+        private final String id;
+        private final Path dir;
+        private final LocalDateTime submittedAt = LocalDateTime.now();
+        private final List<StudentImportResponse.RowError> errors = Collections.synchronizedList(new ArrayList<>());
+        private volatile String status = "QUEUED";
+        private volatile double progress;
+        private volatile long rowsRead;
+        private volatile long studentsUpserted;
+        private volatile long enrollmentsAdded;
+        private volatile long photosStored;
+        private volatile long errorCount;
+        private volatile String failure;
+        private volatile LocalDateTime finishedAt;
+
+        ImportJob(String id, Path workDir) {
+            this.id = id;
+            this.dir = workDir.resolve(id);
+        }
+
+        Path csv() {
+            return dir.resolve("students.csv");
+        }
+
+        Path zip() {
+            return dir.resolve("photos.zip");
+        }
+
+        void error(long line, String externalId, String message) {
+            errorCount++;
+            if (errors.size() < maxErrors) {
+                errors.add(new StudentImportResponse.RowError(line, externalId, message));
+            }
+        }
+
+        StudentImportResponse toResponse() {
+            List<StudentImportResponse.RowError> snapshot;
+            synchronized (errors) {
+                snapshot = List.copyOf(errors);
+            }
+            return StudentImportResponse.builder()
+                    .jobId(id)
+                    .status(status)
+                    .progress(progress)
+                    .rowsRead(rowsRead)
+                    .studentsUpserted(studentsUpserted)
+                    .enrollmentsAdded(enrollmentsAdded)
+                    .photosStored(photosStored)
+                    .errorCount(errorCount)
+                    .errors(snapshot)
+                    .failure(failure)
+                    .submittedAt(submittedAt)
+                    .finishedAt(finishedAt)
+                    .build();
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private volatile long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+}
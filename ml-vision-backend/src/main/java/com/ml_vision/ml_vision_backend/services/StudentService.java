@@ -1,36 +1,42 @@
 package com.ml_vision.ml_vision_backend.services;
 
+import com.ml_vision.ml_vision_backend.dto.PageResponse;
+import com.ml_vision.ml_vision_backend.dto.StudentChangeResponse;
+import com.ml_vision.ml_vision_backend.dto.StudentChangesResponse;
 import com.ml_vision.ml_vision_backend.entities.Student;
+import com.ml_vision.ml_vision_backend.repositories.StudentChangeJdbcRepository;
+import com.ml_vision.ml_vision_backend.repositories.StudentJdbcRepository;
 import com.ml_vision.ml_vision_backend.repositories.StudentRepository;
 import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.util.UUID;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class StudentService {
 
     private final StudentRepository studentRepository;
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final StudentChangeJdbcRepository studentChangeRepository;
+    private final StudentJdbcRepository studentJdbc;
+    private final ReloadNotifier reloadNotifier;
+    private final FaceGallery faceGallery;
+    private final PhotoStorage photoStorage;
 
-    @Value("${python.reload.url:http://localhost:5001/reload}")
-    private String pythonReloadUrl;
-
-    private static final String RELATIVE_UPLOAD_DIR = "/uploads/student_photos/";
+    private static final int MAX_CHANGES_PAGE = 10_000;
+    private static final int MAX_PAGE = 1_000;
 
+    @Transactional
     public Student createStudent(
             String firstName,
             String lastName,
@@ -45,14 +51,16 @@ public class StudentService {
         student.setEmail(email);
 
         if (photo != null && !photo.isEmpty()) {
-            student.setPhotoUrl(savePhoto(photo, externalId));
+            savePhoto(student, photo);
         }
 
         Student saved = studentRepository.save(student);
-        notifyPythonReload();
+        studentChangeRepository.recordUpsert(saved.getExternalId(), saved.getId(), saved.getPhotoUrl(), saved.getPhotoHash());
+        reloadNotifier.changed();
         return saved;
     }
 
+    @Transactional
     public Student updateStudent(
             String id,
             String firstName,
@@ -64,22 +72,38 @@ public class StudentService {
         Student student = studentRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Student not found"));
 
+        if (!Objects.equals(externalId, student.getExternalId()) || (photo != null && !photo.isEmpty())) {
+            // stale until the recognizer re-encodes the new photo on reload
+            faceGallery.remove(student.getExternalId());
+        }
+        if (!Objects.equals(externalId, student.getExternalId())) {
+            studentChangeRepository.recordDelete(student.getExternalId());
+        }
+
         student.setFirstName(firstName);
         student.setLastName(lastName);
         student.setExternalId(externalId);
         student.setEmail(email);
 
         if (photo != null && !photo.isEmpty()) {
-            student.setPhotoUrl(savePhoto(photo, externalId));
+            savePhoto(student, photo);
         }
 
         Student saved = studentRepository.save(student);
-        notifyPythonReload();
+        studentChangeRepository.recordUpsert(saved.getExternalId(), saved.getId(), saved.getPhotoUrl(), saved.getPhotoHash());
+        reloadNotifier.changed();
         return saved;
     }
 
-    public Iterable<Student> getAllStudents() {
-        return studentRepository.findAll();
+    /** One page of students in externalId order; see {@link PageResponse}. */
+    public PageResponse<Student> getStudentPage(String cursor, int limit) {
+        return studentJdbc.findPage(cursor, Math.max(1, Math.min(limit, MAX_PAGE)));
+    }
+
+    /** Every student in externalId order, handed over as rows are read rather than collected. */
+    @Transactional(readOnly = true)
+    public void streamStudents(Consumer<? super Student> sink) {
+        studentJdbc.streamAll(sink);
     }
 
     public Student getStudent(String id) {
@@ -87,49 +111,48 @@ public class StudentService {
                 .orElseThrow(() -> new RuntimeException("Student not found"));
     }
 
+    @Transactional
     public void deleteStudent(String id) {
+        studentRepository.findById(id).ifPresent(student -> {
+            faceGallery.remove(student.getExternalId());
+            studentChangeRepository.recordDelete(student.getExternalId());
+            reloadNotifier.changed();
+        });
         studentRepository.deleteById(id);
     }
 
-    private String savePhoto(MultipartFile file, String externalId) {
-        try {
-            String rootDir = System.getProperty("user.dir");
-            String fullUploadPath = rootDir + RELATIVE_UPLOAD_DIR;
-
-            Files.createDirectories(Paths.get(fullUploadPath));
-
-            String ext = getExtension(file.getOriginalFilename());
-            String fileName = externalId + ext;
-
-            File dest = new File(fullUploadPath + fileName);
-            if (dest.exists()) {
-                dest.delete();
-            }
-            file.transferTo(dest);
-
-            return RELATIVE_UPLOAD_DIR + fileName;
-
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to save photo", e);
+    /**
+     * Students created, updated or deleted after {@code since} (a cursor
+     * from a previous page, or 0 for everything), oldest first.
+     */
+    public StudentChangesResponse getChanges(long since, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_CHANGES_PAGE));
+        List<StudentChangeResponse> changes = studentChangeRepository.findSince(since, pageSize + 1);
+        boolean hasMore = changes.size() > pageSize;
+        if (hasMore) {
+            changes = changes.subList(0, pageSize);
         }
+        long cursor = changes.isEmpty() ? since : changes.get(changes.size() - 1).getSeq();
+        return new StudentChangesResponse(changes, cursor, hasMore);
     }
 
-    private String getExtension(String name) {
-        if (name == null || !name.contains(".")) {
-            return ".jpg";
+    /** Seeds the change log with students that predate it. */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillChanges() {
+        int added = studentChangeRepository.backfill();
+        if (added > 0) {
+            log.info("Backfilled student change log: {}", added);
         }
-        return name.substring(name.lastIndexOf("."));
     }
 
-    private void notifyPythonReload() {
-        try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            HttpEntity<Void> entity = new HttpEntity<>(headers);
-            ResponseEntity<String> response = restTemplate.exchange(pythonReloadUrl, HttpMethod.POST, entity, String.class);
-            System.out.println("Notified python reload: " + response.getStatusCode());
-        } catch (Exception ex) {
-            System.err.println("Failed to notify python reload: " + ex.getMessage());
+    private void savePhoto(Student student, MultipartFile file) {
+        try (InputStream in = file.getInputStream()) {
+            PhotoStorage.StoredPhoto stored = photoStorage.store(in, file.getOriginalFilename());
+            student.setPhotoUrl(stored.url());
+            student.setPhotoHash(stored.hash());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to save photo", e);
         }
     }
 }
@@ -1,30 +0,0 @@
-package com.ml_vision.ml_vision_backend.util;
-
-import org.springframework.core.io.InputStreamResource;
-
-import java.io.IOException;
-import java.io.InputStream;
-
-public class MultipartInputStreamFileResource extends InputStreamResource {
-
-    private final String filename;
-
-    public MultipartInputStreamFileResource(InputStream inputStream, String filename) {
-        super(inputStream);
-        this.filename = filename;
-    }
-
-    @Override
-    public String getFilename() {
-        return this.filename;
-    }
-
-    @Override
-    public long contentLength() {
-        try {
-            return this.getInputStream().available();
-        } catch (IOException e) {
-            return -1;
-        }
-    }
-}
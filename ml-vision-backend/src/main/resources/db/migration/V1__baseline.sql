@@ -0,0 +1,50 @@
+-- Schema as hibernate.ddl-auto=update left it, written so it is a no-op on
+-- databases that were created that way (they are baselined at version 0).
+
+CREATE TABLE IF NOT EXISTS course_classes (
+    id          varchar(255) PRIMARY KEY,
+    code        varchar(255),
+    description varchar(255),
+    name        varchar(255)
+);
+
+CREATE TABLE IF NOT EXISTS students (
+    id          varchar(255) PRIMARY KEY,
+    email       varchar(255) NOT NULL,
+    external_id varchar(255) NOT NULL CONSTRAINT uk_students_external_id UNIQUE,
+    first_name  varchar(255) NOT NULL,
+    last_name   varchar(255) NOT NULL,
+    photo_url   varchar(255),
+    photo_hash  varchar(64)
+);
+ALTER TABLE students ADD COLUMN IF NOT EXISTS photo_hash varchar(64);
+
+CREATE TABLE IF NOT EXISTS course_class_roster (
+    id                  varchar(255) PRIMARY KEY,
+    course_class_id     varchar(255) CONSTRAINT fk_roster_class REFERENCES course_classes (id),
+    student_external_id varchar(255) CONSTRAINT fk_roster_student REFERENCES students (external_id)
+);
+CREATE INDEX IF NOT EXISTS idx_roster_class_student ON course_class_roster (course_class_id, student_external_id);
+
+CREATE TABLE IF NOT EXISTS attendance_record (
+    id                 varchar(255) PRIMARY KEY,
+    confidence         double precision NOT NULL,
+    position           varchar(255),
+    session_id         varchar(255),
+    session_started_at timestamp(6),
+    status             varchar(255) CHECK (status IN ('PRESENT', 'ABSENT', 'LATE')),
+    timestamp          timestamp(6),
+    course_class_id    varchar(255) CONSTRAINT fk_attendance_class REFERENCES course_classes (id),
+    student_id         varchar(255) CONSTRAINT fk_attendance_student REFERENCES students (id)
+);
+CREATE INDEX IF NOT EXISTS idx_attendance_class_time ON attendance_record (course_class_id, timestamp, id);
+
+CREATE TABLE IF NOT EXISTS student_changes (
+    external_id varchar(255) PRIMARY KEY,
+    changed_at  timestamp(6) NOT NULL,
+    deleted     boolean      NOT NULL,
+    photo_hash  varchar(64),
+    photo_url   varchar(255),
+    seq         bigint       NOT NULL CONSTRAINT idx_student_changes_seq UNIQUE,
+    student_id  varchar(255)
+);
@@ -0,0 +1,21 @@
+-- One record per student per session, enforced by the database so batch
+-- ingestion can insert with ON CONFLICT DO NOTHING instead of checking first.
+-- Keep the earliest record of any duplicates the old check-then-insert let through.
+DELETE FROM attendance_record a
+USING attendance_record b
+WHERE a.course_class_id = b.course_class_id
+  AND a.session_id = b.session_id
+  AND a.student_id = b.student_id
+  AND (a.timestamp, a.id) > (b.timestamp, b.id);
+
+-- also serves "who is recorded in this session" (SessionPresenceTracker, absence finalization)
+ALTER TABLE attendance_record
+    ADD CONSTRAINT uk_attendance_class_session_student UNIQUE (course_class_id, session_id, student_id);
+
+-- a session's records newest first (GET /api/attendance/class/{id}?sessionId, keyset on timestamp + id)
+CREATE INDEX idx_attendance_class_session_time ON attendance_record (course_class_id, session_id, timestamp, id);
+
+-- deleting a student checks its records through the foreign key
+CREATE INDEX idx_attendance_student ON attendance_record (student_id);
+
+ANALYZE attendance_record;
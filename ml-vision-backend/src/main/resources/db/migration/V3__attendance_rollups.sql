@@ -0,0 +1,66 @@
+-- Pre-aggregated attendance counters, kept current by the same statements
+-- that insert attendance records (AttendanceRollupJdbcRepository.APPLY) so
+-- reports read O(students) or O(days) rows instead of a class's whole history.
+-- Derived data: dropped with the class or student, rebuilt from
+-- attendance_record by POST /api/attendance/rollups/rebuild.
+
+-- one row per capture session; a session counts towards the day of its first record
+CREATE TABLE attendance_session (
+    course_class_id varchar(255) NOT NULL REFERENCES course_classes (id) ON DELETE CASCADE,
+    session_id      varchar(255) NOT NULL,
+    day             date         NOT NULL,
+    PRIMARY KEY (course_class_id, session_id)
+);
+
+-- sessions the student was accounted for (one record each), and their outcome
+CREATE TABLE attendance_student_rollup (
+    course_class_id varchar(255) NOT NULL REFERENCES course_classes (id) ON DELETE CASCADE,
+    student_id      varchar(255) NOT NULL REFERENCES students (id) ON DELETE CASCADE,
+    sessions        integer      NOT NULL,
+    present         integer      NOT NULL,
+    absent          integer      NOT NULL,
+    late            integer      NOT NULL,
+    PRIMARY KEY (course_class_id, student_id)
+);
+
+-- sessions held and records written per class and calendar day (America/New_York, as stored)
+CREATE TABLE attendance_daily_rollup (
+    course_class_id varchar(255) NOT NULL REFERENCES course_classes (id) ON DELETE CASCADE,
+    day             date         NOT NULL,
+    sessions        integer      NOT NULL,
+    present         integer      NOT NULL,
+    absent          integer      NOT NULL,
+    late            integer      NOT NULL,
+    PRIMARY KEY (course_class_id, day)
+);
+
+CREATE INDEX idx_student_rollup_student ON attendance_student_rollup (student_id);
+
+-- backfill from the records already stored
+INSERT INTO attendance_session (course_class_id, session_id, day)
+SELECT course_class_id, session_id, min(coalesce(session_started_at, timestamp)::date)
+FROM attendance_record
+WHERE course_class_id IS NOT NULL AND session_id IS NOT NULL
+GROUP BY course_class_id, session_id;
+
+INSERT INTO attendance_student_rollup (course_class_id, student_id, sessions, present, absent, late)
+SELECT course_class_id, student_id,
+       count(*) FILTER (WHERE session_id IS NOT NULL),
+       count(*) FILTER (WHERE status = 'PRESENT'),
+       count(*) FILTER (WHERE status = 'ABSENT'),
+       count(*) FILTER (WHERE status = 'LATE')
+FROM attendance_record
+WHERE course_class_id IS NOT NULL AND student_id IS NOT NULL
+GROUP BY course_class_id, student_id;
+
+INSERT INTO attendance_daily_rollup (course_class_id, day, sessions, present, absent, late)
+SELECT r.course_class_id, r.day,
+       (SELECT count(*) FROM attendance_session h WHERE h.course_class_id = r.course_class_id AND h.day = r.day),
+       count(*) FILTER (WHERE r.status = 'PRESENT'),
+       count(*) FILTER (WHERE r.status = 'ABSENT'),
+       count(*) FILTER (WHERE r.status = 'LATE')
+FROM (SELECT course_class_id, coalesce(session_started_at, timestamp)::date AS day, status
+      FROM attendance_record
+      WHERE course_class_id IS NOT NULL) r
+WHERE r.day IS NOT NULL
+GROUP BY r.course_class_id, r.day;
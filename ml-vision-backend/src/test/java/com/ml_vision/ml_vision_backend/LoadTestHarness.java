@@ -0,0 +1,379 @@
+package com.ml_vision.ml_vision_backend;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ml_vision.ml_vision_backend.dto.BatchRecognizedPayload;
+import com.ml_vision.ml_vision_backend.dto.MlRecognizedStudent;
+import com.ml_vision.ml_vision_backend.support.StatementCounter;
+import com.ml_vision.ml_vision_backend.support.StubRecognizer;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end load against the real application: starts a
+ * {@link StubRecognizer} and the application on a random port (with the
+ * database from {@code application.yaml}, so point it at a throwaway local
+ * Postgres), then simulates {@code classrooms} classrooms of
+ * {@code students} students each. Every classroom holds {@code sessions}
+ * consecutive sessions of length {@code session}, sending {@code rate}
+ * requests per second ({@code mode=frame}: camera frames to
+ * {@code /api/camera/frame}, recognized by the stub; {@code mode=batch}:
+ * already-recognized faces to {@code /api/attendance/batch}) and calling
+ * {@code /api/attendance/mark-absent} when the session ends. Requests are
+ * sent on schedule whether or not earlier ones have returned.
+ * <p>
+ * After {@code mvn test-compile}, run {@code java -cp <test classpath>
+ * com.ml_vision.ml_vision_backend.LoadTestHarness [key=value ...] [--spring.property=value ...]}.
+ * Keys and defaults: {@code classrooms=20 students=30 mode=frame rate=1
+ * session=PT30S sessions=2}; the stub's {@code latency=PT0.05S
+ * jitter=PT0.02S}; faces per frame {@code visibility=0.3 absent=0.1
+ * unknown=0.05} (see {@link StubRecognizer.Faces}). {@code --} arguments go
+ * to the application, e.g. {@code --attendance.write-behind.enabled=true}.
+ * <p>
+ * Prints throughput and p50/p99/p999 latency per endpoint and the JDBC
+ * statements the application prepared under load. The load generator
+ * shares the machine with the application; watch its CPU when reading the
+ * limits.
+ */
+public class LoadTestHarness {
+
+    private static final int IMAGES = 16;
+
+    private final HttpClient http;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final String baseUrl;
+    private final StubRecognizer recognizer;
+    private final JdbcTemplate jdbc;
+    private final StatementCounter statements;
+    private final Map<String, Recorder> recorders = new LinkedHashMap<>();
+    private final List<byte[]> images;
+    private final String mode;
+    private final int classrooms;
+    private final int students;
+    private final long periodNanos;
+    private final Duration session;
+    private final int sessions;
+    private final String prefix = "load-" + UUID.randomUUID().toString().substring(0, 8) + "-";
+
+    private LoadTestHarness(ConfigurableApplicationContext context, StubRecognizer recognizer,
+            Map<String, String> options) throws IOException {
+        this.baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+        this.recognizer = recognizer;
+        this.jdbc = context.getBean(JdbcTemplate.class);
+        this.statements = context.getBean(StatementCounter.class);
+        this.mode = options.getOrDefault("mode", "frame");
+        this.classrooms = Integer.parseInt(options.getOrDefault("classrooms", "20"));
+        this.students = Integer.parseInt(options.getOrDefault("students", "30"));
+        this.periodNanos = (long) (1e9 / Double.parseDouble(options.getOrDefault("rate", "1")));
+        this.session = Duration.parse(options.getOrDefault("session", "PT30S"));
+        this.sessions = Integer.parseInt(options.getOrDefault("sessions", "2"));
+        if (!mode.equals("frame") && !mode.equals("batch")) {
+            throw new IllegalArgumentException("mode must be frame or batch");
+        }
+        this.images = images();
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        recorders.put(mode, new Recorder());
+        recorders.put("mark-absent", new Recorder());
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        Map<String, String> properties = new LinkedHashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("expected key=value or --property=value: " + arg);
+            }
+            if (arg.startsWith("--")) {
+                properties.put(arg.substring(2, eq), arg.substring(eq + 1));
+            } else {
+                options.put(arg.substring(0, eq), arg.substring(eq + 1));
+            }
+        }
+        StubRecognizer.Faces faces = new StubRecognizer.Faces(
+                Double.parseDouble(options.getOrDefault("visibility", "0.3")),
+                Double.parseDouble(options.getOrDefault("absent", "0.1")),
+                Double.parseDouble(options.getOrDefault("unknown", "0.05")));
+
+        try (StubRecognizer recognizer = new StubRecognizer(faces,
+                Duration.parse(options.getOrDefault("latency", "PT0.05S")),
+                Duration.parse(options.getOrDefault("jitter", "PT0.02S")))) {
+            // command-line properties, so they win over application.yaml; the caller's win over these
+            Map<String, String> defaults = new LinkedHashMap<>();
+            defaults.put("server.port", "0");
+            defaults.put("spring.jpa.show-sql", "false");
+            defaults.put("attendance.ml.recognition-url", recognizer.url() + "/recognize");
+            defaults.put("attendance.ml.recognition-batch-url", recognizer.url() + "/recognize/batch");
+            defaults.put("python.reload.url", recognizer.url() + "/reload");
+            defaults.putAll(properties);
+            String[] springArgs = defaults.entrySet().stream()
+                    .map(e -> "--" + e.getKey() + "=" + e.getValue())
+                    .toArray(String[]::new);
+
+            try (ConfigurableApplicationContext context = new SpringApplicationBuilder(
+                    MlVisionBackendApplication.class, StatementCounter.Config.class).run(springArgs)) {
+                new LoadTestHarness(context, recognizer, options).run(faces);
+            }
+        }
+    }
+
+    private void run(StubRecognizer.Faces faces) throws Exception {
+        List<String> classIds = seed();
+        try {
+            System.out.printf("mode=%s classrooms=%d students=%d rate=%.2f/s session=%s sessions=%d%n%n",
+                    mode, classrooms, students, 1e9 / periodNanos, session, sessions);
+            ExecutorService drivers = Executors.newFixedThreadPool(classrooms, r -> {
+                Thread thread = new Thread(r, "load-classroom");
+                thread.setDaemon(true);
+                return thread;
+            });
+            statements.reset();
+            long recognizerCalls = recognizer.calls();
+            long recognizerImages = recognizer.images();
+            long started = System.nanoTime();
+            List<CompletableFuture<Void>> classes = new ArrayList<>();
+            for (int i = 0; i < classrooms; i++) {
+                String classId = classIds.get(i);
+                int classroom = i;
+                classes.add(CompletableFuture.runAsync(() -> drive(classroom, classId, faces), drivers));
+            }
+            CompletableFuture.allOf(classes.toArray(CompletableFuture[]::new)).join();
+            double seconds = (System.nanoTime() - started) / 1e9;
+            long prepared = statements.count();
+            drivers.shutdown();
+
+            report(seconds, prepared, recognizer.calls() - recognizerCalls, recognizer.images() - recognizerImages,
+                    classIds);
+        } finally {
+            jdbc.update("DELETE FROM attendance_record WHERE course_class_id LIKE ?", prefix + "%");
+            jdbc.update("DELETE FROM course_class_roster WHERE course_class_id LIKE ?", prefix + "%");
+            jdbc.update("DELETE FROM course_classes WHERE id LIKE ?", prefix + "%");
+            jdbc.update("DELETE FROM students WHERE external_id LIKE ?", prefix + "%");
+        }
+    }
+
+    private List<String> seed() {
+        List<String> classIds = new ArrayList<>();
+        List<Object[]> classes = new ArrayList<>();
+        List<Object[]> people = new ArrayList<>();
+        List<Object[]> roster = new ArrayList<>();
+        for (int c = 0; c < classrooms; c++) {
+            String classId = prefix + "class-" + c;
+            classIds.add(classId);
+            classes.add(new Object[]{classId, prefix + c, "Load " + c});
+            List<String> externalIds = new ArrayList<>();
+            for (int s = 0; s < students; s++) {
+                String externalId = prefix + c + "-" + s;
+                externalIds.add(externalId);
+                people.add(new Object[]{UUID.randomUUID().toString(), externalId, "First" + s, "Last" + s,
+                        externalId + "@example.edu"});
+                roster.add(new Object[]{UUID.randomUUID().toString(), classId, externalId});
+            }
+            recognizer.enroll(classId, externalIds);
+        }
+        jdbc.batchUpdate("INSERT INTO course_classes (id, code, name) VALUES (?, ?, ?)", classes);
+        jdbc.batchUpdate("INSERT INTO students (id, external_id, first_name, last_name, email) VALUES (?, ?, ?, ?, ?)",
+                people);
+        jdbc.batchUpdate("INSERT INTO course_class_roster (id, course_class_id, student_external_id) VALUES (?, ?, ?)",
+                roster);
+        return classIds;
+    }
+
+    /** One classroom: its sessions back to back, each ended by mark-absent. */
+    private void drive(int classroom, String classId, StubRecognizer.Faces faces) {
+        List<String> roster = new ArrayList<>();
+        for (int s = 0; s < students; s++) {
+            roster.add(prefix + classroom + "-" + s);
+        }
+        Recorder sent = recorders.get(mode);
+        try {
+            // classrooms start spread over one period instead of in lockstep
+            TimeUnit.NANOSECONDS.sleep(ThreadLocalRandom.current().nextLong(periodNanos));
+            for (int s = 0; s < sessions; s++) {
+                String sessionId = UUID.randomUUID().toString();
+                String startedAt = Instant.now().toString();
+                String query = "classId=" + encode(classId) + "&sessionId=" + sessionId
+                        + "&sessionStartedAt=" + encode(startedAt);
+                List<CompletableFuture<?>> inFlight = new ArrayList<>();
+                long end = System.nanoTime() + session.toNanos();
+                long next = System.nanoTime();
+                int frame = classroom;
+                while (next < end) {
+                    long wait = next - System.nanoTime();
+                    if (wait > 0) {
+                        TimeUnit.NANOSECONDS.sleep(wait);
+                    }
+                    HttpRequest request = mode.equals("frame")
+                            ? frame(query + "&cameraId=" + encode(classId), images.get(frame++ % IMAGES))
+                            : batch(query, faces.sample(roster));
+                    inFlight.add(send(request, sent));
+                    next += periodNanos;
+                }
+                CompletableFuture.allOf(inFlight.toArray(CompletableFuture[]::new)).join();
+                send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/attendance/mark-absent?" + query))
+                        .POST(HttpRequest.BodyPublishers.noBody())
+                        .build(), recorders.get("mark-absent")).join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private CompletableFuture<?> send(HttpRequest request, Recorder recorder) {
+        long started = System.nanoTime();
+        return http.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, error) -> {
+                    recorder.record(System.nanoTime() - started, error != null ? -1 : response.statusCode());
+                    return null;
+                });
+    }
+
+    private HttpRequest frame(String query, byte[] image) {
+        String boundary = "load-" + UUID.randomUUID();
+        ByteArrayOutputStream body = new ByteArrayOutputStream(image.length + 256);
+        body.writeBytes(("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"image\"; filename=\"frame.jpg\"\r\n"
+                + "Content-Type: image/jpeg\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        body.writeBytes(image);
+        body.writeBytes(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/api/camera/frame?" + query))
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                .build();
+    }
+
+    private HttpRequest batch(String query, List<MlRecognizedStudent> faces) {
+        BatchRecognizedPayload payload = new BatchRecognizedPayload();
+        payload.setRecognized(faces);
+        try {
+            return HttpRequest.newBuilder(URI.create(baseUrl + "/api/attendance/batch?" + query))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(mapper.writeValueAsBytes(payload)))
+                    .build();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void report(double seconds, long prepared, long recognizerCalls, long recognizerImages,
+            List<String> classIds) {
+        System.out.printf("%-12s %9s %9s %10s %9s %9s %9s %9s  %s%n", "endpoint", "requests", "failed", "req/s",
+                "p50 ms", "p99 ms", "p999 ms", "max ms", "statuses");
+        long requests = 0;
+        for (Map.Entry<String, Recorder> entry : recorders.entrySet()) {
+            Recorder recorder = entry.getValue();
+            long[] latencies = recorder.sorted();
+            requests += latencies.length;
+            System.out.printf("%-12s %9d %9d %10.1f %9.2f %9.2f %9.2f %9.2f  %s%n", entry.getKey(),
+                    latencies.length, recorder.failed(), latencies.length / seconds,
+                    percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 0.999),
+                    latencies.length == 0 ? 0 : latencies[latencies.length - 1] / 1e6, recorder.statuses());
+        }
+        Integer records = jdbc.queryForObject(
+                "SELECT count(*) FROM attendance_record WHERE course_class_id LIKE ?", Integer.class, prefix + "%");
+        System.out.printf("%nelapsed %.1fs, %d records in %d classes%n", seconds, records, classIds.size());
+        System.out.printf("statements %d (%.1f/s, %.2f per request)%n", prepared, prepared / seconds,
+                requests == 0 ? 0.0 : (double) prepared / requests);
+        if (mode.equals("frame")) {
+            System.out.printf("recognizer %d calls, %d images (%.2f images per call)%n", recognizerCalls,
+                    recognizerImages, recognizerCalls == 0 ? 0.0 : (double) recognizerImages / recognizerCalls);
+        }
+    }
+
+    /** Distinct frames, so the frame gate does not answer consecutive ones from its last result. */
+    private static List<byte[]> images() throws IOException {
+        Random random = new Random(11);
+        List<byte[]> images = new ArrayList<>();
+        for (int i = 0; i < IMAGES; i++) {
+            BufferedImage image = new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = image.createGraphics();
+            for (int y = 0; y < 480; y += 60) {
+                for (int x = 0; x < 640; x += 80) {
+                    g.setColor(new Color(random.nextInt(256), random.nextInt(256), random.nextInt(256)));
+                    g.fillRect(x, y, 80, 60);
+                }
+            }
+            g.dispose();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write(image, "jpg", out);
+            images.add(out.toByteArray());
+        }
+        return images;
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)] / 1e6;
+    }
+
+    /** Latencies and status codes of one endpoint; status -1 is a request that got no response. */
+    private static final class Recorder {
+
+        private long[] latencies = new long[1024];
+        private int size;
+        private final Map<Integer, Long> statuses = new TreeMap<>();
+
+        synchronized void record(long nanos, int status) {
+            if (size == latencies.length) {
+                latencies = Arrays.copyOf(latencies, size * 2);
+            }
+            latencies[size++] = nanos;
+            statuses.merge(status, 1L, Long::sum);
+        }
+
+        synchronized long[] sorted() {
+            long[] copy = Arrays.copyOf(latencies, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+
+        synchronized long failed() {
+            return statuses.entrySet().stream()
+                    .filter(e -> e.getKey() < 200 || e.getKey() >= 300)
+                    .mapToLong(Map.Entry::getValue)
+                    .sum();
+        }
+
+        synchronized String statuses() {
+            return statuses.toString();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.ml_vision.ml_vision_backend.controllers;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code sessionStartedAt} parsing, done for every batch and mark-absent
+ * request. Run with {@code mvn -Pbenchmarks verify -Djmh.include=AttendanceControllerBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AttendanceControllerBenchmark {
+
+    // what browsers (toISOString) and the Python agent (isoformat) send
+    private static final String[] TIMESTAMPS = {
+            "2025-09-01T13:00:00.000Z",
+            "2025-09-01T09:00:00-04:00",
+            "2025-09-01T09:00:00.123456-04:00",
+            "2025-12-01T14:00:00Z",
+    };
+
+    private int next;
+
+    @Benchmark
+    public LocalDateTime parseToEastern() {
+        next = (next + 1) & (TIMESTAMPS.length - 1);
+        return AttendanceController.parseToEastern(TIMESTAMPS[next]);
+    }
+}
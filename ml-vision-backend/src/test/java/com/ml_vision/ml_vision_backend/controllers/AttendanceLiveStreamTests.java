@@ -0,0 +1,159 @@
+package com.ml_vision.ml_vision_backend.controllers;
+
+import com.ml_vision.ml_vision_backend.dto.MlRecognizedStudent;
+import com.ml_vision.ml_vision_backend.entities.CourseClass;
+import com.ml_vision.ml_vision_backend.repositories.CourseClassRepository;
+import com.ml_vision.ml_vision_backend.services.AttendanceService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class AttendanceLiveStreamTests {
+
+    private static final Pattern EVENT_ID = Pattern.compile("^id:(.+)$", Pattern.MULTILINE);
+    private static final LocalDateTime STARTED_AT = LocalDateTime.of(2025, 9, 1, 9, 0);
+
+    @Autowired
+    private MockMvc mvc;
+    @Autowired
+    private AttendanceService attendanceService;
+    @Autowired
+    private CourseClassRepository classRepo;
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    private final String prefix = "live-" + UUID.randomUUID() + "-";
+    private String classId;
+
+    @BeforeEach
+    void setUp() {
+        CourseClass cls = new CourseClass();
+        cls.setName("Live");
+        cls.setCode(prefix);
+        classId = classRepo.save(cls).getId();
+
+        List<Object[]> students = new ArrayList<>();
+        List<Object[]> roster = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            students.add(new Object[]{UUID.randomUUID().toString(), prefix + i, "First" + i, "Last" + i, i + "@example.edu"});
+            roster.add(new Object[]{UUID.randomUUID().toString(), classId, prefix + i});
+        }
+        jdbc.batchUpdate("INSERT INTO students (id, external_id, first_name, last_name, email) VALUES (?, ?, ?, ?, ?)",
+                students);
+        jdbc.batchUpdate("INSERT INTO course_class_roster (id, course_class_id, student_external_id) VALUES (?, ?, ?)",
+                roster);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.update("DELETE FROM attendance_record WHERE course_class_id = ?", classId);
+        jdbc.update("DELETE FROM course_class_roster WHERE course_class_id = ?", classId);
+        jdbc.update("DELETE FROM course_classes WHERE id = ?", classId);
+        jdbc.update("DELETE FROM students WHERE external_id LIKE ?", prefix + "%");
+    }
+
+    @Test
+    void streamsOnlyNewRecordsOfTheSubscribedSession() throws Exception {
+        String session = UUID.randomUUID().toString();
+        String other = UUID.randomUUID().toString();
+        attendanceService.recordBatch(classId, session, STARTED_AT, List.of(recognized(3)));
+
+        MvcResult stream = subscribe("?sessionId=" + session, null);
+        attendanceService.recordBatch(classId, session, STARTED_AT, List.of(recognized(0)));
+        attendanceService.recordBatch(classId, other, STARTED_AT, List.of(recognized(1)));
+        attendanceService.recordBatch(classId, session, STARTED_AT, List.of(recognized(0)));
+        attendanceService.markAbsences(classId, session, STARTED_AT);
+
+        // student 0 once, then absences for 1 and 2; neither the earlier record nor the other session
+        String body = awaitEvents(stream, 3);
+        assertThat(body).contains(prefix + 0, prefix + 1, prefix + 2).doesNotContain(prefix + 3, other);
+        assertThat(body).contains("\"status\":\"ABSENT\"");
+    }
+
+    @Test
+    void reconnectingClientsResumeAfterTheirLastEvent() throws Exception {
+        String session = UUID.randomUUID().toString();
+        MvcResult first = subscribe("", null);
+        attendanceService.recordBatch(classId, session, STARTED_AT, List.of(recognized(0)));
+        attendanceService.recordBatch(classId, session, STARTED_AT, List.of(recognized(1)));
+        List<String> ids = ids(awaitEvents(first, 2));
+
+        String resumed = awaitEvents(subscribe("", ids.get(0)), 1);
+        assertThat(resumed).contains(prefix + 1).doesNotContain(prefix + 0);
+        assertThat(ids(resumed)).containsExactly(ids.get(1));
+
+        MvcResult unknown = subscribe("", "0-1");
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!content(unknown).contains("event:reset") && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(content(unknown)).contains("event:reset").doesNotContain(prefix);
+    }
+
+    private MvcResult subscribe(String query, String lastEventId) throws Exception {
+        MockHttpServletRequestBuilder get = get("/api/attendance/class/" + classId + "/live" + query);
+        if (lastEventId != null) {
+            get.header("Last-Event-ID", lastEventId);
+        }
+        return mvc.perform(get).andExpect(request().asyncStarted()).andReturn();
+    }
+
+    private static String awaitEvents(MvcResult stream, int expected) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        String body = content(stream);
+        while (count(body) < expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            body = content(stream);
+        }
+        // nothing beyond the expected events shows up either
+        Thread.sleep(100);
+        body = content(stream);
+        assertThat(count(body)).isEqualTo(expected);
+        return body;
+    }
+
+    private static String content(MvcResult stream) throws Exception {
+        return stream.getResponse().getContentAsString();
+    }
+
+    private static int count(String body) {
+        return body.split("event:attendance", -1).length - 1;
+    }
+
+    private static List<String> ids(String body) {
+        List<String> ids = new ArrayList<>();
+        Matcher matcher = EVENT_ID.matcher(body);
+        while (matcher.find()) {
+            ids.add(matcher.group(1));
+        }
+        return ids;
+    }
+
+    private MlRecognizedStudent recognized(int student) {
+        MlRecognizedStudent r = new MlRecognizedStudent();
+        r.setStudentId(prefix + student);
+        r.setConfidence(0.9);
+        return r;
+    }
+}
@@ -0,0 +1,72 @@
+package com.ml_vision.ml_vision_backend.controllers;
+
+import com.ml_vision.ml_vision_backend.dto.MlRecognizeResponse;
+import com.ml_vision.ml_vision_backend.services.FramePipeline;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class CameraControllerTests {
+
+    private final FramePipeline pipeline = mock(FramePipeline.class);
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setUp() {
+        CameraController controller = new CameraController(pipeline);
+        ReflectionTestUtils.setField(controller, "waitTimeout", Duration.ofSeconds(5));
+        mvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    void recognizerFailuresAreBadGateway() throws Exception {
+        failWith(new ResourceAccessException("recognizer unreachable"));
+
+        mvc.perform(asyncDispatch(submitFrame()))
+                .andExpect(status().isBadGateway())
+                .andExpect(jsonPath("$.status").value("FAILED"));
+    }
+
+    @Test
+    void localFailuresAreInternalServerErrors() throws Exception {
+        failWith(new DataAccessResourceFailureException("database down"));
+
+        mvc.perform(asyncDispatch(submitFrame()))
+                .andExpect(status().isInternalServerError())
+                .andExpect(jsonPath("$.error").value("database down"));
+    }
+
+    private void failWith(RuntimeException e) {
+        FramePipeline.FrameJob job = mock(FramePipeline.FrameJob.class);
+        when(job.getTicket()).thenReturn("t1");
+        when(job.result()).thenReturn(CompletableFuture.<MlRecognizeResponse>failedFuture(e));
+        when(pipeline.submit(any(), any(), any(), any(), any())).thenReturn(job);
+    }
+
+    private MvcResult submitFrame() throws Exception {
+        return mvc.perform(multipart("/api/camera/frame")
+                        .file(new MockMultipartFile("image", "f.jpg", "image/jpeg", new byte[]{1}))
+                        .param("classId", "c1")
+                        .param("sessionId", "s1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+}
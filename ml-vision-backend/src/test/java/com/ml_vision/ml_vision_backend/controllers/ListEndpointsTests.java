@@ -0,0 +1,165 @@
+package com.ml_vision.ml_vision_backend.controllers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ml_vision.ml_vision_backend.entities.CourseClass;
+import com.ml_vision.ml_vision_backend.entities.Student;
+import com.ml_vision.ml_vision_backend.repositories.CourseClassRepository;
+import com.ml_vision.ml_vision_backend.repositories.StudentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ListEndpointsTests {
+
+    private static final int RECORDS = 2_500;
+
+    @Autowired
+    private MockMvc mvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private StudentRepository studentRepo;
+    @Autowired
+    private CourseClassRepository classRepo;
+    @Autowired
+    private NamedParameterJdbcTemplate jdbc;
+
+    private final String prefix = "list-" + UUID.randomUUID().toString().substring(0, 8) + "-";
+    private final List<Student> students = new ArrayList<>();
+    private CourseClass courseClass;
+
+    @BeforeEach
+    void seed() {
+        CourseClass cls = new CourseClass();
+        cls.setName(prefix + "class");
+        courseClass = classRepo.save(cls);
+        for (int i = 0; i < 5; i++) {
+            students.add(studentRepo.save(Student.builder()
+                    .externalId(prefix + i).firstName("First").lastName("Last " + i).email(i + "@example.edu")
+                    .build()));
+        }
+
+        // ten records share every timestamp, so page boundaries fall inside ties
+        LocalDateTime start = LocalDateTime.of(2026, 1, 5, 9, 0);
+        SqlParameterSource[] batch = new SqlParameterSource[RECORDS];
+        for (int i = 0; i < RECORDS; i++) {
+            batch[i] = new MapSqlParameterSource()
+                    .addValue("studentId", students.get(i % students.size()).getId())
+                    .addValue("classId", courseClass.getId())
+                    .addValue("timestamp", start.plusSeconds(i / 10))
+                    // one record per student per session, as the schema enforces
+                    .addValue("sessionId", "session-" + i / students.size());
+        }
+        jdbc.batchUpdate("""
+                INSERT INTO attendance_record (id, student_id, course_class_id, timestamp, status, confidence, session_id)
+                VALUES (gen_random_uuid()::text, :studentId, :classId, :timestamp, 'PRESENT', 0.9, :sessionId)
+                """, batch);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.update("DELETE FROM attendance_record WHERE course_class_id = :classId",
+                new MapSqlParameterSource("classId", courseClass.getId()));
+        studentRepo.deleteAll(students);
+        classRepo.delete(courseClass);
+    }
+
+    @Test
+    void pagesThroughAClassHistoryInTheSameOrderAsTheStream() throws Exception {
+        String url = "/api/attendance/class/" + courseClass.getId();
+        JsonNode streamed = json(get(url));
+        List<JsonNode> paged = drain(url, 1000);
+
+        assertThat(streamed).hasSize(RECORDS);
+        assertThat(ids(paged)).containsExactlyElementsOf(ids(streamed)).doesNotHaveDuplicates();
+        assertThat(paged).isSortedAccordingTo(Comparator
+                .comparing((JsonNode r) -> LocalDateTime.parse(r.get("timestamp").asText()))
+                .thenComparing(r -> r.get("id").asText())
+                .reversed());
+        assertThat(paged.get(0).get("studentName").asText()).startsWith("First Last ");
+        assertThat(paged.get(0).get("className").asText()).isEqualTo(prefix + "class");
+    }
+
+    @Test
+    void filtersBySessionInBothModes() throws Exception {
+        String url = "/api/attendance/class/" + courseClass.getId();
+        JsonNode streamed = json(get(url).param("sessionId", "session-7"));
+        List<JsonNode> paged = drain(url + "?sessionId=session-7", 2);
+
+        assertThat(streamed).hasSize(students.size())
+                .allSatisfy(r -> assertThat(r.get("sessionId").asText()).isEqualTo("session-7"));
+        assertThat(ids(paged)).containsExactlyElementsOf(ids(streamed));
+    }
+
+    @Test
+    void rejectsACursorItDidNotIssue() throws Exception {
+        mvc.perform(get("/api/attendance/class/" + courseClass.getId())
+                        .param("limit", "10").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get("/api/students").param("limit", "10").param("cursor", "a.b"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void pagesStudentsAndClassesByKey() throws Exception {
+        List<JsonNode> paged = drain("/api/students", 2);
+        JsonNode streamed = json(get("/api/students"));
+
+        assertThat(ids(paged)).containsExactlyElementsOf(ids(streamed));
+        assertThat(paged).extracting(s -> s.get("externalId").asText())
+                .isSorted()
+                .containsSubsequence(students.stream().map(Student::getExternalId).toList());
+        assertThat(ids(drain("/api/classes", 1))).containsExactlyElementsOf(ids(json(get("/api/classes"))))
+                .contains(courseClass.getId());
+    }
+
+    private List<JsonNode> drain(String url, int limit) throws Exception {
+        List<JsonNode> items = new ArrayList<>();
+        String cursor = null;
+        do {
+            MockHttpServletRequestBuilder request = get(url).param("limit", String.valueOf(limit));
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+            JsonNode page = json(request);
+            assertThat(page.get("items").size()).isLessThanOrEqualTo(limit);
+            page.get("items").forEach(items::add);
+            cursor = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+        } while (cursor != null);
+        return items;
+    }
+
+    private JsonNode json(MockHttpServletRequestBuilder request) throws Exception {
+        String body = mvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body);
+    }
+
+    private static List<String> ids(Iterable<JsonNode> rows) {
+        List<String> ids = new ArrayList<>();
+        rows.forEach(r -> ids.add(r.get("id").asText()));
+        return ids;
+    }
+}
@@ -0,0 +1,68 @@
+package com.ml_vision.ml_vision_backend.controllers;
+
+import com.ml_vision.ml_vision_backend.services.PhotoStorage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class PhotoControllerTests {
+
+    private static final String HASH = "ab".repeat(32);
+
+    private final PhotoStorage storage = mock(PhotoStorage.class);
+    private final byte[] bytes = new byte[4096];
+    private MockMvc mvc;
+
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        Path photo = Files.write(dir.resolve(HASH + ".jpg"), bytes);
+        when(storage.original(HASH + ".jpg")).thenReturn(Optional.of(photo));
+        when(storage.original("missing.jpg")).thenReturn(Optional.empty());
+        mvc = MockMvcBuilders.standaloneSetup(new PhotoController(storage)).build();
+    }
+
+    @Test
+    void servesPhotosWithAStrongEtagAndLongLivedCaching() throws Exception {
+        mvc.perform(get("/photos/originals/" + HASH + ".jpg"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + HASH + "\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=31536000, public, immutable"))
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "image/jpeg"))
+                .andExpect(content().bytes(bytes));
+
+        mvc.perform(get("/photos/originals/" + HASH + ".jpg").header(HttpHeaders.IF_NONE_MATCH, "\"" + HASH + "\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+
+        mvc.perform(get("/photos/originals/missing.jpg")).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void answersRangeRequestsWithPartialContent() throws Exception {
+        mvc.perform(get("/photos/originals/" + HASH + ".jpg").header(HttpHeaders.RANGE, "bytes=1000-1999"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 1000-1999/4096"))
+                .andExpect(content().bytes(Arrays.copyOfRange(bytes, 1000, 2000)));
+    }
+}
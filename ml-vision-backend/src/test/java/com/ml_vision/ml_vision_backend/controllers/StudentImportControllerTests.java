@@ -0,0 +1,93 @@
+package com.ml_vision.ml_vision_backend.controllers;
+
+import com.ml_vision.ml_vision_backend.dto.StudentImportResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Upload limits over a real connector, where Tomcat enforces spring.servlet.multipart. */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.servlet.multipart.max-file-size=1KB",
+        "spring.servlet.multipart.max-request-size=1KB",
+        "attendance.import.max-upload-size=64KB",
+        "attendance.import.work-dir=target/student-import-controller-tests"})
+class StudentImportControllerTests {
+
+    @Autowired
+    private TestRestTemplate rest;
+
+    @Test
+    void importTakesUploadsBeyondTheGlobalMultipartLimit() {
+        ResponseEntity<StudentImportResponse> response = rest.postForEntity(StudentImportController.PATH,
+                multipart("students", "students.csv", csv(8 * 1024)), StudentImportResponse.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+        assertThat(response.getBody().getJobId()).isNotBlank();
+        assertThat(response.getHeaders().getLocation()).hasPath(StudentImportController.PATH + "/" + response.getBody().getJobId());
+    }
+
+    @Test
+    void importBeyondItsOwnLimitIsRejected() {
+        ResponseEntity<String> response = rest.postForEntity(StudentImportController.PATH,
+                multipart("students", "students.csv", csv(100 * 1024)), String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+
+    @Test
+    void importWithoutACsvIsABadRequest() {
+        ResponseEntity<String> response = rest.postForEntity(StudentImportController.PATH,
+                multipart("photos", "photos.zip", new byte[16]), String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(response.getBody()).isEqualTo("students CSV is required");
+    }
+
+    @Test
+    void otherEndpointsKeepTheGlobalMultipartLimit() {
+        HttpEntity<MultiValueMap<String, Object>> request = multipart("photo", "photo.jpg", new byte[8 * 1024]);
+        request.getBody().add("firstName", "Too");
+        request.getBody().add("lastName", "Large");
+        request.getBody().add("externalId", "too-large");
+        request.getBody().add("email", "too-large@example.edu");
+
+        ResponseEntity<String> response = rest.postForEntity("/api/students", request, String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE);
+    }
+
+    /** Rows without an email are skipped by the import, so nothing is written. */
+    private static byte[] csv(int bytes) {
+        StringBuilder csv = new StringBuilder("externalId,firstName,lastName,email\n");
+        while (csv.length() < bytes) {
+            csv.append("skipped,No,Email,\n");
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static HttpEntity<MultiValueMap<String, Object>> multipart(String name, String filename, byte[] content) {
+        MultiValueMap<String, Object> parts = new LinkedMultiValueMap<>();
+        parts.add(name, new ByteArrayResource(content) {
+            @Override
+            public String getFilename() {
+                return filename;
+            }
+        });
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+        return new HttpEntity<>(parts, headers);
+    }
+}
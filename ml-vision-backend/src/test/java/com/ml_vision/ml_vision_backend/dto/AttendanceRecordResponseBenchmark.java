@@ -0,0 +1,80 @@
+package com.ml_vision.ml_vision_backend.dto;
+
+import com.ml_vision.ml_vision_backend.entities.AttendanceRecord;
+import com.ml_vision.ml_vision_backend.entities.AttendanceStatus;
+import com.ml_vision.ml_vision_backend.entities.CourseClass;
+import com.ml_vision.ml_vision_backend.entities.Student;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link AttendanceRecordResponse#fromEntity} over one class's records, as
+ * the JPA read paths map them. Run with
+ * {@code mvn -Pbenchmarks verify -Djmh.include=AttendanceRecordResponseBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AttendanceRecordResponseBenchmark {
+
+    @Param({"30", "500"})
+    int records;
+
+    private List<AttendanceRecord> entities;
+
+    @Setup
+    public void setUp() {
+        CourseClass cls = new CourseClass();
+        cls.setId(UUID.randomUUID().toString());
+        cls.setName("Benchmark");
+        LocalDateTime startedAt = LocalDateTime.of(2025, 9, 1, 9, 0);
+        entities = new ArrayList<>(records);
+        for (int i = 0; i < records; i++) {
+            Student student = Student.builder()
+                    .id(UUID.randomUUID().toString())
+                    .externalId("S" + i)
+                    .firstName("First" + i)
+                    .lastName("Last" + i)
+                    .email(i + "@example.edu")
+                    .build();
+            entities.add(AttendanceRecord.builder()
+                    .id(UUID.randomUUID().toString())
+                    .student(student)
+                    .courseClass(cls)
+                    .timestamp(startedAt.plusSeconds(i))
+                    .status(AttendanceStatus.PRESENT)
+                    .confidence(0.9)
+                    .position("seat " + i)
+                    .sessionId("session")
+                    .sessionStartedAt(startedAt)
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public List<AttendanceRecordResponse> fromEntity() {
+        List<AttendanceRecordResponse> responses = new ArrayList<>(entities.size());
+        for (AttendanceRecord entity : entities) {
+            responses.add(AttendanceRecordResponse.fromEntity(entity));
+        }
+        return responses;
+    }
+}
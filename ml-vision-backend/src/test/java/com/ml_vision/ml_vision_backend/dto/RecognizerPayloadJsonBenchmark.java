@@ -0,0 +1,97 @@
+package com.ml_vision.ml_vision_backend.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson cost of the recognizer payloads: {@link BatchRecognizedPayload}
+ * as posted to {@code /api/attendance/batch} and {@link MlRecognizeResponse}
+ * as returned by {@code /recognize}, per request of {@code faces} faces.
+ * Uses a mapper built the way Spring Boot builds the application's. Run with
+ * {@code mvn -Pbenchmarks verify -Djmh.include=RecognizerPayloadJsonBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecognizerPayloadJsonBenchmark {
+
+    @Param({"1", "30", "200"})
+    int faces;
+
+    private ObjectReader batchReader;
+    private ObjectWriter batchWriter;
+    private ObjectReader responseReader;
+    private ObjectWriter responseWriter;
+    private BatchRecognizedPayload batch;
+    private MlRecognizeResponse response;
+    private byte[] batchJson;
+    private byte[] responseJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().timeZone("America/New_York").build();
+        batchReader = mapper.readerFor(BatchRecognizedPayload.class);
+        batchWriter = mapper.writerFor(BatchRecognizedPayload.class);
+        responseReader = mapper.readerFor(MlRecognizeResponse.class);
+        responseWriter = mapper.writerFor(MlRecognizeResponse.class);
+
+        List<MlRecognizedStudent> recognized = new ArrayList<>(faces);
+        for (int i = 0; i < faces; i++) {
+            MlRecognizedStudent student = new MlRecognizedStudent();
+            student.setStudentId("S" + (100000 + i));
+            student.setConfidence(0.5 + (i % 50) / 100.0);
+            // top,right,bottom,left as the recognizer formats the face box
+            int top = i * 53 % 1000;
+            int left = i * 37 % 1800;
+            student.setPosition(top + "," + (left + 96) + "," + (top + 96) + "," + left);
+            recognized.add(student);
+        }
+        batch = new BatchRecognizedPayload();
+        batch.setRecognized(recognized);
+        response = new MlRecognizeResponse();
+        response.setRecognized(recognized);
+        batchJson = batchWriter.writeValueAsBytes(batch);
+        responseJson = responseWriter.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public BatchRecognizedPayload readBatch() throws IOException {
+        return batchReader.readValue(batchJson);
+    }
+
+    @Benchmark
+    public byte[] writeBatch() throws IOException {
+        return batchWriter.writeValueAsBytes(batch);
+    }
+
+    @Benchmark
+    public MlRecognizeResponse readRecognizeResponse() throws IOException {
+        return responseReader.readValue(responseJson);
+    }
+
+    @Benchmark
+    public byte[] writeRecognizeResponse() throws IOException {
+        return responseWriter.writeValueAsBytes(response);
+    }
+}
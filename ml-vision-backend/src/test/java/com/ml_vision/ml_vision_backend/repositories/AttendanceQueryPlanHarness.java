@@ -0,0 +1,230 @@
+package com.ml_vision.ml_vision_backend.repositories;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Query plans and timings of the attendance statements on a large table,
+ * before and after {@code V2__attendance_indexes_and_session_uniqueness}.
+ * Builds the V1 schema in a scratch {@code plan_harness} schema, loads
+ * {@code records} rows (one record per student per session, 40 students per
+ * class), runs {@code EXPLAIN (ANALYZE, BUFFERS)} on each statement, applies
+ * V2 and runs them again, then drops the schema. After
+ * {@code mvn test-compile}, run
+ * {@code java -cp <test classpath> com.ml_vision.ml_vision_backend.repositories.AttendanceQueryPlanHarness
+ * [records] [jdbcUrl] [user] [password]}.
+ * <p>
+ * Writes run inside a rolled-back transaction, so every repetition sees the
+ * same data. Times are the best of {@code REPEATS} warm runs.
+ */
+public class AttendanceQueryPlanHarness {
+
+    private static final int CLASSES = 500;
+    private static final int ROSTER = 40;
+    private static final int REPEATS = 5;
+    private static final String SCHEMA = "plan_harness";
+
+    public static void main(String[] args) throws Exception {
+        long records = args.length > 0 ? Long.parseLong(args[0]) : 10_000_000L;
+        String url = args.length > 1 ? args[1] : "jdbc:postgresql://localhost:5432/ml_vision";
+        String user = args.length > 2 ? args[2] : "mluser";
+        String password = args.length > 3 ? args[3] : "mlpassword";
+
+        try (Connection connection = DriverManager.getConnection(url, user, password);
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+            statement.execute("CREATE SCHEMA " + SCHEMA);
+            statement.execute("SET search_path TO " + SCHEMA);
+            try {
+                statement.execute(migration("V1__baseline.sql"));
+                long loadMillis = load(statement, records);
+                System.out.printf("records=%d classes=%d students=%d load=%ds%n",
+                        records, CLASSES, CLASSES * ROSTER, loadMillis / 1000);
+
+                Map<String, String> queries = queries(statement);
+                Map<String, Plan> before = explainAll(connection, queries);
+
+                long started = System.nanoTime();
+                statement.execute(migration("V2__attendance_indexes_and_session_uniqueness.sql"));
+                System.out.printf("V2 migration: %dms%n", (System.nanoTime() - started) / 1_000_000);
+                Map<String, Plan> after = explainAll(connection, queries);
+
+                System.out.printf("%n%-28s %12s %12s  %s%n", "statement", "before ms", "after ms", "access path after");
+                for (String name : queries.keySet()) {
+                    System.out.printf("%-28s %12.3f %12.3f  %s%n", name,
+                            before.get(name).millis(), after.get(name).millis(), after.get(name).accessPath());
+                }
+                for (String name : queries.keySet()) {
+                    System.out.printf("%n-- %s, before%n%s%n-- %s, after%n%s%n",
+                            name, before.get(name).text(), name, after.get(name).text());
+                }
+            } finally {
+                statement.execute("DROP SCHEMA " + SCHEMA + " CASCADE");
+            }
+        }
+    }
+
+    private static long load(Statement statement, long records) throws SQLException {
+        long started = System.nanoTime();
+        statement.execute("INSERT INTO course_classes (id, code, name) SELECT 'class-' || c, 'C' || c, 'Class ' || c"
+                + " FROM generate_series(0, " + (CLASSES - 1) + ") c");
+        statement.execute("INSERT INTO students (id, external_id, first_name, last_name, email)"
+                + " SELECT 'student-' || s, 'ext-' || s, 'First' || s, 'Last' || s, s || '@example.edu'"
+                + " FROM generate_series(0, " + (CLASSES * ROSTER - 1) + ") s");
+        statement.execute("INSERT INTO course_class_roster (id, course_class_id, student_external_id)"
+                + " SELECT gen_random_uuid()::text, 'class-' || (s / " + ROSTER + "), 'ext-' || s"
+                + " FROM generate_series(0, " + (CLASSES * ROSTER - 1) + ") s");
+        // session k belongs to class k % CLASSES and starts two minutes after session k - 1;
+        // each of its ROSTER records is a different student of that class
+        statement.execute("""
+                INSERT INTO attendance_record
+                    (id, student_id, course_class_id, timestamp, status, confidence, session_id, session_started_at)
+                SELECT gen_random_uuid()::text,
+                       'student-' || ((k %% %1$d) * %2$d + g %% %2$d),
+                       'class-' || (k %% %1$d),
+                       timestamp '2025-09-01' + k * interval '2 minutes' + (g %% %2$d) * interval '1 second',
+                       'PRESENT', 0.9,
+                       'session-' || (k / %1$d),
+                       timestamp '2025-09-01' + k * interval '2 minutes'
+                FROM generate_series(0, %3$d - 1) g, LATERAL (SELECT g / %2$d AS k) session
+                """.formatted(CLASSES, ROSTER, records));
+        statement.execute("VACUUM ANALYZE attendance_record");
+        statement.execute("ANALYZE");
+        return (System.nanoTime() - started) / 1_000_000;
+    }
+
+    /** The repositories' statements, with literals for the busiest class and its latest session. */
+    private static Map<String, String> queries(Statement statement) throws SQLException {
+        String classId = "'class-" + CLASSES / 2 + "'";
+        String session;
+        String middle;
+        String today;
+        try (ResultSet rs = statement.executeQuery("SELECT session_id, timestamp::date FROM attendance_record"
+                + " WHERE course_class_id = " + classId + " ORDER BY timestamp DESC LIMIT 1")) {
+            rs.next();
+            session = "'" + rs.getString(1) + "'";
+            today = "'" + rs.getString(2) + "'";
+        }
+        try (ResultSet rs = statement.executeQuery("SELECT timestamp, id FROM attendance_record"
+                + " WHERE course_class_id = " + classId + " ORDER BY timestamp DESC, id DESC"
+                + " OFFSET (SELECT count(*) / 2 FROM attendance_record WHERE course_class_id = " + classId + ") LIMIT 1")) {
+            rs.next();
+            middle = "('" + rs.getString(1) + "', '" + rs.getString(2) + "')";
+        }
+        statement.execute("INSERT INTO students (id, external_id, first_name, last_name, email)"
+                + " VALUES ('student-unused', 'ext-unused', 'No', 'Records', 'unused@example.edu')");
+        String classRecords = """
+                SELECT a.*, s.external_id, s.first_name, s.last_name, c.name AS class_name
+                FROM attendance_record a
+                JOIN students s ON s.id = a.student_id
+                JOIN course_classes c ON c.id = a.course_class_id
+                WHERE a.course_class_id = %s
+                """.formatted(classId);
+        String externalIds = "ARRAY[" + String.join(", ", externalIds(CLASSES / 2)) + "]";
+
+        Map<String, String> queries = new LinkedHashMap<>();
+        queries.put("class page, first", classRecords + " ORDER BY a.timestamp DESC, a.id DESC LIMIT 101");
+        queries.put("class page, middle", classRecords + " AND (a.timestamp, a.id) < " + middle
+                + " ORDER BY a.timestamp DESC, a.id DESC LIMIT 101");
+        queries.put("session page", classRecords + " AND a.session_id = " + session
+                + " ORDER BY a.timestamp DESC, a.id DESC LIMIT 101");
+        queries.put("session stream", classRecords + " AND a.session_id = " + session
+                + " ORDER BY a.timestamp DESC, a.id DESC");
+        queries.put("today", classRecords + " AND a.timestamp BETWEEN " + today + "::timestamp AND "
+                + today + "::timestamp + interval '1 day' ORDER BY a.timestamp DESC");
+        queries.put("presence warm-up", "SELECT s.external_id FROM attendance_record a"
+                + " JOIN students s ON s.id = a.student_id"
+                + " WHERE a.course_class_id = " + classId + " AND a.session_id = " + session);
+        // before V2 ingestion ran this check under the session lock before inserting
+        queries.put("recorded pre-check", "SELECT s.external_id FROM attendance_record a"
+                + " JOIN students s ON s.id = a.student_id"
+                + " WHERE a.course_class_id = " + classId + " AND a.session_id = 'session-new'"
+                + " AND s.external_id = ANY(" + externalIds + ")");
+        queries.put("insert batch (new session)", """
+                INSERT INTO attendance_record
+                    (id, student_id, course_class_id, timestamp, status, confidence, position, session_id, session_started_at)
+                SELECT gen_random_uuid()::text, s.id, %s, now(), 'PRESENT', 0.9, NULL, 'session-new', now()
+                FROM unnest(%s) AS f(external_id)
+                JOIN students s ON s.external_id = f.external_id
+                """.formatted(classId, externalIds));
+        queries.put("mark absences", """
+                INSERT INTO attendance_record
+                    (id, student_id, course_class_id, timestamp, status, confidence, session_id, session_started_at)
+                SELECT gen_random_uuid()::text, s.id, %1$s, now(), 'ABSENT', 0, %2$s, now()
+                FROM students s
+                WHERE s.external_id IN (
+                        SELECT r.student_external_id FROM course_class_roster r WHERE r.course_class_id = %1$s)
+                  AND s.id NOT IN (
+                        SELECT a.student_id FROM attendance_record a
+                        WHERE a.course_class_id = %1$s AND a.session_id = %2$s AND a.student_id IS NOT NULL)
+                """.formatted(classId, session));
+        queries.put("delete student (FK check)", "DELETE FROM students WHERE id = 'student-unused'");
+        return queries;
+    }
+
+    private static List<String> externalIds(int classIndex) {
+        List<String> ids = new ArrayList<>(ROSTER);
+        for (int i = 0; i < ROSTER; i++) {
+            ids.add("'ext-" + (classIndex * ROSTER + i) + "'");
+        }
+        return ids;
+    }
+
+    private static Map<String, Plan> explainAll(Connection connection, Map<String, String> queries) throws SQLException {
+        Map<String, Plan> plans = new LinkedHashMap<>();
+        for (Map.Entry<String, String> query : queries.entrySet()) {
+            Plan best = null;
+            for (int i = 0; i < REPEATS; i++) {
+                Plan plan = explain(connection, query.getValue());
+                if (best == null || plan.millis() < best.millis()) {
+                    best = plan;
+                }
+            }
+            plans.put(query.getKey(), best);
+        }
+        return plans;
+    }
+
+    private static Plan explain(Connection connection, String sql) throws SQLException {
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("EXPLAIN (ANALYZE, BUFFERS) " + sql)) {
+            StringBuilder text = new StringBuilder();
+            double millis = 0;
+            String accessPath = null;
+            while (rs.next()) {
+                String line = rs.getString(1);
+                text.append(line).append('\n');
+                if (line.startsWith("Execution Time:")) {
+                    millis = Double.parseDouble(line.replaceAll("[^0-9.]", ""));
+                }
+                if (line.contains(" on attendance_record") && accessPath == null) {
+                    accessPath = line.trim().replaceFirst("^-> *", "").replaceAll(" +\\(cost.*", "");
+                }
+            }
+            return new Plan(millis, accessPath != null ? accessPath : "FK trigger / no attendance_record scan", text.toString());
+        } finally {
+            connection.rollback();
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private static String migration(String name) throws IOException {
+        try (InputStream in = AttendanceQueryPlanHarness.class.getResourceAsStream("/db/migration/" + name)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private record Plan(double millis, String accessPath, String text) {
+    }
+}
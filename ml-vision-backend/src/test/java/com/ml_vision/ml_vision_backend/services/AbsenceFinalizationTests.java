@@ -0,0 +1,120 @@
+package com.ml_vision.ml_vision_backend.services;
+
+import com.ml_vision.ml_vision_backend.dto.AttendanceRecordResponse;
+import com.ml_vision.ml_vision_backend.dto.MlRecognizedStudent;
+import com.ml_vision.ml_vision_backend.entities.AttendanceStatus;
+import com.ml_vision.ml_vision_backend.entities.CourseClass;
+import com.ml_vision.ml_vision_backend.repositories.CourseClassRepository;
+import com.ml_vision.ml_vision_backend.support.StatementCounter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Import(StatementCounter.Config.class)
+class AbsenceFinalizationTests {
+
+    @Autowired
+    private AttendanceService attendanceService;
+    @Autowired
+    private CourseClassRepository classRepo;
+    @Autowired
+    private JdbcTemplate jdbc;
+    @Autowired
+    private StatementCounter statements;
+
+    private final List<String> classIds = new ArrayList<>();
+    private final String prefix = "absent-" + UUID.randomUUID() + "-";
+
+    @AfterEach
+    void tearDown() {
+        for (String classId : classIds) {
+            jdbc.update("DELETE FROM attendance_record WHERE course_class_id = ?", classId);
+            jdbc.update("DELETE FROM course_class_roster WHERE course_class_id = ?", classId);
+            jdbc.update("DELETE FROM course_classes WHERE id = ?", classId);
+        }
+        jdbc.update("DELETE FROM students WHERE external_id LIKE ?", prefix + "%");
+    }
+
+    @Test
+    void marksOnlyStudentsWithoutARecordAndIsIdempotent() {
+        String classId = seedClass(10);
+        String sessionId = UUID.randomUUID().toString();
+        attendanceService.recordBatch(classId, sessionId, null, List.of(recognized(0), recognized(3)));
+
+        List<AttendanceRecordResponse> absent = attendanceService.markAbsences(classId, sessionId, null);
+
+        assertThat(absent).hasSize(8)
+                .allMatch(r -> r.getStatus() == AttendanceStatus.ABSENT && r.getClassName().equals("Absences"))
+                .extracting(AttendanceRecordResponse::getStudentExternalId)
+                .doesNotContain(prefix + 0, prefix + 3);
+        assertThat(attendanceService.markAbsences(classId, sessionId, null)).isEmpty();
+    }
+
+    @Test
+    void lateBatchAfterFinalizationIsSkipped() {
+        String classId = seedClass(4);
+        String sessionId = UUID.randomUUID().toString();
+        attendanceService.recordBatch(classId, sessionId, null, List.of(recognized(0)));
+        attendanceService.markAbsences(classId, sessionId, null);
+
+        assertThat(attendanceService.recordBatch(classId, sessionId, null, List.of(recognized(1)))).isEmpty();
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM attendance_record WHERE course_class_id = ?",
+                Long.class, classId)).isEqualTo(4);
+    }
+
+    /** The statement count stays fixed as the roster grows. */
+    @ParameterizedTest
+    @ValueSource(ints = {50, 500, 5_000})
+    void finalizesLargeRostersWithAFixedNumberOfStatements(int rosterSize) {
+        String classId = seedClass(rosterSize);
+        String sessionId = UUID.randomUUID().toString();
+
+        statements.reset();
+        List<AttendanceRecordResponse> absent = attendanceService.markAbsences(classId, sessionId, null);
+
+        assertThat(absent).hasSize(rosterSize);
+        assertThat(statements.count()).isLessThanOrEqualTo(3);
+    }
+
+    private String seedClass(int rosterSize) {
+        CourseClass cls = new CourseClass();
+        cls.setName("Absences");
+        cls.setCode(prefix);
+        String classId = classRepo.save(cls).getId();
+        classIds.add(classId);
+
+        List<Object[]> students = new ArrayList<>(rosterSize);
+        List<Object[]> roster = new ArrayList<>(rosterSize);
+        for (int i = 0; i < rosterSize; i++) {
+            String externalId = prefix + i;
+            students.add(new Object[]{UUID.randomUUID().toString(), externalId, "First" + i, "Last" + i, i + "@example.edu"});
+            roster.add(new Object[]{UUID.randomUUID().toString(), classId, externalId});
+        }
+        jdbc.batchUpdate("INSERT INTO students (id, external_id, first_name, last_name, email) VALUES (?, ?, ?, ?, ?)"
+                + " ON CONFLICT (external_id) DO NOTHING", students);
+        jdbc.batchUpdate("INSERT INTO course_class_roster (id, course_class_id, student_external_id) VALUES (?, ?, ?)",
+                roster);
+        // plan FK checks and joins against realistic statistics, as autovacuum would
+        jdbc.execute("ANALYZE students, course_class_roster");
+        return classId;
+    }
+
+    private MlRecognizedStudent recognized(int student) {
+        MlRecognizedStudent r = new MlRecognizedStudent();
+        r.setStudentId(prefix + student);
+        r.setConfidence(0.8);
+        return r;
+    }
+}
@@ -0,0 +1,209 @@
+package com.ml_vision.ml_vision_backend.services;
+
+import com.ml_vision.ml_vision_backend.dto.AttendanceRecordResponse;
+import com.ml_vision.ml_vision_backend.dto.MlRecognizedStudent;
+import com.ml_vision.ml_vision_backend.entities.AttendanceRecord;
+import com.ml_vision.ml_vision_backend.entities.AttendanceStatus;
+import com.ml_vision.ml_vision_backend.entities.CourseClass;
+import com.ml_vision.ml_vision_backend.entities.CourseClassRoster;
+import com.ml_vision.ml_vision_backend.entities.Student;
+import com.ml_vision.ml_vision_backend.repositories.AttendanceJdbcRepository;
+import com.ml_vision.ml_vision_backend.repositories.AttendanceRecordRepository;
+import com.ml_vision.ml_vision_backend.repositories.CourseClassRepository;
+import com.ml_vision.ml_vision_backend.repositories.CourseClassRosterRepository;
+import com.ml_vision.ml_vision_backend.repositories.StudentRepository;
+import com.ml_vision.ml_vision_backend.support.StatementCounter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Import(StatementCounter.Config.class)
+class AttendanceBatchIngestionTests {
+
+    @Autowired
+    private AttendanceService attendanceService;
+    @Autowired
+    private RosterService rosterService;
+    @Autowired
+    private CourseClassRepository classRepo;
+    @Autowired
+    private StudentRepository studentRepo;
+    @Autowired
+    private CourseClassRosterRepository rosterRepo;
+    @Autowired
+    private AttendanceRecordRepository recordRepo;
+    @Autowired
+    private AttendanceJdbcRepository attendanceJdbc;
+    @Autowired
+    private JdbcTemplate jdbc;
+    @Autowired
+    private StatementCounter statements;
+
+    private CourseClass courseClass;
+    private final List<Student> students = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        CourseClass cls = new CourseClass();
+        cls.setName("Batch ingestion");
+        cls.setCode("BATCH-" + UUID.randomUUID());
+        courseClass = classRepo.save(cls);
+
+        for (int i = 0; i < 60; i++) {
+            Student s = studentRepo.save(Student.builder()
+                    .externalId("batch-" + UUID.randomUUID())
+                    .firstName("First" + i)
+                    .lastName("Last" + i)
+                    .email("s" + i + "@example.edu")
+                    .build());
+            students.add(s);
+            rosterRepo.save(new CourseClassRoster(null, courseClass, s));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.update("DELETE FROM attendance_record WHERE course_class_id = ?", courseClass.getId());
+        rosterRepo.deleteAll(rosterRepo.findByCourseClassId(courseClass.getId()));
+        studentRepo.deleteAll(students);
+        classRepo.delete(courseClass);
+    }
+
+    @Test
+    void statementsPerBatchDoNotGrowWithBatchSize() {
+        statementsFor(1); // loads the roster into the RosterIndex
+        long small = statementsFor(5);
+        long large = statementsFor(50);
+
+        // warming the new session's presence bits, then the insert
+        assertThat(large).isEqualTo(small).isEqualTo(2);
+    }
+
+    @Test
+    void skipsUnknownUnrosteredAndAlreadyRecordedStudents() {
+        String sessionId = UUID.randomUUID().toString();
+        Student first = students.get(0);
+        attendanceService.recordBatch(courseClass.getId(), sessionId, null, List.of(recognized(first)));
+
+        Student second = students.get(1);
+        rosterService.removeStudent(courseClass.getId(), students.get(2).getExternalId());
+
+        MlRecognizedStudent unknown = new MlRecognizedStudent();
+        unknown.setStudentId("not-a-student");
+
+        List<AttendanceRecordResponse> saved = attendanceService.recordBatch(courseClass.getId(), sessionId, null, List.of(
+                recognized(first), recognized(second), recognized(second), recognized(students.get(2)), unknown));
+
+        assertThat(saved).extracting(AttendanceRecordResponse::getStudentExternalId)
+                .containsExactly(second.getExternalId());
+        assertThat(sessionRecords(sessionId))
+                .hasSize(2);
+    }
+
+    @Test
+    void steadyStateFramesForSeatedClassIssueNoStatements() {
+        String sessionId = UUID.randomUUID().toString();
+        List<MlRecognizedStudent> everyone = students.stream().map(this::recognized).toList();
+        assertThat(attendanceService.recordBatch(courseClass.getId(), sessionId, null, everyone)).hasSize(60);
+
+        statements.reset();
+        for (int frame = 0; frame < 10; frame++) {
+            assertThat(attendanceService.recordBatch(courseClass.getId(), sessionId, null, everyone)).isEmpty();
+        }
+        assertThat(statements.count()).isZero();
+    }
+
+    @Test
+    void recordWrittenElsewhereInTheSessionIsSkippedByTheConstraint() {
+        String sessionId = UUID.randomUUID().toString();
+        Student first = students.get(0);
+        attendanceService.recordBatch(courseClass.getId(), sessionId, null, List.of(recognized(students.get(1))));
+
+        // another instance records the student after this one warmed its presence bits
+        recordRepo.save(AttendanceRecord.builder()
+                .student(first).courseClass(courseClass).sessionId(sessionId)
+                .timestamp(LocalDateTime.now()).status(AttendanceStatus.PRESENT).confidence(0.7)
+                .build());
+
+        assertThat(attendanceService.recordBatch(courseClass.getId(), sessionId, null, List.of(recognized(first))))
+                .isEmpty();
+        assertThat(sessionRecords(sessionId))
+                .hasSize(2);
+    }
+
+    @Test
+    void concurrentBatchesForOneSessionRecordEachStudentOnce() throws Exception {
+        String sessionId = UUID.randomUUID().toString();
+        List<MlRecognizedStudent> everyone = students.stream().map(this::recognized).toList();
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<AttendanceRecordResponse>>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(pool.submit(() -> attendanceService.recordBatch(courseClass.getId(), sessionId, null, everyone)));
+            }
+            int total = 0;
+            for (Future<List<AttendanceRecordResponse>> result : results) {
+                total += result.get().size();
+            }
+            assertThat(total).isEqualTo(students.size());
+        } finally {
+            pool.shutdown();
+        }
+        assertThat(sessionRecords(sessionId))
+                .hasSize(students.size());
+    }
+
+    @Test
+    void picksUpRosterChangesMadeThroughRosterService() {
+        Student late = students.get(3);
+        rosterService.removeStudent(courseClass.getId(), late.getExternalId());
+        assertThat(attendanceService.recordBatch(courseClass.getId(), UUID.randomUUID().toString(), null,
+                List.of(recognized(late)))).isEmpty();
+
+        rosterService.addStudent(courseClass.getId(), late.getExternalId());
+        assertThat(attendanceService.recordBatch(courseClass.getId(), UUID.randomUUID().toString(), null,
+                List.of(recognized(late)))).hasSize(1);
+    }
+
+    private long statementsFor(int faces) {
+        List<MlRecognizedStudent> batch = students.subList(0, faces).stream()
+                .map(this::recognized)
+                .toList();
+
+        statements.reset();
+        List<AttendanceRecordResponse> saved = attendanceService.recordBatch(
+                courseClass.getId(), UUID.randomUUID().toString(), null, batch);
+        long count = statements.count();
+
+        assertThat(saved).hasSize(faces).allMatch(r -> r.getClassName().equals("Batch ingestion"));
+        return count;
+    }
+
+    private List<AttendanceRecordResponse> sessionRecords(String sessionId) {
+        return attendanceJdbc.findClassPage(courseClass.getId(), sessionId, null, students.size() + 1).getItems();
+    }
+
+    private MlRecognizedStudent recognized(Student student) {
+        MlRecognizedStudent r = new MlRecognizedStudent();
+        r.setStudentId(student.getExternalId());
+        r.setConfidence(0.9);
+        r.setPosition("0,0,0,0");
+        return r;
+    }
+}
@@ -0,0 +1,129 @@
+package com.ml_vision.ml_vision_backend.services;
+
+import com.ml_vision.ml_vision_backend.dto.AttendanceRecordResponse;
+import com.ml_vision.ml_vision_backend.dto.MlRecognizedStudent;
+import com.ml_vision.ml_vision_backend.entities.CourseClass;
+import com.ml_vision.ml_vision_backend.repositories.CourseClassRepository;
+import com.ml_vision.ml_vision_backend.support.StatementCounter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Each attendance read path, and batch ingestion, is one statement however many records it touches. */
+@SpringBootTest
+@Import(StatementCounter.Config.class)
+class AttendanceReadStatementsTests {
+
+    private static final ZoneId ZONE = ZoneId.of("America/New_York");
+
+    @Autowired
+    private AttendanceService attendanceService;
+    @Autowired
+    private CourseClassRepository classRepo;
+    @Autowired
+    private JdbcTemplate jdbc;
+    @Autowired
+    private RosterIndex rosterIndex;
+    @Autowired
+    private SessionPresenceTracker presenceTracker;
+    @Autowired
+    private StatementCounter statements;
+
+    private final String prefix = "reads-" + UUID.randomUUID() + "-";
+    private String classId;
+
+    @AfterEach
+    void tearDown() {
+        jdbc.update("DELETE FROM attendance_record WHERE course_class_id = ?", classId);
+        jdbc.update("DELETE FROM course_class_roster WHERE course_class_id = ?", classId);
+        jdbc.update("DELETE FROM course_classes WHERE id = ?", classId);
+        jdbc.update("DELETE FROM students WHERE external_id LIKE ?", prefix + "%");
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {5, 500})
+    void todaysRecordsAreOneStatement(int students) {
+        seed(students);
+
+        statements.reset();
+        List<AttendanceRecordResponse> today = attendanceService.getAttendanceForClassToday(classId, ZONE);
+
+        assertThat(statements.count()).isEqualTo(1);
+        assertThat(today).hasSize(students);
+        assertThat(today.get(0).getStudentName()).startsWith("First").contains(" Last");
+        assertThat(today.get(0).getClassName()).isEqualTo("Reads");
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {5, 500})
+    void historyPagesAndStreamsAreOneStatement(int students) {
+        seed(students);
+
+        statements.reset();
+        assertThat(attendanceService.getAttendancePage(classId, null, null, 1000).getItems()).hasSize(students);
+        assertThat(statements.count()).isEqualTo(1);
+
+        statements.reset();
+        List<AttendanceRecordResponse> streamed = new ArrayList<>();
+        attendanceService.streamAttendanceForClass(classId, null, streamed::add);
+        assertThat(statements.count()).isEqualTo(1);
+        assertThat(streamed).hasSize(students);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {5, 500})
+    void batchInsertsAndReturnsResponsesInOneStatement(int students) {
+        seed(students);
+        List<MlRecognizedStudent> everyone = new ArrayList<>();
+        for (int i = 0; i < students; i++) {
+            MlRecognizedStudent r = new MlRecognizedStudent();
+            r.setStudentId(prefix + i);
+            r.setConfidence(0.9);
+            everyone.add(r);
+        }
+        String sessionId = UUID.randomUUID().toString();
+        presenceTracker.get(classId, sessionId, rosterIndex.get(classId));
+
+        statements.reset();
+        List<AttendanceRecordResponse> responses = attendanceService.recordBatch(classId, sessionId, null, everyone);
+
+        assertThat(statements.count()).isEqualTo(1);
+        assertThat(responses).hasSize(students).allMatch(r -> r.getClassName().equals("Reads"));
+    }
+
+    private void seed(int students) {
+        CourseClass cls = new CourseClass();
+        cls.setName("Reads");
+        cls.setCode(prefix);
+        classId = classRepo.save(cls).getId();
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now(ZONE));
+        List<Object[]> rows = new ArrayList<>(students);
+        List<Object[]> roster = new ArrayList<>(students);
+        List<Object[]> records = new ArrayList<>(students);
+        for (int i = 0; i < students; i++) {
+            String studentId = UUID.randomUUID().toString();
+            rows.add(new Object[]{studentId, prefix + i, "First" + i, "Last" + i, i + "@example.edu"});
+            roster.add(new Object[]{UUID.randomUUID().toString(), classId, prefix + i});
+            records.add(new Object[]{UUID.randomUUID().toString(), studentId, classId, now});
+        }
+        jdbc.batchUpdate("INSERT INTO students (id, external_id, first_name, last_name, email) VALUES (?, ?, ?, ?, ?)", rows);
+        jdbc.batchUpdate("INSERT INTO course_class_roster (id, course_class_id, student_external_id) VALUES (?, ?, ?)",
+                roster);
+        jdbc.batchUpdate("INSERT INTO attendance_record (id, student_id, course_class_id, timestamp, status, confidence, session_id)"
+                + " VALUES (?, ?, ?, ?, 'PRESENT', 0.9, 'earlier')", records);
+    }
+}
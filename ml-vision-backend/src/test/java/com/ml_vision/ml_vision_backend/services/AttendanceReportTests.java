@@ -0,0 +1,171 @@
+package com.ml_vision.ml_vision_backend.services;
+
+import com.ml_vision.ml_vision_backend.dto.AttendanceReport;
+import com.ml_vision.ml_vision_backend.dto.AttendanceReportRow;
+import com.ml_vision.ml_vision_backend.dto.MlRecognizedStudent;
+import com.ml_vision.ml_vision_backend.entities.CourseClass;
+import com.ml_vision.ml_vision_backend.repositories.CourseClassRepository;
+import com.ml_vision.ml_vision_backend.services.AttendanceReportService.Grouping;
+import com.ml_vision.ml_vision_backend.support.StatementCounter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+// two classes per query, so three classes take two parallel chunks
+@SpringBootTest(properties = "attendance.reports.classes-per-query=2")
+@Import(StatementCounter.Config.class)
+class AttendanceReportTests {
+
+    private static final LocalDateTime MONDAY = LocalDateTime.of(2025, 9, 1, 9, 0);
+    private static final LocalDateTime TUESDAY = MONDAY.plusDays(1);
+
+    @Autowired
+    private AttendanceService attendanceService;
+    @Autowired
+    private AttendanceReportService reportService;
+    @Autowired
+    private CourseClassRepository classRepo;
+    @Autowired
+    private CourseClassService classService;
+    @Autowired
+    private JdbcTemplate jdbc;
+    @Autowired
+    private StatementCounter statements;
+
+    private final String prefix = "report-" + UUID.randomUUID() + "-";
+    private final List<String> classIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for (int c = 0; c < 3; c++) {
+            CourseClass cls = new CourseClass();
+            cls.setName("Report " + c);
+            cls.setCode(prefix + c);
+            String classId = classRepo.save(cls).getId();
+            classIds.add(classId);
+            for (int i = 0; i < 2; i++) {
+                String externalId = prefix + c + "-" + i;
+                jdbc.update("INSERT INTO students (id, external_id, first_name, last_name, email) VALUES (?, ?, ?, ?, ?)",
+                        UUID.randomUUID().toString(), externalId, "First", "Last" + i, externalId + "@example.edu");
+                jdbc.update("INSERT INTO course_class_roster (id, course_class_id, student_external_id) VALUES (?, ?, ?)",
+                        UUID.randomUUID().toString(), classId, externalId);
+            }
+        }
+        // class c: one Monday session with student 0 present, and for class 0 a Tuesday session too
+        for (int c = 0; c < 3; c++) {
+            holdSession(c, MONDAY, 0);
+        }
+        holdSession(0, TUESDAY, 0, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (String classId : classIds) {
+            jdbc.update("DELETE FROM attendance_record WHERE course_class_id = ?", classId);
+            jdbc.update("DELETE FROM course_class_roster WHERE course_class_id = ?", classId);
+            jdbc.update("DELETE FROM course_classes WHERE id = ?", classId);
+        }
+        jdbc.update("DELETE FROM students WHERE external_id LIKE ?", prefix + "%");
+    }
+
+    @Test
+    void groupsByClassAcrossChunks() {
+        AttendanceReport report = reportService.getReport(classIds, null, null, Grouping.CLASS);
+
+        assertThat(report.getClasses()).isEqualTo(3);
+        assertThat(report.getSessions()).isEqualTo(4);
+        assertThat(report.getPresent()).isEqualTo(5);
+        assertThat(report.getAbsent()).isEqualTo(3);
+        assertThat(report.getRows())
+                .extracting(AttendanceReportRow::getClassName, AttendanceReportRow::getSessions,
+                        AttendanceReportRow::getPresent, AttendanceReportRow::getAbsent)
+                .containsExactly(
+                        tuple("Report 0", 2, 3, 1),
+                        tuple("Report 1", 1, 1, 1),
+                        tuple("Report 2", 1, 1, 1));
+    }
+
+    @Test
+    void groupsByPeriodAndHonoursTheRange() {
+        assertThat(reportService.getReport(classIds, null, null, Grouping.DAY).getRows())
+                .extracting(AttendanceReportRow::getPeriod, AttendanceReportRow::getSessions,
+                        AttendanceReportRow::getPresent)
+                .containsExactly(
+                        tuple(MONDAY.toLocalDate(), 3, 3),
+                        tuple(TUESDAY.toLocalDate(), 1, 2));
+
+        // 2025-09-01 is a Monday, so both days fall in one week
+        assertThat(reportService.getReport(classIds, null, null, Grouping.WEEK).getRows())
+                .extracting(AttendanceReportRow::getPeriod, AttendanceReportRow::getSessions)
+                .containsExactly(tuple(MONDAY.toLocalDate(), 4));
+
+        AttendanceReport tuesday = reportService.getReport(classIds, TUESDAY.toLocalDate(), TUESDAY.toLocalDate(),
+                Grouping.CLASS);
+        assertThat(tuesday.getSessions()).isEqualTo(1);
+        assertThat(tuesday.getRows()).hasSize(3).filteredOn(r -> r.getSessions() == 0).hasSize(2);
+
+        assertThatThrownBy(() -> reportService.getReport(classIds, TUESDAY.toLocalDate(), MONDAY.toLocalDate(),
+                Grouping.CLASS)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void cachedReportsAreRecomputedOnlyWhenTheirClassesGetRecords() {
+        List<String> others = classIds.subList(1, 3);
+        reportService.getReport(classIds, null, null, Grouping.CLASS);
+        reportService.getReport(others, null, null, Grouping.CLASS);
+
+        statements.reset();
+        reportService.getReport(classIds, null, null, Grouping.CLASS);
+        reportService.getReport(List.of(classIds.get(2), classIds.get(1)), null, null, Grouping.CLASS);
+        assertThat(statements.count()).isZero();
+
+        holdSession(0, TUESDAY.plusHours(2), 1);
+
+        statements.reset();
+        assertThat(reportService.getReport(others, null, null, Grouping.CLASS).getSessions()).isEqualTo(2);
+        assertThat(statements.count()).isZero();
+        assertThat(reportService.getReport(classIds, null, null, Grouping.CLASS).getSessions()).isEqualTo(5);
+        assertThat(statements.count()).isPositive();
+    }
+
+    @Test
+    void renamingAClassRecomputesItsCachedReports() {
+        reportService.getReport(classIds, null, null, Grouping.CLASS);
+
+        CourseClass renamed = new CourseClass();
+        renamed.setName("Renamed");
+        renamed.setCode(prefix + 0);
+        classService.update(classIds.get(0), renamed);
+
+        assertThat(reportService.getReport(classIds, null, null, Grouping.CLASS).getRows())
+                .extracting(AttendanceReportRow::getClassName)
+                .containsExactly("Renamed", "Report 1", "Report 2");
+    }
+
+    private void holdSession(int classIndex, LocalDateTime startedAt, int... present) {
+        String classId = classIds.get(classIndex);
+        String sessionId = UUID.randomUUID().toString();
+        List<MlRecognizedStudent> recognized = new ArrayList<>();
+        for (int student : present) {
+            MlRecognizedStudent r = new MlRecognizedStudent();
+            r.setStudentId(prefix + classIndex + "-" + student);
+            r.setConfidence(0.9);
+            recognized.add(r);
+        }
+        attendanceService.recordBatch(classId, sessionId, startedAt, recognized);
+        attendanceService.markAbsences(classId, sessionId, startedAt);
+    }
+}
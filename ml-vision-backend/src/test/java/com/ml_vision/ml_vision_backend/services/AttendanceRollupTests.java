@@ -0,0 +1,156 @@
+package com.ml_vision.ml_vision_backend.services;
+
+import com.ml_vision.ml_vision_backend.dto.ClassAttendanceRollup;
+import com.ml_vision.ml_vision_backend.dto.DailyAttendanceRollup;
+import com.ml_vision.ml_vision_backend.dto.MlRecognizedStudent;
+import com.ml_vision.ml_vision_backend.dto.StudentAttendanceRollup;
+import com.ml_vision.ml_vision_backend.entities.CourseClass;
+import com.ml_vision.ml_vision_backend.repositories.CourseClassRepository;
+import com.ml_vision.ml_vision_backend.support.StatementCounter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest
+@Import(StatementCounter.Config.class)
+class AttendanceRollupTests {
+
+    private static final LocalDateTime MONDAY = LocalDateTime.of(2025, 9, 1, 9, 0);
+    private static final LocalDateTime TUESDAY = MONDAY.plusDays(1);
+
+    @Autowired
+    private AttendanceService attendanceService;
+    @Autowired
+    private AttendanceReportService reportService;
+    @Autowired
+    private CourseClassRepository classRepo;
+    @Autowired
+    private JdbcTemplate jdbc;
+    @Autowired
+    private StatementCounter statements;
+
+    private final String prefix = "rollup-" + UUID.randomUUID() + "-";
+    private String classId;
+
+    @BeforeEach
+    void setUp() {
+        CourseClass cls = new CourseClass();
+        cls.setName("Rollups");
+        cls.setCode(prefix);
+        classId = classRepo.save(cls).getId();
+
+        List<Object[]> students = new ArrayList<>();
+        List<Object[]> roster = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            students.add(new Object[]{UUID.randomUUID().toString(), prefix + i, "First" + i, "Last" + i, i + "@example.edu"});
+            roster.add(new Object[]{UUID.randomUUID().toString(), classId, prefix + i});
+        }
+        jdbc.batchUpdate("INSERT INTO students (id, external_id, first_name, last_name, email) VALUES (?, ?, ?, ?, ?)",
+                students);
+        jdbc.batchUpdate("INSERT INTO course_class_roster (id, course_class_id, student_external_id) VALUES (?, ?, ?)",
+                roster);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.update("DELETE FROM attendance_record WHERE course_class_id = ?", classId);
+        jdbc.update("DELETE FROM course_class_roster WHERE course_class_id = ?", classId);
+        jdbc.update("DELETE FROM course_classes WHERE id = ?", classId);
+        jdbc.update("DELETE FROM students WHERE external_id LIKE ?", prefix + "%");
+    }
+
+    @Test
+    void countersFollowIngestionAndFinalization() {
+        holdTwoSessions();
+
+        ClassAttendanceRollup rollup = reportService.getClassRollup(classId);
+        assertThat(rollup.getSessionsHeld()).isEqualTo(2);
+        assertThat(rollup.getPresent()).isEqualTo(3);
+        assertThat(rollup.getAbsent()).isEqualTo(5);
+        assertThat(rollup.getStudents()).extracting(StudentAttendanceRollup::getStudentExternalId,
+                        StudentAttendanceRollup::getSessions, StudentAttendanceRollup::getPresent,
+                        StudentAttendanceRollup::getAbsent)
+                .containsExactly(
+                        tuple(prefix + 0, 2, 2, 0),
+                        tuple(prefix + 1, 2, 1, 1),
+                        tuple(prefix + 2, 2, 0, 2),
+                        tuple(prefix + 3, 2, 0, 2));
+
+        assertThat(reportService.getDailyRollup(classId, null, null))
+                .extracting(DailyAttendanceRollup::getDay, DailyAttendanceRollup::getSessions,
+                        DailyAttendanceRollup::getPresent, DailyAttendanceRollup::getAbsent)
+                .containsExactly(
+                        tuple(MONDAY.toLocalDate(), 1, 2, 2),
+                        tuple(TUESDAY.toLocalDate(), 1, 1, 3));
+        assertThat(reportService.getDailyRollup(classId, TUESDAY.toLocalDate(), null)).hasSize(1);
+    }
+
+    @Test
+    void rebuildMatchesTheIncrementalCounters() {
+        holdTwoSessions();
+        ClassAttendanceRollup incremental = reportService.getClassRollup(classId);
+        List<DailyAttendanceRollup> days = reportService.getDailyRollup(classId, null, null);
+
+        assertThat(reportService.rebuildRollups(classId)).isEqualTo(8);
+
+        assertThat(reportService.getClassRollup(classId)).isEqualTo(incremental);
+        assertThat(reportService.getDailyRollup(classId, null, null)).isEqualTo(days);
+    }
+
+    @Test
+    void recordsWithoutRollupsAreBackfilledByRebuild() {
+        jdbc.update("""
+                INSERT INTO attendance_record (id, student_id, course_class_id, timestamp, status, confidence, session_id)
+                SELECT gen_random_uuid()::text, s.id, ?, ?, 'LATE', 0.9, 'imported'
+                FROM students s WHERE s.external_id LIKE ?
+                """, classId, MONDAY, prefix + "%");
+        assertThat(reportService.getClassRollup(classId).getStudents()).isEmpty();
+
+        reportService.rebuildRollups(classId);
+
+        ClassAttendanceRollup rollup = reportService.getClassRollup(classId);
+        assertThat(rollup.getSessionsHeld()).isEqualTo(1);
+        assertThat(rollup.getLate()).isEqualTo(4);
+        assertThat(rollup.getStudents()).hasSize(4).allMatch(s -> s.getSessions() == 1 && s.getLate() == 1);
+    }
+
+    /** The class report is a fixed number of statements however many records back it. */
+    @Test
+    void classRollupReadsDoNotScaleWithRecords() {
+        holdTwoSessions();
+
+        statements.reset();
+        reportService.getClassRollup(classId);
+
+        assertThat(statements.count()).isEqualTo(2);
+    }
+
+    private void holdTwoSessions() {
+        String monday = UUID.randomUUID().toString();
+        attendanceService.recordBatch(classId, monday, MONDAY, List.of(recognized(0), recognized(1)));
+        attendanceService.markAbsences(classId, monday, MONDAY);
+
+        String tuesday = UUID.randomUUID().toString();
+        attendanceService.recordBatch(classId, tuesday, TUESDAY, List.of(recognized(0)));
+        attendanceService.markAbsences(classId, tuesday, TUESDAY);
+    }
+
+    private MlRecognizedStudent recognized(int student) {
+        MlRecognizedStudent r = new MlRecognizedStudent();
+        r.setStudentId(prefix + student);
+        r.setConfidence(0.9);
+        return r;
+    }
+}
@@ -0,0 +1,141 @@
+package com.ml_vision.ml_vision_backend.services;
+
+import com.ml_vision.ml_vision_backend.MlVisionBackendApplication;
+import com.ml_vision.ml_vision_backend.dto.AttendanceRecordResponse;
+import com.ml_vision.ml_vision_backend.dto.MlRecognizedStudent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link AttendanceService#recordAttendance} and
+ * {@link AttendanceService#markAbsences} against the database from
+ * {@code application.yaml} (or a throwaway local Postgres named by
+ * {@code SPRING_DATASOURCE_URL}, which the forked JVMs inherit), for one
+ * class of {@code roster} students. Run with
+ * {@code mvn -Pbenchmarks verify -Djmh.include=AttendanceServiceBenchmark}.
+ * <ul>
+ * <li>{@code recordFirstSighting}: a student not yet recorded in the
+ * session, so one insert; every {@code roster} calls a new session starts
+ * and its presence bits are loaded.</li>
+ * <li>{@code recordAlreadyPresent}: a student already recorded, the
+ * steady state of a seated class; no statements.</li>
+ * <li>{@code markAbsences}: a new session nobody attended, so every
+ * rostered student is marked absent (the upper bound).</li>
+ * </ul>
+ * Records are deleted before each iteration so the table does not grow
+ * across the run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AttendanceServiceBenchmark {
+
+    private static final LocalDateTime STARTED_AT = LocalDateTime.of(2025, 9, 1, 9, 0);
+
+    @Param({"30", "300"})
+    int roster;
+
+    private ConfigurableApplicationContext context;
+    private AttendanceService attendance;
+    private JdbcTemplate jdbc;
+    private final String prefix = "bench-" + UUID.randomUUID().toString().substring(0, 8) + "-";
+    private String classId;
+    private List<MlRecognizedStudent> faces;
+    private String seatedSession;
+    private String firstSightingSession;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = new SpringApplicationBuilder(MlVisionBackendApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.jpa.show-sql=false", "attendance.write-behind.enabled=false")
+                .run();
+        attendance = context.getBean(AttendanceService.class);
+        jdbc = context.getBean(JdbcTemplate.class);
+
+        classId = prefix + "class";
+        jdbc.update("INSERT INTO course_classes (id, code, name) VALUES (?, ?, ?)", classId, prefix, "Benchmark");
+        List<Object[]> students = new ArrayList<>();
+        List<Object[]> enrollments = new ArrayList<>();
+        faces = new ArrayList<>();
+        for (int i = 0; i < roster; i++) {
+            students.add(new Object[]{UUID.randomUUID().toString(), prefix + i, "First" + i, "Last" + i,
+                    prefix + i + "@example.edu"});
+            enrollments.add(new Object[]{UUID.randomUUID().toString(), classId, prefix + i});
+            MlRecognizedStudent face = new MlRecognizedStudent();
+            face.setStudentId(prefix + i);
+            face.setConfidence(0.9);
+            faces.add(face);
+        }
+        jdbc.batchUpdate("INSERT INTO students (id, external_id, first_name, last_name, email) VALUES (?, ?, ?, ?, ?)",
+                students);
+        jdbc.batchUpdate("INSERT INTO course_class_roster (id, course_class_id, student_external_id) VALUES (?, ?, ?)",
+                enrollments);
+    }
+
+    @Setup(Level.Iteration)
+    public void clearRecords() {
+        jdbc.update("DELETE FROM attendance_record WHERE course_class_id = ?", classId);
+        seatedSession = UUID.randomUUID().toString();
+        attendance.recordBatch(classId, seatedSession, STARTED_AT, faces);
+        firstSightingSession = UUID.randomUUID().toString();
+        next = 0;
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        try {
+            jdbc.update("DELETE FROM attendance_record WHERE course_class_id = ?", classId);
+            jdbc.update("DELETE FROM course_class_roster WHERE course_class_id = ?", classId);
+            jdbc.update("DELETE FROM course_classes WHERE id = ?", classId);
+            jdbc.update("DELETE FROM students WHERE external_id LIKE ?", prefix + "%");
+        } finally {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public AttendanceRecordResponse recordFirstSighting() {
+        if (next == roster) {
+            firstSightingSession = UUID.randomUUID().toString();
+            next = 0;
+        }
+        return attendance.recordAttendance(classId, firstSightingSession, STARTED_AT, faces.get(next++));
+    }
+
+    @Benchmark
+    public AttendanceRecordResponse recordAlreadyPresent() {
+        next = next + 1 == roster ? 0 : next + 1;
+        return attendance.recordAttendance(classId, seatedSession, STARTED_AT, faces.get(next));
+    }
+
+    @Benchmark
+    public List<AttendanceRecordResponse> markAbsences() {
+        return attendance.markAbsences(classId, UUID.randomUUID().toString(), STARTED_AT);
+    }
+}
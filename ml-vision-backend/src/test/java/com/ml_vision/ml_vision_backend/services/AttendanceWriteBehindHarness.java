@@ -0,0 +1,122 @@
+package com.ml_vision.ml_vision_backend.services;
+
+import com.ml_vision.ml_vision_backend.MlVisionBackendApplication;
+import com.ml_vision.ml_vision_backend.dto.MlRecognizedStudent;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Ingest throughput and acknowledgement latency of the synchronous
+ * {@link AttendanceService#recordBatch} path against the write-behind path
+ * ({@link AttendanceService#submitBatch} with {@code attendance.write-behind.enabled}).
+ * Each of {@code threads} callers submits {@code calls} single-face batches,
+ * every one for a new session, so each call creates exactly one record: the
+ * tiny-transaction-per-call load the write-behind buffer is meant for. Needs
+ * the database from {@code application.yaml}; after {@code mvn test-compile},
+ * run {@code java -cp <test classpath> com.ml_vision.ml_vision_backend.services.AttendanceWriteBehindHarness
+ * [threads] [calls] [fsync]}.
+ * <p>
+ * For write-behind, "visible" is the time until the last record is in the
+ * database ({@link AttendanceWriteBehind#awaitFlushed}); for the synchronous
+ * path it equals the ingest time.
+ */
+public class AttendanceWriteBehindHarness {
+
+    private static final int ROSTER = 40;
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        int calls = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        boolean fsync = args.length <= 2 || Boolean.parseBoolean(args[2]);
+
+        System.out.printf("threads=%d calls/thread=%d fsync=%s%n%n", threads, calls, fsync);
+        System.out.printf("%-14s %12s %10s %10s %10s %12s%n", "mode", "records/s", "p50 ms", "p99 ms", "p999 ms",
+                "visible ms");
+        for (boolean writeBehind : new boolean[]{false, true}) {
+            try (ConfigurableApplicationContext context = new SpringApplicationBuilder(MlVisionBackendApplication.class)
+                    .web(WebApplicationType.NONE)
+                    .properties(
+                            "spring.jpa.show-sql=false",
+                            "attendance.write-behind.enabled=" + writeBehind,
+                            "attendance.write-behind.fsync=" + fsync,
+                            "attendance.write-behind.dir=target/write-behind-harness")
+                    .run()) {
+                run(context, writeBehind ? "write-behind" : "synchronous", threads, calls);
+            }
+        }
+    }
+
+    private static void run(ConfigurableApplicationContext context, String mode, int threads, int calls)
+            throws Exception {
+        AttendanceService attendance = context.getBean(AttendanceService.class);
+        AttendanceWriteBehind writeBehind = context.getBean(AttendanceWriteBehind.class);
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        String prefix = "harness-" + UUID.randomUUID().toString().substring(0, 8) + "-";
+        String classId = prefix + "class";
+        jdbc.update("INSERT INTO course_classes (id, code, name) VALUES (?, ?, ?)", classId, prefix, "Harness");
+        for (int i = 0; i < ROSTER; i++) {
+            jdbc.update("INSERT INTO students (id, external_id, first_name, last_name, email) VALUES (?, ?, ?, ?, ?)",
+                    UUID.randomUUID().toString(), prefix + i, "First", "Last" + i, prefix + i + "@example.edu");
+            jdbc.update("INSERT INTO course_class_roster (id, course_class_id, student_external_id) VALUES (?, ?, ?)",
+                    UUID.randomUUID().toString(), classId, prefix + i);
+        }
+        try {
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            long[] latencies = new long[threads * calls];
+            LocalDateTime startedAt = LocalDateTime.now();
+            long started = System.nanoTime();
+            List<Future<?>> callers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                callers.add(pool.submit(() -> {
+                    for (int c = 0; c < calls; c++) {
+                        MlRecognizedStudent face = new MlRecognizedStudent();
+                        face.setStudentId(prefix + (c % ROSTER));
+                        face.setConfidence(0.9);
+                        long call = System.nanoTime();
+                        attendance.submitBatch(classId, UUID.randomUUID().toString(), startedAt, List.of(face));
+                        latencies[thread * calls + c] = System.nanoTime() - call;
+                    }
+                }));
+            }
+            for (Future<?> caller : callers) {
+                caller.get();
+            }
+            long ingested = System.nanoTime() - started;
+            writeBehind.awaitFlushed();
+            long visible = System.nanoTime() - started;
+            pool.shutdown();
+
+            Integer written = jdbc.queryForObject("SELECT count(*) FROM attendance_record WHERE course_class_id = ?",
+                    Integer.class, classId);
+            if (written == null || written != threads * calls) {
+                throw new IllegalStateException("expected " + threads * calls + " records, found " + written);
+            }
+            Arrays.sort(latencies);
+            System.out.printf("%-14s %12.0f %10.3f %10.3f %10.3f %12d%n", mode,
+                    latencies.length / (ingested / 1e9),
+                    percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 0.999),
+                    visible / 1_000_000);
+        } finally {
+            jdbc.update("DELETE FROM attendance_record WHERE course_class_id = ?", classId);
+            jdbc.update("DELETE FROM course_class_roster WHERE course_class_id = ?", classId);
+            jdbc.update("DELETE FROM course_classes WHERE id = ?", classId);
+            jdbc.update("DELETE FROM students WHERE external_id LIKE ?", prefix + "%");
+        }
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)] / 1e6;
+    }
+}
@@ -0,0 +1,185 @@
+package com.ml_vision.ml_vision_backend.services;
+
+import com.ml_vision.ml_vision_backend.dto.AttendanceRecordResponse;
+import com.ml_vision.ml_vision_backend.dto.MlRecognizedStudent;
+import com.ml_vision.ml_vision_backend.dto.PendingAttendance;
+import com.ml_vision.ml_vision_backend.entities.AttendanceStatus;
+import com.ml_vision.ml_vision_backend.entities.CourseClass;
+import com.ml_vision.ml_vision_backend.repositories.AttendanceJdbcRepository;
+import com.ml_vision.ml_vision_backend.repositories.CourseClassRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+// the writer only runs when asked to (awaitFlushed), so the tests see exactly what is buffered
+@SpringBootTest(properties = {
+        "attendance.write-behind.enabled=true",
+        "attendance.write-behind.dir=target/write-behind-tests",
+        "attendance.write-behind.flush-interval=PT1H"})
+class AttendanceWriteBehindTests {
+
+    private static final LocalDateTime STARTED_AT = LocalDateTime.of(2025, 9, 1, 9, 0);
+
+    @Autowired
+    private AttendanceService attendanceService;
+    @Autowired
+    private AttendanceWriteBehind writeBehind;
+    @Autowired
+    private AttendanceJdbcRepository attendanceJdbc;
+    @Autowired
+    private AttendanceReportService reportService;
+    @Autowired
+    private CourseClassRepository classRepo;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    private final String prefix = "write-behind-" + UUID.randomUUID() + "-";
+    private String classId;
+
+    @BeforeEach
+    void setUp() {
+        CourseClass cls = new CourseClass();
+        cls.setName("Write-behind");
+        cls.setCode(prefix);
+        classId = classRepo.save(cls).getId();
+
+        List<Object[]> students = new ArrayList<>();
+        List<Object[]> roster = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            students.add(new Object[]{UUID.randomUUID().toString(), prefix + i, "First" + i, "Last" + i, i + "@example.edu"});
+            roster.add(new Object[]{UUID.randomUUID().toString(), classId, prefix + i});
+        }
+        jdbc.batchUpdate("INSERT INTO students (id, external_id, first_name, last_name, email) VALUES (?, ?, ?, ?, ?)",
+                students);
+        jdbc.batchUpdate("INSERT INTO course_class_roster (id, course_class_id, student_external_id) VALUES (?, ?, ?)",
+                roster);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.update("DELETE FROM attendance_record WHERE course_class_id = ?", classId);
+        jdbc.update("DELETE FROM course_class_roster WHERE course_class_id = ?", classId);
+        jdbc.update("DELETE FROM course_classes WHERE id = ?", classId);
+        jdbc.update("DELETE FROM students WHERE external_id LIKE ?", prefix + "%");
+    }
+
+    @Test
+    void acknowledgesBeforeWritingAndWritesEachStudentOnce() {
+        String session = UUID.randomUUID().toString();
+        assertThat(attendanceService.submitBatch(classId, session, STARTED_AT,
+                List.of(recognized(0), recognized(1), recognized(0)))).isEmpty();
+        assertThat(attendanceService.submitBatch(classId, session, STARTED_AT,
+                List.of(recognized(1), recognized(2)))).isEmpty();
+        assertThat(records()).isZero();
+
+        writeBehind.awaitFlushed();
+
+        assertThat(records()).isEqualTo(3);
+        assertThat(reportService.getClassRollup(classId).getPresent()).isEqualTo(3);
+    }
+
+    @Test
+    void finalizingASessionWritesItsBufferedStudentsFirst() {
+        String session = UUID.randomUUID().toString();
+        attendanceService.submitBatch(classId, session, STARTED_AT, List.of(recognized(0)));
+
+        List<AttendanceRecordResponse> absent = attendanceService.markAbsences(classId, session, STARTED_AT);
+
+        assertThat(absent).extracting(AttendanceRecordResponse::getStudentExternalId)
+                .containsExactlyInAnyOrder(prefix + 1, prefix + 2, prefix + 3);
+        assertThat(jdbc.queryForList("SELECT status FROM attendance_record WHERE course_class_id = ? AND student_id ="
+                + " (SELECT id FROM students WHERE external_id = ?)", String.class, classId, prefix + 0))
+                .containsExactly("PRESENT");
+    }
+
+    @Test
+    void recordsTheDatabaseRejectsDoNotHoldBackTheRest() {
+        CourseClass gone = new CourseClass();
+        gone.setName("Deleted");
+        gone.setCode(prefix + "gone");
+        String goneId = classRepo.save(gone).getId();
+        jdbc.update("INSERT INTO course_class_roster (id, course_class_id, student_external_id) VALUES (?, ?, ?)",
+                UUID.randomUUID().toString(), goneId, prefix + 0);
+        String session = UUID.randomUUID().toString();
+        attendanceService.submitBatch(goneId, session, STARTED_AT, List.of(recognized(0)));
+        jdbc.update("DELETE FROM course_class_roster WHERE course_class_id = ?", goneId);
+        jdbc.update("DELETE FROM course_classes WHERE id = ?", goneId);
+
+        MlRecognizedStudent oversized = recognized(1);
+        oversized.setPosition("x".repeat(300));
+        attendanceService.submitBatch(classId, session, STARTED_AT, List.of(recognized(0), oversized, recognized(2)));
+        double deadLettered = meterRegistry.counter("attendance.write-behind.dead-lettered").count();
+
+        writeBehind.awaitFlushed();
+
+        assertThat(records()).isEqualTo(2);
+        assertThat(meterRegistry.counter("attendance.write-behind.dead-lettered").count())
+                .isEqualTo(deadLettered + 1);
+    }
+
+    @Test
+    void aDeadLetteredStudentIsRecordedOnTheirNextDetection() {
+        String session = UUID.randomUUID().toString();
+        MlRecognizedStudent oversized = recognized(1);
+        oversized.setPosition("x".repeat(300));
+        attendanceService.submitBatch(classId, session, STARTED_AT, List.of(oversized));
+        writeBehind.awaitFlushed();
+        assertThat(records()).isZero();
+
+        attendanceService.submitBatch(classId, session, STARTED_AT, List.of(recognized(1)));
+        writeBehind.awaitFlushed();
+
+        assertThat(records()).isEqualTo(1);
+    }
+
+    /** What replaying a log segment after a crash amounts to: the same entries inserted again. */
+    @Test
+    void writingTheSameEntriesAgainCreatesNothing() {
+        String session = UUID.randomUUID().toString();
+        List<PendingAttendance> entries = List.of(pending(session, 0), pending(session, 1), pending(session, 0));
+
+        assertThat(attendanceJdbc.insertPending(entries))
+                .extracting(AttendanceRecordResponse::getStudentExternalId, AttendanceRecordResponse::getStatus)
+                .containsExactly(tuple(prefix + 0, AttendanceStatus.PRESENT), tuple(prefix + 1, AttendanceStatus.PRESENT));
+        assertThat(attendanceJdbc.insertPending(entries)).isEmpty();
+        assertThat(reportService.getClassRollup(classId).getPresent()).isEqualTo(2);
+    }
+
+    private int records() {
+        Integer count = jdbc.queryForObject("SELECT count(*) FROM attendance_record WHERE course_class_id = ?",
+                Integer.class, classId);
+        return count != null ? count : 0;
+    }
+
+    private PendingAttendance pending(String session, int student) {
+        return PendingAttendance.builder()
+                .classId(classId)
+                .sessionId(session)
+                .sessionStartedAt(STARTED_AT)
+                .timestamp(STARTED_AT.plusMinutes(student))
+                .studentExternalId(prefix + student)
+                .confidence(0.9)
+                .build();
+    }
+
+    private MlRecognizedStudent recognized(int student) {
+        MlRecognizedStudent r = new MlRecognizedStudent();
+        r.setStudentId(prefix + student);
+        r.setConfidence(0.9);
+        return r;
+    }
+}
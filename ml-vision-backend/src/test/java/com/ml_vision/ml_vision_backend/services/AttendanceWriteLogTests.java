@@ -0,0 +1,106 @@
+package com.ml_vision.ml_vision_backend.services;
+
+import com.ml_vision.ml_vision_backend.dto.PendingAttendance;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AttendanceWriteLogTests {
+
+    private static final LocalDateTime STARTED_AT = LocalDateTime.of(2025, 9, 1, 9, 0);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replaysWhatWasNotDeletedAndKeepsNumberingSegments() throws IOException {
+        AttendanceWriteLog log = new AttendanceWriteLog(dir, true);
+        assertThat(log.replay()).isEmpty();
+        log.append(List.of(record("s1", 0.9, "10,20"), record("s2", 0.8, null)), () -> { });
+        long first = log.rotate(() -> { });
+        log.append(List.of(record("s3", 0.7, null)), () -> { });
+        log.delete(first);
+        log.close();
+
+        AttendanceWriteLog reopened = new AttendanceWriteLog(dir, true);
+        assertThat(reopened.replay()).containsExactly(record("s3", 0.7, null));
+        long next = reopened.rotate(() -> { });
+        assertThat(next).isGreaterThan(first + 1);
+        reopened.delete(next);
+        reopened.close();
+
+        assertThat(new AttendanceWriteLog(dir, true).replay()).isEmpty();
+    }
+
+    @Test
+    void ignoresARecordTornByACrash() throws IOException {
+        AttendanceWriteLog log = new AttendanceWriteLog(dir, true);
+        log.replay();
+        log.append(List.of(record("s1", 0.9, null)), () -> { });
+        log.close();
+        Path segment;
+        try (Stream<Path> files = Files.list(dir)) {
+            segment = files.filter(p -> p.toString().endsWith(".wal")).findFirst().orElseThrow();
+        }
+        ByteBuffer torn = AttendanceWriteLog.encode(List.of(record("s2", 0.9, null)));
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(torn.limit(torn.limit() - 3));
+        }
+
+        assertThat(new AttendanceWriteLog(dir, true).replay()).containsExactly(record("s1", 0.9, null));
+    }
+
+    @Test
+    void concurrentAppendsAreAllDurableAndSeenByTheRotationThatFollowsThem() throws Exception {
+        AttendanceWriteLog log = new AttendanceWriteLog(dir, true);
+        log.replay();
+        AtomicInteger accepted = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> appends = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+                String student = "s" + i;
+                appends.add(pool.submit(() -> log.append(List.of(record(student, 0.9, null)), accepted::incrementAndGet)));
+            }
+            for (Future<?> append : appends) {
+                append.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        int[] drained = new int[1];
+        log.rotate(() -> drained[0] = accepted.get());
+        log.close();
+
+        assertThat(drained[0]).isEqualTo(400);
+        assertThat(new AttendanceWriteLog(dir, true).replay()).hasSize(400);
+    }
+
+    private static PendingAttendance record(String student, double confidence, String position) {
+        return PendingAttendance.builder()
+                .classId("class-1")
+                .sessionId("session-1")
+                .sessionStartedAt(STARTED_AT)
+                .timestamp(STARTED_AT.plusMinutes(1))
+                .studentExternalId(student)
+                .confidence(confidence)
+                .position(position)
+                .build();
+    }
+}
@@ -0,0 +1,56 @@
+package com.ml_vision.ml_vision_backend.services;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Startup cost of {@link EmbeddingStore}: the time to read {@code students}
+ * encodings back through the mapped file, best of {@code rounds}, against
+ * minutes to re-decode and re-encode as many roster photos. After
+ * {@code mvn test-compile}, run
+ * {@code java -cp <test classpath> com.ml_vision.ml_vision_backend.services.EmbeddingStoreLoadHarness
+ * [students] [rounds]}.
+ */
+public class EmbeddingStoreLoadHarness {
+
+    public static void main(String[] args) throws Exception {
+        int students = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        Random random = new Random(11);
+
+        Path dir = Files.createTempDirectory("embedding-store-harness");
+        Path file = dir.resolve("faces.bin");
+        try {
+            EmbeddingStore store = new EmbeddingStore(file.toString());
+            store.load();
+            byte[] hash = new byte[EmbeddingStore.PHOTO_HASH_BYTES];
+            for (int i = 0; i < students; i++) {
+                float[] encoding = new float[FaceGallery.DIMENSIONS];
+                for (int d = 0; d < encoding.length; d++) {
+                    encoding[d] = (float) random.nextGaussian() * 0.1f;
+                }
+                random.nextBytes(hash);
+                store.append("s" + i, hash, encoding);
+            }
+            store.close();
+
+            System.out.printf("%-10s %12s %10s%n", "students", "bytes", "load ms");
+            long best = Long.MAX_VALUE;
+            for (int round = 0; round < rounds; round++) {
+                EmbeddingStore reopened = new EmbeddingStore(file.toString());
+                long started = System.nanoTime();
+                int loaded = reopened.load().size();
+                best = Math.min(best, System.nanoTime() - started);
+                reopened.close();
+                if (loaded != students) {
+                    throw new IllegalStateException("loaded " + loaded + " of " + students + " encodings");
+                }
+            }
+            System.out.printf("%-10d %12d %10.1f%n", students, Files.size(file), best / 1e6);
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(dir);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.ml_vision.ml_vision_backend.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class EmbeddingStoreTests {
+
+    private final Random random = new Random(11);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void reloadsTheLatestEncodingPerStudentAndDropsRemovedOnes() throws IOException {
+        Path file = dir.resolve("faces.bin");
+        EmbeddingStore store = new EmbeddingStore(file.toString());
+        assertThat(store.load()).isEmpty();
+        float[] first = randomEncoding();
+        float[] second = randomEncoding();
+        byte[] hash = hash(7);
+        store.append("a1", hash(1), first);
+        store.append("a1", hash, second);
+        store.append("b2", null, randomEncoding());
+        store.appendTombstone("b2");
+        store.close();
+
+        Map<String, EmbeddingStore.Entry> entries = new EmbeddingStore(file.toString()).load();
+
+        assertThat(entries).containsOnlyKeys("a1");
+        assertThat(entries.get("a1").encoding()).containsExactly(second);
+        assertThat(entries.get("a1").photoHash()).containsExactly(hash);
+    }
+
+    @Test
+    void truncatesARecordTornByACrashAndKeepsAppending() throws IOException {
+        Path file = dir.resolve("faces.bin");
+        EmbeddingStore store = new EmbeddingStore(file.toString());
+        store.load();
+        store.append("a1", hash(1), randomEncoding());
+        store.close();
+        long intact = Files.size(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(EmbeddingStore.record("b2", hash(2), randomEncoding()).limit(100));
+        }
+
+        EmbeddingStore reopened = new EmbeddingStore(file.toString());
+        assertThat(reopened.load()).containsOnlyKeys("a1");
+        assertThat(Files.size(file)).isEqualTo(intact);
+        reopened.append("c3", hash(3), randomEncoding());
+        reopened.close();
+
+        assertThat(new EmbeddingStore(file.toString()).load()).containsOnlyKeys("a1", "c3");
+    }
+
+    @Test
+    void compactsSupersededRecordsOnLoad() throws IOException {
+        Path file = dir.resolve("faces.bin");
+        EmbeddingStore store = new EmbeddingStore(file.toString());
+        store.load();
+        for (int i = 0; i < 100; i++) {
+            store.append("a1", hash(i), randomEncoding());
+        }
+        store.append("b2", hash(1), randomEncoding());
+        store.close();
+        long before = Files.size(file);
+
+        EmbeddingStore reopened = new EmbeddingStore(file.toString());
+        assertThat(reopened.load()).containsOnlyKeys("a1", "b2");
+
+        assertThat(Files.size(file)).isLessThan(before / 10);
+        assertThat(reopened.snapshot().length()).isEqualTo(Files.size(file));
+        reopened.close();
+        assertThat(new EmbeddingStore(file.toString()).load()).containsOnlyKeys("a1", "b2");
+    }
+
+    @Test
+    void rejectsFilesThatAreNotAStore() throws IOException {
+        Path file = dir.resolve("faces.bin");
+        Files.write(file, new byte[64]);
+
+        assertThatThrownBy(() -> new EmbeddingStore(file.toString()).load())
+                .hasMessageContaining("Failed to load face embedding store");
+    }
+
+    @Test
+    void galleryWarmStartsFromTheStore() throws IOException {
+        Path file = dir.resolve("faces.bin");
+        float[] alice = randomEncoding();
+        FaceGallery gallery = gallery(file);
+        gallery.put("a1", alice, "ab".repeat(32));
+        gallery.put("b2", randomEncoding());
+        gallery.remove("b2");
+        assertThatThrownBy(() -> gallery.put("c3", randomEncoding(), "not-a-hash"))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        FaceGallery restarted = gallery(file);
+
+        assertThat(restarted.campusIndex().size()).isEqualTo(1);
+        assertThat(restarted.campusIndex().nearest(alice)).hasValueSatisfying(n -> assertThat(n.label()).isEqualTo("a1"));
+    }
+
+    /** Timing of the same load lives in {@link EmbeddingStoreLoadHarness}. */
+    @Test
+    void reloadsFiveThousandEncodings() throws IOException {
+        Path file = dir.resolve("faces.bin");
+        EmbeddingStore store = new EmbeddingStore(file.toString());
+        store.load();
+        float[] last = null;
+        for (int i = 0; i < 5_000; i++) {
+            last = randomEncoding();
+            store.append("s" + i, hash(i), last);
+        }
+        store.close();
+
+        Map<String, EmbeddingStore.Entry> entries = new EmbeddingStore(file.toString()).load();
+
+        assertThat(entries).hasSize(5_000);
+        assertThat(entries.get("s4999").encoding()).containsExactly(last);
+        assertThat(entries.get("s4999").photoHash()).containsExactly(hash(4999));
+    }
+
+    private FaceGallery gallery(Path file) {
+        return new FaceGallery(mock(RosterIndex.class), new EmbeddingStore(file.toString()),
+                new SimpleMeterRegistry(), 10, Duration.ofMinutes(5), 16, 100, 64);
+    }
+
+    private float[] randomEncoding() {
+        float[] encoding = new float[FaceGallery.DIMENSIONS];
+        for (int i = 0; i < encoding.length; i++) {
+            encoding[i] = (float) random.nextGaussian() * 0.1f;
+        }
+        return encoding;
+    }
+
+    private static byte[] hash(int seed) {
+        byte[] hash = new byte[EmbeddingStore.PHOTO_HASH_BYTES];
+        new Random(seed).nextBytes(hash);
+        return hash;
+    }
+}
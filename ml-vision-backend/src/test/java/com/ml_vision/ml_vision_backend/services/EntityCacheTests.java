@@ -0,0 +1,112 @@
+package com.ml_vision.ml_vision_backend.services;
+
+import com.ml_vision.ml_vision_backend.entities.CourseClass;
+import com.ml_vision.ml_vision_backend.entities.Student;
+import com.ml_vision.ml_vision_backend.repositories.CourseClassRepository;
+import com.ml_vision.ml_vision_backend.repositories.StudentRepository;
+import com.ml_vision.ml_vision_backend.support.StatementCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/** Student and class lookups are served from the second-level cache and follow writes. */
+@SpringBootTest
+@Import(StatementCounter.Config.class)
+class EntityCacheTests {
+
+    @Autowired
+    private StudentRepository studentRepo;
+    @Autowired
+    private CourseClassRepository classRepo;
+    @Autowired
+    private StudentService studentService;
+    @Autowired
+    private CourseClassService classService;
+    @Autowired
+    private EntityCaches entityCaches;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private JdbcTemplate jdbc;
+    @Autowired
+    private StatementCounter statements;
+
+    private final String prefix = "cache-" + UUID.randomUUID() + "-";
+    private Student student;
+    private String classId;
+
+    @BeforeEach
+    void setUp() {
+        CourseClass cls = new CourseClass();
+        cls.setName("Cached");
+        cls.setCode(prefix);
+        classId = classRepo.save(cls).getId();
+        student = studentRepo.save(Student.builder()
+                .externalId(prefix + 0).firstName("First").lastName("Last").email("cache@example.edu").build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbc.update("DELETE FROM student_changes WHERE external_id LIKE ?", prefix + "%");
+        classRepo.deleteById(classId);
+        jdbc.update("DELETE FROM students WHERE external_id LIKE ?", prefix + "%");
+        entityCaches.evictStudents();
+    }
+
+    @Test
+    void repeatedLookupsIssueNoStatements() {
+        assertThat(studentRepo.findByExternalId(prefix + 0)).isPresent();
+        assertThat(classRepo.findById(classId)).isPresent();
+
+        statements.reset();
+        for (int i = 0; i < 10; i++) {
+            assertThat(studentRepo.findByExternalId(prefix + 0)).get().extracting(Student::getId).isEqualTo(student.getId());
+            assertThat(studentRepo.findById(student.getId())).isPresent();
+            assertThat(classRepo.findById(classId)).get().extracting(CourseClass::getName).isEqualTo("Cached");
+        }
+
+        assertThat(statements.count()).isZero();
+        assertThat(meterRegistry.get("attendance.entity-cache.hit-ratio")
+                .tag("region", EntityCaches.STUDENTS_BY_EXTERNAL_ID).gauge().value()).isPositive();
+    }
+
+    @Test
+    void lookupsFollowWritesThroughTheServices() {
+        studentRepo.findByExternalId(prefix + 0);
+        classRepo.findById(classId);
+
+        studentService.updateStudent(student.getId(), "Renamed", "Last", prefix + 1, "cache@example.edu", null);
+        CourseClass renamed = new CourseClass();
+        renamed.setName("Renamed");
+        renamed.setCode(prefix);
+        classService.update(classId, renamed);
+
+        assertThat(studentRepo.findByExternalId(prefix + 0)).isEmpty();
+        assertThat(studentRepo.findByExternalId(prefix + 1)).get().extracting(Student::getFirstName).isEqualTo("Renamed");
+        assertThat(classRepo.findById(classId)).get().extracting(CourseClass::getName).isEqualTo("Renamed");
+
+        studentService.deleteStudent(student.getId());
+        assertThat(studentRepo.findByExternalId(prefix + 1)).isEmpty();
+        assertThat(studentRepo.findById(student.getId())).isEmpty();
+    }
+
+    @Test
+    void sqlWritesShowUpOnceEvicted() {
+        studentRepo.findByExternalId(prefix + 0);
+        jdbc.update("UPDATE students SET first_name = 'Imported' WHERE id = ?", student.getId());
+        assertThat(studentRepo.findByExternalId(prefix + 0)).get().extracting(Student::getFirstName).isEqualTo("First");
+
+        entityCaches.evictStudents();
+
+        assertThat(studentRepo.findByExternalId(prefix + 0)).get().extracting(Student::getFirstName).isEqualTo("Imported");
+    }
+}
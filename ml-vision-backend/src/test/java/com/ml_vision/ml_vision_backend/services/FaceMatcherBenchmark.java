@@ -0,0 +1,65 @@
+package com.ml_vision.ml_vision_backend.services;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Brute-force gallery scan cost per query face. Run with
+ * {@code mvn -Pbenchmarks verify -Djmh.include=FaceMatcherBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FaceMatcherBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    int identities;
+
+    private float[] vectors;
+    private float[][] queries;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(7);
+        vectors = new float[identities * FaceGallery.DIMENSIONS];
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = (float) random.nextGaussian() * 0.1f;
+        }
+        queries = new float[64][FaceGallery.DIMENSIONS];
+        for (float[] query : queries) {
+            for (int i = 0; i < query.length; i++) {
+                query[i] = (float) random.nextGaussian() * 0.1f;
+            }
+        }
+    }
+
+    @Benchmark
+    public long scan() {
+        return FaceMatcher.nearest(vectors, nextQuery(), 0, identities);
+    }
+
+    @Benchmark
+    public long parallelScan() {
+        return FaceMatcher.nearestParallel(vectors, identities, nextQuery());
+    }
+
+    private float[] nextQuery() {
+        return queries[next++ & (queries.length - 1)];
+    }
+}
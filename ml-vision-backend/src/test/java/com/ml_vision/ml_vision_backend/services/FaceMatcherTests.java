@@ -0,0 +1,149 @@
+package com.ml_vision.ml_vision_backend.services;
+
+import com.ml_vision.ml_vision_backend.dto.FaceMatchRequest;
+import com.ml_vision.ml_vision_backend.dto.MlRecognizedStudent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FaceMatcherTests {
+
+    private final RosterIndex rosterIndex = mock(RosterIndex.class);
+    private final Random random = new Random(42);
+    private FaceGallery gallery;
+
+    @TempDir
+    Path storeDir;
+
+    @BeforeEach
+    void setUp() {
+        EmbeddingStore store = new EmbeddingStore(storeDir.resolve("faces.bin").toString());
+        gallery = new FaceGallery(rosterIndex, store, new SimpleMeterRegistry(), 10, Duration.ofMinutes(5), 16, 100, 64);
+        when(rosterIndex.get("c1")).thenReturn(new RosterIndex.Snapshot(new String[]{"a1", "b2", "c3", "d4"}));
+    }
+
+    @Test
+    void matchesTheClosestRosteredStudentWithinTolerance() {
+        float[] alice = randomEncoding();
+        gallery.put("a1", alice);
+        gallery.put("b2", randomEncoding());
+        gallery.put("zz9", nudge(alice, 0.001f)); // closer, but not on the roster
+        FaceMatcher matcher = new FaceMatcher(gallery, 0.6, 20_000);
+
+        List<MlRecognizedStudent> matches = matcher.match("c1", List.of(face(nudge(alice, 0.02f), "1,2,3,4")));
+
+        assertThat(matches).singleElement().satisfies(match -> {
+            assertThat(match.getStudentId()).isEqualTo("a1");
+            assertThat(match.getConfidence()).isBetween(0.7, 1.0);
+            assertThat(match.getPosition()).isEqualTo("1,2,3,4");
+        });
+    }
+
+    @Test
+    void dropsFacesOutsideToleranceAndRejectsMalformedEncodings() {
+        gallery.put("a1", randomEncoding());
+        FaceMatcher matcher = new FaceMatcher(gallery, 0.1, 20_000);
+
+        assertThat(matcher.match("c1", List.of(face(randomEncoding(), null)))).isEmpty();
+        assertThatThrownBy(() -> matcher.match("c1", List.of(face(new float[3], null))))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void viewFollowsEncodingChanges() {
+        float[] encoding = randomEncoding();
+        FaceMatcher matcher = new FaceMatcher(gallery, 0.6, 20_000);
+        assertThat(matcher.match("c1", List.of(face(encoding, null)))).isEmpty();
+
+        gallery.put("c3", encoding);
+        assertThat(matcher.match("c1", List.of(face(encoding, null))))
+                .extracting(MlRecognizedStudent::getStudentId).containsExactly("c3");
+
+        gallery.remove("c3");
+        assertThat(matcher.match("c1", List.of(face(encoding, null)))).isEmpty();
+    }
+
+    @Test
+    void removalInsideATransactionWaitsForCommit() {
+        float[] encoding = randomEncoding();
+        gallery.put("c3", encoding);
+        FaceMatcher matcher = new FaceMatcher(gallery, 0.6, 20_000);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            gallery.remove("c3");
+            assertThat(matcher.match("c1", List.of(face(encoding, null))))
+                    .extracting(MlRecognizedStudent::getStudentId).containsExactly("c3");
+            TransactionSynchronizationUtils.triggerAfterCommit();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertThat(matcher.match("c1", List.of(face(encoding, null)))).isEmpty();
+    }
+
+    @Test
+    void campusMatchSearchesEveryStudentRegardlessOfRoster() {
+        float[] visitor = randomEncoding();
+        gallery.put("zz9", visitor);
+        gallery.put("a1", randomEncoding());
+        FaceMatcher matcher = new FaceMatcher(gallery, 0.6, 20_000);
+
+        assertThat(matcher.match("c1", List.of(face(visitor, null)))).isEmpty();
+        assertThat(matcher.matchCampus(List.of(face(nudge(visitor, 0.01f), null))))
+                .extracting(MlRecognizedStudent::getStudentId).containsExactly("zz9");
+
+        gallery.remove("zz9");
+        assertThat(matcher.matchCampus(List.of(face(visitor, null)))).isEmpty();
+    }
+
+    @Test
+    void parallelScanAgreesWithSequentialScan() {
+        int rows = 50_000;
+        float[] vectors = new float[rows * FaceGallery.DIMENSIONS];
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = (float) random.nextGaussian() * 0.1f;
+        }
+        for (int q = 0; q < 5; q++) {
+            float[] query = randomEncoding();
+            assertThat(FaceMatcher.nearestParallel(vectors, rows, query))
+                    .isEqualTo(FaceMatcher.nearest(vectors, query, 0, rows));
+        }
+        assertThat(FaceMatcher.nearest(vectors, randomEncoding(), 0, 0)).isEqualTo(FaceMatcher.NO_MATCH);
+    }
+
+    private float[] randomEncoding() {
+        float[] encoding = new float[FaceGallery.DIMENSIONS];
+        for (int i = 0; i < encoding.length; i++) {
+            encoding[i] = (float) random.nextGaussian() * 0.1f;
+        }
+        return encoding;
+    }
+
+    private static float[] nudge(float[] encoding, float amount) {
+        float[] nudged = encoding.clone();
+        for (int i = 0; i < nudged.length; i++) {
+            nudged[i] += (i % 2 == 0 ? amount : -amount);
+        }
+        return nudged;
+    }
+
+    private static FaceMatchRequest.Face face(float[] encoding, String position) {
+        FaceMatchRequest.Face face = new FaceMatchRequest.Face();
+        face.setEncoding(encoding);
+        face.setPosition(position);
+        return face;
+    }
+}
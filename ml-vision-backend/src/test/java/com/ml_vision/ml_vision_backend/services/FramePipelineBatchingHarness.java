@@ -0,0 +1,95 @@
+package com.ml_vision.ml_vision_backend.services;
+
+import com.ml_vision.ml_vision_backend.dto.MlRecognizeResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Throughput and p99 latency of {@link FramePipeline} with one recognizer
+ * call per frame against frames coalesced into {@code /recognize/batch}
+ * calls, for a recognizer whose per-call overhead dominates ({@code overhead}
+ * ms per call plus 1 ms per image). Frames are submitted back to back
+ * (saturated) and at 40 fps (light traffic, where batching can only add up
+ * to {@code batch-wait}). Needs no database; after {@code mvn test-compile},
+ * run {@code java -cp <test classpath> com.ml_vision.ml_vision_backend.services.FramePipelineBatchingHarness
+ * [frames] [batchSize] [batchWaitMillis] [overhead]}.
+ */
+public class FramePipelineBatchingHarness {
+
+    private static final int CAMERAS = 8;
+
+    public static void main(String[] args) throws Exception {
+        int frames = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int batchSize = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        Duration batchWait = Duration.ofMillis(args.length > 2 ? Long.parseLong(args[2]) : 5);
+        long overhead = args.length > 3 ? Long.parseLong(args[3]) : 20;
+
+        RecognizerClient recognizer = mock(RecognizerClient.class);
+        when(recognizer.recognize(any(), any(), any())).thenAnswer(invocation -> simulatedCall(overhead, 1).get(0));
+        when(recognizer.recognizeBatch(any())).thenAnswer(invocation ->
+                simulatedCall(overhead, invocation.<List<?>>getArgument(0).size()));
+        AttendanceService attendanceService = mock(AttendanceService.class);
+
+        System.out.printf("frames=%d batch-size=%d batch-wait=%dms overhead=%dms%n%n",
+                frames, batchSize, batchWait.toMillis(), overhead);
+        System.out.printf("%-10s %-10s %12s %10s%n", "load", "mode", "frames/s", "p99 ms");
+        for (Duration interval : new Duration[]{Duration.ZERO, Duration.ofMillis(25)}) {
+            String load = interval.isZero() ? "saturated" : "40 fps";
+            Result perFrame = run(recognizer, attendanceService, 1, Duration.ZERO, frames, interval);
+            Result batched = run(recognizer, attendanceService, batchSize, batchWait, frames, interval);
+            System.out.printf("%-10s %-10s %12.0f %10d%n", load, "per-frame", perFrame.throughput(), perFrame.p99Millis());
+            System.out.printf("%-10s %-10s %12.0f %10d%n", load, "batched", batched.throughput(), batched.p99Millis());
+        }
+    }
+
+    private static Result run(RecognizerClient recognizer, AttendanceService attendanceService,
+            int batchSize, Duration batchWait, int frames, Duration interval) throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        FrameSimilarityGate gate = new FrameSimilarityGate(registry, false, 5, Duration.ofMinutes(1), 100);
+        FramePipeline pipeline = new FramePipeline(recognizer, gate, attendanceService, registry, 1024, 1024, 2, 1,
+                Duration.ofMinutes(1), Duration.ofSeconds(1), batchSize, batchWait);
+        try {
+            long[] latencies = new long[frames];
+            List<CompletableFuture<?>> done = new ArrayList<>(frames);
+            long started = System.nanoTime();
+            for (int i = 0; i < frames; i++) {
+                int frame = i;
+                long submitted = System.nanoTime();
+                done.add(pipeline.submit(new byte[1], "f.jpg", "room" + (i % CAMERAS), "s1", null).result()
+                        .thenRun(() -> latencies[frame] = System.nanoTime() - submitted));
+                if (!interval.isZero()) {
+                    Thread.sleep(interval.toMillis());
+                }
+            }
+            CompletableFuture.allOf(done.toArray(CompletableFuture[]::new)).get(5, TimeUnit.MINUTES);
+            long elapsed = System.nanoTime() - started;
+            Arrays.sort(latencies);
+            return new Result(frames * 1e9 / elapsed,
+                    TimeUnit.NANOSECONDS.toMillis(latencies[(int) Math.ceil(frames * 0.99) - 1]));
+        } finally {
+            pipeline.shutdown();
+        }
+    }
+
+    private static List<MlRecognizeResponse> simulatedCall(long overhead, int images) throws InterruptedException {
+        Thread.sleep(overhead + images);
+        List<MlRecognizeResponse> results = new ArrayList<>(images);
+        for (int i = 0; i < images; i++) {
+            results.add(new MlRecognizeResponse());
+        }
+        return results;
+    }
+
+    private record Result(double throughput, long p99Millis) {
+    }
+}
@@ -0,0 +1,153 @@
+package com.ml_vision.ml_vision_backend.services;
+
+import com.ml_vision.ml_vision_backend.dto.MlRecognizeResponse;
+import com.ml_vision.ml_vision_backend.dto.MlRecognizedStudent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FramePipelineTests {
+
+    private final RecognizerClient recognizer = mock(RecognizerClient.class);
+    private final AttendanceService attendanceService = mock(AttendanceService.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final FrameSimilarityGate gate = new FrameSimilarityGate(registry, true, 5, Duration.ofMinutes(1), 100);
+    private FramePipeline pipeline;
+
+    @AfterEach
+    void tearDown() {
+        pipeline.shutdown();
+    }
+
+    @Test
+    void recognizesAndPersistsFramesOffTheCallerThread() throws Exception {
+        pipeline = new FramePipeline(recognizer, gate, attendanceService, registry, 4, 4, 2, 1,
+                Duration.ofMinutes(1), Duration.ofSeconds(1), 1, Duration.ZERO);
+        MlRecognizeResponse response = new MlRecognizeResponse();
+        MlRecognizedStudent student = new MlRecognizedStudent();
+        student.setStudentId("abc123");
+        response.setRecognized(List.of(student));
+        when(recognizer.recognize(any(), any(), eq("c1"))).thenReturn(response);
+
+        FramePipeline.FrameJob job = pipeline.submit(new byte[]{1, 2, 3}, "f.jpg", "c1", "s1", null);
+
+        assertThat(job.result().get(5, TimeUnit.SECONDS)).isSameAs(response);
+        verify(attendanceService, timeout(1000)).submitBatch("c1", "s1", null, response.getRecognized());
+        assertThat(pipeline.find(job.getTicket())).containsSame(job);
+    }
+
+    @Test
+    void rejectsFramesWhenTheRecognizeStageIsSaturated() throws Exception {
+        pipeline = new FramePipeline(recognizer, gate, attendanceService, registry, 1, 1, 1, 1,
+                Duration.ofMinutes(1), Duration.ofSeconds(2), 1, Duration.ZERO);
+        CountDownLatch recognizerBusy = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(recognizer.recognize(any(), any(), any())).thenAnswer(invocation -> {
+            recognizerBusy.countDown();
+            release.await();
+            return new MlRecognizeResponse();
+        });
+
+        pipeline.submit(new byte[1], "a.jpg", "c1", "s1", null);
+        assertThat(recognizerBusy.await(5, TimeUnit.SECONDS)).isTrue();
+        pipeline.submit(new byte[1], "b.jpg", "c1", "s1", null); // fills the single queue slot
+
+        assertThatThrownBy(() -> pipeline.submit(new byte[1], "c.jpg", "c1", "s1", null))
+                .isInstanceOf(FramePipeline.OverloadedException.class);
+        assertThat(registry.get("attendance.pipeline.rejected").counter().count()).isEqualTo(1);
+        assertThat(registry.get("attendance.frames.gated").tag("outcome", "processed").counter().count()).isEqualTo(2);
+        release.countDown();
+    }
+
+    @Test
+    void failedRecognitionCompletesTheJobExceptionally() {
+        pipeline = new FramePipeline(recognizer, gate, attendanceService, registry, 4, 4, 1, 1,
+                Duration.ofMinutes(1), Duration.ofSeconds(1), 1, Duration.ZERO);
+        when(recognizer.recognize(any(), any(), any())).thenThrow(new IllegalStateException("recognizer down"));
+
+        FramePipeline.FrameJob job = pipeline.submit(new byte[1], "a.jpg", "c1", "s1", null);
+
+        assertThatThrownBy(() -> job.result().get(5, TimeUnit.SECONDS)).hasRootCauseMessage("recognizer down");
+    }
+
+    @Test
+    void nearDuplicateFramesReuseTheLastResultWithoutRecognition() throws Exception {
+        pipeline = new FramePipeline(recognizer, gate, attendanceService, registry, 4, 4, 1, 1,
+                Duration.ofMinutes(1), Duration.ofSeconds(1), 1, Duration.ZERO);
+        MlRecognizeResponse response = response("abc123");
+        when(recognizer.recognize(any(), any(), eq("c1"))).thenReturn(response);
+        byte[] frame = FrameSimilarityGateTests.jpeg(FrameSimilarityGateTests.scene(0));
+
+        pipeline.submit(frame, "f.jpg", "c1", "s1", "cam1").result().get(5, TimeUnit.SECONDS);
+        FramePipeline.FrameJob repeat = pipeline.submit(
+                FrameSimilarityGateTests.jpeg(FrameSimilarityGateTests.scene(3)), "f.jpg", "c1", "s1", "cam1");
+
+        assertThat(repeat.result()).isCompletedWithValue(response);
+        verify(recognizer, times(1)).recognize(any(), any(), any());
+        verify(attendanceService, timeout(1000).times(1)).submitBatch(any(), any(), any(), any());
+    }
+
+    @Test
+    void coalescesFramesFromSeveralCamerasIntoOneCall() throws Exception {
+        pipeline = new FramePipeline(recognizer, gate, attendanceService, registry, 8, 8, 1, 1,
+                Duration.ofMinutes(1), Duration.ofSeconds(1), 3, Duration.ofSeconds(5));
+        MlRecognizeResponse a = response("a1");
+        MlRecognizeResponse b = response("b1");
+        MlRecognizeResponse c = response("c1");
+        when(recognizer.recognizeBatch(any())).thenReturn(List.of(a, b, c));
+
+        FramePipeline.FrameJob first = pipeline.submit(new byte[1], "a.jpg", "roomA", "s1", null);
+        FramePipeline.FrameJob second = pipeline.submit(new byte[1], "b.jpg", "roomB", "s2", null);
+        FramePipeline.FrameJob third = pipeline.submit(new byte[1], "c.jpg", "roomC", "s3", null);
+
+        assertThat(first.result().get(5, TimeUnit.SECONDS)).isSameAs(a);
+        assertThat(second.result().get(5, TimeUnit.SECONDS)).isSameAs(b);
+        assertThat(third.result().get(5, TimeUnit.SECONDS)).isSameAs(c);
+        verify(recognizer).recognizeBatch(argThat(frames -> frames.stream()
+                .map(RecognizerClient.Frame::classId).toList().equals(List.of("roomA", "roomB", "roomC"))));
+        verify(recognizer, never()).recognize(any(), any(), any());
+        verify(attendanceService, timeout(1000)).submitBatch("roomB", "s2", null, b.getRecognized());
+        assertThat(registry.get("attendance.pipeline.batch.size").summary().max()).isEqualTo(3);
+    }
+
+    @Test
+    void anUndecodableImageFailsOnlyItsOwnFrame() throws Exception {
+        pipeline = new FramePipeline(recognizer, gate, attendanceService, registry, 8, 8, 1, 1,
+                Duration.ofMinutes(1), Duration.ofSeconds(1), 2, Duration.ofSeconds(5));
+        MlRecognizeResponse broken = new MlRecognizeResponse();
+        broken.setError("Invalid image payload");
+        MlRecognizeResponse ok = response("b1");
+        when(recognizer.recognizeBatch(any())).thenReturn(List.of(broken, ok));
+
+        FramePipeline.FrameJob first = pipeline.submit(new byte[1], "a.jpg", "roomA", "s1", null);
+        FramePipeline.FrameJob second = pipeline.submit(new byte[1], "b.jpg", "roomB", "s2", null);
+
+        assertThatThrownBy(() -> first.result().get(5, TimeUnit.SECONDS)).hasRootCauseMessage("Invalid image payload");
+        assertThat(second.result().get(5, TimeUnit.SECONDS)).isSameAs(ok);
+    }
+
+    private static MlRecognizeResponse response(String studentId) {
+        MlRecognizedStudent student = new MlRecognizedStudent();
+        student.setStudentId(studentId);
+        MlRecognizeResponse response = new MlRecognizeResponse();
+        response.setRecognized(List.of(student));
+        return response;
+    }
+}
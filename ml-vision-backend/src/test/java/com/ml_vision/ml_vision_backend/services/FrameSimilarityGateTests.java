@@ -0,0 +1,128 @@
+package com.ml_vision.ml_vision_backend.services;
+
+import com.ml_vision.ml_vision_backend.dto.MlRecognizeResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FrameSimilarityGateTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final MlRecognizeResponse previous = new MlRecognizeResponse();
+
+    @Test
+    void sensorNoiseBarelyMovesTheHashButASceneChangeDoes() {
+        long still = FrameSimilarityGate.dHash(jpeg(scene(0))).orElseThrow();
+
+        assertThat(Long.bitCount(still ^ FrameSimilarityGate.dHash(jpeg(scene(6))).orElseThrow())).isLessThanOrEqualTo(5);
+        assertThat(Long.bitCount(still ^ FrameSimilarityGate.dHash(jpeg(otherScene())).orElseThrow())).isGreaterThan(10);
+        assertThat(FrameSimilarityGate.dHash(new byte[]{1, 2, 3})).isEmpty();
+    }
+
+    @Test
+    void reusesTheLastResultForNearDuplicatesOfTheSameCamera() {
+        FrameSimilarityGate gate = new FrameSimilarityGate(registry, true, 5, Duration.ofMinutes(1), 100);
+        FrameSimilarityGate.Admission first = gate.admit("c1", "s1", "cam1", jpeg(scene(0)));
+        assertThat(first.reuse()).isEmpty();
+        gate.queued();
+        gate.processed("c1", "s1", "cam1", first.hash().orElseThrow(), previous);
+
+        assertThat(gate.admit("c1", "s1", "cam1", jpeg(scene(4))).reuse()).containsSame(previous);
+        assertThat(gate.admit("c1", "s1", "cam1", jpeg(otherScene())).reuse()).isEmpty();
+        assertThat(gate.admit("c1", "s1", "cam2", jpeg(scene(0))).reuse()).isEmpty();
+        assertThat(gate.admit("c1", "s2", "cam1", jpeg(scene(0))).reuse()).isEmpty();
+
+        assertThat(registry.get("attendance.frames.gated").tag("outcome", "skipped").counter().count()).isEqualTo(1);
+        // only the first of the frames that were not skipped was queued
+        assertThat(registry.get("attendance.frames.gated").tag("outcome", "processed").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void forcesARefreshOnceTheRefreshIntervalPasses() throws Exception {
+        FrameSimilarityGate gate = new FrameSimilarityGate(registry, true, 5, Duration.ofMillis(50), 100);
+        byte[] frame = jpeg(scene(0));
+        gate.processed("c1", "s1", null, gate.admit("c1", "s1", null, frame).hash().orElseThrow(), previous);
+        assertThat(gate.admit("c1", "s1", null, frame).reuse()).isPresent();
+
+        Thread.sleep(100);
+
+        assertThat(gate.admit("c1", "s1", null, frame).reuse()).isEmpty();
+    }
+
+    @Test
+    void disabledGateNeverSkips() {
+        FrameSimilarityGate gate = new FrameSimilarityGate(registry, false, 64, Duration.ofMinutes(1), 100);
+        byte[] frame = jpeg(scene(0));
+        gate.processed("c1", "s1", null, FrameSimilarityGate.dHash(frame).orElseThrow(), previous);
+
+        assertThat(gate.admit("c1", "s1", null, frame).reuse()).isEmpty();
+    }
+
+    /** A synthetic classroom frame; {@code jitter} adds per-pixel sensor noise of that amplitude. */
+    static BufferedImage scene(int jitter) {
+        BufferedImage image = new BufferedImage(320, 240, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(new Color(200, 190, 170));
+        g.fillRect(0, 0, 320, 240);
+        g.setColor(new Color(60, 40, 30));
+        for (int seat = 0; seat < 4; seat++) {
+            g.fillOval(20 + seat * 75, 80 + (seat % 2) * 30, 45, 60);
+        }
+        g.dispose();
+        addNoise(image, jitter, 7);
+        return image;
+    }
+
+    static BufferedImage otherScene() {
+        BufferedImage image = new BufferedImage(320, 240, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(new Color(40, 50, 70));
+        g.fillRect(0, 0, 320, 240);
+        g.setColor(new Color(230, 230, 220));
+        g.fillRect(100, 20, 120, 200);
+        g.dispose();
+        return image;
+    }
+
+    static byte[] jpeg(BufferedImage image) {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write(image, "jpg", out);
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void addNoise(BufferedImage image, int jitter, long seed) {
+        if (jitter == 0) {
+            return;
+        }
+        Random random = new Random(seed);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                int rgb = image.getRGB(x, y);
+                int delta = random.nextInt(2 * jitter + 1) - jitter;
+                int r = clamp(((rgb >> 16) & 0xff) + delta);
+                int gr = clamp(((rgb >> 8) & 0xff) + delta);
+                int b = clamp((rgb & 0xff) + delta);
+                image.setRGB(x, y, (r << 16) | (gr << 8) | b);
+            }
+        }
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+}
@@ -0,0 +1,126 @@
+package com.ml_vision.ml_vision_backend.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HnswIndexTests {
+
+    private final Random random = new Random(11);
+
+    @Test
+    void findsTheTrueNearestNeighbourForAlmostEveryQuery() {
+        int size = 3_000;
+        float[][] stored = new float[size][];
+        HnswIndex index = new HnswIndex(16, 80, 64, 1);
+        for (int i = 0; i < size; i++) {
+            stored[i] = randomVector();
+            index.add("s" + i, stored[i]);
+        }
+
+        int hits = 0;
+        int queries = 200;
+        for (int q = 0; q < queries; q++) {
+            float[] query = noisyCopy(stored[random.nextInt(size)], 0.03f);
+            String exact = exactNearest(stored, query);
+            if (index.nearest(query).orElseThrow().label().equals(exact)) {
+                hits++;
+            }
+        }
+
+        assertThat(hits / (double) queries).isGreaterThanOrEqualTo(0.95);
+        assertThat(index.size()).isEqualTo(size);
+    }
+
+    @Test
+    void removedAndReplacedVectorsAreNotReturned() {
+        HnswIndex index = new HnswIndex(8, 50, 32, 1);
+        float[] original = randomVector();
+        float[] replacement = randomVector();
+        index.add("a", original);
+        for (int i = 0; i < 100; i++) {
+            index.add("filler" + i, randomVector());
+        }
+
+        index.add("a", replacement);
+        assertThat(index.nearest(replacement).orElseThrow().label()).isEqualTo("a");
+        assertThat(index.nearest(original).orElseThrow().label()).isNotEqualTo("a");
+
+        index.remove("a");
+        assertThat(index.nearest(replacement).orElseThrow().label()).isNotEqualTo("a");
+        assertThat(index.size()).isEqualTo(100);
+    }
+
+    @Test
+    void compactsOnceTombstonesOutnumberLiveVectors() {
+        HnswIndex index = new HnswIndex(8, 50, 32, 1);
+        float[][] stored = new float[300][];
+        for (int i = 0; i < stored.length; i++) {
+            stored[i] = randomVector();
+            index.add("s" + i, stored[i]);
+        }
+        for (int i = 0; i < 250; i++) {
+            index.remove("s" + i);
+        }
+
+        assertThat(index.size()).isEqualTo(50);
+        for (int i = 250; i < 300; i++) {
+            assertThat(index.nearest(stored[i]).orElseThrow().label()).isEqualTo("s" + i);
+        }
+        for (int i = 250; i < 300; i++) {
+            index.remove("s" + i);
+        }
+        assertThat(index.nearest(stored[0])).isEmpty();
+    }
+
+    @Test
+    void findsTheSurvivorsOfAMostlyRemovedCluster() {
+        HnswIndex index = new HnswIndex(8, 50, 8, 1);
+        float[] center = randomVector();
+        for (int i = 0; i < 200; i++) {
+            index.add("c" + i, noisyCopy(center, 0.01f));
+        }
+        for (int i = 0; i < 300; i++) {
+            index.add("s" + i, randomVector());
+        }
+        // 190 tombstones against 310 live nodes: below the compaction threshold
+        for (int i = 0; i < 190; i++) {
+            index.remove("c" + i);
+        }
+
+        for (int q = 0; q < 20; q++) {
+            assertThat(index.nearest(noisyCopy(center, 0.01f)).orElseThrow().label()).startsWith("c");
+        }
+    }
+
+    static String exactNearest(float[][] stored, float[] query) {
+        int best = -1;
+        float bestDistance = Float.POSITIVE_INFINITY;
+        for (int i = 0; i < stored.length; i++) {
+            float distance = FaceMatcher.squaredDistance(stored[i], 0, query, bestDistance);
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = i;
+            }
+        }
+        return "s" + best;
+    }
+
+    private float[] randomVector() {
+        float[] vector = new float[FaceGallery.DIMENSIONS];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = (float) random.nextGaussian() * 0.1f;
+        }
+        return vector;
+    }
+
+    private float[] noisyCopy(float[] vector, float noise) {
+        float[] copy = vector.clone();
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] += (float) random.nextGaussian() * noise;
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,92 @@
+package com.ml_vision.ml_vision_backend.services;
+
+import java.util.Random;
+
+/**
+ * Recall@1 and query throughput of {@link HnswIndex} against the exact
+ * brute-force scan, swept over {@code efSearch} on one built index. After
+ * {@code mvn test-compile}, run
+ * {@code java -cp <test classpath> com.ml_vision.ml_vision_backend.services.HnswRecallHarness
+ * [identities] [m] [efConstruction] [latentDims]}.
+ * <p>
+ * Face encodings occupy a low-dimensional region of the 128-d space, so
+ * gallery vectors are drawn from a {@code latentDims}-dimensional gaussian
+ * and projected up; {@code latentDims=128} gives iid vectors, the hardest case
+ * for graph search. Queries are enrolled encodings plus capture noise.
+ */
+public class HnswRecallHarness {
+
+    private static final int[] EF_SEARCH = {16, 32, 64, 128, 256};
+    private static final int QUERIES = 500;
+
+    public static void main(String[] args) {
+        int identities = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        int m = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int efConstruction = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        int latentDims = args.length > 3 ? Integer.parseInt(args[3]) : 32;
+        int dim = FaceGallery.DIMENSIONS;
+        Random random = new Random(3);
+
+        float[][] projection = new float[latentDims][dim];
+        for (float[] row : projection) {
+            for (int d = 0; d < dim; d++) {
+                row[d] = (float) (random.nextGaussian() / Math.sqrt(latentDims));
+            }
+        }
+        float[] vectors = new float[identities * dim];
+        HnswIndex index = new HnswIndex(m, efConstruction, EF_SEARCH[0], 1);
+        long buildStarted = System.nanoTime();
+        for (int i = 0; i < identities; i++) {
+            float[] vector = new float[dim];
+            if (latentDims >= dim) {
+                for (int d = 0; d < dim; d++) {
+                    vector[d] = (float) random.nextGaussian() * 0.1f;
+                }
+            } else {
+                for (int k = 0; k < latentDims; k++) {
+                    float latent = (float) random.nextGaussian() * 0.1f;
+                    for (int d = 0; d < dim; d++) {
+                        vector[d] += latent * projection[k][d];
+                    }
+                }
+            }
+            System.arraycopy(vector, 0, vectors, i * dim, dim);
+            index.add(Integer.toString(i), vector);
+        }
+        long buildMillis = (System.nanoTime() - buildStarted) / 1_000_000;
+
+        float[][] queries = new float[QUERIES][];
+        int[] exact = new int[QUERIES];
+        for (int q = 0; q < QUERIES; q++) {
+            int source = random.nextInt(identities);
+            queries[q] = new float[dim];
+            for (int d = 0; d < dim; d++) {
+                queries[q][d] = vectors[source * dim + d] + (float) random.nextGaussian() * 0.01f;
+            }
+        }
+        long exactStarted = System.nanoTime();
+        for (int q = 0; q < QUERIES; q++) {
+            exact[q] = FaceMatcher.rowOf(FaceMatcher.nearest(vectors, queries[q], 0, identities));
+        }
+        double exactQps = QUERIES * 1e9 / (System.nanoTime() - exactStarted);
+
+        System.out.printf("identities=%d m=%d efConstruction=%d latentDims=%d build=%dms (%.2fms/insert)%n",
+                identities, m, efConstruction, latentDims, buildMillis, buildMillis / (double) identities);
+        System.out.printf("exact scan: %.0f queries/s%n", exactQps);
+        for (int ef : EF_SEARCH) {
+            for (float[] query : queries) {
+                index.nearest(query, ef); // warm up this ef
+            }
+            int hits = 0;
+            long started = System.nanoTime();
+            for (int q = 0; q < QUERIES; q++) {
+                if (index.nearest(queries[q], ef).orElseThrow().label().equals(Integer.toString(exact[q]))) {
+                    hits++;
+                }
+            }
+            double qps = QUERIES * 1e9 / (System.nanoTime() - started);
+            System.out.printf("efSearch=%-4d recall@1=%.3f %8.0f queries/s (%.1fx exact)%n",
+                    ef, hits / (double) QUERIES, qps, qps / exactQps);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.ml_vision.ml_vision_backend.services;
+
+import com.ml_vision.ml_vision_backend.config.MlClientProperties;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MlEndpointsTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger served = new AtomicInteger();
+    private final AtomicReference<StubBehaviour> behaviour = new AtomicReference<>(exchange -> respond(exchange, 200, "ok"));
+    private HttpServer server;
+    private MlEndpoints endpoints;
+
+    @BeforeEach
+    void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            served.incrementAndGet();
+            behaviour.get().handle(exchange);
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (endpoints != null) {
+            endpoints.destroy();
+        }
+        server.stop(0);
+    }
+
+    @Test
+    void reusesPooledConnectionsAcrossCalls() {
+        MlEndpoint endpoint = endpoint(config -> { });
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(post(endpoint)).isEqualTo("ok");
+        }
+
+        assertThat(served.get()).isEqualTo(10);
+        assertThat(clientPorts).hasSize(1);
+        assertThat(registry.get("attendance.ml.client.requests")
+                .tags("endpoint", "recognize", "outcome", "success")
+                .timer().count()).isEqualTo(10);
+    }
+
+    @Test
+    void readTimeoutBoundsASlowResponse() {
+        behaviour.set(exchange -> {
+            sleep(2000);
+            respond(exchange, 200, "late");
+        });
+        MlEndpoint endpoint = endpoint(config -> config.setReadTimeout(Duration.ofMillis(200)));
+
+        long started = System.nanoTime();
+        assertThatThrownBy(() -> post(endpoint)).isInstanceOf(ResourceAccessException.class);
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofSeconds(2));
+    }
+
+    @Test
+    void breakerOpensOnServerErrorsAndFailsFast() {
+        behaviour.set(exchange -> respond(exchange, 500, "boom"));
+        MlEndpoint endpoint = endpoint(config -> {
+            config.setSlidingWindowSize(4);
+            config.setMinimumNumberOfCalls(4);
+            config.setOpenStateDuration(Duration.ofMinutes(1));
+        });
+
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> post(endpoint)).isNotInstanceOf(CallNotPermittedException.class);
+        }
+
+        assertThat(endpoint.getCircuitBreaker().getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThatThrownBy(() -> post(endpoint)).isInstanceOf(CallNotPermittedException.class);
+        assertThat(served.get()).isEqualTo(4);
+        assertThat(registry.find("resilience4j.circuitbreaker.state")
+                .tags("name", "recognize", "state", "open")
+                .gauge().value()).isEqualTo(1.0);
+    }
+
+    @Test
+    void clientErrorsDoNotOpenTheBreaker() {
+        behaviour.set(exchange -> respond(exchange, 400, "bad frame"));
+        MlEndpoint endpoint = endpoint(config -> {
+            config.setSlidingWindowSize(4);
+            config.setMinimumNumberOfCalls(4);
+        });
+
+        for (int i = 0; i < 6; i++) {
+            assertThatThrownBy(() -> post(endpoint)).isInstanceOf(HttpClientErrorException.class);
+        }
+
+        assertThat(endpoint.getCircuitBreaker().getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void bulkheadRejectsCallsBeyondTheConcurrencyLimit() throws Exception {
+        CountDownLatch inFlight = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        behaviour.set(exchange -> {
+            inFlight.countDown();
+            await(release);
+            respond(exchange, 200, "ok");
+        });
+        MlEndpoint endpoint = endpoint(config -> config.setMaxConcurrentCalls(1));
+
+        Thread first = new Thread(() -> post(endpoint));
+        first.start();
+        assertThat(inFlight.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> post(endpoint)).isInstanceOf(BulkheadFullException.class);
+        release.countDown();
+        first.join(5000);
+        assertThat(served.get()).isEqualTo(1);
+    }
+
+    private MlEndpoint endpoint(Consumer<MlClientProperties.Endpoint> customizer) {
+        MlClientProperties.Endpoint config = new MlClientProperties.Endpoint();
+        config.setUrl("http://127.0.0.1:" + server.getAddress().getPort() + "/recognize");
+        customizer.accept(config);
+        MlClientProperties properties = new MlClientProperties();
+        properties.getEndpoints().put("recognize", config);
+        endpoints = new MlEndpoints(properties, registry);
+        return endpoints.get("recognize");
+    }
+
+    private static String post(MlEndpoint endpoint) {
+        return endpoint.call(rest -> rest.postForObject(endpoint.getUrl(), "frame", String.class));
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @FunctionalInterface
+    private interface StubBehaviour {
+        void handle(HttpExchange exchange) throws IOException;
+    }
+}
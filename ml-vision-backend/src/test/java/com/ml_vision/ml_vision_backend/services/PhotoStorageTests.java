@@ -0,0 +1,128 @@
+package com.ml_vision.ml_vision_backend.services;
+
+import com.ml_vision.ml_vision_backend.repositories.StudentRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PhotoStorageTests {
+
+    private final StudentRepository studentRepository = mock(StudentRepository.class);
+
+    @TempDir
+    Path dir;
+
+    private PhotoStorage storage;
+
+    @AfterEach
+    void tearDown() {
+        if (storage != null) {
+            storage.destroy();
+        }
+    }
+
+    @Test
+    void namesPhotosByContentHashAndStoresDuplicatesOnce() throws Exception {
+        storage = storage(Duration.ofHours(1));
+        byte[] photo = png(1200, 900);
+
+        PhotoStorage.StoredPhoto first = storage.store(new ByteArrayInputStream(photo), "alice.PNG");
+        PhotoStorage.StoredPhoto second = storage.store(new ByteArrayInputStream(photo), "copy.png");
+
+        String sha256 = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(photo));
+        assertThat(first.hash()).isEqualTo(sha256);
+        assertThat(first.url()).isEqualTo("/photos/originals/" + sha256 + ".png");
+        assertThat(second).isEqualTo(first);
+        assertThat(files("originals")).hasSize(1);
+        storage.variant(first.hash()); // the background variant writes through tmp too
+        assertThat(files("tmp")).isEmpty();
+        assertThat(storage.original(sha256 + ".png")).hasValueSatisfying(p -> assertThat(p).hasBinaryContent(photo));
+        assertThat(storage.original("../" + sha256 + ".png")).isEmpty();
+    }
+
+    @Test
+    void producesADownscaledRgbVariantForTheRecognizer() throws IOException {
+        storage = storage(Duration.ofHours(1));
+        PhotoStorage.StoredPhoto stored = storage.store(new ByteArrayInputStream(png(1200, 900)), "alice.png");
+
+        Path variant = storage.variant(stored.hash()).orElseThrow();
+
+        BufferedImage image = ImageIO.read(variant.toFile());
+        assertThat(image.getWidth()).isEqualTo(640);
+        assertThat(image.getHeight()).isEqualTo(480);
+        assertThat(image.getColorModel().hasAlpha()).isFalse();
+        assertThat(storage.variant("0".repeat(64))).isEmpty();
+    }
+
+    @Test
+    void collectsPhotosNoStudentReferencesOnceTheGracePeriodHasPassed() throws IOException {
+        storage = storage(Duration.ofMinutes(10));
+        PhotoStorage.StoredPhoto kept = storage.store(new ByteArrayInputStream(png(64, 64)), "kept.png");
+        PhotoStorage.StoredPhoto replaced = storage.store(new ByteArrayInputStream(png(65, 64)), "old.png");
+        PhotoStorage.StoredPhoto fresh = storage.store(new ByteArrayInputStream(png(66, 64)), "new.png");
+        storage.variant(replaced.hash());
+        when(studentRepository.findPhotoHashes()).thenReturn(Set.of(kept.hash()));
+        age(kept.hash());
+        age(replaced.hash());
+
+        int deleted = storage.collectGarbage();
+
+        assertThat(deleted).isEqualTo(2); // original and variant of the replaced photo
+        assertThat(storage.original(kept.hash() + ".png")).isPresent();
+        assertThat(storage.original(replaced.hash() + ".png")).isEmpty();
+        assertThat(storage.original(fresh.hash() + ".png")).isPresent(); // maybe not committed yet
+    }
+
+    private PhotoStorage storage(Duration gcGrace) {
+        return new PhotoStorage(studentRepository, new SimpleMeterRegistry(), dir.toString(), 640, Duration.ZERO, gcGrace);
+    }
+
+    private void age(String hash) throws IOException {
+        FileTime old = FileTime.from(Instant.now().minus(Duration.ofHours(2)));
+        for (String directory : new String[]{"originals", "recognizer"}) {
+            for (Path file : files(directory)) {
+                if (file.getFileName().toString().startsWith(hash)) {
+                    Files.setLastModifiedTime(file, old);
+                }
+            }
+        }
+    }
+
+    private Path[] files(String directory) throws IOException {
+        try (Stream<Path> files = Files.list(dir.resolve(directory))) {
+            return files.toArray(Path[]::new);
+        }
+    }
+
+    static byte[] png(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, 0x80000000 | (x * 255 / width) << 16 | (y * 255 / height) << 8);
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,159 @@
+package com.ml_vision.ml_vision_backend.services;
+
+import com.ml_vision.ml_vision_backend.config.MlClientProperties;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReloadNotifierTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AtomicInteger primaryReloads = new AtomicInteger();
+    private final AtomicInteger secondaryReloads = new AtomicInteger();
+    private final AtomicInteger secondaryFailuresLeft = new AtomicInteger();
+    private HttpServer server;
+    private MlEndpoints endpoints;
+    private ReloadNotifier notifier;
+
+    @BeforeEach
+    void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/primary/reload", exchange -> {
+            primaryReloads.incrementAndGet();
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.createContext("/secondary/reload", exchange -> {
+            boolean fail = secondaryFailuresLeft.getAndDecrement() > 0;
+            if (!fail) {
+                secondaryReloads.incrementAndGet();
+            }
+            exchange.sendResponseHeaders(fail ? 503 : 200, -1);
+            exchange.close();
+        });
+        server.start();
+
+        MlClientProperties properties = new MlClientProperties();
+        properties.getEndpoints().put("reload", endpoint("/primary/reload"));
+        properties.getEndpoints().put("reload-secondary", endpoint("/secondary/reload"));
+        endpoints = new MlEndpoints(properties, registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (notifier != null) {
+            notifier.destroy();
+        }
+        endpoints.destroy();
+        server.stop(0);
+    }
+
+    @Test
+    void collapsesABurstOfChangesIntoOneReloadPerRecognizer() throws InterruptedException {
+        notifier = notifier(Duration.ofMillis(200), Duration.ofSeconds(30));
+
+        for (int i = 0; i < 800; i++) {
+            notifier.changed();
+        }
+
+        awaitCount(primaryReloads, 1);
+        awaitCount(secondaryReloads, 1);
+        Thread.sleep(400);
+        assertThat(primaryReloads.get()).isEqualTo(1);
+        assertThat(secondaryReloads.get()).isEqualTo(1);
+        assertThat(registry.get("attendance.reload.changes").counter().count()).isEqualTo(800);
+        assertThat(registry.get("attendance.reload.lag").tag("target", "reload").timer().count()).isEqualTo(1);
+        assertThat(registry.get("attendance.reload.pending").gauge().value()).isZero();
+    }
+
+    @Test
+    void maxDelayBoundsHowLongASteadyStreamOfChangesIsHeldBack() throws InterruptedException {
+        notifier = notifier(Duration.ofMillis(200), Duration.ofMillis(500));
+
+        long started = System.nanoTime();
+        while (primaryReloads.get() == 0 && System.nanoTime() - started < TimeUnit.SECONDS.toNanos(5)) {
+            notifier.changed(); // never quiet for 200 ms
+            Thread.sleep(20);
+        }
+
+        assertThat(primaryReloads.get()).isEqualTo(1);
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofSeconds(2));
+    }
+
+    @Test
+    void retriesAFailingRecognizerWithoutHoldingBackTheOthers() throws InterruptedException {
+        secondaryFailuresLeft.set(2);
+        notifier = notifier(Duration.ofMillis(50), Duration.ofSeconds(30));
+
+        notifier.changed();
+
+        awaitCount(primaryReloads, 1);
+        awaitCount(secondaryReloads, 1);
+        // the stub counts a reload before the notifier has read its response
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (successes("reload-secondary") < 1 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(registry.get("attendance.reload.notifications")
+                .tags("target", "reload-secondary", "outcome", "failure")
+                .counter().count()).isEqualTo(2);
+        assertThat(successes("reload-secondary")).isEqualTo(1);
+    }
+
+    @Test
+    void waitsForTheTransactionToCommit() throws InterruptedException {
+        notifier = notifier(Duration.ofMillis(50), Duration.ofSeconds(30));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            notifier.changed();
+            Thread.sleep(300);
+            assertThat(primaryReloads.get()).isZero();
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        awaitCount(primaryReloads, 1);
+    }
+
+    private double successes(String target) {
+        return registry.get("attendance.reload.notifications")
+                .tags("target", target, "outcome", "success")
+                .counter().count();
+    }
+
+    private ReloadNotifier notifier(Duration quietPeriod, Duration maxDelay) {
+        return new ReloadNotifier(endpoints, registry, List.of("reload", "reload-secondary"),
+                quietPeriod, maxDelay, Duration.ofMillis(50), Duration.ofMillis(200), 5);
+    }
+
+    private MlClientProperties.Endpoint endpoint(String path) {
+        MlClientProperties.Endpoint config = new MlClientProperties.Endpoint();
+        config.setUrl("http://127.0.0.1:" + server.getAddress().getPort() + path);
+        return config;
+    }
+
+    private static void awaitCount(AtomicInteger count, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (count.get() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(count.get()).isEqualTo(expected);
+    }
+}
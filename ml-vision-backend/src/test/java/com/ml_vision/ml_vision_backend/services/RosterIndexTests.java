@@ -0,0 +1,90 @@
+package com.ml_vision.ml_vision_backend.services;
+
+import com.ml_vision.ml_vision_backend.repositories.CourseClassRepository;
+import com.ml_vision.ml_vision_backend.repositories.CourseClassRosterRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RosterIndexTests {
+
+    private final CourseClassRepository classRepo = mock(CourseClassRepository.class);
+    private final CourseClassRosterRepository rosterRepo = mock(CourseClassRosterRepository.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private RosterIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new RosterIndex(classRepo, rosterRepo, registry, 1 << 20, Duration.ofMinutes(5));
+        when(rosterRepo.findExternalIdsByCourseClassId("c1")).thenReturn(List.of("zz1", "ab2", "mm3"));
+    }
+
+    @Test
+    void loadsEachRosterOnceAndAnswersFromMemory() {
+        assertThat(index.isEnrolled("c1", "ab2")).isTrue();
+        assertThat(index.isEnrolled("c1", "mm3")).isTrue();
+        assertThat(index.isEnrolled("c1", "nope")).isFalse();
+        assertThat(index.isEnrolled("c1", null)).isFalse();
+
+        verify(rosterRepo, times(1)).findExternalIdsByCourseClassId("c1");
+        assertThat(registry.get("cache.gets").tag("result", "hit").functionCounter().count()).isEqualTo(3);
+        assertThat(registry.get("cache.gets").tag("result", "miss").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("roster.index.memory").gauge().value()).isPositive();
+    }
+
+    @Test
+    void positionsFollowSortedOrder() {
+        RosterIndex.Snapshot roster = index.get("c1");
+
+        assertThat(roster.size()).isEqualTo(3);
+        assertThat(roster.indexOf("ab2")).isZero();
+        assertThat(roster.externalIdAt(2)).isEqualTo("zz1");
+    }
+
+    @Test
+    void invalidateReloadsOnNextLookup() {
+        index.get("c1");
+        when(rosterRepo.findExternalIdsByCourseClassId("c1")).thenReturn(List.of("ab2", "new"));
+
+        index.invalidate("c1");
+
+        assertThat(index.isEnrolled("c1", "new")).isTrue();
+        assertThat(index.isEnrolled("c1", "zz1")).isFalse();
+        verify(rosterRepo, times(2)).findExternalIdsByCourseClassId("c1");
+    }
+
+    @Test
+    void rostersReloadAfterTheTtlEvenWhileInUse() throws InterruptedException {
+        RosterIndex shortLived = new RosterIndex(classRepo, rosterRepo, new SimpleMeterRegistry(), 1 << 20,
+                Duration.ofMillis(200));
+
+        shortLived.get("c1");
+        Thread.sleep(120);
+        shortLived.get("c1");
+        Thread.sleep(120);
+        shortLived.get("c1");
+
+        verify(rosterRepo, times(2)).findExternalIdsByCourseClassId("c1");
+    }
+
+    @Test
+    void unknownClassIsRejectedAndNotCached() {
+        when(rosterRepo.findExternalIdsByCourseClassId("gone")).thenReturn(List.of());
+        when(classRepo.findById("gone")).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> index.get("gone")).hasMessage("Class not found");
+        assertThatThrownBy(() -> index.get("gone")).hasMessage("Class not found");
+        verify(rosterRepo, times(2)).findExternalIdsByCourseClassId("gone");
+    }
+}
@@ -0,0 +1,85 @@
+package com.ml_vision.ml_vision_backend.services;
+
+import com.ml_vision.ml_vision_backend.repositories.AttendanceRecordRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SessionPresenceTrackerTests {
+
+    private final AttendanceRecordRepository recordRepo = mock(AttendanceRecordRepository.class);
+    private final SessionPresenceTracker tracker =
+            new SessionPresenceTracker(recordRepo, new SimpleMeterRegistry(), 100, Duration.ofMinutes(5));
+
+    private static RosterIndex.Snapshot roster(String... sortedIds) {
+        return new RosterIndex.Snapshot(sortedIds);
+    }
+
+    @Test
+    void warmsFromRecordsOnceAndAnswersFromMemory() {
+        RosterIndex.Snapshot roster = roster("a", "b", "c");
+        when(recordRepo.findExternalIdsByCourseClassIdAndSessionId("c1", "s1")).thenReturn(List.of("b", "left-class"));
+
+        SessionPresenceTracker.SessionPresence presence = tracker.get("c1", "s1", roster);
+        assertThat(presence.isRecorded(roster.indexOf("b"))).isTrue();
+        assertThat(presence.isRecorded(roster.indexOf("a"))).isFalse();
+        assertThat(tracker.get("c1", "s1", roster)).isSameAs(presence);
+
+        verify(recordRepo, times(1)).findExternalIdsByCourseClassIdAndSessionId("c1", "s1");
+    }
+
+    @Test
+    void rewarmsWhenRosterChangesOrSessionIsEvicted() {
+        when(recordRepo.findExternalIdsByCourseClassIdAndSessionId("c1", "s1")).thenReturn(List.of("a"));
+        SessionPresenceTracker.SessionPresence first = tracker.get("c1", "s1", roster("a", "b"));
+
+        SessionPresenceTracker.SessionPresence second = tracker.get("c1", "s1", roster("0", "a", "b"));
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.isRecorded(1)).isTrue();
+
+        tracker.evict("c1", "s1");
+        RosterIndex.Snapshot sameRoster = roster("0", "a", "b");
+        tracker.get("c1", "s1", sameRoster);
+        verify(recordRepo, times(3)).findExternalIdsByCourseClassIdAndSessionId("c1", "s1");
+    }
+
+    @Test
+    void exactlyOneConcurrentClaimWins() throws Exception {
+        SessionPresenceTracker.SessionPresence presence = tracker.get("c1", "s2", roster(new String[200]));
+        AtomicInteger wins = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            pool.submit(() -> {
+                start.await();
+                for (int position = 0; position < 200; position++) {
+                    if (presence.claim(position)) {
+                        wins.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertThat(pool.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(wins.get()).isEqualTo(200);
+        presence.release(130);
+        assertThat(presence.isRecorded(130)).isFalse();
+        assertThat(presence.isRecorded(131)).isTrue();
+    }
+}
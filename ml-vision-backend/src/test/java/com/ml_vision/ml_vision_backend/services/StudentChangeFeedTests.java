@@ -0,0 +1,107 @@
+package com.ml_vision.ml_vision_backend.services;
+
+import com.ml_vision.ml_vision_backend.dto.StudentChangeResponse;
+import com.ml_vision.ml_vision_backend.dto.StudentChangesResponse;
+import com.ml_vision.ml_vision_backend.entities.Student;
+import com.ml_vision.ml_vision_backend.repositories.StudentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class StudentChangeFeedTests {
+
+    @Autowired
+    private StudentService studentService;
+    @Autowired
+    private StudentRepository studentRepo;
+    @Autowired
+    private NamedParameterJdbcTemplate jdbc;
+
+    private final String suffix = UUID.randomUUID().toString().substring(0, 8);
+    private final List<String> externalIds = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        externalIds.forEach(id -> studentRepo.findByExternalId(id).ifPresent(studentRepo::delete));
+        jdbc.update("DELETE FROM student_changes WHERE external_id IN (:ids)",
+                new MapSqlParameterSource("ids", externalIds));
+    }
+
+    @Test
+    void reportsOnlyChangesAfterTheCursorWithTombstonesForRemovedIds() {
+        Student unchanged = create("feed-a");
+        Student renamed = create("feed-b");
+        Student deleted = create("feed-c");
+        long cursor = drain(0).cursor();
+
+        studentService.updateStudent(renamed.getId(), "Renamed", "Student", id("feed-b2"), "b@example.edu", null);
+        studentService.deleteStudent(deleted.getId());
+        Feed feed = drain(cursor);
+
+        assertThat(feed.changes()).extracting(StudentChangeResponse::getExternalId)
+                .containsExactly(renamed.getExternalId(), id("feed-b2"), deleted.getExternalId())
+                .doesNotContain(unchanged.getExternalId());
+        assertThat(feed.changes()).filteredOn(StudentChangeResponse::isDeleted)
+                .extracting(StudentChangeResponse::getExternalId)
+                .containsExactly(renamed.getExternalId(), deleted.getExternalId());
+        assertThat(feed.changes().get(1).getStudentId()).isEqualTo(renamed.getId());
+        assertThat(drain(feed.cursor()).changes()).isEmpty();
+    }
+
+    @Test
+    void pagesThroughTheFeedInSequenceOrder() {
+        long start = drain(0).cursor();
+        for (int i = 0; i < 5; i++) {
+            create("feed-page-" + i);
+        }
+
+        StudentChangesResponse first = studentService.getChanges(start, 2);
+        StudentChangesResponse second = studentService.getChanges(first.getCursor(), 2);
+        StudentChangesResponse last = studentService.getChanges(second.getCursor(), 2);
+
+        assertThat(first.isHasMore()).isTrue();
+        assertThat(second.isHasMore()).isTrue();
+        assertThat(last.isHasMore()).isFalse();
+        List<StudentChangeResponse> all = new ArrayList<>(first.getChanges());
+        all.addAll(second.getChanges());
+        all.addAll(last.getChanges());
+        assertThat(all).extracting(StudentChangeResponse::getExternalId).containsExactlyElementsOf(externalIds);
+        assertThat(all).extracting(StudentChangeResponse::getSeq).isSorted().doesNotHaveDuplicates();
+    }
+
+    private Student create(String prefix) {
+        return studentService.createStudent("First", "Last", id(prefix), prefix + "@example.edu", null);
+    }
+
+    private String id(String prefix) {
+        String id = prefix + "-" + suffix;
+        if (!externalIds.contains(id)) {
+            externalIds.add(id);
+        }
+        return id;
+    }
+
+    private Feed drain(long since) {
+        List<StudentChangeResponse> changes = new ArrayList<>();
+        StudentChangesResponse page;
+        do {
+            page = studentService.getChanges(since, 1000);
+            changes.addAll(page.getChanges());
+            since = page.getCursor();
+        } while (page.isHasMore());
+        return new Feed(changes, since);
+    }
+
+    private record Feed(List<StudentChangeResponse> changes, long cursor) {
+    }
+}
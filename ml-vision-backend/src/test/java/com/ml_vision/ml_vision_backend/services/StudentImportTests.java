@@ -0,0 +1,171 @@
+package com.ml_vision.ml_vision_backend.services;
+
+import com.ml_vision.ml_vision_backend.dto.StudentImportResponse;
+import com.ml_vision.ml_vision_backend.entities.CourseClass;
+import com.ml_vision.ml_vision_backend.entities.Student;
+import com.ml_vision.ml_vision_backend.repositories.CourseClassRepository;
+import com.ml_vision.ml_vision_backend.repositories.StudentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "attendance.photos.dir=target/student-import-tests/photos",
+        "attendance.import.work-dir=target/student-import-tests/work"})
+class StudentImportTests {
+
+    private static final int STUDENTS = 10_000;
+    private static final int PHOTOS = 200;
+
+    @Autowired
+    private StudentImportService importService;
+    @Autowired
+    private StudentRepository studentRepo;
+    @Autowired
+    private CourseClassRepository classRepo;
+    @Autowired
+    private NamedParameterJdbcTemplate jdbc;
+
+    private final String prefix = "imp-" + UUID.randomUUID().toString().substring(0, 8) + "-";
+    private CourseClass math;
+    private CourseClass physics;
+
+    @BeforeEach
+    void createClasses() {
+        math = classRepo.save(courseClass(prefix + "MATH"));
+        physics = classRepo.save(courseClass(prefix + "PHYS"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        MapSqlParameterSource params = new MapSqlParameterSource("pattern", prefix + "%");
+        jdbc.update("DELETE FROM course_class_roster WHERE student_external_id LIKE :pattern", params);
+        jdbc.update("DELETE FROM students WHERE external_id LIKE :pattern", params);
+        jdbc.update("DELETE FROM student_changes WHERE external_id LIKE :pattern", params);
+        classRepo.deleteAll(List.of(math, physics));
+    }
+
+    @Test
+    void importsTenThousandStudentsWithEnrollmentsAndPhotosInSeconds() throws Exception {
+        StringBuilder csv = new StringBuilder("externalId,firstName,lastName,email,photo,classes\n");
+        for (int i = 0; i < STUDENTS; i++) {
+            String classes = i % 2 == 0 ? math.getCode() + ";" + physics.getId() : math.getCode();
+            String photo = i < PHOTOS ? "photos/" + i + ".png" : "";
+            csv.append(prefix).append(i).append(",First ").append(i).append(",\"Last, ").append(i).append("\",")
+                    .append("s").append(i).append("@example.edu,").append(photo).append(',').append(classes).append('\n');
+        }
+        csv.append(prefix).append("no-email,Missing,Email,,,\n");
+        csv.append(prefix).append("bad-class,Bad,Class,bad@example.edu,,NOPE-101\n");
+        csv.append(prefix).append("no-photo,No,Photo,nophoto@example.edu,photos/absent.png,\n");
+
+        long started = System.nanoTime();
+        StudentImportResponse job = await(submit(csv, zip(PHOTOS)));
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - started);
+
+        assertThat(job.getStatus()).isEqualTo("COMPLETED");
+        assertThat(job.getRowsRead()).isEqualTo(STUDENTS + 3);
+        assertThat(job.getStudentsUpserted()).isEqualTo(STUDENTS + 2);
+        assertThat(job.getEnrollmentsAdded()).isEqualTo(STUDENTS + STUDENTS / 2);
+        assertThat(job.getPhotosStored()).isEqualTo(PHOTOS);
+        assertThat(job.getErrors()).extracting(StudentImportResponse.RowError::getLine)
+                .containsExactly(STUDENTS + 2L, STUDENTS + 3L, STUDENTS + 4L);
+        assertThat(job.getErrors()).extracting(StudentImportResponse.RowError::getMessage)
+                .containsExactly("missing email", "unknown class NOPE-101", "photo photos/absent.png not found in the archive");
+        assertThat(elapsed).isLessThan(Duration.ofSeconds(30));
+
+        Student first = studentRepo.findByExternalId(prefix + "0").orElseThrow();
+        assertThat(first.getLastName()).isEqualTo("Last, 0");
+        assertThat(first.getPhotoHash()).hasSize(64);
+        assertThat(studentRepo.findByExternalId(prefix + "bad-class")).isPresent();
+        assertThat(studentRepo.findByExternalId(prefix + "no-email")).isEmpty();
+        assertThat(changes()).isEqualTo(STUDENTS + 2);
+    }
+
+    @Test
+    void reimportUpdatesStudentsWithoutDuplicatingEnrollmentsOrDroppingPhotos() throws Exception {
+        String header = "externalId,firstName,lastName,email,photo,classes\n";
+        await(submit(new StringBuilder(header)
+                .append(prefix).append("a,Ann,Old,a@example.edu,photos/0.png,").append(math.getCode()).append('\n'), zip(1)));
+        String hash = studentRepo.findByExternalId(prefix + "a").orElseThrow().getPhotoHash();
+
+        StudentImportResponse job = await(submit(new StringBuilder(header)
+                .append(prefix).append("a,Ann,Older,a@example.edu,,").append(math.getCode()).append('\n')
+                .append(prefix).append("a,Ann,New,a@example.edu,,").append(math.getCode()).append('\n'), null));
+
+        assertThat(job.getStatus()).isEqualTo("COMPLETED");
+        assertThat(job.getEnrollmentsAdded()).isZero();
+        assertThat(job.getErrors()).extracting(StudentImportResponse.RowError::getMessage)
+                .containsExactly("superseded by line 3");
+        Student student = studentRepo.findByExternalId(prefix + "a").orElseThrow();
+        assertThat(student.getLastName()).isEqualTo("New");
+        assertThat(student.getPhotoHash()).isEqualTo(hash);
+        assertThat(jdbc.queryForObject(
+                "SELECT count(*) FROM course_class_roster WHERE student_external_id = :id",
+                new MapSqlParameterSource("id", prefix + "a"), Integer.class)).isEqualTo(1);
+    }
+
+    private StudentImportResponse await(StudentImportResponse submitted) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(120);
+        StudentImportResponse job = submitted;
+        while (!job.getStatus().equals("COMPLETED") && !job.getStatus().equals("FAILED")
+                && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+            job = importService.getJob(submitted.getJobId()).orElseThrow();
+        }
+        return job;
+    }
+
+    private long changes() {
+        return jdbc.queryForObject("SELECT count(*) FROM student_changes WHERE external_id LIKE :pattern",
+                new MapSqlParameterSource("pattern", prefix + "%"), Long.class);
+    }
+
+    private static CourseClass courseClass(String code) {
+        CourseClass courseClass = new CourseClass();
+        courseClass.setName(code);
+        courseClass.setCode(code);
+        return courseClass;
+    }
+
+    private StudentImportResponse submit(CharSequence csv, byte[] photos) {
+        return importService.submit((students, zip) -> {
+            Files.writeString(students, csv);
+            if (photos != null) {
+                Files.write(zip, photos);
+            }
+        });
+    }
+
+    private byte[] zip(int photos) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (int i = 0; i < photos; i++) {
+                zip.putNextEntry(new ZipEntry("photos/" + i + ".png"));
+                BufferedImage image = new BufferedImage(32, 32, BufferedImage.TYPE_INT_RGB);
+                image.setRGB(i % 32, i / 32, 0xFFFFFF);
+                image.setRGB(31, 31, prefix.hashCode() & 0xFFFFFF);
+                ImageIO.write(image, "png", zip);
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,79 @@
+package com.ml_vision.ml_vision_backend.support;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts every JDBC statement the application prepares, whether it comes
+ * from Hibernate or from a {@code JdbcTemplate}. Import it into a test with
+ * {@code @Import(StatementCounter.Config.class)} and autowire the counter.
+ */
+public class StatementCounter {
+
+    private static final Set<String> STATEMENT_FACTORIES = Set.of("prepareStatement", "prepareCall", "createStatement");
+
+    private final AtomicLong count = new AtomicLong();
+
+    public void reset() {
+        count.set(0);
+    }
+
+    public long count() {
+        return count.get();
+    }
+
+    DataSource wrap(DataSource dataSource) {
+        return (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{DataSource.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(dataSource, method, args);
+                    return result instanceof Connection connection ? wrap(connection) : result;
+                });
+    }
+
+    private Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (STATEMENT_FACTORIES.contains(method.getName())) {
+                        count.incrementAndGet();
+                    }
+                    return invoke(connection, method, args);
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @TestConfiguration
+    public static class Config {
+
+        @Bean
+        public StatementCounter statementCounter() {
+            return new StatementCounter();
+        }
+
+        @Bean
+        public static BeanPostProcessor statementCountingDataSource(ObjectProvider<StatementCounter> counter) {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource ? counter.getObject().wrap(dataSource) : bean;
+                }
+            };
+        }
+    }
+}
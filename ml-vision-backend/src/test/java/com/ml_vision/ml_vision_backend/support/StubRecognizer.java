@@ -0,0 +1,172 @@
+package com.ml_vision.ml_vision_backend.support;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ml_vision.ml_vision_backend.dto.MlBatchRecognizeResponse;
+import com.ml_vision.ml_vision_backend.dto.MlRecognizeResponse;
+import com.ml_vision.ml_vision_backend.dto.MlRecognizedStudent;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Stand-in for the Python recognizer: answers {@code POST /recognize},
+ * {@code POST /recognize/batch} and {@code POST /reload} on localhost after
+ * {@code latency} plus up to {@code jitter}, without looking at the images.
+ * The faces "seen" in each image are drawn from the roster of the image's
+ * {@code classId} (see {@link #enroll}) by a {@link Faces} distribution.
+ */
+public class StubRecognizer implements AutoCloseable {
+
+    private static final Pattern CLASS_ID = Pattern.compile(
+            "name=\"classId\"\r\n(?:[^\r\n]+\r\n)*\r\n([^\r\n]*)\r\n");
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<String, List<String>> rosters = new ConcurrentHashMap<>();
+    private final Faces faces;
+    private final long latencyMillis;
+    private final long jitterMillis;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong images = new AtomicLong();
+
+    public StubRecognizer(Faces faces, Duration latency, Duration jitter) throws IOException {
+        this.faces = faces;
+        this.latencyMillis = latency.toMillis();
+        this.jitterMillis = jitter.toMillis();
+        // responses are delayed by sleeping, so every in-flight call needs a thread
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "stub-recognizer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+        server.setExecutor(executor);
+        server.createContext("/recognize", exchange -> respond(exchange, false));
+        server.createContext("/recognize/batch", exchange -> respond(exchange, true));
+        server.createContext("/reload", exchange -> send(exchange, "{}".getBytes(StandardCharsets.UTF_8)));
+        server.start();
+    }
+
+    /** Base URL, e.g. {@code http://localhost:41234}. */
+    public String url() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    /** Faces recognized in images of {@code classId} are drawn from {@code externalIds}. */
+    public void enroll(String classId, List<String> externalIds) {
+        rosters.put(classId, List.copyOf(externalIds));
+    }
+
+    public long calls() {
+        return calls.get();
+    }
+
+    public long images() {
+        return images.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void respond(HttpExchange exchange, boolean batch) throws IOException {
+        byte[] body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = in.readAllBytes();
+        }
+        // one classId field follows each image part
+        List<String> classIds = new ArrayList<>();
+        Matcher matcher = CLASS_ID.matcher(new String(body, StandardCharsets.ISO_8859_1));
+        while (matcher.find()) {
+            classIds.add(matcher.group(1));
+        }
+        if (classIds.isEmpty()) {
+            exchange.sendResponseHeaders(400, -1);
+            exchange.close();
+            return;
+        }
+        calls.incrementAndGet();
+        images.addAndGet(classIds.size());
+
+        List<MlRecognizeResponse> results = new ArrayList<>(classIds.size());
+        for (String classId : classIds) {
+            MlRecognizeResponse result = new MlRecognizeResponse();
+            result.setRecognized(faces.sample(rosters.getOrDefault(classId, List.of())));
+            results.add(result);
+        }
+        try {
+            Thread.sleep(latencyMillis + (jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis + 1) : 0));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (batch) {
+            MlBatchRecognizeResponse response = new MlBatchRecognizeResponse();
+            response.setResults(results);
+            send(exchange, mapper.writeValueAsBytes(response));
+        } else {
+            send(exchange, mapper.writeValueAsBytes(results.get(0)));
+        }
+    }
+
+    private static void send(HttpExchange exchange, byte[] json) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, json.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(json);
+        }
+    }
+
+    /**
+     * Who shows up in a frame: each rostered student who attends is visible
+     * with probability {@code visibility}; a fixed {@code absent} share of
+     * every roster (picked by externalId, so the same students each frame)
+     * never is; and with probability {@code unknown} the frame also holds a
+     * face that matches nobody enrolled.
+     */
+    public record Faces(double visibility, double absent, double unknown) {
+
+        public List<MlRecognizedStudent> sample(List<String> roster) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            List<MlRecognizedStudent> seen = new ArrayList<>();
+            for (String externalId : roster) {
+                if (Math.floorMod(externalId.hashCode(), 1000) >= absent * 1000 && random.nextDouble() < visibility) {
+                    seen.add(face(externalId, 0.6 + random.nextDouble() * 0.4, random));
+                }
+            }
+            if (random.nextDouble() < unknown) {
+                seen.add(face("unknown-" + random.nextInt(1_000_000), 0.5, random));
+            }
+            return seen;
+        }
+
+        private static MlRecognizedStudent face(String externalId, double confidence, ThreadLocalRandom random) {
+            MlRecognizedStudent face = new MlRecognizedStudent();
+            face.setStudentId(externalId);
+            face.setConfidence(confidence);
+            // top,right,bottom,left as the recognizer formats the face box
+            int top = random.nextInt(1000);
+            int left = random.nextInt(1800);
+            face.setPosition(top + "," + (left + 96) + "," + (top + 96) + "," + left);
+            return face;
+        }
+    }
+}
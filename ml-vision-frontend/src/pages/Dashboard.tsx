@@ -1,7 +1,7 @@
 import { motion } from "framer-motion";
 import { Users, BookOpen, UserCheck, TrendingUp } from "lucide-react";
-import { useMemo } from "react";
-import { useQuery } from "@tanstack/react-query";
+import { useEffect, useMemo } from "react";
+import { useQuery, useQueryClient } from "@tanstack/react-query";
 import { useNavigate } from "react-router-dom";
 import { Card, CardContent, CardHeader, CardTitle } from "@/components/ui/card";
 import { Button } from "@/components/ui/button";
@@ -18,8 +18,11 @@ export default function Dashboard() {
     queryFn: classApi.getAll,
   });
 
+  const queryClient = useQueryClient();
+  const attendanceKey = ["attendance-all-today", classes.map((c) => c.id)];
+
   const { data: attendanceAllToday = [], isFetching: isAttendanceLoading } = useQuery({
-    queryKey: ["attendance-all-today", classes.map((c) => c.id)],
+    queryKey: attendanceKey,
     queryFn: async () => {
       if (classes.length === 0) return [];
       const results = await Promise.all(
@@ -37,6 +40,22 @@ export default function Dashboard() {
     enabled: classes.length > 0,
   });
 
+  // one live stream per class appends new records to today's snapshot instead of refetching it
+  useEffect(() => {
+    const unsubscribers = classes.map((cls) =>
+      attendanceApi.subscribe(cls.id, {
+        onRecord: (record) =>
+          queryClient.setQueryData<typeof attendanceAllToday>(attendanceKey, (prev = []) =>
+            prev.some((r) => r.id === record.id)
+              ? prev
+              : [...prev, { ...record, className: cls.name, classId: cls.id }]
+          ),
+        onReset: () => queryClient.invalidateQueries({ queryKey: attendanceKey }),
+      })
+    );
+    return () => unsubscribers.forEach((unsubscribe) => unsubscribe());
+  }, [classes, queryClient]);
+
   const { data: rosterSizes = {} } = useQuery({
     queryKey: ["dashboard-roster-sizes", classes.map((c) => c.id)],
     queryFn: async () => {
@@ -97,6 +97,31 @@ export default function LiveAttendance() {
     };
   }, []);
 
+  const mergeAttendance = (records: AttendanceRecord[]) => {
+    setSavedAttendance((prev) => {
+      const map = new Map(prev.map((r) => [r.id, r]));
+      records.forEach((r) => map.set(r.id, r));
+      return Array.from(map.values()).sort(
+        (a, b) => new Date(b.timestamp).getTime() - new Date(a.timestamp).getTime()
+      );
+    });
+  };
+
+  // records committed by other cameras or the frame pipeline are pushed, not polled
+  useEffect(() => {
+    if (!selectedClass || !sessionId) return;
+    const reload = () =>
+      attendanceApi
+        .getByClass(selectedClass, sessionId)
+        .then(mergeAttendance)
+        .catch(() => undefined);
+    return attendanceApi.subscribe(selectedClass, {
+      sessionId,
+      onRecord: (record) => mergeAttendance([record]),
+      onReset: reload,
+    });
+  }, [selectedClass, sessionId]);
+
   const handleCaptureFrame = async () => {
     const activeSessionId = sessionIdRef.current;
     const activeSessionStartedAt = sessionStartedAtRef.current;
@@ -125,13 +150,7 @@ export default function LiveAttendance() {
         activeSessionStartedAt
       );
 
-      setSavedAttendance((prev) => {
-        const map = new Map(prev.map((r) => [r.id, r]));
-        saved.forEach((r) => map.set(r.id, r));
-        return Array.from(map.values()).sort(
-          (a, b) => new Date(b.timestamp).getTime() - new Date(a.timestamp).getTime()
-        );
-      });
+      mergeAttendance(saved);
 
       // toast({
       //   title: `Recognized ${result.recognized.length} student(s)`,
@@ -13,6 +13,7 @@ export default function Reports() {
   const [searchParams, setSearchParams] = useSearchParams();
   const initialClass = searchParams.get("classId") || "all";
   const [selectedClass, setSelectedClass] = useState(initialClass);
+  const [range, setRange] = useState<"today" | "week" | "month">("week");
   const [isExporting, setIsExporting] = useState(false);
   const [sessionSortDirection, setSessionSortDirection] = useState<"desc" | "asc">("desc");
   const { toast } = useToast();
@@ -22,28 +23,24 @@ export default function Reports() {
     queryFn: classApi.getAll,
   });
 
+  const isAllClasses = !selectedClass || selectedClass === "all";
+
+  // one server-side summary however many classes; it is summed from rollups, not records
+  const { data: report, isFetching: isLoadingReport } = useQuery({
+    queryKey: ["attendance-report", selectedClass, range],
+    queryFn: () =>
+      attendanceApi.getReport({
+        classIds: isAllClasses ? undefined : [selectedClass],
+        from: rangeStart(range),
+        groupBy: "class",
+      }),
+  });
+
+  // individual records (for the session breakdown) only for a single class
   const { data: records = [], isFetching: isLoadingRecords } = useQuery({
     queryKey: ["reports-attendance", selectedClass],
-    queryFn: async () => {
-      // If "all", fetch attendance for all classes
-      if (!classes || classes.length === 0) return [];
-
-      if (selectedClass && selectedClass !== "all") {
-        return attendanceApi.getByClass(selectedClass);
-      }
-
-      const all: AttendanceRecord[] = [];
-      for (const cls of classes) {
-        try {
-          const recs = await attendanceApi.getByClass(cls.id);
-          all.push(...recs);
-        } catch (err) {
-          console.error("Failed fetching attendance for class", cls.id, err);
-        }
-      }
-      return all;
-    },
-    enabled: classes.length > 0,
+    queryFn: () => attendanceApi.getByClass(selectedClass),
+    enabled: !isAllClasses,
   });
 
   useEffect(() => {
@@ -56,45 +53,9 @@ export default function Reports() {
     setSearchParams(params, { replace: true });
   }, [selectedClass, searchParams, setSearchParams]);
 
-  const { data: rosterCounts = {}, isFetching: isLoadingRosters } = useQuery({
-    queryKey: ["report-roster-counts", selectedClass],
-    queryFn: async () => {
-      const target =
-        selectedClass && selectedClass !== "all"
-          ? classes.filter((c) => c.id === selectedClass)
-          : classes;
-
-      const map: Record<string, number> = {};
-      for (const cls of target) {
-        try {
-          const roster = await classApi.getRoster(cls.id);
-          map[cls.id] = roster.length;
-        } catch (err) {
-          console.error("Failed fetching roster for class", cls.id, err);
-          map[cls.id] = 0;
-        }
-      }
-      return map;
-    },
-    enabled: classes.length > 0,
-  });
-
   const summary = useMemo(() => {
-    if (!records.length)
-      return {
-        total: 0,
-        byClass: [] as { classId: string; count: number; name: string }[],
-        sessions: [] as { id: string; startedAt: string; records: AttendanceRecord[] }[],
-      };
-
-    const byClassMap = new Map<string, { classId: string; name: string; count: number }>();
     const sessionsMap = new Map<string, { id: string; startedAt: string; records: AttendanceRecord[] }>();
     records.forEach((r) => {
-      if (!byClassMap.has(r.classId)) {
-        byClassMap.set(r.classId, { classId: r.classId, name: r.className, count: 0 });
-      }
-      byClassMap.get(r.classId)!.count += 1;
-
       if (!r.sessionId) return;
       if (!sessionsMap.has(r.sessionId)) {
         sessionsMap.set(r.sessionId, {
@@ -111,91 +72,67 @@ export default function Reports() {
       return sessionSortDirection === "asc" ? diff : -diff;
     });
 
-    return {
-      total: records.length,
-      byClass: Array.from(byClassMap.values()),
-      sessions,
-    };
+    return { sessions };
   }, [records, sessionSortDirection]);
 
   const averageAttendance = useMemo(() => {
-    const targetIds =
-      selectedClass && selectedClass !== "all"
-        ? [selectedClass]
-        : Object.keys(rosterCounts);
-
-    if (targetIds.length === 0) return null;
-
-    let rosterSum = 0;
-    let attendedSum = 0;
-
-    targetIds.forEach((id) => {
-      const rosterSize = rosterCounts[id] ?? 0;
-      rosterSum += rosterSize;
-
-      const uniquePresent = new Set(
-        records
-          .filter(
-            (r) =>
-              r.classId === id &&
-              (r.status?.toLowerCase?.() === "present" || r.status?.toLowerCase?.() === "present".toLowerCase())
-          )
-          .map((r) => r.studentId)
-      ).size;
-      attendedSum += uniquePresent;
-    });
-
-    if (rosterSum === 0) return null;
-    return (attendedSum / rosterSum) * 100;
-  }, [records, rosterCounts, selectedClass]);
+    if (!report) return null;
+    const recorded = report.present + report.absent + report.late;
+    if (recorded === 0) return null;
+    return ((report.present + report.late) / recorded) * 100;
+  }, [report]);
 
   const handleExport = async () => {
     try {
       setIsExporting(true);
-      const targetClasses =
-        selectedClass && selectedClass !== "all"
-          ? classes.filter((c) => c.id === selectedClass)
-          : classes;
-
-      let rows: AttendanceRecord[] = [];
-      for (const cls of targetClasses) {
-        try {
-          const recs = await attendanceApi.getByClass(cls.id);
-          rows = rows.concat(recs);
-        } catch (err) {
-          console.error("Failed to fetch attendance for class", cls.id, err);
+      let csv: string;
+
+      if (isAllClasses) {
+        // per-class summary for the selected range, from the same server-side report
+        const summaryReport = await attendanceApi.getReport({ from: rangeStart(range), groupBy: "class" });
+        if (summaryReport.rows.length === 0) {
+          toast({ title: "No attendance data to export", variant: "destructive" });
+          return;
+        }
+        csv = [
+          ["Class Name", "Class ID", "Sessions", "Present", "Absent", "Late"].join(","),
+          ...summaryReport.rows.map((r) =>
+            [`"${r.className ?? ""}"`, r.classId, r.sessions, r.present, r.absent, r.late].join(",")
+          ),
+        ].join("\n");
+      } else {
+        const rows: AttendanceRecord[] = await attendanceApi.getByClass(selectedClass);
+
+        if (rows.length === 0) {
+          toast({ title: "No attendance data to export", variant: "destructive" });
+          return;
         }
-      }
 
-      if (rows.length === 0) {
-        toast({ title: "No attendance data to export", variant: "destructive" });
-        return;
+        const header = [
+          "Class Name",
+          "Class Code",
+          "Student Name",
+          "Student External ID",
+          "Timestamp",
+          "Confidence",
+          "Session",
+        ];
+        csv = [
+          header.join(","),
+          ...rows.map((r) =>
+            [
+              `"${r.className}"`,
+              r.classId,
+              `"${r.studentName}"`,
+              r.studentExternalId,
+              r.timestamp,
+              r.confidence,
+              r.sessionId || "",
+            ].join(",")
+          ),
+        ].join("\n");
       }
 
-      const header = [
-        "Class Name",
-        "Class Code",
-        "Student Name",
-        "Student External ID",
-        "Timestamp",
-        "Confidence",
-        "Session",
-      ];
-      const csv = [
-        header.join(","),
-        ...rows.map((r) =>
-          [
-            `"${r.className}"`,
-            r.classId,
-            `"${r.studentName}"`,
-            r.studentExternalId,
-            r.timestamp,
-            r.confidence,
-            r.sessionId || "",
-          ].join(",")
-        ),
-      ].join("\n");
-
       const blob = new Blob([csv], { type: "text/csv;charset=utf-8;" });
       const url = URL.createObjectURL(blob);
       const link = document.createElement("a");
@@ -243,7 +180,7 @@ export default function Reports() {
             <div className="flex items-center justify-between">
               <div className="flex-1">
                 <p className="text-sm text-muted-foreground mb-2">Date Range</p>
-                <Select defaultValue="week">
+                <Select value={range} onValueChange={(value: "today" | "week" | "month") => setRange(value)}>
                   <SelectTrigger>
                     <SelectValue />
                   </SelectTrigger>
@@ -291,9 +228,9 @@ export default function Reports() {
               </p>
               <p className="text-sm text-muted-foreground mt-1">Average Attendance</p>
               <p className="text-xs text-muted-foreground mt-2">
-                {isLoadingRosters
-                  ? "Loading roster..."
-                  : "Computed from unique attendees / roster"}
+                {isLoadingReport
+                  ? "Loading report..."
+                  : "Present or late / recorded, over the selected range"}
               </p>
             </div>
           </CardContent>
@@ -310,9 +247,9 @@ export default function Reports() {
             <CardTitle>Attendance Summary</CardTitle>
           </CardHeader>
           <CardContent>
-            {isLoadingRecords ? (
+            {isLoadingReport || isLoadingRecords ? (
               <p className="text-muted-foreground text-center py-6">Loading attendance...</p>
-            ) : records.length === 0 ? (
+            ) : !report || report.sessions === 0 ? (
               <div className="text-center py-8 text-muted-foreground">
                 <p>No attendance records available yet</p>
                 <p className="text-sm mt-2">Attendance history will appear once you start taking attendance</p>
@@ -321,90 +258,97 @@ export default function Reports() {
               <div className="space-y-6">
                 <div className="flex flex-wrap gap-4 text-sm text-muted-foreground">
                   <span className="font-semibold text-foreground">
-                    Total records: {summary.total}
+                    Sessions: {report.sessions} · Present: {report.present} · Absent: {report.absent} · Late:{" "}
+                    {report.late}
                   </span>
-                  {summary.byClass.map((c) => (
-                    <span key={c.classId}>
-                      {c.name}: {c.count}
-                    </span>
-                  ))}
-                </div>
-
-                <div className="flex items-center gap-2 text-sm">
-                  <span className="text-xs uppercase tracking-wide text-foreground/70">
-                    Session sort
-                  </span>
-                  <Select
-                    value={sessionSortDirection}
-                    onValueChange={(value: "asc" | "desc") => setSessionSortDirection(value)}
-                  >
-                    <SelectTrigger className="w-40">
-                      <SelectValue />
-                    </SelectTrigger>
-                    <SelectContent>
-                      <SelectItem value="desc">Newest first</SelectItem>
-                      <SelectItem value="asc">Oldest first</SelectItem>
-                    </SelectContent>
-                  </Select>
+                  {report.rows
+                    .filter((c) => c.sessions > 0)
+                    .map((c) => (
+                      <span key={c.classId}>
+                        {c.className}: {c.present + c.late}/{c.present + c.absent + c.late}
+                      </span>
+                    ))}
                 </div>
 
-                <div className="space-y-4">
-                  {summary.sessions.length === 0 && (
-                    <div className="text-muted-foreground text-sm">
-                      No sessions found (records missing session ids)
+                {!isAllClasses && (
+                  <>
+                    <div className="flex items-center gap-2 text-sm">
+                      <span className="text-xs uppercase tracking-wide text-foreground/70">
+                        Session sort
+                      </span>
+                      <Select
+                        value={sessionSortDirection}
+                        onValueChange={(value: "asc" | "desc") => setSessionSortDirection(value)}
+                      >
+                        <SelectTrigger className="w-40">
+                          <SelectValue />
+                        </SelectTrigger>
+                        <SelectContent>
+                          <SelectItem value="desc">Newest first</SelectItem>
+                          <SelectItem value="asc">Oldest first</SelectItem>
+                        </SelectContent>
+                      </Select>
                     </div>
-                  )}
 
-                  {summary.sessions.map((session) => (
-                    <div key={session.id} className="border rounded-lg p-3">
-                      <div className="flex items-center justify-between mb-2 text-sm text-muted-foreground">
-                        <span>
-                          Session {session.id.slice(0, 8)} —{" "}
-                          {new Date(session.startedAt).toLocaleString()}
-                        </span>
-                        <span>{session.records.length} record(s)</span>
-                      </div>
-
-                      <div className="overflow-x-auto border rounded-md">
-                        <table className="w-full text-sm">
-                          <thead className="bg-muted/50">
-                            <tr>
-                              <th className="text-left px-4 py-2">Class</th>
-                              <th className="text-left px-4 py-2">Student</th>
-                              <th className="text-left px-4 py-2">Timestamp</th>
-                              <th className="text-left px-4 py-2">Status</th>
-                              <th className="text-right px-4 py-2">Confidence</th>
-                            </tr>
-                          </thead>
-                          <tbody>
-                            {session.records
-                              .slice()
-                              .sort(
-                                (a, b) =>
-                                  new Date(b.timestamp).getTime() -
-                                  new Date(a.timestamp).getTime()
-                              )
-                              .map((r) => (
-                                <tr key={r.id} className="border-t">
-                                  <td className="px-4 py-2">{r.className}</td>
-                                  <td className="px-4 py-2">{r.studentName}</td>
-                                  <td className="px-4 py-2">
-                                    {new Date(r.timestamp).toLocaleString()}
-                                  </td>
-                                  <td className="px-4 py-2 capitalize">
-                                    {r.status?.toLowerCase()}
-                                  </td>
-                                  <td className="px-4 py-2 text-right">
-                                    {(r.confidence * 100).toFixed(0)}%
-                                  </td>
+                    <div className="space-y-4">
+                      {summary.sessions.length === 0 && (
+                        <div className="text-muted-foreground text-sm">
+                          No sessions found (records missing session ids)
+                        </div>
+                      )}
+
+                      {summary.sessions.map((session) => (
+                        <div key={session.id} className="border rounded-lg p-3">
+                          <div className="flex items-center justify-between mb-2 text-sm text-muted-foreground">
+                            <span>
+                              Session {session.id.slice(0, 8)} —{" "}
+                              {new Date(session.startedAt).toLocaleString()}
+                            </span>
+                            <span>{session.records.length} record(s)</span>
+                          </div>
+
+                          <div className="overflow-x-auto border rounded-md">
+                            <table className="w-full text-sm">
+                              <thead className="bg-muted/50">
+                                <tr>
+                                  <th className="text-left px-4 py-2">Class</th>
+                                  <th className="text-left px-4 py-2">Student</th>
+                                  <th className="text-left px-4 py-2">Timestamp</th>
+                                  <th className="text-left px-4 py-2">Status</th>
+                                  <th className="text-right px-4 py-2">Confidence</th>
                                 </tr>
-                              ))}
-                          </tbody>
-                        </table>
-                      </div>
+                              </thead>
+                              <tbody>
+                                {session.records
+                                  .slice()
+                                  .sort(
+                                    (a, b) =>
+                                      new Date(b.timestamp).getTime() -
+                                      new Date(a.timestamp).getTime()
+                                  )
+                                  .map((r) => (
+                                    <tr key={r.id} className="border-t">
+                                      <td className="px-4 py-2">{r.className}</td>
+                                      <td className="px-4 py-2">{r.studentName}</td>
+                                      <td className="px-4 py-2">
+                                        {new Date(r.timestamp).toLocaleString()}
+                                      </td>
+                                      <td className="px-4 py-2 capitalize">
+                                        {r.status?.toLowerCase()}
+                                      </td>
+                                      <td className="px-4 py-2 text-right">
+                                        {(r.confidence * 100).toFixed(0)}%
+                                      </td>
+                                    </tr>
+                                  ))}
+                              </tbody>
+                            </table>
+                          </div>
+                        </div>
+                      ))}
                     </div>
-                  ))}
-                </div>
+                  </>
+                )}
               </div>
             )}
           </CardContent>
@@ -413,3 +357,12 @@ export default function Reports() {
     </div>
   );
 }
+
+/** First day (YYYY-MM-DD, local time) of the report range picked in the Date Range select */
+function rangeStart(range: "today" | "week" | "month"): string {
+  const start = new Date();
+  if (range === "week") start.setDate(start.getDate() - start.getDay());
+  if (range === "month") start.setDate(1);
+  const pad = (n: number) => String(n).padStart(2, "0");
+  return `${start.getFullYear()}-${pad(start.getMonth() + 1)}-${pad(start.getDate())}`;
+}
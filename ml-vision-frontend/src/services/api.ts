@@ -40,6 +40,28 @@ export interface AttendanceRecord {
   sessionStartedAt: string;
 }
 
+export interface AttendanceReportRow {
+  classId: string | null; // set when grouped by class
+  className: string | null;
+  period: string | null; // first day of the period (YYYY-MM-DD) when grouped by day/week/month
+  sessions: number;
+  present: number;
+  absent: number;
+  late: number;
+}
+
+export interface AttendanceReport {
+  from: string | null;
+  to: string | null;
+  groupBy: "class" | "day" | "week" | "month";
+  classes: number;
+  sessions: number;
+  present: number;
+  absent: number;
+  late: number;
+  rows: AttendanceReportRow[];
+}
+
 export interface RecognizedStudent {
   student_id: string; // Python returns this (externalId)
   confidence: number;
@@ -224,6 +246,23 @@ export const attendanceApi = {
     return res.json();
   },
 
+  /** Server-side summary of several classes (all when classIds is omitted) over a date range */
+  getReport: async (params: {
+    classIds?: string[];
+    from?: string;
+    to?: string;
+    groupBy?: AttendanceReport["groupBy"];
+  }): Promise<AttendanceReport> => {
+    const query = new URLSearchParams();
+    params.classIds?.forEach((id) => query.append("classIds", id));
+    if (params.from) query.set("from", params.from);
+    if (params.to) query.set("to", params.to);
+    query.set("groupBy", params.groupBy ?? "class");
+    const res = await fetch(`${API_BASE_URL}/attendance/report?${query.toString()}`);
+    if (!res.ok) throw new Error("Failed to fetch attendance report");
+    return res.json();
+  },
+
   getByClassToday: async (classId: string): Promise<AttendanceRecord[]> => {
     const res = await fetch(
       `${API_BASE_URL}/attendance/class/${classId}/today`
@@ -232,6 +271,29 @@ export const attendanceApi = {
     return res.json();
   },
 
+  /**
+   * Pushes records of a class (optionally one session) as they are committed.
+   * EventSource reconnects by itself and resumes via Last-Event-ID; onReset
+   * fires when the server no longer has the missed records, so the caller
+   * should reload its snapshot. Returns a function that closes the stream.
+   */
+  subscribe: (
+    classId: string,
+    handlers: {
+      sessionId?: string;
+      onRecord: (record: AttendanceRecord) => void;
+      onReset?: () => void;
+    }
+  ): (() => void) => {
+    const query = handlers.sessionId ? `?sessionId=${encodeURIComponent(handlers.sessionId)}` : "";
+    const source = new EventSource(`${API_BASE_URL}/attendance/class/${classId}/live${query}`);
+    source.addEventListener("attendance", (e) =>
+      handlers.onRecord(JSON.parse((e as MessageEvent).data))
+    );
+    source.addEventListener("reset", () => handlers.onReset?.());
+    return () => source.close();
+  },
+
   getByStudent: async (studentId: string): Promise<AttendanceRecord[]> => {
     const res = await fetch(`${API_BASE_URL}/attendance/student/${studentId}`);
     if (!res.ok) throw new Error("Failed to fetch student attendance");
@@ -0,0 +1,77 @@
+"""Read the Spring backend's face embedding store so unchanged photos are not re-encoded."""
+
+from __future__ import annotations
+
+import struct
+from dataclasses import dataclass
+from typing import Dict
+
+import numpy as np
+import requests
+import structlog
+
+from .config import Settings
+
+logger = structlog.get_logger(__name__)
+
+# Mirrors EmbeddingStore.java: little-endian "MLVE" header, then length-prefixed records.
+MAGIC = b"MLVE"
+VERSION = 1
+DIMENSIONS = 128
+HEADER = struct.Struct("<4siii")
+RECORD_PREFIX = struct.Struct("<ibH")
+KIND_ENCODING = 1
+KIND_TOMBSTONE = 2
+PHOTO_HASH_BYTES = 32
+
+
+@dataclass(frozen=True)
+class StoredEmbedding:
+    photo_hash: str  # hex SHA-256 of the photo the encoding came from
+    encoding: np.ndarray
+
+
+def parse_store(data: bytes) -> Dict[str, StoredEmbedding]:
+    """Decode a store file into {externalId: StoredEmbedding}; the last record per id wins."""
+    if len(data) < HEADER.size:
+        return {}
+    magic, version, dimensions, _ = HEADER.unpack_from(data, 0)
+    if magic != MAGIC or version != VERSION or dimensions != DIMENSIONS:
+        raise ValueError(f"unsupported embedding store (version={version}, dimensions={dimensions})")
+
+    entries: Dict[str, StoredEmbedding] = {}
+    offset = HEADER.size
+    view = memoryview(data)
+    while offset + 4 <= len(data):
+        length, kind, id_length = RECORD_PREFIX.unpack_from(data, offset)
+        body = offset + 4
+        if length <= 0 or body + length > len(data):
+            break  # torn tail
+        id_start = body + RECORD_PREFIX.size - 4
+        external_id = bytes(view[id_start:id_start + id_length]).decode("utf-8")
+        if kind == KIND_TOMBSTONE:
+            entries.pop(external_id, None)
+        else:
+            hash_start = id_start + id_length
+            photo_hash = bytes(view[hash_start:hash_start + PHOTO_HASH_BYTES]).hex()
+            encoding = np.frombuffer(data, dtype="<f4", count=DIMENSIONS, offset=hash_start + PHOTO_HASH_BYTES)
+            entries[external_id] = StoredEmbedding(photo_hash, encoding.astype(np.float64))
+        offset = body + length
+    return entries
+
+
+def fetch_embeddings(settings: Settings) -> Dict[str, StoredEmbedding]:
+    """
+    Download `GET /api/faces/store` from the Spring backend. Returns an empty
+    mapping when the backend is unreachable, so every photo is encoded afresh.
+    """
+    url = f"{settings.api_base_url.rstrip('/')}/api/faces/store"
+    try:
+        resp = requests.get(url, timeout=30)
+        resp.raise_for_status()
+        entries = parse_store(resp.content)
+    except Exception as exc:  # pragma: no cover - network
+        logger.warning("embedding_store.fetch_failed", url=url, error=str(exc))
+        return {}
+    logger.info("embedding_store.fetched", entries=len(entries), bytes=len(resp.content))
+    return entries
@@ -13,6 +13,7 @@ import cv2
 from .api_client import AttendanceApiClient, AttendancePayload
 from .capture import FrameCapture
 from .config import Settings
+from .embedding_store import fetch_embeddings
 from .recognizer import DeduplicatingRecognizer, FaceRecognizer
 from .roster_sync import sync_roster
 
@@ -74,13 +75,14 @@ def run() -> None:
         roster_dir=str(settings.roster_dir),
     )
 
-    # Pull latest roster photos from Spring backend
-    sync_roster(settings)
+    # Pull latest roster photos from Spring backend, reusing stored encodings of unchanged photos
+    roster = sync_roster(settings, fetch_embeddings(settings))
 
     recognizer = FaceRecognizer(
         roster_dir=settings.roster_dir,
         tolerance=settings.min_confidence,
         use_mock_backend=args.mock_recognizer,
+        preloaded={sid: stored.encoding for sid, stored in roster.reused.items()},
     )
     logger.info("agent.loaded_roster", faces=len(recognizer._known_ids))
     dedupe = DeduplicatingRecognizer(recognizer, dedupe_seconds=settings.dedupe_seconds)
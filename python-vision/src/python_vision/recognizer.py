@@ -2,13 +2,16 @@
 
 from __future__ import annotations
 
+import time
 from dataclasses import dataclass
 from pathlib import Path
-from typing import Dict, Iterable, List, Optional, Tuple
+from typing import Dict, Iterable, List, Mapping, Optional, Tuple
 
 import numpy as np
 import structlog
 
+from .roster_sync import parse_photo_name
+
 try:
     import face_recognition
 except ImportError:  # pragma: no cover - optional heavy dependency
@@ -27,8 +30,9 @@ class RecognitionResult:
 
 class FaceRecognizer:
     """
-    Loads known encodings from disk (named `<studentId>*.jpg`) and attempts to
-    identify students in each frame.
+    Loads known encodings from disk (named `<studentId>[_<photoHash>].jpg`),
+    plus any `preloaded` encodings reused from the backend's embedding store,
+    and attempts to identify students in each frame.
     """
 
     def __init__(
@@ -36,6 +40,7 @@ class FaceRecognizer:
         roster_dir: Path,
         tolerance: float = 0.5,
         use_mock_backend: bool = False,
+        preloaded: Optional[Mapping[str, np.ndarray]] = None,
     ) -> None:
         if face_recognition is None and not use_mock_backend:
             raise RuntimeError(
@@ -46,28 +51,49 @@ class FaceRecognizer:
         self.use_mock_backend = use_mock_backend
         self._known_encodings: List[np.ndarray] = []
         self._known_ids: List[str] = []
-        self._load_known_faces()
+        self._computed: List[Tuple[str, Optional[str], np.ndarray]] = []
+        self._load_known_faces(preloaded or {})
 
-    def reload(self) -> None:
+    def reload(self, preloaded: Optional[Mapping[str, np.ndarray]] = None) -> None:
         """Reload known faces from disk (e.g., after roster sync)."""
         self._known_encodings.clear()
         self._known_ids.clear()
-        self._load_known_faces()
+        self._computed.clear()
+        self._load_known_faces(preloaded or {})
 
-    def _load_known_faces(self) -> None:
+    def _load_known_faces(self, preloaded: Mapping[str, np.ndarray]) -> None:
         if self.use_mock_backend:
             logger.warning("recognizer.mock_backend_enabled")
             return
+        started = time.perf_counter()
+        for student_id, encoding in preloaded.items():
+            self._known_encodings.append(encoding)
+            self._known_ids.append(student_id)
         for image_path in self._face_image_paths():
             image = face_recognition.load_image_file(str(image_path))
             encodings = face_recognition.face_encodings(image)
             if not encodings:
                 logger.warning("recognizer.no_face_found", file=str(image_path))
                 continue
-            student_id = image_path.stem.split("_")[0]
+            student_id, photo_hash = parse_photo_name(image_path.stem)
             self._known_encodings.append(encodings[0])
             self._known_ids.append(student_id)
+            self._computed.append((student_id, photo_hash, encodings[0]))
             logger.info("recognizer.added_face", student_id=student_id, file=str(image_path))
+        logger.info(
+            "recognizer.loaded_faces",
+            reused=len(preloaded),
+            computed=len(self._computed),
+            duration_ms=round((time.perf_counter() - started) * 1000, 1),
+        )
+
+    def known_faces(self) -> List[Tuple[str, np.ndarray]]:
+        """(student_id, encoding) pairs currently loaded, reused or computed."""
+        return list(zip(self._known_ids, self._known_encodings))
+
+    def computed_faces(self) -> List[Tuple[str, Optional[str], np.ndarray]]:
+        """(student_id, photo_hash, encoding) computed from photos on the last load."""
+        return list(self._computed)
 
     def _face_image_paths(self) -> Iterable[Path]:
         for path in sorted(self.roster_dir.glob("*.jpg")):
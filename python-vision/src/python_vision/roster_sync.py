@@ -2,18 +2,60 @@
 
 from __future__ import annotations
 
+import json
+import re
+from dataclasses import dataclass, field
 from pathlib import Path
-from typing import Iterable
+from typing import Dict, List, Mapping, Optional, Sequence, Set, Tuple
 from urllib.parse import urljoin
 
 import requests
 import structlog
 
 from .config import Settings
+from .embedding_store import StoredEmbedding
 
 logger = structlog.get_logger(__name__)
 
 
+STATE_FILE = ".roster-state.json"
+CHANGES_PAGE_SIZE = 1000
+# the backend's photoHash: hex SHA-256 of the photo
+_PHOTO_HASH = re.compile(r"[0-9a-fA-F]{64}")
+
+
+@dataclass
+class RosterSync:
+    downloaded: int = 0
+    # externalId -> stored encoding whose photo hash still matches the backend
+    reused: Dict[str, StoredEmbedding] = field(default_factory=dict)
+
+
+@dataclass
+class RosterState:
+    """Students as of `cursor` in the backend's change feed, persisted between syncs."""
+
+    cursor: int = 0
+    # externalId -> {"photoUrl": ..., "photoHash": ...}
+    students: Dict[str, dict] = field(default_factory=dict)
+
+    @classmethod
+    def load(cls, path: Path) -> "RosterState":
+        try:
+            raw = json.loads(path.read_text())
+            return cls(cursor=int(raw["cursor"]), students=dict(raw["students"]))
+        except FileNotFoundError:
+            return cls()
+        except Exception as exc:  # corrupt state: resync from the start of the feed
+            logger.warning("roster_sync.state_unreadable", path=str(path), error=str(exc))
+            return cls()
+
+    def save(self, path: Path) -> None:
+        tmp = path.with_suffix(".tmp")
+        tmp.write_text(json.dumps({"cursor": self.cursor, "students": self.students}))
+        tmp.replace(path)
+
+
 def _ensure_dir(path: Path) -> None:
     path.mkdir(parents=True, exist_ok=True)
 
@@ -24,52 +66,151 @@ def _download_file(url: str, dest: Path, timeout: int = 15) -> None:
     dest.write_bytes(resp.content)
 
 
-def sync_roster(settings: Settings) -> int:
-    """
-    Pull all students from the Spring backend and download their photos into
-    `settings.roster_dir` as {externalId}.jpg so the recognizer can load them.
-    Returns the number of photos written.
-    """
-    base = settings.api_base_url.rstrip("/")
-    students_url = f"{base}/api/students"
-    _ensure_dir(settings.roster_dir)
+def parse_photo_name(stem: str) -> Tuple[str, Optional[str]]:
+    """Split a roster photo's file stem, {externalId}_{photoHash} or {externalId}, into (externalId, photoHash)."""
+    # externalIds may contain "_" themselves, so only a trailing hash is split off
+    external_id, sep, suffix = stem.rpartition("_")
+    if sep and _PHOTO_HASH.fullmatch(suffix):
+        return external_id, suffix
+    return stem, None
 
-    # Start from a clean slate to avoid stale photos
-    for file in settings.roster_dir.glob("*"):
-        try:
-            file.unlink()
-        except Exception as exc:  # pragma: no cover - filesystem
-            logger.warning("roster_sync.cleanup_failed", path=str(file), error=str(exc))
 
+def _photo_files(roster_dir: Path) -> Dict[str, List[Path]]:
+    files: Dict[str, List[Path]] = {}
+    for pattern in ("*.jpg", "*.png"):
+        for path in roster_dir.glob(pattern):
+            files.setdefault(parse_photo_name(path.stem)[0], []).append(path)
+    return files
+
+
+def _unlink(path: Path) -> None:
     try:
-        resp = requests.get(students_url, timeout=20)
+        path.unlink()
+    except Exception as exc:  # pragma: no cover - filesystem
+        logger.warning("roster_sync.cleanup_failed", path=str(path), error=str(exc))
+
+
+def _apply_changes(session: requests.Session, base: str, state: RosterState) -> Set[str]:
+    """Advance `state` through `GET /api/students/changes`; returns the externalIds that changed."""
+    changed: Set[str] = set()
+    while True:
+        resp = session.get(
+            f"{base}/api/students/changes",
+            params={"since": state.cursor, "limit": CHANGES_PAGE_SIZE},
+            timeout=20,
+        )
         resp.raise_for_status()
-    except Exception as exc:  # pragma: no cover - network
-        logger.error("roster_sync.fetch_failed", url=students_url, error=str(exc))
-        return 0
-
-    students: Iterable[dict] = resp.json() or []
-    written = 0
-    for student in students:
-        external_id = student.get("externalId")
-        photo_url = student.get("photoUrl")
-        if not external_id or not photo_url:
-            continue
-
-        # resolve full URL if needed
-        full_url = photo_url if photo_url.startswith("http") else urljoin(base, photo_url)
-        dest = settings.roster_dir / f"{external_id}.jpg"
+        page = resp.json()
+        for change in page.get("changes", []):
+            external_id = change["externalId"]
+            changed.add(external_id)
+            if change.get("deleted"):
+                state.students.pop(external_id, None)
+            else:
+                state.students[external_id] = {
+                    # the backend's downscaled recognizer copy when it has one
+                    "photoUrl": change.get("recognizerPhotoUrl") or change.get("photoUrl"),
+                    "photoHash": change.get("photoHash"),
+                }
+        state.cursor = int(page.get("cursor", state.cursor))
+        if not page.get("hasMore"):
+            return changed
+
+
+def sync_roster(settings: Settings, stored: Optional[Mapping[str, StoredEmbedding]] = None) -> RosterSync:
+    """
+    Bring `settings.roster_dir` up to date with the Spring backend's student
+    change feed, downloading only photos that are new or changed, as
+    {externalId}_{photoHash}.jpg. Students whose photo hash matches an entry
+    in `stored` need no photo at all; their stored encoding is returned for
+    reuse instead, so the directory only holds photos that still need encoding.
+    """
+    stored = stored or {}
+    result = RosterSync()
+    base = settings.api_base_url.rstrip("/")
+    _ensure_dir(settings.roster_dir)
+    state_path = settings.roster_dir / STATE_FILE
+    state = RosterState.load(state_path)
 
+    with requests.Session() as session:
         try:
-            _download_file(full_url, dest)
-            written += 1
+            changed = _apply_changes(session, base, state)
         except Exception as exc:  # pragma: no cover - network
-            logger.warning(
-                "roster_sync.download_failed",
-                student=external_id,
-                url=full_url,
-                error=str(exc),
-            )
-
-    logger.info("roster_sync.completed", downloaded=written, dir=str(settings.roster_dir))
-    return written
+            # keep serving the roster as of the last successful sync
+            logger.error("roster_sync.fetch_failed", url=f"{base}/api/students/changes", error=str(exc))
+            changed = set()
+
+        files = _photo_files(settings.roster_dir)
+        for stale_id in set(files) - set(state.students):
+            for path in files.pop(stale_id):
+                _unlink(path)
+
+        for external_id, student in state.students.items():
+            photo_url = student.get("photoUrl")
+            photo_hash = student.get("photoHash")
+            existing = files.get(external_id, [])
+
+            cached = stored.get(external_id)
+            if photo_hash and cached is not None and cached.photo_hash == photo_hash:
+                result.reused[external_id] = cached
+                for path in existing:
+                    _unlink(path)
+                continue
+            if not photo_url:
+                continue
+
+            name = f"{external_id}_{photo_hash}" if photo_hash else external_id
+            dest = settings.roster_dir / f"{name}.jpg"
+            if dest in existing and external_id not in changed:
+                continue
+
+            # resolve full URL if needed
+            full_url = photo_url if photo_url.startswith("http") else urljoin(base, photo_url)
+            try:
+                _download_file(full_url, dest)
+                result.downloaded += 1
+            except Exception as exc:  # pragma: no cover - network
+                logger.warning(
+                    "roster_sync.download_failed",
+                    student=external_id,
+                    url=full_url,
+                    error=str(exc),
+                )
+                continue
+            for path in existing:
+                if path != dest:
+                    _unlink(path)
+
+    state.save(state_path)
+    logger.info(
+        "roster_sync.completed",
+        cursor=state.cursor,
+        changed=len(changed),
+        downloaded=result.downloaded,
+        reused=len(result.reused),
+        dir=str(settings.roster_dir),
+    )
+    return result
+
+
+def publish_encodings(settings: Settings, faces: Sequence[Tuple[str, Optional[str], Sequence[float]]]) -> int:
+    """
+    Upload each (externalId, photoHash, encoding) to the Spring backend's face
+    gallery (`PUT /api/faces/{externalId}`) so it can match encodings itself
+    and persist them in its embedding store. Returns the number accepted.
+    """
+    base = settings.api_base_url.rstrip("/")
+    published = 0
+    with requests.Session() as session:
+        for external_id, photo_hash, encoding in faces:
+            url = f"{base}/api/faces/{external_id}"
+            body = {"encoding": [float(v) for v in encoding], "photoHash": photo_hash}
+            try:
+                resp = session.put(url, json=body, timeout=10)
+                resp.raise_for_status()
+                published += 1
+            except Exception as exc:  # pragma: no cover - network
+                logger.warning("roster_sync.publish_failed", student=external_id, error=str(exc))
+
+    logger.info("roster_sync.published_encodings", published=published)
+    return published
@@ -16,8 +16,9 @@ from flask import Flask, jsonify, request
 from flask_cors import CORS  # <-- CORS ENABLED
 
 from .config import Settings
+from .embedding_store import fetch_embeddings
 from .recognizer import FaceRecognizer, RecognitionResult
-from .roster_sync import sync_roster
+from .roster_sync import publish_encodings, sync_roster
 
 logger = structlog.get_logger(__name__)
 
@@ -25,16 +26,25 @@ logger = structlog.get_logger(__name__)
 # Load settings + recognizer
 # ----------------------------------------------------
 settings = Settings.load(require_api=False)
-# Sync roster photos from Spring backend before loading recognizer
-sync_roster(settings)
+_started = time.perf_counter()
+# Sync roster photos from Spring backend before loading recognizer; photos whose
+# hash matches the backend's embedding store are reused instead of re-encoded
+roster = sync_roster(settings, fetch_embeddings(settings))
 
 recognizer = FaceRecognizer(
     roster_dir=settings.roster_dir,      # folder containing .jpg files
     tolerance=settings.min_confidence,
     use_mock_backend=False,
+    preloaded={sid: stored.encoding for sid, stored in roster.reused.items()},
 )
 
-logger.info("flask_server.loaded_roster", faces=len(recognizer._known_ids))
+publish_encodings(settings, recognizer.computed_faces())
+logger.info(
+    "flask_server.loaded_roster",
+    faces=len(recognizer._known_ids),
+    reused=len(roster.reused),
+    duration_ms=round((time.perf_counter() - _started) * 1000, 1),
+)
 
 # ----------------------------------------------------
 # Flask app with full CORS support
@@ -51,10 +61,18 @@ def health():
 @app.post("/reload")
 def reload_roster():
     """Sync roster from Spring backend and reload recognizer encodings."""
-    downloaded = sync_roster(settings)
-    recognizer.reload()
-    logger.info("flask_server.reloaded_roster", photos=downloaded, faces=len(recognizer._known_ids))
-    return jsonify({"status": "reloaded", "downloaded": downloaded, "faces": len(recognizer._known_ids)})
+    started = time.perf_counter()
+    roster = sync_roster(settings, fetch_embeddings(settings))
+    recognizer.reload({sid: stored.encoding for sid, stored in roster.reused.items()})
+    publish_encodings(settings, recognizer.computed_faces())
+    logger.info(
+        "flask_server.reloaded_roster",
+        photos=roster.downloaded,
+        reused=len(roster.reused),
+        faces=len(recognizer._known_ids),
+        duration_ms=round((time.perf_counter() - started) * 1000, 1),
+    )
+    return jsonify({"status": "reloaded", "downloaded": roster.downloaded, "faces": len(recognizer._known_ids)})
 
 
 # ----------------------------------------------------
@@ -68,6 +86,30 @@ def _decode_image(stream) -> np.ndarray:
     return image
 
 
+# ----------------------------------------------------
+# Utility: run the recognizer on one decoded frame
+# ----------------------------------------------------
+def _recognize_frame(frame: np.ndarray) -> List[dict]:
+    matches: List[RecognitionResult] = recognizer.identify(frame)
+
+    response = []
+    for match in matches:
+        box = match.box
+        position: Optional[str] = None
+        if box:
+            top, right, bottom, left = box
+            position = ",".join(map(str, [top, right, bottom, left]))
+
+        response.append(
+            {
+                "student_id": match.student_id,   # <- THIS is what we must debug
+                "confidence": match.confidence,
+                "position": position,
+            }
+        )
+    return response
+
+
 # ----------------------------------------------------
 # POST /recognize — return recognized students
 # ----------------------------------------------------
@@ -88,23 +130,7 @@ def recognize():
         logger.warning("flask_server.decode_failed", error=str(exc))
         return jsonify({"error": str(exc)}), 400
 
-    matches: List[RecognitionResult] = recognizer.identify(frame)
-
-    response = []
-    for match in matches:
-        box = match.box
-        position: Optional[str] = None
-        if box:
-            top, right, bottom, left = box
-            position = ",".join(map(str, [top, right, bottom, left]))
-
-        response.append(
-            {
-                "student_id": match.student_id,   # <- THIS is what we must debug
-                "confidence": match.confidence,
-                "position": position,
-            }
-        )
+    response = _recognize_frame(frame)
 
     logger.info("flask_server.recognize_complete", matches=len(response))
 
@@ -116,6 +142,35 @@ def recognize():
     return jsonify({"recognized": response})
 
 
+# ----------------------------------------------------
+# POST /recognize/batch — several frames in one request
+# ----------------------------------------------------
+@app.post("/recognize/batch")
+def recognize_batch():
+    """
+    Accepts multipart/form-data with a repeated `image` field (the backend
+    coalesces frames from several cameras into one call).
+    Returns one entry per image, in request order: either
+    `{"recognized": [...]}` or `{"error": "..."}` for an undecodable image.
+    """
+    images = request.files.getlist("image")
+    if not images:
+        return jsonify({"error": "image file missing"}), 400
+
+    results = []
+    for image_file in images:
+        try:
+            frame = _decode_image(image_file.stream)
+        except ValueError as exc:
+            logger.warning("flask_server.decode_failed", error=str(exc))
+            results.append({"error": str(exc)})
+            continue
+        results.append({"recognized": _recognize_frame(frame)})
+
+    logger.info("flask_server.recognize_batch_complete", frames=len(results))
+    return jsonify({"results": results})
+
+
 # ----------------------------------------------------
 # Run server
 # ----------------------------------------------------
@@ -0,0 +1,39 @@
+from python_vision import roster_sync
+from python_vision.config import Settings
+from python_vision.roster_sync import parse_photo_name
+
+HASH = "ab" * 32
+
+
+def test_parse_photo_name_keeps_underscores_in_external_ids():
+    assert parse_photo_name(f"STU_001_{HASH}") == ("STU_001", HASH)
+    assert parse_photo_name(f"abc123_{HASH}") == ("abc123", HASH)
+    assert parse_photo_name("STU_001") == ("STU_001", None)
+    assert parse_photo_name("abc123") == ("abc123", None)
+
+
+def test_sync_keeps_unchanged_photos_of_underscored_external_ids(tmp_path, monkeypatch):
+    photo = tmp_path / f"STU_001_{HASH}.jpg"
+    photo.write_bytes(b"jpeg")
+    other = tmp_path / f"STU_{HASH}.jpg"
+    other.write_bytes(b"jpeg")
+
+    def apply_changes(session, base, state):
+        state.students = {
+            "STU_001": {"photoUrl": "/photos/a.jpg", "photoHash": HASH},
+            "STU": {"photoUrl": "/photos/b.jpg", "photoHash": HASH},
+        }
+        return set()
+
+    def download_file(url, dest, timeout=15):
+        raise AssertionError(f"unexpected download of {url}")
+
+    monkeypatch.setattr(roster_sync, "_apply_changes", apply_changes)
+    monkeypatch.setattr(roster_sync, "_download_file", download_file)
+    settings = Settings(session_id="s", roster_dir=tmp_path, frame_source="0", api_base_url="http://backend")
+
+    result = roster_sync.sync_roster(settings)
+
+    assert result.downloaded == 0
+    assert photo.exists()
+    assert other.exists()